@@ -0,0 +1,16 @@
+#!/bin/sh
+# -----------------------------------------------------------------------------
+# Script for migrating the payload directory of the default Payload Storage Provider
+# created by a Holodeck B2B version before 8.0.0 to the current layout. The path
+# of the payload directory must be given as argument.
+#
+#   AXIS2_HOME   MAY point at the Holodeck B2B home directory
+#
+#   JAVA_HOME    MUST point at your Java Runtime Environment installation.
+#
+# -----------------------------------------------------------------------------
+
+# Get the context and from that find the location of setenv.sh
+. `dirname $0`/setenv.sh > /dev/null
+
+exec "$JAVA_HOME/bin/java" $JAVA_OPTS -classpath "$HB2B_CP" org.holodeckb2b.storage.payloads.PayloadDirectoryMigrationTool $*
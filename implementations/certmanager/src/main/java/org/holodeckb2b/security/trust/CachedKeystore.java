@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.security.trust;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.TrustAnchor;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.holodeckb2b.commons.security.CertificateUtils;
+import org.holodeckb2b.commons.security.KeystoreUtils;
+
+/**
+ * Keeps the content of one of the key stores used by the {@link DefaultCertManager} in memory so it does not need to be
+ * read from disk and decrypted on every request. The key store is reloaded when the modification time or size of the
+ * key store file changes, so changes to the key store are still picked up without restart.
+ * <p>On load indexes are created on the certificates contained in the key store by certificate, public key, Subject Key
+ * Identifier and issuer and serial number so finding an entry does not require a scan of all entries. The index on the
+ * certificates' thumbprints is created on first use as it depends on the digest algorithm used. When multiple entries
+ * match the alias of the first one in the key store is returned, like was done when scanning the key store.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+class CachedKeystore {
+	private static final Logger log = LogManager.getLogger(CachedKeystore.class);
+
+	/**
+	 * Path to the key store file
+	 */
+	private final Path		path;
+	/**
+	 * Password to access the key store
+	 */
+	private final String	password;
+	/**
+	 * The currently loaded content of the key store
+	 */
+	private volatile Content	content;
+
+	/**
+	 * Creates a new instance for the key store at the given path. The key store is loaded on first use.
+	 *
+	 * @param path		path to the key store file
+	 * @param password	password to access the key store
+	 */
+	CachedKeystore(final Path path, final String password) {
+		this.path = path;
+		this.password = password;
+	}
+
+	/**
+	 * @return the path of the key store file
+	 */
+	Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the current content of the key store. If the key store file has changed since it was last loaded it is
+	 * reloaded. If the changed key store cannot be loaded, for example because it is still being written, the
+	 * previously loaded content is used and reloading is retried on the next request.
+	 *
+	 * @return	the current content of the key store
+	 * @throws KeyStoreException when the key store file cannot be accessed and no content was loaded before
+	 */
+	Content get() throws KeyStoreException {
+		final BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		} catch (IOException ioe) {
+			log.error("Could not access key store ({}) : {}", path, ioe.getMessage());
+			throw new KeyStoreException("Key store not accessible", ioe);
+		}
+		Content current = content;
+		if (current != null && current.isLoadedFrom(attrs))
+			return current;
+
+		synchronized (this) {
+			current = content;
+			if (current != null && current.isLoadedFrom(attrs))
+				return current;
+			try {
+				log.debug("(Re)loading key store ({})", path);
+				current = new Content(KeystoreUtils.load(path, password), attrs.lastModifiedTime(), attrs.size());
+				content = current;
+				log.info("Loaded key store ({}) with {} entries", path, current.getCertificates().size());
+			} catch (KeyStoreException loadFailure) {
+				if (current == null)
+					throw loadFailure;
+				log.warn("Could not reload changed key store ({}), using previous version : {}", path,
+						 loadFailure.getMessage());
+			}
+			return current;
+		}
+	}
+
+	/**
+	 * Represents the content of the key store at the time it was loaded, together with the indexes on the contained
+	 * certificates. An instance does not change after creation, except for the lazily created thumbprint indexes.
+	 */
+	static class Content {
+		private final KeyStore 						keystore;
+		private final FileTime						modified;
+		private final long							size;
+		private final Map<String, X509Certificate>	certificates;
+		private final Map<X509Certificate, String>	byCertificate = new HashMap<>();
+		private final Map<PublicKey, String>		byPublicKey = new HashMap<>();
+		private final Map<ByteBuffer, String>		bySKI = new HashMap<>();
+		private final Map<List<Object>, String>		byIssuerSerial = new HashMap<>();
+		private final Map<String, Map<ByteBuffer, String>> byThumbprint = new ConcurrentHashMap<>();
+		private final Set<TrustAnchor>				trustAnchors;
+
+		private Content(final KeyStore ks, final FileTime modified, final long size) throws KeyStoreException {
+			this.keystore = ks;
+			this.modified = modified;
+			this.size = size;
+			final Map<String, X509Certificate> certs = new LinkedHashMap<>();
+			final Set<TrustAnchor> anchors = new HashSet<>();
+			for (Enumeration<String> aliases = ks.aliases(); aliases.hasMoreElements();) {
+				final String alias = aliases.nextElement();
+				final Certificate c = ks.getCertificate(alias);
+				if (!(c instanceof X509Certificate))
+					continue;
+				final X509Certificate cert = (X509Certificate) c;
+				certs.put(alias, cert);
+				anchors.add(new TrustAnchor(cert, null));
+				byCertificate.putIfAbsent(cert, alias);
+				byPublicKey.putIfAbsent(cert.getPublicKey(), alias);
+				final byte[] ski = CertificateUtils.getSKI(cert);
+				if (ski != null)
+					bySKI.putIfAbsent(ByteBuffer.wrap(ski), alias);
+				byIssuerSerial.putIfAbsent(issuerSerialKey(cert.getIssuerX500Principal(), cert.getSerialNumber()),
+										   alias);
+			}
+			this.certificates = Collections.unmodifiableMap(certs);
+			this.trustAnchors = Collections.unmodifiableSet(anchors);
+		}
+
+		private boolean isLoadedFrom(final BasicFileAttributes attrs) {
+			return modified.equals(attrs.lastModifiedTime()) && size == attrs.size();
+		}
+
+		/**
+		 * @return the loaded key store. Note that the key store must not be modified.
+		 */
+		KeyStore getKeyStore() {
+			return keystore;
+		}
+
+		/**
+		 * @return the certificates in the key store mapped by their alias, in the order of the key store
+		 */
+		Map<String, X509Certificate> getCertificates() {
+			return certificates;
+		}
+
+		/**
+		 * @return the certificates in the key store as trust anchors
+		 */
+		Set<TrustAnchor> getTrustAnchors() {
+			return trustAnchors;
+		}
+
+		/**
+		 * @param cert	the certificate to check
+		 * @return		<code>true</code> if the given certificate is contained in the key store,
+		 * 				<code>false</code> otherwise
+		 */
+		boolean contains(final X509Certificate cert) {
+			return byCertificate.containsKey(cert);
+		}
+
+		/**
+		 * @param cert	the certificate to search for
+		 * @return		alias of the entry holding the given certificate, <code>null</code> if not found
+		 */
+		String findAlias(final X509Certificate cert) {
+			return byCertificate.get(cert);
+		}
+
+		/**
+		 * @param key	the public key to search for
+		 * @return		alias of the entry holding a certificate with the given public key, <code>null</code> if not found
+		 */
+		String findAlias(final PublicKey key) {
+			return byPublicKey.get(key);
+		}
+
+		/**
+		 * @param ski	the Subject Key Identifier to search for
+		 * @return		alias of the entry holding a certificate with the given SKI, <code>null</code> if not found
+		 */
+		String findAliasBySKI(final byte[] ski) {
+			return ski != null ? bySKI.get(ByteBuffer.wrap(ski)) : null;
+		}
+
+		/**
+		 * @param issuer	the issuer of the certificate to search for
+		 * @param serial	the serial number of the certificate to search for
+		 * @return			alias of the entry holding the certificate with the given issuer and serial number,
+		 * 					<code>null</code> if not found
+		 */
+		String findAlias(final X500Principal issuer, final BigInteger serial) {
+			return issuer != null && serial != null ? byIssuerSerial.get(issuerSerialKey(issuer, serial)) : null;
+		}
+
+		/**
+		 * @param hash		the thumbprint of the certificate to search for
+		 * @param digester	the digester used to calculate the thumbprint
+		 * @return			alias of the entry holding the certificate with the given thumbprint, <code>null</code> if
+		 * 					not found
+		 */
+		String findAlias(final byte[] hash, final MessageDigest digester) {
+			if (hash == null)
+				return null;
+			return byThumbprint.computeIfAbsent(digester.getAlgorithm(), alg -> {
+											final Map<ByteBuffer, String> index = new HashMap<>();
+											digester.reset();
+											certificates.forEach((alias, cert) -> {
+												try {
+													index.putIfAbsent(ByteBuffer.wrap(
+																digester.digest(cert.getEncoded())), alias);
+												} catch (CertificateEncodingException invalidCert) {
+													log.warn("Could not calculate thumbprint of certificate [{}]",
+															 alias);
+												}
+											});
+											return index;
+										}).get(ByteBuffer.wrap(hash));
+		}
+
+		/**
+		 * Creates the key for the issuer and serial number index. The issuer name is converted to a {@link X500Name} so
+		 * different representations of the same name match, like when using {@link
+		 * CertificateUtils#hasIssuerSerial(X509Certificate, X500Principal, BigInteger)}.
+		 */
+		private static List<Object> issuerSerialKey(final X500Principal issuer, final BigInteger serial) {
+			return Arrays.asList(new X500Name(issuer.getName()), serial);
+		}
+	}
+}
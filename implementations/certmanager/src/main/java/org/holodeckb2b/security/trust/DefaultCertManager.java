@@ -19,6 +19,7 @@ package org.holodeckb2b.security.trust;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.InvalidAlgorithmParameterException;
@@ -44,7 +45,6 @@ import java.security.cert.TrustAnchor;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -62,7 +62,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.holodeckb2b.common.VersionInfo;
-import org.holodeckb2b.commons.security.CertificateUtils;
 import org.holodeckb2b.commons.security.KeystoreUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.config.IConfiguration;
@@ -73,6 +72,7 @@ import org.holodeckb2b.interfaces.security.trust.IValidationResult;
 import org.holodeckb2b.interfaces.security.trust.IValidationResult.Trust;
 import org.holodeckb2b.security.trust.config.CertManagerConfigurationType;
 import org.holodeckb2b.security.trust.config.PasswordType;
+import org.holodeckb2b.security.trust.config.ValidationCacheType;
 
 /**
  * Is the default implementation of the {@link ICertificateManager} which manages the storage of private keys and
@@ -105,6 +105,12 @@ import org.holodeckb2b.security.trust.config.PasswordType;
  * certificates. This check is disabled by default for back-ward compatibility and can be enabled in the configuration.
  * Note however that when enabled and used in an environment where certificates don't provide OSCP information this will
  * result in a lot of {@link ISignatureVerifiedWithWarning} events as the revocation check could not be executed.
+ * <p>
+ * To prevent reading the key stores from disk on each request their content is kept in memory and only reloaded when
+ * the key store file changes, see {@link CachedKeystore}. This also means that changes to the key stores become
+ * effective without a restart of Holodeck B2B. Results of trust validations of certificate paths are cached, see {@link
+ * ValidationResultCache}, and the cache can be configured using the optional <code>ValidationCache</code> element in the
+ * configuration file.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  * @since 5.0.0	This class replaces the certificate manager implementation part of the <i>default Security
@@ -149,6 +155,54 @@ public class DefaultCertManager implements ICertificateManager {
      */
     private boolean enableDirectTrust;
 
+    /**
+     * The in memory copies of the keystores holding the key pairs, trading partner certificates and trust anchors
+     */
+    private CachedKeystore privateKeystore;
+    private CachedKeystore partnerKeystore;
+    private CachedKeystore trustKeystore;
+
+    /**
+     * The trust configuration currently used for validation
+     */
+    private volatile TrustConfiguration trustConfig;
+
+    /**
+     * The cache of trust validation results
+     */
+    private ValidationResultCache validationCache;
+
+    /**
+     * Holds the validation parameters prepared for the set of trust anchors, i.e. the certificates in the trust anchor
+     * key store and, when direct trust is enabled, the partner key store. As the sets of trust anchors of the key stores
+     * are only re-created when a key store is reloaded, the configuration can be re-used as long as it was created
+     * from the current sets.
+     */
+    private static class TrustConfiguration {
+    	final Set<TrustAnchor>	trusted;
+    	final Set<TrustAnchor>	partners;
+    	final PKIXParameters	params;
+
+    	TrustConfiguration(final Set<TrustAnchor> trusted, final Set<TrustAnchor> partners,
+    					   final boolean revocationCheck) throws InvalidAlgorithmParameterException {
+    		this.trusted = trusted;
+    		this.partners = partners;
+    		final Set<TrustAnchor> anchors;
+    		if (partners == null)
+    			anchors = trusted;
+    		else {
+    			anchors = new HashSet<>(trusted);
+    			anchors.addAll(partners);
+    		}
+    		params = new PKIXParameters(anchors);
+    		params.setRevocationEnabled(revocationCheck);
+    	}
+
+    	boolean isCreatedFrom(final Set<TrustAnchor> trusted, final Set<TrustAnchor> partners) {
+    		return this.trusted == trusted && this.partners == partners;
+    	}
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -181,6 +235,13 @@ public class DefaultCertManager implements ICertificateManager {
             															certMgrConfig.isPerformRevocationCheck();
             enableDirectTrust = certMgrConfig.isDirectTrustPartnerCertificates() == null ? false :
             														certMgrConfig.isDirectTrustPartnerCertificates();
+            // Check validation cache settings
+            final ValidationCacheType cacheConfig = certMgrConfig.getValidationCache();
+            validationCache = new ValidationResultCache(
+            		cacheConfig == null || cacheConfig.getMaxSize() == null ? ValidationResultCache.DEFAULT_MAX_SIZE
+            															: cacheConfig.getMaxSize(),
+            		cacheConfig == null || cacheConfig.getTimeToLive() == null ? ValidationResultCache.DEFAULT_TTL
+            															   : cacheConfig.getTimeToLive());
             // Load key store configs
             privateKeystorePath = ensureAbsolutePath(certMgrConfig.getKeystores().getPrivateKeys().getPath(), hb2bHome);
             privateKeystorePwd = getPassword(certMgrConfig.getKeystores().getPrivateKeys().getPassword());
@@ -201,6 +262,9 @@ public class DefaultCertManager implements ICertificateManager {
         	log.fatal("One or more of the configured key stores are not available!");
         	throw new SecurityProcessingException("Invalid configuration!");
         }
+        privateKeystore = new CachedKeystore(privateKeystorePath, privateKeystorePwd);
+        partnerKeystore = new CachedKeystore(partnerKeystorePath, partnerKeystorePwd);
+        trustKeystore = new CachedKeystore(trustKeystorePath, trustKeystorePwd);
         // We enable OCSP by default, even if revocation checking is disabled
         Security.setProperty("ocsp.enable", "true");
 
@@ -258,27 +322,27 @@ public class DefaultCertManager implements ICertificateManager {
 
     @Override
     public String findKeyPair(X509Certificate cert) throws SecurityProcessingException {
-    	return findKeyPair("certificate", c -> c.equals(cert));
+    	return findKeyPair("certificate", ks -> ks.findAlias(cert));
     }
 
     @Override
     public String findKeyPair(PublicKey key) throws SecurityProcessingException {
-		return findKeyPair("public key", c -> c.getPublicKey().equals(key));
+		return findKeyPair("public key", ks -> ks.findAlias(key));
     }
 
     @Override
     public String findKeyPair(byte[] skiBytes) throws SecurityProcessingException {
-    	return findKeyPair("SKI", c -> CertificateUtils.hasSKI(c, skiBytes));
+    	return findKeyPair("SKI", ks -> ks.findAliasBySKI(skiBytes));
     }
 
     @Override
     public String findKeyPair(X500Principal issuer, BigInteger serial) throws SecurityProcessingException {
-    	return findKeyPair("IssuerAndSerial", c -> CertificateUtils.hasIssuerSerial(c, issuer, serial));
+    	return findKeyPair("IssuerAndSerial", ks -> ks.findAlias(issuer, serial));
     }
 
     @Override
     public String findKeyPair(byte[] hash, MessageDigest digester) throws SecurityProcessingException {
-    	return findKeyPair("thumbprint", c -> CertificateUtils.hasThumbprint(c, hash, digester));
+    	return findKeyPair("thumbprint", ks -> ks.findAlias(hash, digester));
     }
 
     /**
@@ -286,14 +350,14 @@ public class DefaultCertManager implements ICertificateManager {
      * condition.
      *
      * @param descr		description of search condition, used for logging
-     * @param cond		the condition to match
+     * @param lookup	the index look up to execute
      * @return			the alias of the first entry that holds a certificate that matches the condition,
      * 					<code>null</code> if no matching entry is found
      * @throws SecurityProcessingException when an error occurs searching the key store
      */
-    private String findKeyPair(String descr, CertCondition cond) throws SecurityProcessingException {
+    private String findKeyPair(String descr, AliasLookup lookup) throws SecurityProcessingException {
     	try {
-    		return findEntry(KeystoreUtils.load(privateKeystorePath, privateKeystorePwd), cond);
+    		return lookup.find(privateKeystore.get());
 		} catch (KeyStoreException ex) {
 	        log.error("Problem searching for key pair based on {}!\n\tError details: {}", descr, ex.getMessage());
 	        throw new SecurityProcessingException("Error searching for keypair", ex);
@@ -304,7 +368,7 @@ public class DefaultCertManager implements ICertificateManager {
     public KeyStore.PrivateKeyEntry getKeyPair(final String alias, final String password)
                                                                                    throws SecurityProcessingException {
         try {
-        	KeyStore ks = KeystoreUtils.load(privateKeystorePath, privateKeystorePwd);
+        	KeyStore ks = privateKeystore.get().getKeyStore();
         	final char[] pwd = !Utils.isNullOrEmpty(password) ? password.toCharArray() : new char[] {};
         	return !ks.containsAlias(alias) ? null : (KeyStore.PrivateKeyEntry) ks.getEntry(alias,
                                                               					new KeyStore.PasswordProtection(pwd));
@@ -318,7 +382,7 @@ public class DefaultCertManager implements ICertificateManager {
     @Override
     public List<X509Certificate> getKeyPairCertificates(final String alias) throws SecurityProcessingException {
     	try {
-			Certificate[] cc = KeystoreUtils.load(privateKeystorePath, privateKeystorePwd).getCertificateChain(alias);
+			Certificate[] cc = privateKeystore.get().getKeyStore().getCertificateChain(alias);
 			if (cc != null && cc.length > 0) {
 				List<X509Certificate> result = new ArrayList<>(cc.length);
 				for(Certificate c : cc)
@@ -335,8 +399,7 @@ public class DefaultCertManager implements ICertificateManager {
     @Override
     public X509Certificate getPartnerCertificate(final String alias) throws SecurityProcessingException {
     	try {
-    		return (X509Certificate)
-    				KeystoreUtils.load(partnerKeystorePath, partnerKeystorePwd).getCertificate(alias);
+    		return (X509Certificate) partnerKeystore.get().getKeyStore().getCertificate(alias);
 		} catch (KeyStoreException e) {
 			log.error("Could not access the partner keystore! Error details: {}", e.getMessage());
 			throw new SecurityProcessingException("Unable to get partner certificate", e);
@@ -346,11 +409,7 @@ public class DefaultCertManager implements ICertificateManager {
     @Override
     public Collection<X509Certificate> getAllTlsCACertificates() throws SecurityProcessingException {
     	try {
-    		KeyStore ks = KeystoreUtils.load(trustKeystorePath, trustKeystorePwd);
-    		Collection<X509Certificate> certs = new ArrayList<>();
-    		for (Enumeration<String> aliases = ks.aliases(); aliases.hasMoreElements();)
-	    		certs.add((X509Certificate) ks.getCertificate(aliases.nextElement()));
-    		return certs;
+    		return new ArrayList<>(trustKeystore.get().getCertificates().values());
     	} catch (KeyStoreException kse) {
 	    	log.error("Could not access the trust keystore! Error details: {}", kse.getMessage());
 	    	throw new SecurityProcessingException("Unable to get trust certificates", kse);
@@ -360,7 +419,7 @@ public class DefaultCertManager implements ICertificateManager {
     @Override
     public String findCertificate(final X509Certificate cert) throws SecurityProcessingException {
     	try {
-    		return findEntry(KeystoreUtils.load(partnerKeystorePath, partnerKeystorePwd), c -> c.equals(cert));
+    		return partnerKeystore.get().findAlias(cert);
     	} catch (KeyStoreException e) {
     		log.error("Could not access the partner keystore! Error details: {}", e.getMessage());
     		throw new SecurityProcessingException("Unable to get partner certificate", e);
@@ -370,33 +429,33 @@ public class DefaultCertManager implements ICertificateManager {
     @Override
     public X509Certificate findCertificate(final X500Principal issuer, final BigInteger serial)
     																				throws SecurityProcessingException {
-    	return getCertificate("IssuerAndSerial", c -> CertificateUtils.hasIssuerSerial(c, issuer, serial));
+    	return getCertificate("IssuerAndSerial", ks -> ks.findAlias(issuer, serial));
     }
 
     @Override
     public X509Certificate findCertificate(final byte[] skiBytes) throws SecurityProcessingException {
-    	return getCertificate("SKI", c -> CertificateUtils.hasSKI(c, skiBytes));
+    	return getCertificate("SKI", ks -> ks.findAliasBySKI(skiBytes));
     }
 
     @Override
     public X509Certificate findCertificate(byte[] hash, MessageDigest digester) throws SecurityProcessingException {
-    	return getCertificate("thumbprint", c -> CertificateUtils.hasThumbprint(c, hash, digester));
+    	return getCertificate("thumbprint", ks -> ks.findAlias(hash, digester));
     }
 
     /**
      * Helper method to search the registered partner certificates for a certificate that matches the given condition.
      *
      * @param descr		description of search condition, used for logging
-     * @param cond		the condition to match
-     * @return			the alias of the first entry that holds a certificate that matches the condition,
-     * 					<code>null</code> if no matching entry is found
+     * @param lookup	the index look up to execute
+     * @return			the first certificate that matches the condition, <code>null</code> if no matching certificate
+     * 					is found
      * @throws SecurityProcessingException when an error occurs searching the key store
      */
-    private X509Certificate getCertificate(String descr, CertCondition cond) throws SecurityProcessingException {
+    private X509Certificate getCertificate(String descr, AliasLookup lookup) throws SecurityProcessingException {
     	try {
-    		KeyStore ks = KeystoreUtils.load(partnerKeystorePath, partnerKeystorePwd);
-    		String alias = findEntry(ks, cond);
-    		return alias != null ? (X509Certificate) ks.getCertificate(alias) : null;
+    		CachedKeystore.Content ks = partnerKeystore.get();
+    		String alias = lookup.find(ks);
+    		return alias != null ? ks.getCertificates().get(alias) : null;
     	} catch (KeyStoreException e) {
     		log.error("Problem finding the trading partner certificate based on {}!\n\tError details: {}", descr,
     					e.getMessage());
@@ -405,29 +464,11 @@ public class DefaultCertManager implements ICertificateManager {
     }
 
     /**
-     * Helper method to search a key store for an entry that holds a certificate matching a given condition.
-     *
-     * @param kt	indicator which key store to search
-     * @param cond	the condition to check
-     * @return		the alias of the matching entry if found, <code>null</code> if not found
-     * @throws KeyStoreException when an error occurs searching the key store
+     * Functional interface used to look up the alias of the entry holding a certificate that matches a given condition,
+     * e.g. has the specified SKI, in the indexes of a key store.
      */
-    private String findEntry(KeyStore ks, CertCondition cond) throws KeyStoreException {
-		for (Enumeration<String> e = ks.aliases(); e.hasMoreElements();) {
-            String a = e.nextElement();
-            Certificate c = ks.getCertificate(a);
-            if (c != null && cond.matches((X509Certificate) c))
-            	return a;
-		}
-		return null;
-    }
-
-    /**
-     * Functional interface used to determine whether the given Certificate matches a given condition, e.g. has the
-     * specified SKI.
-     */
-    private interface CertCondition {
-    	boolean matches(X509Certificate c);
+    private interface AliasLookup {
+    	String find(CachedKeystore.Content ks);
     }
 
     @Override
@@ -466,12 +507,27 @@ public class DefaultCertManager implements ICertificateManager {
 			}
 		}
 
-		log.trace("Create the set of trust anchors");
-		Set<TrustAnchor> trustAnchors = new HashSet<TrustAnchor>();
-		trustAnchors.addAll(getTrustAnchorsFromKeyStore(trustKeystorePath, trustKeystorePwd));
-		if (enableDirectTrust) {
-			log.debug("Direct trust in partner certificates is enabled, add as trust anchors");
-			trustAnchors.addAll(getTrustAnchorsFromKeyStore(partnerKeystorePath, partnerKeystorePwd));
+		log.trace("Get the set of trust anchors");
+		final CachedKeystore.Content trusted, partners;
+		try {
+			trusted = trustKeystore.get();
+			partners = enableDirectTrust ? partnerKeystore.get() : null;
+		} catch (KeyStoreException kse) {
+			log.error("Could not retrieve trust anchors from key store! Error details: {}", kse.getMessage());
+			throw new SecurityProcessingException("Could not retrieve trust anchors");
+		}
+		final TrustConfiguration trustConfiguration;
+		try {
+			trustConfiguration = getTrustConfiguration(trusted, partners);
+		} catch (InvalidAlgorithmParameterException ex) {
+			throw new SecurityProcessingException("Error during trust validation", ex);
+		}
+
+		final ByteBuffer fingerprint = ValidationResultCache.fingerprint(certs);
+		final IValidationResult cachedResult = validationCache.get(fingerprint, trustConfiguration);
+		if (cachedResult != null) {
+			log.debug("Using cached validation result, certificate path is trusted");
+			return cachedResult;
 		}
 
 		log.trace("Calculate cert path to validate (i.e. find first trust anchor)");
@@ -482,12 +538,13 @@ public class DefaultCertManager implements ICertificateManager {
 		for(int i = 0; !foundAnchor && i < certs.size(); i++) {
 			X509Certificate c = certs.get(i);
 			cpToCheck.add(c);
-			foundAnchor = trustAnchors.parallelStream().anyMatch(a -> a.getTrustedCert().equals(c));
+			foundAnchor = trusted.contains(c) || (partners != null && partners.contains(c));
 		}
 
 		if (cpToCheck.isEmpty()) {
 			log.debug("Leaf certificate (Subject={}) is directly trusted", certs.get(0).getSubjectDN().getName());
-			return new ValidationResult(Trust.OK, cpToCheck, "Leaf certificate is registered a trust anchor");
+			return validationCache.put(fingerprint, trustConfiguration,
+						new ValidationResult(Trust.OK, cpToCheck, "Leaf certificate is registered a trust anchor"));
 		}
 
 		if (log.isTraceEnabled()) {
@@ -501,8 +558,7 @@ public class DefaultCertManager implements ICertificateManager {
 
 		try {
 			CertPath cp = CertificateFactory.getInstance("X.509").generateCertPath(cpToCheck);
-			PKIXParameters params = new PKIXParameters(trustAnchors);
-			params.setRevocationEnabled(performRevocationCheck);
+			PKIXParameters params = trustConfiguration.params;
 
 			CertPathValidator validator = CertPathValidator.getInstance("PKIX", BouncyCastleProvider.PROVIDER_NAME);
 			try {
@@ -513,7 +569,7 @@ public class DefaultCertManager implements ICertificateManager {
 					log.debug("Certificate path is trusted! {}", getValidatedPath(cpToCheck));
 				else
 					log.info("Certficate path is trusted!");
-				return new ValidationResult(Trust.OK, cpToCheck);
+				return validationCache.put(fingerprint, trustConfiguration, new ValidationResult(Trust.OK, cpToCheck));
 			} catch (CertPathValidatorException validationException) {
 				// If reason is "unspecified" or "undetermined" this could be caused by a problem in the OCSP check, so
 				// try again without
@@ -523,8 +579,10 @@ public class DefaultCertManager implements ICertificateManager {
 					try {
 						log.debug("Validation with revocation check failed ({}), retry without",
 									validationException.getMessage());
-						params.setRevocationEnabled(false);
-						PKIXCertPathValidatorResult validation = (PKIXCertPathValidatorResult) validator.validate(cp, params);
+						PKIXParameters noRevocationCheck = (PKIXParameters) params.clone();
+						noRevocationCheck.setRevocationEnabled(false);
+						PKIXCertPathValidatorResult validation = (PKIXCertPathValidatorResult)
+																		validator.validate(cp, noRevocationCheck);
 						// Add the found trust anchor to cert path to include in result
 						cpToCheck.add(validation.getTrustAnchor().getTrustedCert());
 						log.warn("Certificate path could only be validated without revocation check! {}",
@@ -550,26 +608,29 @@ public class DefaultCertManager implements ICertificateManager {
 	}
 
 	/**
-	 * Helper method to load the certificates from a key store as trust anchors for validation.
+	 * Helper method to get the trust configuration to use for validation. The current configuration is re-used until
+	 * one of the key stores providing the trust anchors changes.
 	 *
-	 * @param ksPath	Path to key store
-	 * @param ksPwd		Password to access key store
-	 * @return			Set of trust anchors
-	 * @throws SecurityProcessingException	If the key store cannot be accessed or certificates cannot be read
+	 * @param trusted	Content of the trust anchor key store
+	 * @param partners	Content of the partner key store if direct trust is enabled, <code>null</code> otherwise
+	 * @return			The trust configuration
+	 * @throws InvalidAlgorithmParameterException	When the validation parameters cannot be created, e.g. because there
+	 * 												are no trust anchors
 	 */
-	private Set<TrustAnchor> getTrustAnchorsFromKeyStore(final Path ksPath, final String ksPwd)
-																					throws SecurityProcessingException {
-		HashSet<TrustAnchor>	trustanchors = new HashSet<TrustAnchor>();
-		try {
-			KeyStore ks = KeystoreUtils.load(ksPath, ksPwd);
-			Enumeration<String> aliases = ks.aliases();
-			while (aliases.hasMoreElements())
-				trustanchors.add(new TrustAnchor((X509Certificate) ks.getCertificate(aliases.nextElement()), null));
-		} catch (KeyStoreException kse) {
-			log.error("Could not retrieve trust anchors from key store ({})", ksPath);
-			throw new SecurityProcessingException("Could not retrieve trust anchors");
+	private TrustConfiguration getTrustConfiguration(final CachedKeystore.Content trusted,
+													 final CachedKeystore.Content partners)
+																			throws InvalidAlgorithmParameterException {
+		if (partners != null)
+			log.debug("Direct trust in partner certificates is enabled, add as trust anchors");
+
+		final Set<TrustAnchor> partnerAnchors = partners != null ? partners.getTrustAnchors() : null;
+		TrustConfiguration current = trustConfig;
+		if (current == null || !current.isCreatedFrom(trusted.getTrustAnchors(), partnerAnchors)) {
+			log.trace("Prepare validation parameters for current set of trust anchors");
+			current = new TrustConfiguration(trusted.getTrustAnchors(), partnerAnchors, performRevocationCheck);
+			trustConfig = current;
 		}
-		return trustanchors;
+		return current;
 	}
 
 	/**
@@ -589,6 +650,15 @@ public class DefaultCertManager implements ICertificateManager {
 		return sb.toString();
 	}
 
+	/**
+	 * Gets the cache of trust validation results, which provides statistics on the use of the cache.
+	 *
+	 * @return	The validation result cache
+	 */
+	public ValidationResultCache getValidationCache() {
+		return validationCache;
+	}
+
 	/*
 	 * The following methods are used by the user interface module to display the registered certificates
 	 */
@@ -600,7 +670,7 @@ public class DefaultCertManager implements ICertificateManager {
      * @throws SecurityProcessingException	When the certificates could not be retrieved from the key store.
      */
     public Map<String, X509Certificate> getPrivateKeyCertificates() throws SecurityProcessingException {
-    	return getCertificates(privateKeystorePath, privateKeystorePwd);
+    	return getCertificates(privateKeystore);
     }
 
     /**
@@ -610,7 +680,7 @@ public class DefaultCertManager implements ICertificateManager {
      * @throws SecurityProcessingException	When the certificates could not be retrieved from the key store.
      */
     public Map<String, X509Certificate> getPartnerCertificates() throws SecurityProcessingException {
-    	return getCertificates(partnerKeystorePath, partnerKeystorePwd);
+    	return getCertificates(partnerKeystore);
     }
 
     /**
@@ -620,27 +690,19 @@ public class DefaultCertManager implements ICertificateManager {
      * @throws SecurityProcessingException	When the certificates could not be retrieved from the key store.
      */
     public Map<String, X509Certificate> getTrustedCertificates() throws SecurityProcessingException {
-    	return getCertificates(trustKeystorePath, trustKeystorePwd);
+    	return getCertificates(trustKeystore);
     }
 
     /**
      * Helper method to get all the certificates together with their alias from the specified key store.
      *
-	 * @param ksPath	Path to key store
-	 * @param ksPwd		Password to access key store
+	 * @param ks	The key store
      * @return	Map of alias and certificate
      * @throws SecurityProcessingException	When the certificates could not be retrieved from the key store.
      */
-    private Map<String, X509Certificate> getCertificates(final Path ksPath, final String ksPwd)
-    																				throws SecurityProcessingException {
+    private Map<String, X509Certificate> getCertificates(final CachedKeystore ks) throws SecurityProcessingException {
 	    try {
-	    	KeyStore ks = KeystoreUtils.load(ksPath, ksPwd);
-	        Map<String, X509Certificate> result = new HashMap<>(ks.size());
-	        for(Enumeration<String> aliases = ks.aliases(); aliases.hasMoreElements();) {
-	        	String alias = aliases.nextElement();
-	        	result.put(alias, (X509Certificate) ks.getCertificate(alias));
-	        }
-	        return result;
+	        return new HashMap<>(ks.get().getCertificates());
 	    } catch (KeyStoreException ex) {
 	        log.error("Problem retrieving the certificates from keystore!\n\tError details: {}", ex.getMessage());
 	        throw new SecurityProcessingException("Error retrieving the certificates", ex);
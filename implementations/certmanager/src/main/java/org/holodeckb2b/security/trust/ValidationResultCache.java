@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.security.trust;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.interfaces.security.trust.IValidationResult;
+import org.holodeckb2b.interfaces.security.trust.IValidationResult.Trust;
+
+/**
+ * Is a bounded cache of the trust validation results of the {@link DefaultCertManager}. As trading partners normally
+ * use the same certificates for a long time, the result of the validation of a certificate path can be re-used for
+ * subsequent messages signed with the same certificates. The cached results are identified by the fingerprint of the
+ * validated certificate path and the set of trust anchors used in the validation, so results are automatically
+ * invalidated when one of the key stores changes.
+ * <p>Only results indicating that the certificate path is trusted are cached, so untrusted paths and paths for which
+ * the revocation status could not be determined are validated again on each request. A result is cached until its
+ * time to live has passed or one of the certificates in the validated path expires, whichever comes first. When the
+ * revocation check is enabled the time to live therefore also determines the maximum age of the revocation status.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class ValidationResultCache {
+	private static final Logger log = LogManager.getLogger(ValidationResultCache.class);
+
+	/**
+	 * The default maximum number of cached results
+	 */
+	static final int DEFAULT_MAX_SIZE = 1000;
+
+	/**
+	 * The default time to live of a cached result in seconds
+	 */
+	static final int DEFAULT_TTL = 300;
+
+	/**
+	 * A cached result together with the trust configuration it was validated against and its expiration time
+	 */
+	private static class CachedResult {
+		final Object			trustConfig;
+		final IValidationResult	result;
+		final long				expires;
+
+		CachedResult(final Object trustConfig, final IValidationResult result, final long expires) {
+			this.trustConfig = trustConfig;
+			this.result = result;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * The maximum number of cached results
+	 */
+	private final int	maxSize;
+
+	/**
+	 * The time to live of a cached result in milliseconds
+	 */
+	private final long	ttl;
+
+	/**
+	 * The cached results, mapped by the fingerprint of the certificate path
+	 */
+	private final Map<ByteBuffer, CachedResult> results = new ConcurrentHashMap<>();
+
+	/**
+	 * Counters for cache hits and misses
+	 */
+	private final LongAdder	hits = new LongAdder();
+	private final LongAdder	misses = new LongAdder();
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxSize	The maximum number of results to cache, 0 to disable caching
+	 * @param ttl		The time to live of cached results in seconds
+	 */
+	ValidationResultCache(final int maxSize, final int ttl) {
+		this.maxSize = maxSize;
+		this.ttl = TimeUnit.SECONDS.toMillis(ttl);
+		log.debug("Created validation result cache with maximum size of {} and time to live of {}s", maxSize, ttl);
+	}
+
+	/**
+	 * @return the number of validations that were answered from the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of validations that had to be executed because no result was cached
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the current number of cached results
+	 */
+	public int getSize() {
+		return results.size();
+	}
+
+	/**
+	 * Removes all cached results.
+	 */
+	public void clear() {
+		results.clear();
+	}
+
+	/**
+	 * Calculates the fingerprint of the given certificate path which is used as key for the cached results.
+	 *
+	 * @param certs	The certificate path
+	 * @return		The fingerprint of the path, or <code>null</code> if it could not be calculated
+	 */
+	static ByteBuffer fingerprint(final List<X509Certificate> certs) {
+		try {
+			final MessageDigest digester = MessageDigest.getInstance("SHA-256");
+			// As the DER encoding is self-delimiting the concatenated encodings uniquely identify the path
+			for (X509Certificate c : certs)
+				digester.update(c.getEncoded());
+			return ByteBuffer.wrap(digester.digest());
+		} catch (NoSuchAlgorithmException | CertificateEncodingException e) {
+			log.warn("Could not calculate fingerprint of certificate path : {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the cached validation result of the certificate path with the given fingerprint.
+	 *
+	 * @param fingerprint	The fingerprint of the certificate path
+	 * @param trustConfig	The trust configuration, i.e. set of trust anchors, currently in use
+	 * @return	The cached result if available and still valid, <code>null</code> otherwise
+	 */
+	IValidationResult get(final ByteBuffer fingerprint, final Object trustConfig) {
+		final CachedResult cached = fingerprint != null ? results.get(fingerprint) : null;
+		if (cached != null) {
+			if (cached.trustConfig == trustConfig && cached.expires > System.currentTimeMillis()) {
+				hits.increment();
+				return cached.result;
+			}
+			results.remove(fingerprint, cached);
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Caches the given validation result if it indicates the certificate path is trusted.
+	 *
+	 * @param fingerprint	The fingerprint of the certificate path
+	 * @param trustConfig	The trust configuration the path was validated against
+	 * @param result		The validation result
+	 * @return	The given validation result
+	 */
+	IValidationResult put(final ByteBuffer fingerprint, final Object trustConfig, final IValidationResult result) {
+		if (maxSize == 0 || fingerprint == null || result.getTrust() != Trust.OK)
+			return result;
+
+		final long now = System.currentTimeMillis();
+		long expires = now + ttl;
+		for (X509Certificate c : result.getValidatedCertPath())
+			expires = Math.min(expires, c.getNotAfter().getTime());
+		if (expires <= now)
+			return result;
+
+		if (results.size() >= maxSize)
+			evict(now);
+		results.put(fingerprint, new CachedResult(trustConfig, result, expires));
+		return result;
+	}
+
+	/**
+	 * Evicts expired results from the cache and if this does not free up enough room also some arbitrary other ones.
+	 *
+	 * @param now	The current time
+	 */
+	private void evict(final long now) {
+		results.values().removeIf(r -> r.expires <= now);
+		if (results.size() < maxSize)
+			return;
+		final Iterator<ByteBuffer> it = results.keySet().iterator();
+		for (int i = results.size() - maxSize + Math.max(1, maxSize / 10); i > 0 && it.hasNext(); i--) {
+			it.next();
+			it.remove();
+		}
+	}
+}
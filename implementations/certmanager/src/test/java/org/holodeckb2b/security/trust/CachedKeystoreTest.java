@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.security.trust;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+
+import javax.security.auth.x500.X500Principal;
+
+import org.holodeckb2b.commons.security.CertificateUtils;
+import org.holodeckb2b.commons.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CachedKeystoreTest {
+
+	private static final String PASSWORD = "nosecrets";
+
+	private Path tempDir;
+	private Path ksPath;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		tempDir = Files.createTempDirectory("hb2b-certmgr");
+		ksPath = tempDir.resolve("partnerkeys.jks");
+		Files.copy(Paths.get(CachedKeystoreTest.class.getClassLoader().getResource("keystores/partnerkeys.jks")
+																									.toURI()),
+				   ksPath, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		FileUtils.removeDirectory(tempDir);
+	}
+
+	@Test
+	void testLookups() throws Exception {
+		CachedKeystore.Content content = new CachedKeystore(ksPath, PASSWORD).get();
+		Map<String, X509Certificate> certs = content.getCertificates();
+		assertEquals(4, certs.size());
+		assertEquals(4, content.getTrustAnchors().size());
+
+		MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+		MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+		for (Map.Entry<String, X509Certificate> e : certs.entrySet()) {
+			final String alias = e.getKey();
+			final X509Certificate cert = e.getValue();
+			assertTrue(content.contains(cert));
+			assertEquals(alias, content.findAlias(cert));
+			assertEquals(alias, content.findAlias(cert.getPublicKey()));
+			assertEquals(alias, content.findAliasBySKI(CertificateUtils.getSKI(cert)));
+			assertEquals(alias, content.findAlias(cert.getIssuerX500Principal(), cert.getSerialNumber()));
+			// A different representation of the issuer name should also be found
+			assertEquals(alias, content.findAlias(new X500Principal(cert.getIssuerX500Principal()
+																		.getName(X500Principal.RFC1779)),
+												  cert.getSerialNumber()));
+			assertEquals(alias, content.findAlias(sha1.digest(cert.getEncoded()), sha1));
+			assertEquals(alias, content.findAlias(sha256.digest(cert.getEncoded()), sha256));
+		}
+	}
+
+	@Test
+	void testLookupsNotFound() throws Exception {
+		CachedKeystore.Content content = new CachedKeystore(ksPath, PASSWORD).get();
+		X509Certificate cert = content.getCertificates().values().iterator().next();
+
+		assertNull(content.findAliasBySKI(new byte[] { 1, 2, 3, 4 }));
+		assertNull(content.findAliasBySKI(null));
+		assertNull(content.findAlias(cert.getIssuerX500Principal(), BigInteger.ONE));
+		assertNull(content.findAlias(new X500Principal("CN=Unknown"), cert.getSerialNumber()));
+		assertNull(content.findAlias(null, cert.getSerialNumber()));
+		assertNull(content.findAlias(new byte[20], MessageDigest.getInstance("SHA-1")));
+		assertNull(content.findAlias(null, MessageDigest.getInstance("SHA-1")));
+	}
+
+	@Test
+	void testNoReloadWhenUnchanged() throws Exception {
+		CachedKeystore ks = new CachedKeystore(ksPath, PASSWORD);
+		assertSame(ks.get(), ks.get());
+	}
+
+	@Test
+	void testReloadOnModificationTime() throws Exception {
+		CachedKeystore ks = new CachedKeystore(ksPath, PASSWORD);
+		CachedKeystore.Content content = ks.get();
+
+		Files.setLastModifiedTime(ksPath, FileTime.fromMillis(Files.getLastModifiedTime(ksPath).toMillis() - 60000));
+		CachedKeystore.Content reloaded = ks.get();
+		assertNotSame(content, reloaded);
+		assertEquals(content.getCertificates(), reloaded.getCertificates());
+		assertSame(reloaded, ks.get());
+	}
+
+	@Test
+	void testReloadOnSizeChange() throws Exception {
+		CachedKeystore ks = new CachedKeystore(ksPath, PASSWORD);
+		CachedKeystore.Content content = ks.get();
+		String removedAlias = content.getCertificates().keySet().iterator().next();
+		X509Certificate removed = content.getCertificates().get(removedAlias);
+
+		// Remove an entry while keeping the modification time, so only the size changes
+		FileTime modified = Files.getLastModifiedTime(ksPath);
+		KeyStore changed = KeyStore.getInstance("JKS");
+		try (InputStream is = Files.newInputStream(ksPath)) {
+			changed.load(is, PASSWORD.toCharArray());
+		}
+		changed.deleteEntry(removedAlias);
+		try (OutputStream os = Files.newOutputStream(ksPath)) {
+			changed.store(os, PASSWORD.toCharArray());
+		}
+		Files.setLastModifiedTime(ksPath, modified);
+
+		CachedKeystore.Content reloaded = ks.get();
+		assertNotSame(content, reloaded);
+		assertEquals(3, reloaded.getCertificates().size());
+		assertFalse(reloaded.contains(removed));
+		assertNull(reloaded.findAlias(removed));
+		assertNull(reloaded.findAlias(removed.getPublicKey()));
+		assertNull(reloaded.findAliasBySKI(CertificateUtils.getSKI(removed)));
+		assertNull(reloaded.findAlias(removed.getIssuerX500Principal(), removed.getSerialNumber()));
+		MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+		assertNull(reloaded.findAlias(sha256.digest(removed.getEncoded()), sha256));
+	}
+
+	@Test
+	void testKeepContentWhenReloadFails() throws Exception {
+		CachedKeystore ks = new CachedKeystore(ksPath, PASSWORD);
+		CachedKeystore.Content content = ks.get();
+
+		Files.write(ksPath, new byte[] { 0, 1, 2, 3 });
+		assertSame(content, ks.get());
+	}
+
+	@Test
+	void testNotAccessible() {
+		assertThrows(KeyStoreException.class,
+					 () -> new CachedKeystore(tempDir.resolve("notthere.jks"), PASSWORD).get());
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.security.trust;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.holodeckb2b.interfaces.security.trust.IValidationResult;
+import org.holodeckb2b.interfaces.security.trust.IValidationResult.Trust;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class ValidationResultCacheTest {
+
+	private static List<X509Certificate> partnerCerts;
+
+	@BeforeAll
+	static void loadCertificates() throws Exception {
+		final KeyStore ks = KeyStore.getInstance("JKS");
+		try (InputStream is = ValidationResultCacheTest.class.getClassLoader()
+																	.getResourceAsStream("keystores/partnerkeys.jks")) {
+			ks.load(is, "nosecrets".toCharArray());
+		}
+		partnerCerts = new ArrayList<>();
+		for (String alias : Collections.list(ks.aliases()))
+			partnerCerts.add((X509Certificate) ks.getCertificate(alias));
+	}
+
+	@Test
+	void testFingerprint() {
+		final X509Certificate a = partnerCerts.get(0);
+		final X509Certificate b = partnerCerts.get(1);
+
+		final ByteBuffer fp = ValidationResultCache.fingerprint(List.of(a, b));
+		assertNotNull(fp);
+		assertEquals(fp, ValidationResultCache.fingerprint(List.of(a, b)));
+		// All certificates in the path must be included in the fingerprint
+		assertNotEquals(fp, ValidationResultCache.fingerprint(List.of(b)));
+		assertNotEquals(fp, ValidationResultCache.fingerprint(List.of(a)));
+		assertNotEquals(fp, ValidationResultCache.fingerprint(List.of(b, a)));
+		assertNotEquals(fp, ValidationResultCache.fingerprint(List.of(partnerCerts.get(2), b)));
+	}
+
+	@Test
+	void testCachedUntilTTL() throws Exception {
+		final ValidationResultCache cache = new ValidationResultCache(10, 1);
+		final Object trustConfig = new Object();
+		final ByteBuffer fp = key(1);
+		final IValidationResult result = okResult(System.currentTimeMillis() + 3600000);
+
+		assertSame(result, cache.put(fp, trustConfig, result));
+		assertEquals(1, cache.getSize());
+		assertSame(result, cache.get(fp, trustConfig));
+		assertEquals(1, cache.getHits());
+
+		Thread.sleep(1100);
+
+		assertNull(cache.get(fp, trustConfig));
+		assertEquals(0, cache.getSize());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void testCappedByCertificateExpiry() throws Exception {
+		final ValidationResultCache cache = new ValidationResultCache(10, 300);
+		final Object trustConfig = new Object();
+		final ByteBuffer fp = key(1);
+		final IValidationResult result = okResult(System.currentTimeMillis() + 500);
+
+		cache.put(fp, trustConfig, result);
+		assertSame(result, cache.get(fp, trustConfig));
+
+		Thread.sleep(600);
+
+		assertNull(cache.get(fp, trustConfig));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	void testExpiredCertificateNotCached() {
+		final ValidationResultCache cache = new ValidationResultCache(10, 300);
+
+		cache.put(key(1), new Object(), okResult(System.currentTimeMillis() - 1000));
+
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	void testInvalidatedOnTrustConfigChange() {
+		final ValidationResultCache cache = new ValidationResultCache(10, 300);
+		final Object oldConfig = new Object();
+		final ByteBuffer fp = key(1);
+		final IValidationResult result = okResult(System.currentTimeMillis() + 3600000);
+
+		cache.put(fp, oldConfig, result);
+		assertSame(result, cache.get(fp, oldConfig));
+
+		assertNull(cache.get(fp, new Object()));
+		assertEquals(0, cache.getSize());
+		assertNull(cache.get(fp, oldConfig));
+	}
+
+	@Test
+	void testEvictionAtMaxSize() {
+		final int maxSize = 10;
+		final ValidationResultCache cache = new ValidationResultCache(maxSize, 300);
+		final Object trustConfig = new Object();
+		final IValidationResult result = okResult(System.currentTimeMillis() + 3600000);
+
+		for (int i = 0; i < 3 * maxSize; i++) {
+			cache.put(key(i), trustConfig, result);
+			assertTrue(cache.getSize() <= maxSize);
+			// The just added result must always be available
+			assertSame(result, cache.get(key(i), trustConfig));
+		}
+	}
+
+	@Test
+	void testNonOKNotCached() {
+		final ValidationResultCache cache = new ValidationResultCache(10, 300);
+		final Object trustConfig = new Object();
+		final List<X509Certificate> path = List.of(certificate(System.currentTimeMillis() + 3600000));
+
+		int i = 0;
+		for (Trust t : Trust.values()) {
+			if (t == Trust.OK)
+				continue;
+			final IValidationResult result = new ValidationResult(t, path);
+			assertSame(result, cache.put(key(i), trustConfig, result));
+			assertNull(cache.get(key(i++), trustConfig));
+		}
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	void testDisabled() {
+		final ValidationResultCache cache = new ValidationResultCache(0, 300);
+
+		cache.put(key(1), new Object(), okResult(System.currentTimeMillis() + 3600000));
+
+		assertEquals(0, cache.getSize());
+	}
+
+	private static ByteBuffer key(final int i) {
+		return ByteBuffer.wrap(new byte[] { (byte) (i >> 8), (byte) i });
+	}
+
+	private static X509Certificate certificate(final long notAfter) {
+		final X509Certificate cert = mock(X509Certificate.class);
+		when(cert.getNotAfter()).thenReturn(new Date(notAfter));
+		return cert;
+	}
+
+	private static IValidationResult okResult(final long notAfter) {
+		return new ValidationResult(Trust.OK, List.of(certificate(notAfter)));
+	}
+}
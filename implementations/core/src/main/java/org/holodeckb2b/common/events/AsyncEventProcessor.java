@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.common.events;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.axis2.description.Parameter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.common.util.MessageUnitUtils;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.workerpool.PoolThreadFactory;
+import org.holodeckb2b.interfaces.config.IConfiguration;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEvent;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventConfiguration;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventHandlerFactory;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventProcessor;
+import org.holodeckb2b.interfaces.eventprocessing.MessageProccesingEventHandlingException;
+
+/**
+ * Is an {@link IMessageProcessingEventProcessor} implementation that processes the events asynchronously from the
+ * message processing, so the handling of events, like notifying the back-end application, does not delay the
+ * message exchange.
+ * <p>Which handlers should handle an event is determined in the same way as by the {@link SyncEventProcessor}, i.e.
+ * first the configuration of the Leg, then of the P-Mode and finally the global configuration is checked. The event
+ * is then added to the queues of the selected handlers. As the handler is executed later, whether other handlers
+ * should also process the event only depends on the configuration of the handler and not on whether the handler
+ * processed the event successfully.
+ * <p>Each configured event handler has its own bounded queue, which is drained by a shared pool of worker threads.
+ * The handler factory is created and initialised once per event handler configuration and then re-used for all
+ * events handled by it. The number of worker threads, the maximum number of threads working concurrently for the same
+ * handler and the maximum number of events waiting per handler can be configured using the <i>EventProcessorThreads
+ * </i>, <i>MaxThreadsPerEventHandler</i> and <i>EventQueueSize</i> parameters in the Holodeck B2B configuration. By
+ * default 5 threads, 1 thread per handler, so events are handled in the order they were raised, and a queue size of
+ * 1000 are used. The <i>EventQueueOverflow</i> parameter sets what happens when a queue is full. With the default
+ * <i>BLOCK</i> the thread that raised the event waits until there is space in the queue, but not longer than set by
+ * the <i>EventQueueMaxWait</i> parameter (default 30 seconds) after which the event is discarded. When set to
+ * <i>DISCARD</i> the event is discarded immediately. With <i>CALLER_RUNS</i> the event is handled directly by the
+ * thread that raised it. Note that this means the event can be handled before events that are still queued, so
+ * the order in which the events are handled is not guaranteed anymore, and that the message processing is delayed
+ * by the handling of the event.
+ * <p>The statistics per handler are available through {@link #getStatistics()} and are logged when the processor is
+ * shut down.
+ * <p>This processor can be enabled by setting the <i>AsyncEventProcessing</i> parameter in the Holodeck B2B
+ * configuration or by registering it as provider of the {@link IMessageProcessingEventProcessor} service.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class AsyncEventProcessor extends SyncEventProcessor {
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * Name of the configuration parameter to enable the use of this processor when no other event processor is
+	 * installed
+	 */
+	public static final String P_ENABLED = "AsyncEventProcessing";
+	/**
+	 * Name of the configuration parameter to set the number of worker threads
+	 */
+	public static final String P_THREADS = "EventProcessorThreads";
+	/**
+	 * Name of the configuration parameter to set the maximum number of threads concurrently working for a handler
+	 */
+	public static final String P_MAX_PER_HANDLER = "MaxThreadsPerEventHandler";
+	/**
+	 * Name of the configuration parameter to set the maximum number of events waiting per handler
+	 */
+	public static final String P_QUEUE_SIZE = "EventQueueSize";
+	/**
+	 * Name of the configuration parameter to set the policy to apply when a queue is full
+	 */
+	public static final String P_OVERFLOW_POLICY = "EventQueueOverflow";
+	/**
+	 * Name of the configuration parameter to set the maximum time in milliseconds to wait for space in a full queue
+	 * when the {@link OverflowPolicy#BLOCK} policy is used
+	 */
+	public static final String P_OVERFLOW_MAX_WAIT = "EventQueueMaxWait";
+
+	/**
+	 * Enumerates the policies that can be applied when the queue of a handler is full.
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * The thread that raised the event waits for space in the queue and discards the event when the maximum wait
+		 * time expires
+		 */
+		BLOCK,
+		/**
+		 * The event is handled directly by the thread that raised it, which means that the event may be handled
+		 * before events that are still queued
+		 */
+		CALLER_RUNS,
+		/**
+		 * The event is discarded
+		 */
+		DISCARD
+	}
+
+	private static final int DEFAULT_THREADS = 5;
+	private static final int DEFAULT_MAX_PER_HANDLER = 1;
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
+	private static final int DEFAULT_OVERFLOW_MAX_WAIT = 30000;
+	/**
+	 * Maximum time in seconds to wait for the queued events to be processed on shutdown
+	 */
+	private static final int SHUTDOWN_WAIT = 10;
+
+	/**
+	 * The pool of worker threads
+	 */
+	private ThreadPoolExecutor workerPool;
+
+	private int maxPerHandler = DEFAULT_MAX_PER_HANDLER;
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	private long overflowMaxWait = DEFAULT_OVERFLOW_MAX_WAIT;
+
+	/**
+	 * The queues of the event handlers, mapped by their configuration. A weak map is used so the queues of handlers
+	 * configured in P-Modes that are removed can be cleaned up.
+	 */
+	private final Map<IMessageProcessingEventConfiguration, HandlerQueue> handlers =
+															Collections.synchronizedMap(new WeakHashMap<>());
+
+	@Override
+	public String getName() {
+		return "HB2B Async Event Processor";
+	}
+
+	@Override
+	public void init(final IConfiguration config) throws MessageProccesingEventHandlingException {
+		final int threads = Math.max(1, getIntParameter(config, P_THREADS, DEFAULT_THREADS));
+		maxPerHandler = Math.max(1, getIntParameter(config, P_MAX_PER_HANDLER, DEFAULT_MAX_PER_HANDLER));
+		queueSize = Math.max(1, getIntParameter(config, P_QUEUE_SIZE, DEFAULT_QUEUE_SIZE));
+		final Parameter policy = config != null ? config.getParameter(P_OVERFLOW_POLICY) : null;
+		if (policy != null && policy.getParameterType() == Parameter.TEXT_PARAMETER) {
+			try {
+				overflowPolicy = OverflowPolicy.valueOf(((String) policy.getValue()).trim().toUpperCase());
+			} catch (IllegalArgumentException unknown) {
+				log.warn("Invalid value [{}] for parameter {}, using default {}", policy.getValue(),
+						 P_OVERFLOW_POLICY, overflowPolicy);
+			}
+		}
+		overflowMaxWait = Math.max(0, getIntParameter(config, P_OVERFLOW_MAX_WAIT, DEFAULT_OVERFLOW_MAX_WAIT));
+		log.trace("Initialise event processor with {} threads, max {} per handler, queue size = {} and policy {}",
+					threads, maxPerHandler, queueSize, overflowPolicy);
+		// The number of tasks in the pool is limited by the number of handlers, so no need to bound its queue
+		workerPool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+											new PoolThreadFactory("hb2b-events"));
+		workerPool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Adds the event to the queue of the handler specified by the given configuration. If the processor has not been
+	 * started or the queue is full the event is handled according to the overflow policy.
+	 *
+	 * @param c			The configuration of the event handler that should handle the event
+	 * @param event		The event to be handled
+	 * @return	<code>false</code> when no other handlers should process the event according to the configuration of
+	 * 			the handler,<br><code>true</code> otherwise
+	 */
+	@Override
+	protected boolean processEvent(final IMessageProcessingEventConfiguration c, final IMessageProcessingEvent event) {
+		final HandlerQueue queue = getHandlerQueue(c);
+		if (queue == null)
+			// The factory could not be created, so event is not handled
+			return true;
+		if (!queue.add(new QueuedEvent(event))) {
+			if (overflowPolicy != OverflowPolicy.CALLER_RUNS)
+				log.warn("Queue of {} is full, {} [id={}] for {} (msgId={}) is discarded", c.getFactoryClass(),
+						event.getClass().getSimpleName(), event.getId(),
+						MessageUnitUtils.getMessageUnitName(event.getSubject()), event.getSubject().getMessageId());
+			else {
+				log.debug("Queue of {} is full, handle {} [id={}] directly", c.getFactoryClass(),
+						event.getClass().getSimpleName(), event.getId());
+				queue.handle(new QueuedEvent(event));
+			}
+		}
+		return c.continueEventProcessing();
+	}
+
+	/**
+	 * Gets the queue for the handler specified by the given configuration, creating it and the handler factory if
+	 * this is the first event for the handler.
+	 *
+	 * @param c		The configuration of the event handler
+	 * @return	The queue of the handler, or <code>null</code> if the handler factory could not be created
+	 */
+	private HandlerQueue getHandlerQueue(final IMessageProcessingEventConfiguration c) {
+		synchronized (handlers) {
+			HandlerQueue queue = handlers.get(c);
+			if (queue == null) {
+				final String handlerClassname = c.getFactoryClass();
+				try {
+					log.trace("Create and initialise the handler factory {}", handlerClassname);
+					final IMessageProcessingEventHandlerFactory factory = (IMessageProcessingEventHandlerFactory)
+										Class.forName(handlerClassname).getDeclaredConstructor().newInstance();
+					factory.init(c.getHandlerSettings());
+					queue = new HandlerQueue(c.getId(), handlerClassname, factory);
+					handlers.put(c, queue);
+				} catch (Throwable t) {
+					log.error("Could not create factory instance (specified class name={}) due to a {} : {}",
+								handlerClassname, t.getClass().getSimpleName(), t.getMessage());
+				}
+			}
+			return queue;
+		}
+	}
+
+	/**
+	 * Gets the current statistics of all event handlers that have handled events.
+	 *
+	 * @return	collection with a snapshot of the statistics per handler
+	 */
+	public Collection<HandlerStatistics> getStatistics() {
+		final Collection<HandlerQueue> queues;
+		synchronized (handlers) {
+			queues = new ArrayList<>(handlers.values());
+		}
+		final Collection<HandlerStatistics> stats = new ArrayList<>(queues.size());
+		queues.forEach(q -> stats.add(q.getStatistics()));
+		return stats;
+	}
+
+	/**
+	 * Shuts down the event processor. The events that are still queued are processed if this can be done within
+	 * {@link #SHUTDOWN_WAIT} seconds, otherwise they are discarded.
+	 */
+	@Override
+	public void shutdown() {
+		if (workerPool == null)
+			return;
+		final Collection<HandlerQueue> queues;
+		synchronized (handlers) {
+			queues = new ArrayList<>(handlers.values());
+		}
+		queues.forEach(q -> log.info("Event handler statistics: {}", q.getStatistics()));
+		log.trace("Stopping event processor, waiting for queued events to be processed");
+		final long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT * 1000L;
+		try {
+			while (System.currentTimeMillis() < deadline && queues.stream().anyMatch(HandlerQueue::isBusy))
+				Thread.sleep(50);
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		final int discarded = queues.stream().mapToInt(HandlerQueue::clear).sum();
+		if (discarded > 0)
+			log.warn("{} events were not processed before shutdown", discarded);
+		workerPool.shutdown();
+		try {
+			if (!workerPool.awaitTermination(SHUTDOWN_WAIT, TimeUnit.SECONDS))
+				workerPool.shutdownNow();
+		} catch (InterruptedException interrupted) {
+			workerPool.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static int getIntParameter(final IConfiguration config, final String name, final int defaultValue) {
+		final Parameter param = config != null ? config.getParameter(name) : null;
+		if (param != null && param.getParameterType() == Parameter.TEXT_PARAMETER) {
+			try {
+				return Integer.parseInt(((String) param.getValue()).trim());
+			} catch (NumberFormatException nan) {
+				log.warn("Invalid value [{}] for parameter {}, using default {}", param.getValue(), name,
+						 defaultValue);
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Holds an event waiting to be handled together with the time it was raised.
+	 */
+	private static class QueuedEvent {
+		final IMessageProcessingEvent event;
+		final long					  raised;
+
+		QueuedEvent(final IMessageProcessingEvent event) {
+			this.event = event;
+			this.raised = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Represents an event handler with its initialised factory and queue of events to handle. The number of worker
+	 * threads working for a handler is limited to {@link AsyncEventProcessor#maxPerHandler}. After handling an event a
+	 * worker re-submits itself to the pool, so handlers are served in turn.
+	 */
+	private class HandlerQueue {
+		private final String 							configId;
+		private final String 							handlerClassname;
+		private final IMessageProcessingEventHandlerFactory factory;
+		private final Deque<QueuedEvent> events = new ArrayDeque<>();
+		private int 	active = 0;
+		private long	processed = 0;
+		private long	failed = 0;
+		private long	discarded = 0;
+		private long	totalWaitTime = 0;
+		private long	totalProcessingTime = 0;
+
+		HandlerQueue(final String configId, final String handlerClassname,
+					 final IMessageProcessingEventHandlerFactory factory) {
+			this.configId = configId;
+			this.handlerClassname = handlerClassname;
+			this.factory = factory;
+		}
+
+		/**
+		 * Adds the event to the queue if the processor is running. When the queue is full and the {@link
+		 * OverflowPolicy#BLOCK} policy is used, waits until there is space in the queue or the maximum wait time
+		 * expires.
+		 *
+		 * @return <code>true</code> if the event was queued, <code>false</code> otherwise
+		 */
+		synchronized boolean add(final QueuedEvent e) {
+			if (overflowPolicy == OverflowPolicy.BLOCK) {
+				final long deadline = System.currentTimeMillis() + overflowMaxWait;
+				long remaining = overflowMaxWait;
+				while (isRunning() && events.size() >= queueSize && remaining > 0) {
+					try {
+						wait(remaining);
+					} catch (InterruptedException interrupted) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+					remaining = deadline - System.currentTimeMillis();
+				}
+			}
+			if (!isRunning() || events.size() >= queueSize) {
+				if (overflowPolicy != OverflowPolicy.CALLER_RUNS)
+					discarded++;
+				return false;
+			}
+			events.add(e);
+			if (active < maxPerHandler)
+				startWorker();
+			return true;
+		}
+
+		synchronized boolean isBusy() {
+			return active > 0 || !events.isEmpty();
+		}
+
+		synchronized int clear() {
+			final int n = events.size();
+			discarded += n;
+			events.clear();
+			notifyAll();
+			return n;
+		}
+
+		private boolean isRunning() {
+			return workerPool != null && !workerPool.isShutdown();
+		}
+
+		synchronized HandlerStatistics getStatistics() {
+			return new HandlerStatistics(configId, handlerClassname, events.size(), active, processed, failed,
+										 discarded, processed > 0 ? totalWaitTime / processed : 0,
+										 processed > 0 ? totalProcessingTime / processed : 0);
+		}
+
+		/**
+		 * Submits a worker for this handler to the pool. Must be called with the lock on this object held.
+		 */
+		private void startWorker() {
+			try {
+				workerPool.execute(this::handleNext);
+				active++;
+			} catch (RejectedExecutionException shutdown) {
+				// The pool has been shut down, the remaining events are discarded
+			}
+		}
+
+		private void handleNext() {
+			final QueuedEvent e;
+			synchronized (this) {
+				e = events.poll();
+				if (e == null) {
+					active--;
+					return;
+				}
+				// Wake up threads waiting for space in the queue
+				notifyAll();
+			}
+			handle(e);
+			synchronized (this) {
+				active--;
+				if (!events.isEmpty())
+					startWorker();
+			}
+		}
+
+		/**
+		 * Lets the event be handled by a handler created by the factory and updates the statistics.
+		 */
+		void handle(final QueuedEvent e) {
+			final IMessageProcessingEvent event = e.event;
+			final long start = System.currentTimeMillis();
+			boolean success = false;
+			try {
+				factory.createHandler().handleEvent(event);
+				log.debug("{} [id={}] for {} handled by {}", event.getClass().getSimpleName(), event.getId(),
+							MessageUnitUtils.getMessageUnitName(event.getSubject()), handlerClassname);
+				success = true;
+			} catch (final Throwable t) {
+				log.warn("An exception occurred when {} [id={}] was processed by {}.\n\tException details: {}",
+							event.getClass().getSimpleName(), event.getId(), handlerClassname,
+							Utils.getExceptionTrace(t));
+			}
+			final long end = System.currentTimeMillis();
+			synchronized (this) {
+				processed++;
+				if (!success)
+					failed++;
+				totalWaitTime += start - e.raised;
+				totalProcessingTime += end - start;
+			}
+		}
+	}
+
+	/**
+	 * Contains a snapshot of the statistics of an event handler.
+	 */
+	public static class HandlerStatistics {
+		private final String configId;
+		private final String handler;
+		private final int	 queued;
+		private final int	 active;
+		private final long	 processed;
+		private final long	 failed;
+		private final long	 discarded;
+		private final long	 avgWaitTime;
+		private final long	 avgProcessingTime;
+
+		HandlerStatistics(final String configId, final String handler, final int queued, final int active,
+						  final long processed, final long failed, final long discarded, final long avgWaitTime,
+						  final long avgProcessingTime) {
+			this.configId = configId;
+			this.handler = handler;
+			this.queued = queued;
+			this.active = active;
+			this.processed = processed;
+			this.failed = failed;
+			this.discarded = discarded;
+			this.avgWaitTime = avgWaitTime;
+			this.avgProcessingTime = avgProcessingTime;
+		}
+
+		/**
+		 * @return the identifier of the event handler configuration, may be <code>null</code>
+		 */
+		public String getConfigurationId() {
+			return configId;
+		}
+
+		/**
+		 * @return the class name of the handler factory
+		 */
+		public String getHandler() {
+			return handler;
+		}
+
+		/**
+		 * @return the number of events waiting to be handled
+		 */
+		public int getQueued() {
+			return queued;
+		}
+
+		/**
+		 * @return the number of events currently being handled
+		 */
+		public int getActive() {
+			return active;
+		}
+
+		/**
+		 * @return the total number of events processed by the handler, including the failed ones
+		 */
+		public long getProcessed() {
+			return processed;
+		}
+
+		/**
+		 * @return the number of events for which the handler threw an exception
+		 */
+		public long getFailed() {
+			return failed;
+		}
+
+		/**
+		 * @return the number of events that were discarded because the queue was full or on shutdown
+		 */
+		public long getDiscarded() {
+			return discarded;
+		}
+
+		/**
+		 * @return the average time in milliseconds an event waited before it was handled
+		 */
+		public long getAverageWaitTime() {
+			return avgWaitTime;
+		}
+
+		/**
+		 * @return the average time in milliseconds it took the handler to process an event
+		 */
+		public long getAverageProcessingTime() {
+			return avgProcessingTime;
+		}
+
+		@Override
+		public String toString() {
+			return handler + (configId != null ? "(" + configId + ")" : "") + " [queued=" + queued + ", active="
+					+ active + ", processed=" + processed + ", failed=" + failed + ", discarded=" + discarded
+					+ ", avgWaitTime=" + avgWaitTime + "ms, avgProcessingTime=" + avgProcessingTime + "ms]";
+		}
+	}
+}
@@ -121,34 +121,52 @@ public class SyncEventProcessor implements IMessageProcessingEventProcessor {
 			final String handlerClassname = c.getFactoryClass();
 			log.trace("{} {} handle {} for {}", handlerClassname, (shouldHandle ? "should" : "does not"),
 						eventType, msgUnitType);
-			if (shouldHandle) {
-				// Create the factory class
-				IMessageProcessingEventHandlerFactory factory = null;
-				try {
-					factory = (IMessageProcessingEventHandlerFactory) Class.forName(handlerClassname).newInstance();
-				} catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-					log.error("Could not create factory instance (specified class name={}) due to a {}",
-								c.getFactoryClass(), ex.getClass().getSimpleName());
-					continue;
-				}
-				// Catch exceptions while the event is processed by the handler to prevent that error in one handler
-				// will stop processing in others as well
-				try {
-					log.trace("Initialize the handler factory");
-					factory.init(c.getHandlerSettings());
-					log.trace("Pass event to handler for further processing");
-					factory.createHandler().handleEvent(event);
-					log.debug("{} [id={}] for {} handled by {}", eventType, event.getId(), msgUnitType, handlerClassname);
-					if (!c.continueEventProcessing()) {
-						log.debug("No further processing of {} needed after handling by {}", eventType,
-								  handlerClassname);
-						return false;
-					}
-				} catch (final Throwable t) {
-					log.warn("An exception occurred when {} [id={}] was processed by {}.\n\tException details: {}",
-								eventType, event.getId(), handlerClassname, Utils.getExceptionTrace(t));
-				}
+			if (shouldHandle && !processEvent(c, event))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Processes the event by the event handler as specified in the given configuration.
+	 * <p>This implementation creates and initialises the handler factory and directly lets the handler process the
+	 * event. Exceptions that occur while the event is processed are logged, but will not stop the processing of the
+	 * event by other handlers.
+	 *
+	 * @param c			The configuration of the event handler that should handle the event
+	 * @param event		The event to be handled
+	 * @return	<code>false</code> when the event has been handled and no other handlers should process it,<br>
+	 * 			<code>true</code> otherwise
+	 * @since 8.0.0
+	 */
+	protected boolean processEvent(final IMessageProcessingEventConfiguration c, final IMessageProcessingEvent event) {
+		final String eventType = event.getClass().getSimpleName();
+		final String msgUnitType = MessageUnitUtils.getMessageUnitName(event.getSubject());
+		final String handlerClassname = c.getFactoryClass();
+		// Create the factory class
+		IMessageProcessingEventHandlerFactory factory = null;
+		try {
+			factory = (IMessageProcessingEventHandlerFactory) Class.forName(handlerClassname).newInstance();
+		} catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
+			log.error("Could not create factory instance (specified class name={}) due to a {}",
+						c.getFactoryClass(), ex.getClass().getSimpleName());
+			return true;
+		}
+		// Catch exceptions while the event is processed by the handler to prevent that error in one handler
+		// will stop processing in others as well
+		try {
+			log.trace("Initialize the handler factory");
+			factory.init(c.getHandlerSettings());
+			log.trace("Pass event to handler for further processing");
+			factory.createHandler().handleEvent(event);
+			log.debug("{} [id={}] for {} handled by {}", eventType, event.getId(), msgUnitType, handlerClassname);
+			if (!c.continueEventProcessing()) {
+				log.debug("No further processing of {} needed after handling by {}", eventType, handlerClassname);
+				return false;
 			}
+		} catch (final Throwable t) {
+			log.warn("An exception occurred when {} [id={}] was processed by {}.\n\tException details: {}",
+						eventType, event.getId(), handlerClassname, Utils.getExceptionTrace(t));
 		}
 		return true;
 	}
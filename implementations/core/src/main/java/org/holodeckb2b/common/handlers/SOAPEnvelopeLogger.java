@@ -16,11 +16,25 @@
  */
 package org.holodeckb2b.common.handlers;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.axiom.soap.SOAPEnvelope;
 import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.description.Parameter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.interfaces.config.IConfiguration;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
 
 
@@ -28,13 +42,46 @@ import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
  * Is a utility handler that logs the <code>SOAP:Envelope</code> element from the current message to a specific log
  * depending whether the message is in or outbound: <i>org.holodeckb2b.msgproc.soapenvlog.</i>(<i>IN|OUT</i>). The
  * log level used is INFO, so the logging can be enabled or disabled by setting the log level.
+ * <p>The envelope is serialised directly from the Axiom tree without making a copy of it. As the SOAP Body can be
+ * very large, the number of characters of the Body that is logged can be limited using the <i>SOAPLogMaxBodySize</i>
+ * parameter in the Holodeck B2B configuration. When the Body exceeds the limit its content is truncated, with a
+ * comment indicating the truncation, so the logged envelope is still well-formed XML. Setting the limit to 0 omits
+ * the content of the Body completely and a negative value logs the complete Body. By default at most {@link
+ * #DEFAULT_MAX_BODY_SIZE} characters are logged, so the size of the log entries is bounded.
+ * <p>Note that writing the log to disk is handled by the logging framework, so by using an asynchronous appender, as
+ * done in the default logging configuration, the I/O is done outside the message processing thread.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class SOAPEnvelopeLogger extends AbstractBaseHandler {
 
+	/**
+	 * Name of the configuration parameter to set the maximum number of characters of the SOAP Body to log
+	 */
+	public static final String P_MAX_BODY_SIZE = "SOAPLogMaxBodySize";
+
+	/**
+	 * The default maximum number of characters of the SOAP Body to log
+	 */
+	public static final int DEFAULT_MAX_BODY_SIZE = 65536;
+
+	/**
+	 * The factory used to create the writers for serialising the envelope
+	 */
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY;
+	static {
+		XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+		XML_OUTPUT_FACTORY.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+	}
+
+	/**
+	 * The maximum number of characters of the SOAP Body to log, negative when there is no limit. Read from the
+	 * configuration on first use.
+	 */
+	private volatile Integer maxBodySize;
+
     @Override
-    protected InvocationResponse doProcessing(final IMessageProcessingContext procCtx, final Logger log) 
+    protected InvocationResponse doProcessing(final IMessageProcessingContext procCtx, final Logger log)
     																								throws Exception {
         // We use a specific log for the SOAP headers so it can easily be enabled or disabled
     	final int currentFlow = procCtx.getParentContext().getFLOW();
@@ -44,14 +91,16 @@ public class SOAPEnvelopeLogger extends AbstractBaseHandler {
         // Only do something when logging is enabled
         if (soapEnvLog.isInfoEnabled()) {
             try {
-            	soapEnvLog.info(procCtx.getParentContext().getEnvelope().cloneOMElement().toStringWithConsume() + "\n");
+            	final StringWriter out = new StringWriter();
+            	serialize(procCtx.getParentContext().getEnvelope(), out, getMaxBodySize(log));
+            	soapEnvLog.info(out.append('\n').toString());
             } catch (Exception invalidSOAP) {
             	if (incoming) {
-            		log.warn("Received a message with invalid SOAP envelope! Details: " 
+            		log.warn("Received a message with invalid SOAP envelope! Details: "
             				+ Utils.getExceptionTrace(invalidSOAP));
             		soapEnvLog.error("Received message cannot be logged because its SOAP envelope is not valid!");
             	} else {
-            		log.error("Created message does not contain a valid SOAP envelope! Details: " 
+            		log.error("Created message does not contain a valid SOAP envelope! Details: "
             				+ Utils.getExceptionTrace(invalidSOAP));
             	}
             }
@@ -60,4 +109,175 @@ public class SOAPEnvelopeLogger extends AbstractBaseHandler {
         return InvocationResponse.CONTINUE;
     }
 
+    /**
+     * Gets the maximum number of characters of the SOAP Body to log from the Holodeck B2B configuration.
+     *
+     * @param log	the log of the handler
+     * @return	the maximum number of characters to log, negative if there is no limit
+     */
+    private int getMaxBodySize(final Logger log) {
+    	Integer max = maxBodySize;
+    	if (max == null) {
+    		max = DEFAULT_MAX_BODY_SIZE;
+    		final IConfiguration config = HolodeckB2BCoreInterface.getConfiguration();
+    		final Parameter maxParam = config != null ? config.getParameter(P_MAX_BODY_SIZE) : null;
+    		if (maxParam != null && maxParam.getParameterType() == Parameter.TEXT_PARAMETER) {
+    			try { max = Integer.parseInt(((String) maxParam.getValue()).trim()); }
+    			catch (NumberFormatException nan) {
+    				log.warn("Invalid value [{}] for parameter {}, using default {}", maxParam.getValue(),
+    						 P_MAX_BODY_SIZE, DEFAULT_MAX_BODY_SIZE);
+    			}
+    		}
+    		maxBodySize = max;
+    	}
+    	return max;
+    }
+
+    /**
+     * Serialises the given SOAP envelope to the given writer, limiting the number of characters written for the
+     * content of the SOAP Body. The envelope is read using a caching {@link XMLStreamReader} so the Axiom tree remains
+     * usable after serialisation.
+     *
+     * @param env			the SOAP envelope to serialise
+     * @param out			the writer to write the serialised envelope to
+     * @param maxBodySize	the maximum number of characters of the Body content to write, negative for no limit
+     * @throws XMLStreamException	when the envelope cannot be serialised
+     */
+    static void serialize(final SOAPEnvelope env, final Writer out, final int maxBodySize)
+    																					throws XMLStreamException {
+    	final CountingWriter counter = new CountingWriter(out);
+    	final XMLStreamReader reader = env.getXMLStreamReader(true);
+    	final XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(counter);
+    	final String soapNS = env.getNamespaceURI();
+    	int depth = 0;
+    	boolean inBody = false, skipping = false;
+    	long bodyStart = 0;
+    	try {
+	    	while (reader.hasNext()) {
+	    		final int event = reader.next();
+	    		if (event == XMLStreamConstants.START_ELEMENT)
+	    			depth++;
+	    		else if (event == XMLStreamConstants.END_ELEMENT && inBody && depth == 2) {
+	    			inBody = skipping = false;
+	    		}
+	    		if (inBody && !skipping) {
+	    			if (maxBodySize == 0) {
+	    				writer.writeComment(" Body content omitted ");
+	    				skipping = true;
+	    			} else if (maxBodySize > 0) {
+	    				writer.flush();
+	    				final long remaining = maxBodySize - (counter.count - bodyStart);
+	    				if (remaining > 0 && event == XMLStreamConstants.CHARACTERS
+	    					&& reader.getTextLength() > remaining) {
+	    					writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), (int) remaining);
+	    					skipping = true;
+	    				} else if (remaining <= 0)
+	    					skipping = true;
+	    				if (skipping) {
+	    					writer.writeComment(" Body content truncated, exceeds " + maxBodySize + " characters ");
+	    					// Close the elements in the Body that were already written
+	    					for (int i = event == XMLStreamConstants.START_ELEMENT ? depth - 1 : depth; i > 2; i--)
+	    						writer.writeEndElement();
+	    				}
+	    			}
+	    		}
+	    		if (!skipping)
+	    			copyEvent(reader, writer);
+	    		if (event == XMLStreamConstants.START_ELEMENT && depth == 2 && "Body".equals(reader.getLocalName())
+	    			&& soapNS.equals(reader.getNamespaceURI())) {
+	    			inBody = true;
+	    			writer.flush();
+	    			bodyStart = counter.count;
+	    		} else if (event == XMLStreamConstants.END_ELEMENT)
+	    			depth--;
+	    	}
+	    	writer.flush();
+    	} finally {
+    		writer.close();
+    		reader.close();
+    	}
+    }
+
+    /**
+     * Writes the current event of the reader to the writer.
+     */
+    private static void copyEvent(final XMLStreamReader reader, final XMLStreamWriter writer)
+    																					throws XMLStreamException {
+    	switch (reader.getEventType()) {
+    	case XMLStreamConstants.START_ELEMENT :
+    		final String prefix = reader.getPrefix();
+    		final String ns = reader.getNamespaceURI();
+    		if (Utils.isNullOrEmpty(ns))
+    			writer.writeStartElement(reader.getLocalName());
+    		else
+    			writer.writeStartElement(prefix != null ? prefix : "", reader.getLocalName(), ns);
+    		for (int i = 0; i < reader.getNamespaceCount(); i++) {
+    			final String nsPrefix = reader.getNamespacePrefix(i);
+    			if (Utils.isNullOrEmpty(nsPrefix))
+    				writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+    			else
+    				writer.writeNamespace(nsPrefix, reader.getNamespaceURI(i));
+    		}
+    		for (int i = 0; i < reader.getAttributeCount(); i++) {
+    			final String attrNS = reader.getAttributeNamespace(i);
+    			if (Utils.isNullOrEmpty(attrNS))
+    				writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+    			else {
+    				final String attrPrefix = reader.getAttributePrefix(i);
+    				writer.writeAttribute(attrPrefix != null ? attrPrefix : "", attrNS, reader.getAttributeLocalName(i),
+    									  reader.getAttributeValue(i));
+    			}
+    		}
+    		break;
+    	case XMLStreamConstants.END_ELEMENT :
+    		writer.writeEndElement();
+    		break;
+    	case XMLStreamConstants.CHARACTERS :
+    	case XMLStreamConstants.SPACE :
+    		writer.writeCharacters(reader.getText());
+    		break;
+    	case XMLStreamConstants.CDATA :
+    		writer.writeCData(reader.getText());
+    		break;
+    	case XMLStreamConstants.COMMENT :
+    		writer.writeComment(reader.getText());
+    		break;
+    	case XMLStreamConstants.PROCESSING_INSTRUCTION :
+    		writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+    		break;
+    	case XMLStreamConstants.ENTITY_REFERENCE :
+    		writer.writeEntityRef(reader.getLocalName());
+    		break;
+    	default:
+    		// Document start and end are not included in the log
+    	}
+    }
+
+    /**
+     * Writer that counts the number of characters written to the underlying writer.
+     */
+    private static class CountingWriter extends Writer {
+    	private final Writer	out;
+    	long					count = 0;
+
+    	CountingWriter(final Writer out) {
+    		this.out = out;
+    	}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			out.write(cbuf, off, len);
+			count += len;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+    }
 }
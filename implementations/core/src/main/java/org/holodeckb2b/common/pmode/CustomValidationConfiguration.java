@@ -41,6 +41,9 @@ public class CustomValidationConfiguration implements IMessageValidationSpecific
 	@Element(name = "ExecuteInOrder", required = false)
 	Boolean executeInOrder = Boolean.FALSE;
 
+	@Element(name = "ExecuteInParallel", required = false)
+	Boolean executeInParallel;
+
 	@Element(name = "StopValidationOn", required = false)
 	@Convert(ValidationLevelConverter.class)
 	MessageValidationError.Severity stopValidationOn;
@@ -67,6 +70,7 @@ public class CustomValidationConfiguration implements IMessageValidationSpecific
 	 */
 	public CustomValidationConfiguration(final IMessageValidationSpecification source) {
 		this.executeInOrder = source.mustExecuteInOrder();
+		this.executeInParallel = source.executeInParallel();
 		this.stopValidationOn = source.getStopSeverity();
 		this.rejectMessageOn = source.getRejectionSeverity();
 		List<IMessageValidatorConfiguration> srcValidatorCfgs = source.getValidators();
@@ -105,6 +109,15 @@ public class CustomValidationConfiguration implements IMessageValidationSpecific
 		this.executeInOrder = inOrder;
 	}
 
+	@Override
+	public Boolean executeInParallel() {
+		return executeInParallel;
+	}
+
+	public void setExecuteInParallel(final Boolean inParallel) {
+		this.executeInParallel = inParallel;
+	}
+
 	@Override
 	public MessageValidationError.Severity getStopSeverity() {
 		return stopValidationOn;
@@ -18,8 +18,10 @@ package org.holodeckb2b.common.pmode;
 
 import java.text.SimpleDateFormat;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.config.IConfiguration;
@@ -29,15 +31,24 @@ import org.holodeckb2b.interfaces.pmode.PModeSetException;
 
 /**
  * Is the default implementation of {@link IPModeStorage} that maintains the set of P-Modes in memory.
+ * <p>As the P-Mode set is read by all threads processing messages and changed only occasionally, the P-Modes are kept
+ * in an immutable map which is replaced by a new version on each change (copy-on-write). Therefore reading the P-Modes
+ * never blocks and {@link #getAll()} returns a stable snapshot of the set that is not affected by later changes.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class InMemoryPModeSet implements IPModeStorage {
 
     /**
-     * The actual storage of the P-Mode set, for easy access on PMode.id we use a HashMap
+     * The actual storage of the P-Mode set, for easy access on PMode.id we use a Map. Since 8.0.0 this is an immutable
+     * snapshot that is replaced when the set is changed.
      */
-    private HashMap<String, IPMode>     pmodeSet = new HashMap<>();
+    private volatile Map<String, IPMode>     pmodeSet = Collections.emptyMap();
+
+    /**
+     * Lock used to serialise changes to the P-Mode set
+     */
+    private final Object    writeLock = new Object();
 
     @Override
     public void init(IConfiguration config) throws PModeSetException {
@@ -49,10 +60,7 @@ public class InMemoryPModeSet implements IPModeStorage {
 
     @Override
     public IPMode get(final String id) {
-        if (this.containsId(id))
-            return pmodeSet.get(id);
-        else
-            return null;
+        return id != null ? pmodeSet.get(id) : null;
     }
 
     @Override
@@ -62,7 +70,7 @@ public class InMemoryPModeSet implements IPModeStorage {
 
     @Override
     public boolean containsId(final String id) {
-        return (pmodeSet.keySet() != null ? pmodeSet.keySet().contains(id) : false);
+        return id != null && pmodeSet.containsKey(id);
     }
 
     @Override
@@ -70,17 +78,18 @@ public class InMemoryPModeSet implements IPModeStorage {
         // Check whether the provided P-Mode has been assigned an id
         String pmodeId = pmode.getId();
 
-        if (Utils.isNullOrEmpty(pmodeId)) {
-            // No id provided, generate one now
-            pmodeId = generatePModeId(pmode);
-        }
-
-        synchronized (this.pmodeSet) {
+        synchronized (writeLock) {
+            if (Utils.isNullOrEmpty(pmodeId)) {
+                // No id provided, generate one now
+                pmodeId = generatePModeId(pmode);
+            }
             // Ensure that the P-Mode id is unique and does not already exist
             if (pmodeSet.containsKey(pmodeId))
                 throw new PModeSetException("A P-Mode with id " + pmodeId + " already exists!");
 
-            pmodeSet.put(pmodeId, pmode);
+            final Map<String, IPMode> newSet = new HashMap<>(pmodeSet);
+            newSet.put(pmodeId, pmode);
+            pmodeSet = Collections.unmodifiableMap(newSet);
 
             return pmodeId;
         }
@@ -93,26 +102,32 @@ public class InMemoryPModeSet implements IPModeStorage {
         if (Utils.isNullOrEmpty(pmodeId))
             throw new PModeSetException("The P-Mode MUST have an id!");
 
-        synchronized (this.pmodeSet) {
+        synchronized (writeLock) {
             if (!containsId(pmodeId))
                 throw new PModeSetException("There is no P-Mode with the given id!");
 
-            this.pmodeSet.put(pmodeId, pmode);
+            final Map<String, IPMode> newSet = new HashMap<>(pmodeSet);
+            newSet.put(pmodeId, pmode);
+            pmodeSet = Collections.unmodifiableMap(newSet);
         }
     }
 
     @Override
     public void remove(final String id) throws PModeSetException {
-        if (containsId(id)) {
-            synchronized (this.pmodeSet) {
-                this.pmodeSet.remove(id);
+        synchronized (writeLock) {
+            if (containsId(id)) {
+                final Map<String, IPMode> newSet = new HashMap<>(pmodeSet);
+                newSet.remove(id);
+                pmodeSet = Collections.unmodifiableMap(newSet);
             }
         }
     }
 
     @Override
     public void removeAll() throws PModeSetException {
-        this.pmodeSet = new HashMap<>();
+        synchronized (writeLock) {
+            this.pmodeSet = Collections.emptyMap();
+        }
     }
 
     /**
@@ -35,6 +35,15 @@ public class PayloadProfile implements IAS4PayloadProfile, Serializable {
     @Element (name = "UseAS4Compression", required = false)
     private Boolean useAS4Compression = Boolean.FALSE;
 
+    @Element (name = "CompressionLevel", required = false)
+    private Integer compressionLevel;
+
+    @Element (name = "MaxDecompressedSize", required = false)
+    private Long maxDecompressedSize;
+
+    @Element (name = "MaxCompressionRatio", required = false)
+    private Integer maxCompressionRatio;
+
     /**
      * Default constructor creates a new and empty <code>PayloadProfile</code> instance.
      */
@@ -50,6 +59,10 @@ public class PayloadProfile implements IAS4PayloadProfile, Serializable {
         if (source != null && source instanceof IAS4PayloadProfile) {
             this.useAS4Compression = (((IAS4PayloadProfile) source).getCompressionType())
             											.equalsIgnoreCase(IAS4PayloadProfile.GZIP_CONTENT_TYPE);
+            final int level = ((IAS4PayloadProfile) source).getCompressionLevel();
+            this.compressionLevel = level >= 0 ? level : null;
+            this.maxDecompressedSize = ((IAS4PayloadProfile) source).getMaxDecompressedSize();
+            this.maxCompressionRatio = ((IAS4PayloadProfile) source).getMaxCompressionRatio();
         }
     }
 
@@ -61,4 +74,51 @@ public class PayloadProfile implements IAS4PayloadProfile, Serializable {
     public void setCompressionType(final String compressionType) {
         this.useAS4Compression = compressionType.equalsIgnoreCase(IAS4PayloadProfile.GZIP_CONTENT_TYPE);
     }
+
+    @Override
+    public int getCompressionLevel() {
+    	return compressionLevel != null ? compressionLevel : -1;
+    }
+
+    /**
+     * Sets the compression level to use.
+     *
+     * @param level	the compression level, from 0 to 9, or -1 to use the default level
+     * @since 8.0.0
+     */
+    public void setCompressionLevel(final int level) {
+    	this.compressionLevel = level >= 0 ? level : null;
+    }
+
+    @Override
+    public Long getMaxDecompressedSize() {
+    	return maxDecompressedSize;
+    }
+
+    /**
+     * Sets the maximum size of the decompressed payload data.
+     *
+     * @param maxSize	the maximum size in bytes, 0 or a negative value for no limit, or <code>null</code> to use the
+     * 					gateway wide default
+     * @since 8.0.0
+     */
+    public void setMaxDecompressedSize(final Long maxSize) {
+    	this.maxDecompressedSize = maxSize;
+    }
+
+    @Override
+    public Integer getMaxCompressionRatio() {
+    	return maxCompressionRatio;
+    }
+
+    /**
+     * Sets the maximum ratio between the size of the decompressed and compressed payload data.
+     *
+     * @param maxRatio	the maximum compression ratio, 0 or a negative value for no limit, or <code>null</code> to
+     * 					use the gateway wide default
+     * @since 8.0.0
+     */
+    public void setMaxCompressionRatio(final Integer maxRatio) {
+    	this.maxCompressionRatio = maxRatio;
+    }
 }
@@ -18,6 +18,7 @@ package org.holodeckb2b.core;
 
 import org.apache.axis2.AxisFault;
 import org.holodeckb2b.core.config.InternalConfiguration;
+import org.holodeckb2b.core.receptionawareness.RetransmissionScheduler;
 import org.holodeckb2b.core.storage.StorageManager;
 import org.holodeckb2b.core.validation.IValidationExecutor;
 import org.holodeckb2b.interfaces.config.IConfiguration;
@@ -70,6 +71,26 @@ public class HolodeckB2BCore extends HolodeckB2BCoreInterface {
         return coreImpl().getStorageManager();
     }
 
+    /**
+     * Gets the dispatcher that should be used to hand over message units for sending.
+     *
+     * @return  The {@link SendDispatcher} in use, <code>null</code> if not available
+     * @since  8.0.0
+     */
+    public static SendDispatcher getSendDispatcher() {
+        return coreImpl().getSendDispatcher();
+    }
+
+    /**
+     * Gets the scheduler of the retransmission checks of User Messages waiting for a Receipt.
+     *
+     * @return  The {@link RetransmissionScheduler} in use, <code>null</code> if not available
+     * @since  8.0.0
+     */
+    public static RetransmissionScheduler getRetransmissionScheduler() {
+        return coreImpl().getRetransmissionScheduler();
+    }
+
     /**
      * Gets the {@link IValidationExecutor} implementation that should be used for the execution of the custom
      * message validations.
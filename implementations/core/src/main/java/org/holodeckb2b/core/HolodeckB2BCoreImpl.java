@@ -27,12 +27,14 @@ import org.apache.axis2.modules.Module;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.VersionInfo;
+import org.holodeckb2b.common.events.AsyncEventProcessor;
 import org.holodeckb2b.common.events.SyncEventProcessor;
 import org.holodeckb2b.common.workerpool.XMLWorkerPoolConfiguration;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.config.InternalConfiguration;
 import org.holodeckb2b.core.pmode.PModeManager;
 import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.core.receptionawareness.RetransmissionScheduler;
 import org.holodeckb2b.core.storage.QueryManager;
 import org.holodeckb2b.core.storage.StorageManager;
 import org.holodeckb2b.core.submission.MessageSubmitter;
@@ -93,6 +95,12 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
      */
     private PModeManager pmodeManager = null;
 
+    /**
+     * The validation executor which caches the validator factories until the P-Mode set changes
+     * @since 8.0.0
+     */
+    private DefaultValidationExecutor validationExecutor = null;
+
     /**
      * The component responsible for processing of events that occur while processing a message. The processor will
      * pass the events on to the configured event handlers.
@@ -132,6 +140,18 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
      */
     private DeliveryManager deliveryManager = null;
 
+    /**
+     * The dispatcher that starts the send process of message units as soon as they are ready to be pushed
+     * @since 8.0.0
+     */
+    private SendDispatcher sendDispatcher = null;
+
+    /**
+     * The scheduler that checks the retransmission of User Messages waiting for a Receipt when due
+     * @since 8.0.0
+     */
+    private RetransmissionScheduler retransmissionScheduler = null;
+
     /**
      * The list of globally configured event handlers
      *
@@ -159,11 +179,16 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
 						e.getMessage());
 			throw new AxisFault("Could not initialize Holodeck B2B module!", e);
 		}
+        log.trace("Initialize the validation executor");
+        validationExecutor = new DefaultValidationExecutor();
+        pmodeManager.registerEventListener(validationExecutor);
 
         log.trace("Load the event processor");
     	eventProcessor = Utils.getFirstAvailableProvider(IMessageProcessingEventProcessor.class);
     	if (eventProcessor == null && instanceConfiguration.eventProcessorFallback())
-    		eventProcessor = new SyncEventProcessor();
+    		eventProcessor = Utils.isTrue((String) instanceConfiguration.getParameterValue(
+    															AsyncEventProcessor.P_ENABLED)) ?
+    												new AsyncEventProcessor() : new SyncEventProcessor();
     	if (eventProcessor != null) {
 	        try {
 	        	log.trace("Initialising event processor : {}", eventProcessor.getName());
@@ -238,6 +263,17 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
         deliveryManager = new DeliveryManager(storageManager, config);
         log.info("Initialised the Delivery Manager");
 
+        log.trace("Initialise the Send Dispatcher");
+        sendDispatcher = new SendDispatcher(storageManager, queryManager);
+        storageManager.setSendDispatcher(sendDispatcher);
+        sendDispatcher.recoverClaimedMessageUnits();
+        log.info("Initialised the Send Dispatcher");
+
+        log.trace("Initialise the Retransmission Scheduler");
+        retransmissionScheduler = new RetransmissionScheduler(queryManager, config);
+        storageManager.setRetransmissionScheduler(retransmissionScheduler);
+        log.info("Initialised the Retransmission Scheduler");
+
         log.trace("Create list of managed worker pools");
         workerPools = new HashMap<>();
 
@@ -283,6 +319,22 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
         								}
         							  });
         log.debug("Worker pools stopped");
+        try {
+        	log.trace("Shutting down Send Dispatcher");
+        	storageManager.setSendDispatcher(null);
+        	sendDispatcher.shutdown(10);
+        	log.debug("Send Dispatcher shut down");
+        } catch (Throwable t) {
+        	log.error("Error during Send Dispatcher shutdown: {}", Utils.getExceptionTrace(t));
+        }
+        try {
+        	log.trace("Shutting down Retransmission Scheduler");
+        	storageManager.setRetransmissionScheduler(null);
+        	retransmissionScheduler.shutdown();
+        	log.debug("Retransmission Scheduler shut down");
+        } catch (Throwable t) {
+        	log.error("Error during Retransmission Scheduler shutdown: {}", Utils.getExceptionTrace(t));
+        }
         try {
         	log.trace("Shutting down Certificate Manager");
         	certManager.shutdown();
@@ -373,6 +425,22 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
         return storageManager;
     }
 
+    /**
+     * @see HolodeckB2BCore#getSendDispatcher()
+     * @since 8.0.0
+     */
+    public SendDispatcher getSendDispatcher() {
+        return sendDispatcher;
+    }
+
+    /**
+     * @see HolodeckB2BCore#getRetransmissionScheduler()
+     * @since 8.0.0
+     */
+    public RetransmissionScheduler getRetransmissionScheduler() {
+        return retransmissionScheduler;
+    }
+
     /**
      * {@inheritDoc}
      * @since  3.0.0
@@ -387,7 +455,7 @@ public class HolodeckB2BCoreImpl implements IHolodeckB2BCore {
      * @since 4.0.0
      */
     public IValidationExecutor getValidationExecutor() {
-        return new DefaultValidationExecutor();
+        return validationExecutor;
     }
 
     /**
@@ -0,0 +1,609 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.common.util.MessageUnitUtils;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.axis2.Axis2Sender;
+import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.core.storage.QueryManager;
+import org.holodeckb2b.core.storage.StorageManager;
+import org.holodeckb2b.core.workers.SendDispatcherWorker;
+import org.holodeckb2b.core.workers.SenderWorker;
+import org.holodeckb2b.interfaces.messagemodel.Direction;
+import org.holodeckb2b.interfaces.messagemodel.IMessageUnit;
+import org.holodeckb2b.interfaces.pmode.ILeg;
+import org.holodeckb2b.interfaces.processingmodel.IMessageUnitProcessingState;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
+import org.holodeckb2b.interfaces.storage.IMessageUnitEntity;
+import org.holodeckb2b.interfaces.storage.providers.StorageException;
+
+/**
+ * Is responsible for starting the send process of message units as soon as they become ready to be pushed. When the
+ * processing state of a message unit is changed to {@link ProcessingState#READY_TO_PUSH} the {@link StorageManager}
+ * hands it over to the dispatcher which puts it in the queue of its destination. The queues are drained by the {@link
+ * SendDispatcherWorker}s running in the Core worker pool, so the number of senders is configured in the worker pool
+ * configuration. A worker claims the message unit by changing its processing state to {@link
+ * ProcessingState#PROCESSING} and then sends it using the {@link Axis2Sender}. The {@link SenderWorker} also uses the
+ * dispatcher to send the message units it has already claimed.
+ * <p>To prevent that a slow or unavailable destination blocks sending to other destinations the number of message
+ * units that are sent concurrently to the same destination is limited and the destinations are served in turn. The
+ * destination of a message unit is the address of the P-Mode Leg that governs it, or when the Leg does not specify an
+ * address, its P-Mode. Destinations to which no message units have been sent for some time are removed.
+ * <p>The queues only hold the <i>CoreId</i> of the message units to send, so no data is lost when a message unit
+ * cannot be queued because the queues are full, no workers are running or when Holodeck B2B is shut down before it
+ * was sent. Such message units stay in the <i>READY_TO_PUSH</i> state and will be picked up by the {@link
+ * SenderWorker} which therefore only needs to run at a low frequency as recovery sweep. The message units that were
+ * already claimed when queued are reset to <i>READY_TO_PUSH</i> on an orderly shut down. When Holodeck B2B was
+ * stopped abruptly they are still in the <i>PROCESSING</i> state and are reset on start up by {@link
+ * #recoverClaimedMessageUnits()}.
+ * <p>The maximum number of concurrent senders per destination and maximum number of queued message units are set by
+ * the {@link SendDispatcherWorker} using its <i>maxPerDestination</i> and <i>queueSize</i> parameters. By default 2
+ * senders per destination and a total queue size of 1000 are used.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class SendDispatcher {
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * The default maximum number of message units that can be sent concurrently to the same destination
+	 */
+	public static final int DEFAULT_MAX_PER_DESTINATION = 2;
+	/**
+	 * The default maximum number of message units waiting to be sent
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+	/**
+	 * Time in milliseconds after the last poll of a worker during which the workers are considered to be running
+	 */
+	private static final long WORKER_TIMEOUT = 5000;
+
+	/**
+	 * Time in milliseconds after which a destination without queued or active message units is removed
+	 */
+	static final long DESTINATION_IDLE_TIME = 10 * 60 * 1000;
+
+	/**
+	 * Lock protecting the queues and statistics
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Condition signalled when a message unit becomes available for sending or the dispatcher is shut down
+	 */
+	private final Condition available = lock.newCondition();
+
+	/**
+	 * Condition signalled when a send process completes
+	 */
+	private final Condition completed = lock.newCondition();
+
+	/**
+	 * The destinations to which message units have been dispatched, mapped by their key
+	 */
+	private final Map<String, Destination> destinations = new LinkedHashMap<>();
+
+	/**
+	 * The destinations that have message units waiting and can be served, in the order they should be served
+	 */
+	private final Deque<Destination> ready = new ArrayDeque<>();
+
+	/**
+	 * The maximum number of message units that can be sent concurrently to the same destination
+	 */
+	private int maxPerDestination = DEFAULT_MAX_PER_DESTINATION;
+
+	/**
+	 * The maximum number of message units waiting to be sent
+	 */
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+
+	/**
+	 * The current number of message units waiting to be sent
+	 */
+	private int queued = 0;
+
+	/**
+	 * The current number of workers waiting for or sending a message unit
+	 */
+	private int workers = 0;
+
+	/**
+	 * The current number of message units being sent
+	 */
+	private int active = 0;
+
+	/**
+	 * Timestamp of the last time a worker asked for a message unit to send
+	 */
+	private long lastPoll = 0;
+
+	/**
+	 * Timestamp of the last time idle destinations were removed
+	 */
+	private long lastSweep = System.currentTimeMillis();
+
+	/**
+	 * Indicates whether the dispatcher has been shut down
+	 */
+	private boolean isShutdown = false;
+
+	/**
+	 * The Core StorageManager used to claim the message units for sending
+	 */
+	private final StorageManager storageManager;
+
+	/**
+	 * The Core QueryManager used to retrieve the current meta-data of the message units to send
+	 */
+	private final QueryManager queryManager;
+
+	/**
+	 * Initialises the dispatcher.
+	 *
+	 * @param sm		the {@link StorageManager} to use for claiming message units for sending
+	 * @param qm		the {@link QueryManager} to use for retrieving the message units to send
+	 */
+	SendDispatcher(final StorageManager sm, final QueryManager qm) {
+		this.storageManager = sm;
+		this.queryManager = qm;
+	}
+
+	/**
+	 * Resets the outgoing message units that were claimed for sending but whose send process did not complete because
+	 * Holodeck B2B was stopped abruptly, so they are sent again. These are the message units that are still in the
+	 * <i>PROCESSING</i> state directly after the <i>READY_TO_PUSH</i> state. Because the message units are resent
+	 * this method must only be called on start up before any message unit is claimed for sending.
+	 */
+	void recoverClaimedMessageUnits() {
+		final List<IMessageUnitEntity> inProcess;
+		try {
+			inProcess = queryManager.getMessageUnitsInState(IMessageUnit.class, Direction.OUT,
+															Collections.singleton(ProcessingState.PROCESSING));
+		} catch (StorageException queryFailure) {
+			log.error("Could not retrieve the message units claimed for sending : {}",
+						Utils.getExceptionTrace(queryFailure));
+			return;
+		}
+		for (IMessageUnitEntity m : inProcess) {
+			final List<IMessageUnitProcessingState> states = m.getProcessingStates();
+			if (states.size() < 2 || states.get(states.size() - 2).getState() != ProcessingState.READY_TO_PUSH)
+				continue;
+			try {
+				log.debug("Reset {} (msgId={}) that was claimed for sending before restart",
+							MessageUnitUtils.getMessageUnitName(m), m.getMessageId());
+				storageManager.setProcessingState(m, ProcessingState.READY_TO_PUSH);
+			} catch (Throwable t) {
+				log.error("Could not reset processing state of message unit (coreId={}) : {}", m.getCoreId(),
+							Utils.getExceptionTrace(t));
+			}
+		}
+	}
+
+	/**
+	 * Sets the maximum number of message units that can be sent concurrently to the same destination and the maximum
+	 * number of message units that can be waiting to be sent. Message units already queued are not affected when the
+	 * queue size is decreased.
+	 *
+	 * @param maxPerDestination	the maximum number of concurrent senders per destination, must be at least 1
+	 * @param queueSize			the maximum number of message units waiting to be sent, 0 to disable queueing
+	 */
+	public void configure(final int maxPerDestination, final int queueSize) {
+		lock.lock();
+		try {
+			log.trace("Set max senders per destination = {} and queue size = {}", maxPerDestination, queueSize);
+			this.maxPerDestination = Math.max(1, maxPerDestination);
+			this.queueSize = Math.max(0, queueSize);
+			// Destinations may now be served by more senders
+			destinations.values().forEach(this::makeReady);
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the given message unit to the queue of message units to send. If the queues are full or no workers are
+	 * running the message unit is not queued and will be sent by the {@link SenderWorker}.
+	 *
+	 * @param msgUnit	the message unit that is ready to be pushed
+	 */
+	public void dispatch(final IMessageUnitEntity msgUnit) {
+		if (enqueue(new SendJob(msgUnit.getCoreId(), null), msgUnit))
+			log.trace("Queued {} (msgId={}) for sending", MessageUnitUtils.getMessageUnitName(msgUnit),
+						msgUnit.getMessageId());
+		else
+			log.debug("Send queue full or unavailable, {} (msgId={}) will be sent by SenderWorker",
+						MessageUnitUtils.getMessageUnitName(msgUnit), msgUnit.getMessageId());
+	}
+
+	/**
+	 * Adds the given message unit, that has already been claimed for sending by the caller, to the queue of message
+	 * units to send.
+	 *
+	 * @param claimedMsgUnit	the message unit to send, its processing state must be <i>PROCESSING</i>
+	 * @return <code>true</code> if the message unit was queued,<br>
+	 * 		   <code>false</code> if the queues are full or no workers are running, in which case the caller should
+	 * 		   send the message unit itself
+	 */
+	public boolean submit(final IMessageUnitEntity claimedMsgUnit) {
+		return enqueue(new SendJob(claimedMsgUnit.getCoreId(), claimedMsgUnit), claimedMsgUnit);
+	}
+
+	/**
+	 * Waits for the next message unit to become available and sends it. This method is called by the {@link
+	 * SendDispatcherWorker}s.
+	 *
+	 * @param timeout	the maximum time in milliseconds to wait for a message unit to become available
+	 * @return <code>true</code> if a message unit was processed,<br><code>false</code> if no message unit became
+	 * 		   available within the given time or the dispatcher is shut down
+	 * @throws InterruptedException when the worker is interrupted while waiting
+	 */
+	public boolean sendNext(final long timeout) throws InterruptedException {
+		final Destination destination;
+		final SendJob job;
+		lock.lock();
+		try {
+			if (isShutdown)
+				return false;
+			workers++;
+			try {
+				long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+				lastPoll = System.currentTimeMillis();
+				removeIdleDestinations();
+				while (ready.isEmpty() && !isShutdown && nanos > 0)
+					nanos = available.awaitNanos(nanos);
+				lastPoll = System.currentTimeMillis();
+				destination = isShutdown ? null : ready.poll();
+				if (destination == null) {
+					workers--;
+					return false;
+				}
+			} catch (InterruptedException interrupted) {
+				workers--;
+				throw interrupted;
+			}
+			job = destination.jobs.poll();
+			destination.inReady = false;
+			destination.active++;
+			queued--;
+			active++;
+			makeReady(destination);
+		} finally {
+			lock.unlock();
+		}
+
+		final long start = System.currentTimeMillis();
+		try {
+			send(job);
+		} finally {
+			lock.lock();
+			try {
+				destination.processed++;
+				destination.totalSendTime += System.currentTimeMillis() - start;
+				destination.lastUsed = System.currentTimeMillis();
+				destination.active--;
+				active--;
+				workers--;
+				if (makeReady(destination))
+					available.signal();
+				completed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates whether the dispatcher has been shut down.
+	 *
+	 * @return <code>true</code> if the dispatcher is shut down, <code>false</code> otherwise
+	 */
+	public boolean isShutdown() {
+		lock.lock();
+		try {
+			return isShutdown;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the current statistics of all destinations to which message units have been dispatched.
+	 *
+	 * @return	collection with a snapshot of the statistics per destination
+	 */
+	public Collection<DestinationStatistics> getStatistics() {
+		lock.lock();
+		try {
+			final List<DestinationStatistics> stats = new ArrayList<>(destinations.size());
+			destinations.values().forEach(d -> stats.add(new DestinationStatistics(d.key, d.jobs.size(), d.active,
+															d.processed,
+															d.processed > 0 ? d.totalSendTime / d.processed : 0)));
+			return stats;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the send job to the queue of the destination of the message unit if the dispatcher is running and the
+	 * maximum number of waiting message units is not yet reached.
+	 *
+	 * @param job		the job to queue
+	 * @param msgUnit	the message unit to be sent
+	 * @return	<code>true</code> if the job was queued, <code>false</code> if not
+	 */
+	private boolean enqueue(final SendJob job, final IMessageUnitEntity msgUnit) {
+		final String key = getDestination(msgUnit);
+		lock.lock();
+		try {
+			// Only queue when there are workers to process the queue, otherwise the SenderWorker should pick it up
+			if (isShutdown || queued >= queueSize
+				|| (workers == 0 && System.currentTimeMillis() - lastPoll > WORKER_TIMEOUT))
+				return false;
+			final Destination destination = destinations.computeIfAbsent(key, Destination::new);
+			destination.jobs.add(job);
+			destination.lastUsed = System.currentTimeMillis();
+			queued++;
+			if (makeReady(destination))
+				available.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the destination to the list of destinations to be served if it has message units waiting and the maximum
+	 * number of concurrent senders is not reached. Must be called with the lock held.
+	 *
+	 * @param destination	the destination to check
+	 * @return	<code>true</code> if the destination was added, <code>false</code> if not
+	 */
+	private boolean makeReady(final Destination destination) {
+		if (destination.inReady || destination.jobs.isEmpty() || destination.active >= maxPerDestination)
+			return false;
+		destination.inReady = true;
+		ready.add(destination);
+		return true;
+	}
+
+	/**
+	 * Removes the destinations that have no message units queued or being sent and have not been used for {@link
+	 * #DESTINATION_IDLE_TIME}. To limit the overhead the check is executed at most once a minute. Must be called with
+	 * the lock held.
+	 */
+	private void removeIdleDestinations() {
+		final long now = System.currentTimeMillis();
+		if (now - lastSweep < 60 * 1000)
+			return;
+		lastSweep = now;
+		for (Iterator<Destination> it = destinations.values().iterator(); it.hasNext();) {
+			final Destination d = it.next();
+			if (d.jobs.isEmpty() && d.active == 0 && now - d.lastUsed > DESTINATION_IDLE_TIME) {
+				log.trace("Remove idle destination {}", d.key);
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Determines the destination of the message unit, which is the address of the Leg governing the message unit if
+	 * available or else the P-Mode.
+	 *
+	 * @param msgUnit	the message unit to send
+	 * @return			key of the destination of the message unit
+	 */
+	private static String getDestination(final IMessageUnitEntity msgUnit) {
+		try {
+			final ILeg leg = PModeUtils.getLeg(msgUnit);
+			if (leg != null && leg.getProtocol() != null && !Utils.isNullOrEmpty(leg.getProtocol().getAddress()))
+				return leg.getProtocol().getAddress();
+		} catch (Exception noPMode) {
+			// Can't determine the address, so use P-Mode as destination
+		}
+		return "pmode:" + msgUnit.getPModeId();
+	}
+
+	/**
+	 * Sends the message unit of the given job. If the message unit has not been claimed yet, it is first retrieved
+	 * and claimed. A message unit that is no longer in the <i>READY_TO_PUSH</i> state or that could not be claimed is
+	 * skipped as it has already been picked up by another thread.
+	 *
+	 * @param job	the job to execute
+	 */
+	private void send(final SendJob job) {
+		final String coreId = job.coreId;
+		IMessageUnitEntity msgUnit = job.claimedMsgUnit;
+		try {
+			if (msgUnit == null) {
+				msgUnit = queryManager.getMessageUnitWithCoreId(coreId);
+				if (msgUnit == null || msgUnit.getCurrentProcessingState().getState() != ProcessingState.READY_TO_PUSH
+					|| !storageManager.setProcessingState(msgUnit, ProcessingState.PROCESSING)) {
+					log.trace("Message unit (coreId={}) already claimed for sending", coreId);
+					return;
+				}
+			}
+			// Only message units associated with a P-Mode can be send
+			if (Utils.isNullOrEmpty(msgUnit.getPModeId())) {
+				log.error("Can not sent message [{}] because it has no P-Mode", msgUnit.getMessageId());
+				storageManager.setProcessingState(msgUnit, ProcessingState.FAILURE);
+				return;
+			}
+			log.trace("Trigger send process for {} [{}]", MessageUnitUtils.getMessageUnitName(msgUnit),
+						msgUnit.getMessageId());
+			Axis2Sender.sendMessage(msgUnit);
+		} catch (Throwable t) {
+			log.error("An error occurred sending message unit (coreId={}) : {}", coreId, Utils.getExceptionTrace(t));
+		}
+	}
+
+	/**
+	 * Shuts down the dispatcher. Message units still in the queues are not sent and will be picked up by the
+	 * {@link SenderWorker} after restart. Message units that were already claimed when they were submitted are
+	 * reset to the <i>READY_TO_PUSH</i> state.
+	 *
+	 * @param shutdownTime	the maximum time in seconds to wait for currently running send processes to complete
+	 */
+	void shutdown(final int shutdownTime) {
+		final List<SendJob> remaining = new ArrayList<>();
+		lock.lock();
+		try {
+			log.trace("Stopping send dispatcher, {} message units waiting", queued);
+			isShutdown = true;
+			destinations.values().forEach(d -> { remaining.addAll(d.jobs); d.jobs.clear(); });
+			ready.clear();
+			queued = 0;
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		remaining.stream().filter(j -> j.claimedMsgUnit != null).forEach(j -> {
+			try {
+				storageManager.setProcessingState(j.claimedMsgUnit, ProcessingState.READY_TO_PUSH);
+			} catch (Throwable t) {
+				log.error("Could not reset processing state of message unit (coreId={}) : {}", j.coreId,
+							Utils.getExceptionTrace(t));
+			}
+		});
+		lock.lock();
+		try {
+			long nanos = TimeUnit.SECONDS.toNanos(shutdownTime);
+			while (active > 0 && nanos > 0)
+				nanos = completed.awaitNanos(nanos);
+			if (active > 0)
+				log.warn("{} send processes still running after shutdown of dispatcher", active);
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Holds the data of a message unit to be sent. When the message unit was already claimed by the submitter the
+	 * entity object is included, otherwise only its CoreId.
+	 */
+	private static class SendJob {
+		final String 			 coreId;
+		final IMessageUnitEntity claimedMsgUnit;
+
+		SendJob(final String coreId, final IMessageUnitEntity claimedMsgUnit) {
+			this.coreId = coreId;
+			this.claimedMsgUnit = claimedMsgUnit;
+		}
+	}
+
+	/**
+	 * Represents a destination with its queue of message units to send. All fields are guarded by the lock of the
+	 * dispatcher.
+	 */
+	private static class Destination {
+		final String 		 key;
+		final Deque<SendJob> jobs = new ArrayDeque<>();
+		boolean inReady = false;
+		int 	active = 0;
+		long	processed = 0;
+		long	totalSendTime = 0;
+		long	lastUsed = System.currentTimeMillis();
+
+		Destination(final String key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Contains a snapshot of the statistics of a destination.
+	 */
+	public static class DestinationStatistics {
+		private final String destination;
+		private final int	 queued;
+		private final int	 active;
+		private final long	 processed;
+		private final long	 avgSendTime;
+
+		DestinationStatistics(final String destination, final int queued, final int active, final long processed,
+							  final long avgSendTime) {
+			this.destination = destination;
+			this.queued = queued;
+			this.active = active;
+			this.processed = processed;
+			this.avgSendTime = avgSendTime;
+		}
+
+		/**
+		 * @return the destination address, or when the Leg did not specify an address, "pmode:" + the P-Mode id
+		 */
+		public String getDestination() {
+			return destination;
+		}
+
+		/**
+		 * @return the number of message units waiting to be sent to the destination
+		 */
+		public int getQueued() {
+			return queued;
+		}
+
+		/**
+		 * @return the number of message units currently being sent to the destination
+		 */
+		public int getActive() {
+			return active;
+		}
+
+		/**
+		 * @return the total number of message units processed for the destination
+		 */
+		public long getProcessed() {
+			return processed;
+		}
+
+		/**
+		 * @return the average time in milliseconds it took to process a message unit for the destination
+		 */
+		public long getAverageSendTime() {
+			return avgSendTime;
+		}
+
+		@Override
+		public String toString() {
+			return destination + " [queued=" + queued + ", active=" + active + ", processed=" + processed
+					+ ", avgSendTime=" + avgSendTime + "ms]";
+		}
+	}
+}
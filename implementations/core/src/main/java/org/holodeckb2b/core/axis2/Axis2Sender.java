@@ -18,6 +18,9 @@ package org.holodeckb2b.core.axis2;
 
 import static org.apache.axis2.client.ServiceClient.ANON_OUT_IN_OP;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.axis2.AxisFault;
 import org.apache.axis2.client.OperationClient;
 import org.apache.axis2.client.Options;
@@ -27,8 +30,8 @@ import org.apache.axis2.context.ServiceContext;
 import org.apache.axis2.context.ServiceGroupContext;
 import org.apache.axis2.description.AxisModule;
 import org.apache.axis2.description.AxisService;
-import org.apache.axis2.description.AxisServiceGroup;
 import org.apache.axis2.description.OutInAxisOperation;
+import org.apache.axis2.description.TransportOutDescription;
 import org.apache.axis2.engine.AxisConfiguration;
 import org.apache.axis2.kernel.http.HTTPConstants;
 import org.apache.logging.log4j.LogManager;
@@ -60,12 +63,103 @@ import org.holodeckb2b.interfaces.storage.providers.StorageException;
  * "http://holodeck-b2b.org/pmode/mepBinding/"</i> this class will look for a registered service with the name that
  * matches the next path segment of the MEPBinding value. Examples: For "http://holodeck-b2b.org/pmode/mepBinding/as2"
  * the expected Service is "as2" and for "http://holodeck-b2b.org/pmode/mepBinding/ebms2/oneWay" the Service is "ebms2".
+ * <p>The Axis2 operation needed for sending using a Service only depends on the Axis2 configuration and the Service
+ * itself. Therefore it is prepared once per Service, see {@link SendPipeline}, and re-used until the Service or Axis2
+ * configuration changes. As the Axis2 contexts are not guaranteed to be thread safe, new service group and service
+ * contexts are created for each message unit, so concurrent sends do not share their properties or operation
+ * contexts.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class Axis2Sender {
 	private final static Logger log = LogManager.getLogger(Axis2Sender.class);
 
+	/**
+	 * The Axis2 configuration context used for sending
+	 */
+	private static volatile ConfigurationContext configContext;
+
+	/**
+	 * The prepared send pipelines mapped by the name of the Service they are prepared for
+	 */
+	private static final Map<String, SendPipeline> pipelines = new ConcurrentHashMap<>();
+
+	/**
+	 * Holds the Axis2 operation prepared for sending message units using a specific Service.
+	 */
+	static class SendPipeline {
+		final ConfigurationContext		configContext;
+		final AxisConfiguration			axisConfig;
+		final AxisService				service;
+		final OutInAxisOperation		sendOp;
+		final TransportOutDescription	transportOut;
+
+		SendPipeline(final ConfigurationContext configContext, final AxisService service) throws AxisFault {
+			this.configContext = configContext;
+			this.axisConfig = configContext.getAxisConfiguration();
+			this.service = service;
+			this.transportOut = axisConfig.getTransportOut("http");
+
+			sendOp = new OutOptInAxisOperation(ANON_OUT_IN_OP);
+	        sendOp.setParent(service);
+	        axisConfig.getPhasesInfo().setOperationPhases(sendOp);
+	        // Engage all modules required by the service
+	        for(String moduleName : service.getModules()) {
+	            AxisModule module = axisConfig.getModule(moduleName);
+	            if (module != null)
+	                sendOp.engageModule(module);
+	        }
+		}
+
+		/**
+		 * Creates a new operation client, with its own service group and service context, for sending a message unit.
+		 *
+		 * @return	the operation client
+		 * @throws AxisFault	when the operation client cannot be created
+		 */
+		OperationClient createClient() throws AxisFault {
+			final ServiceGroupContext sgc = configContext.createServiceGroupContext(service.getAxisServiceGroup());
+			final ServiceContext svcContext = sgc.getServiceContext(service);
+	        final Options options = new Options();
+	        options.setTransportOut(transportOut);
+	        options.setExceptionToBeThrownOnSOAPFault(false);
+	        options.setProperty(HTTPConstants.USER_AGENT, Axis2Utils.HTTP_PRODID_HEADER);
+	        return sendOp.createClient(svcContext, options);
+		}
+	}
+
+	/**
+	 * Gets the send pipeline for the Service with the given name. If the pipeline has not been prepared yet or the
+	 * Service or Axis2 configuration changed since it was prepared, a new pipeline is prepared.
+	 *
+	 * @param svcName	name of the Service to use for sending
+	 * @return	the send pipeline for the Service, or <code>null</code> if the Service is not available
+	 * @throws AxisFault	when the send pipeline cannot be prepared
+	 */
+	static SendPipeline getSendPipeline(final String svcName) throws AxisFault {
+		final AxisConfiguration axisConfig = HolodeckB2BCore.getConfiguration();
+        AxisService service;
+        try {
+			service = axisConfig.getService(svcName);
+		} catch (AxisFault e) {
+			service = null;
+		}
+        if (service == null) {
+        	pipelines.remove(svcName);
+        	return null;
+        }
+        SendPipeline pipeline = pipelines.get(svcName);
+        if (pipeline == null || pipeline.axisConfig != axisConfig || pipeline.service != service) {
+        	log.debug("Preparing send pipeline for {} Service", svcName);
+        	ConfigurationContext cfgCtx = configContext;
+        	if (cfgCtx == null || cfgCtx.getAxisConfiguration() != axisConfig)
+        		configContext = cfgCtx = new ConfigurationContext(axisConfig);
+        	pipeline = new SendPipeline(cfgCtx, service);
+        	pipelines.put(svcName, pipeline);
+        }
+        return pipeline;
+	}
+
     /**
      * Sends the given message unit to the other MSH.
      *
@@ -95,47 +189,23 @@ public class Axis2Sender {
         		svcName = mepBinding.substring(41, segmentEnd);
         }
 
-        final ConfigurationContext configContext = new ConfigurationContext(HolodeckB2BCore.getConfiguration());
-        final AxisConfiguration axisConfig = configContext.getAxisConfiguration();
-        AxisService service;
-        try {
-			service = axisConfig.getService(svcName);
-		} catch (AxisFault e) {
-			service = null;
-		}
-        if (service == null) {
-        	log.error("Cannot send {} [msgId={}] because required {} Service is not installed!",
-    				   MessageUnitUtils.getMessageUnitName(messageUnit), messageUnit.getMessageId(),
-    				   svcName);
-        	registerSendFailure(messageUnit, "Required messaging service not installed", null);
-        	return;
-        }
-        log.debug("Using {} Service to send {} [msgId={}]", svcName, MessageUnitUtils.getMessageUnitName(messageUnit),
-        			messageUnit.getMessageId());
-
         final MessageContext msgCtx = new MessageContext();
         msgCtx.setFLOW(MessageContext.OUT_FLOW);
         OperationClient oc = null;
 
         try {
-	        AxisServiceGroup axisServiceGroup = service.getAxisServiceGroup();
-	        ServiceGroupContext sgc = configContext.createServiceGroupContext(axisServiceGroup);
-	        ServiceContext svcCtx = sgc.getServiceContext(service);
-
-	        final Options options = new Options();
-	        options.setTransportOut(axisConfig.getTransportOut("http"));
-	        options.setExceptionToBeThrownOnSOAPFault(false);
-	        options.setProperty(HTTPConstants.USER_AGENT, Axis2Utils.HTTP_PRODID_HEADER);
-	        OutInAxisOperation sendOp = new OutOptInAxisOperation(ANON_OUT_IN_OP);
-	        sendOp.setParent(service);
-	        axisConfig.getPhasesInfo().setOperationPhases(sendOp);
-	        // Engage all modules required by the service
-	        for(String moduleName : service.getModules()) {
-	            AxisModule module = axisConfig.getModule(moduleName);
-	            if (module != null)
-	                sendOp.engageModule(module);
+	        final SendPipeline pipeline = getSendPipeline(svcName);
+	        if (pipeline == null) {
+	        	log.error("Cannot send {} [msgId={}] because required {} Service is not installed!",
+	    				   MessageUnitUtils.getMessageUnitName(messageUnit), messageUnit.getMessageId(),
+	    				   svcName);
+	        	registerSendFailure(messageUnit, "Required messaging service not installed", null);
+	        	return;
 	        }
-	        oc = sendOp.createClient(svcCtx, options);
+	        log.debug("Using {} Service to send {} [msgId={}]", svcName,
+	        			MessageUnitUtils.getMessageUnitName(messageUnit), messageUnit.getMessageId());
+
+	        oc = pipeline.createClient();
 	        oc.addMessageContext(msgCtx);
 
 	        log.trace("Create an empty IMessageProcessingContext for message with current configuration");
@@ -156,6 +226,8 @@ public class Axis2Sender {
         	return;
         }
 
+        // The message is processed in a unit of work that is always completed, even if the flow is aborted
+        final int uow = HolodeckB2BCore.getStorageManager().beginUnitOfWork();
         try {
         	log.debug("Start send process for {} [msgId={}]", MessageUnitUtils.getMessageUnitName(messageUnit),
         				messageUnit.getMessageId());
@@ -173,6 +245,8 @@ public class Axis2Sender {
         				  Utils.getExceptionTrace(t, true));
         		registerSendFailure(messageUnit, "Unexpected error sending message", msgCtx.getFailureReason());
         	}
+        } finally {
+        	HolodeckB2BCore.getStorageManager().completeUnitOfWork(uow);
         }
     }
 
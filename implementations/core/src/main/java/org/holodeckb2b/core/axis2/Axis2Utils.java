@@ -16,16 +16,14 @@
  */
 package org.holodeckb2b.core.axis2;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.StringReader;
-import java.io.StringWriter;
-
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
 import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMXMLBuilderFactory;
@@ -60,6 +58,28 @@ public final class Axis2Utils {
 	 */
 	public static final String HTTP_PRODID_HEADER = "HolodeckB2B/" + VersionInfo.majorVersion 
 																   + "." + VersionInfo.minorVersion;
+
+	/**
+	 * The document builder and identity transformer used for converting the Axiom representation of the SOAP envelope
+	 * to DOM. As these are not thread safe, but expensive to create, an instance is kept per thread.
+	 */
+	private static final ThreadLocal<DocumentBuilder> DOC_BUILDER = ThreadLocal.withInitial(() -> {
+		try {
+			final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			return factory.newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException("Could not create DocumentBuilder", e);
+		}
+	});
+	private static final ThreadLocal<Transformer> IDENTITY_TRANSFORMER = ThreadLocal.withInitial(() -> {
+		try {
+			return TransformerFactory.newInstance().newTransformer();
+		} catch (TransformerConfigurationException e) {
+			throw new IllegalStateException("Could not create identity Transformer", e);
+		}
+	});
+
 	/**
 	 * Checks if the executed Service has specified its own <i>Message Builder</i> and if so returns an instance of that
 	 * builder.   
@@ -115,6 +135,8 @@ public final class Axis2Utils {
 
 	/**
 	 * Converts the SOAP Envelope element from the Axis2 representation to the standard DOM representation.
+	 * <p>The DOM tree is created directly from the SAX events generated by the Axiom tree, so the envelope does not
+	 * need to be serialised and parsed again.
 	 *
 	 * @param mc The MessageContext representing the SOAP message
 	 * @return A {@link Document} object that represents to the SOAP envelope element contained in the message, or<br>
@@ -122,13 +144,14 @@ public final class Axis2Utils {
 	 */
 	public static Document convertAxiomSOAPEnvToDOM(final MessageContext mc) {
 	    try {
-	    	final ByteArrayOutputStream baos = new ByteArrayOutputStream();
-	        mc.getEnvelope().serialize(baos);
-	        final ByteArrayInputStream bais = new ByteArrayInputStream(baos.toByteArray());
-	
-	        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-	        factory.setNamespaceAware(true);
-	        return factory.newDocumentBuilder().parse(bais);
+	    	final Document document = DOC_BUILDER.get().newDocument();
+	    	final Transformer transformer = IDENTITY_TRANSFORMER.get();
+	    	try {
+	    		transformer.transform(mc.getEnvelope().getSAXSource(true), new DOMResult(document));
+	    	} finally {
+	    		transformer.reset();
+	    	}
+	    	return document;
 	    } catch (final Exception e) {
 	        // If anything goes wrong converting the document, just return null
 	        return null;
@@ -137,6 +160,8 @@ public final class Axis2Utils {
 
 	/**
 	 * Converts a {@link Document} representation of the SOAP Envelope into a Axiom representation.
+	 * <p>The Axiom tree is built by reading the DOM tree directly, so the envelope does not need to be serialised and
+	 * parsed again.
 	 *
 	 * @param document The standard DOM representation of the SOAP Envelope
 	 * @return An {@link SOAPEnvelope} object containing the Axiom representation of the SOAP envelope, or <br>
@@ -144,14 +169,7 @@ public final class Axis2Utils {
 	 */
 	public static SOAPEnvelope convertDOMSOAPEnvToAxiom(final Document document) {
 	    try {
-    		Transformer transformer = TransformerFactory.newInstance().newTransformer();
-    		// initialize StreamResult with File object to save to file
-    		StreamResult result = new StreamResult(new StringWriter());
-    		DOMSource source = new DOMSource(document);
-    		transformer.transform(source, result);
-    		String xmlString = result.getWriter().toString();
-	    	
-	        final SOAPEnvelope env = OMXMLBuilderFactory.createSOAPModelBuilder(new StringReader(xmlString))
+	        final SOAPEnvelope env = OMXMLBuilderFactory.createSOAPModelBuilder(new DOMSource(document))
 	        																						.getSOAPEnvelope();
 	        env.build();
 	        return env;
@@ -181,7 +181,13 @@ public class HTTPTransportSender extends HTTPClient4TransportSender {
 			connManager.setMaxTotal(10);
 			connManager.setDefaultMaxPerRoute(10);
 		}
-		log.debug("Maximum number of connections set to : {}", connManager.getMaxTotal());
+		// As messages are sent in parallel to multiple destinations, the number of connections to a single destination
+		// can be limited so other destinations can still get a connection
+		Parameter maxPerRoute = transportOut.getParameter("MAX_CONNECTIONS_PER_ROUTE");
+		if (maxPerRoute != null && maxPerRoute.getParameterType() == Parameter.TEXT_PARAMETER)
+			connManager.setDefaultMaxPerRoute(Integer.parseInt((String) maxPerRoute.getValue()));
+		log.debug("Maximum number of connections set to : {} (per route: {})", connManager.getMaxTotal(),
+					connManager.getDefaultMaxPerRoute());
 		connectionManager = connManager;
 	}
 
@@ -52,9 +52,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.axis2.RequestParameters;
 import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.HolodeckB2BCore;
 import org.holodeckb2b.core.MessageProcessingContext;
+import org.holodeckb2b.core.storage.StorageManager;
 import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
 import org.holodeckb2b.interfaces.core.IURLRequestParameters;
+import org.holodeckb2b.interfaces.storage.providers.StorageException;
 
 /**
  * Is an Axis2 {@link Worker} implementation to handle a single HTTP request. It will first search the Service that
@@ -165,6 +168,9 @@ public class HTTPWorker implements Worker {
 			return;
 		}
 
+		// The request is processed in a unit of work that is always completed, even if the flow is aborted
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		final int uow = storageManager.beginUnitOfWork();
 		try {
 			prepareMessageContext(msgContext, url, contentType, request, response);
 			if (method.equals(HTTPConstants.HEADER_GET)) {
@@ -226,6 +232,12 @@ public class HTTPWorker implements Worker {
         } catch (AxisFault f) {
         	log.error("Error while processing request, URL={};Error message= {}", url, f.getMessage());
         	throw f;
+		} finally {
+			try {
+				storageManager.completeUnitOfWork(uow);
+			} catch (StorageException saveFailure) {
+				log.error("Could not save the pending meta-data updates : {}", Utils.getExceptionTrace(saveFailure));
+			}
 		}
 
         Boolean holdResponse = (Boolean) msgContext.getProperty(RequestResponseTransport.HOLD_RESPONSE);
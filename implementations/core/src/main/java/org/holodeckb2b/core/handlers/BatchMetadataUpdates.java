@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.handlers;
+
+import org.apache.axis2.context.MessageContext;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.common.handlers.AbstractBaseHandler;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.HolodeckB2BCore;
+import org.holodeckb2b.core.storage.StorageManager;
+import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
+import org.holodeckb2b.interfaces.storage.providers.StorageException;
+
+/**
+ * Is the handler that collects the updates of the message unit meta-data made during the execution of a flow in a
+ * unit of work, so they are saved together at the checkpoints defined by the {@link StorageManager} instead of one by
+ * one. The unit of work is started when the handler is invoked and completed when the flow is completed. Therefore this
+ * handler should be one of the first handlers in the flow.
+ * <p>The nesting level of the unit of work is stored in the Axis2 message context of the flow, so the unit of work
+ * started in a flow is completed exactly once, including any nested units of work of which the flow was not completed.
+ * Because Axis2 does not complete the flow in all error situations, the components that start the processing of a
+ * message, i.e. the {@link org.holodeckb2b.core.axis2.HTTPWorker} and {@link org.holodeckb2b.core.axis2.Axis2Sender},
+ * also process the message in a unit of work which they complete when done. This ensures no unit of work remains
+ * bound to a pooled thread.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ * @see StorageManager#beginUnitOfWork()
+ */
+public class BatchMetadataUpdates extends AbstractBaseHandler {
+
+	/**
+	 * Name of the message context property holding the nesting level of the unit of work started in the flow
+	 */
+	private static final String UOW_LEVEL = "hb2b:batch-metadata-updates:level";
+
+	@Override
+	protected InvocationResponse doProcessing(final IMessageProcessingContext procCtx, final Logger log) {
+		log.trace("Start unit of work");
+		procCtx.getParentContext().setProperty(UOW_LEVEL, HolodeckB2BCore.getStorageManager().beginUnitOfWork());
+		return InvocationResponse.CONTINUE;
+	}
+
+	@Override
+	protected void doFlowComplete(final IMessageProcessingContext procCtx, final Logger log) {
+		final MessageContext mc = procCtx.getParentContext();
+		final Integer level = (Integer) mc.getLocalProperty(UOW_LEVEL);
+		if (level == null)
+			return;
+		mc.removeProperty(UOW_LEVEL);
+		try {
+			HolodeckB2BCore.getStorageManager().completeUnitOfWork(level);
+			log.trace("Completed unit of work");
+		} catch (StorageException saveFailure) {
+			log.error("Could not save the pending meta-data updates : {}", Utils.getExceptionTrace(saveFailure));
+		}
+	}
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.receptionawareness;
+
+import java.util.Map;
+
+import org.holodeckb2b.common.workers.AbstractWorkerTask;
+import org.holodeckb2b.core.HolodeckB2BCore;
+import org.holodeckb2b.interfaces.workerpool.TaskConfigurationException;
+
+/**
+ * Is the worker that executes the retransmission checks of User Messages that have become due in the {@link
+ * RetransmissionScheduler}. It should be configured to run continuously, i.e. with an interval of 0, with the number
+ * of concurrent instances set to the number of checks that may be executed in parallel. Each instance waits for the
+ * next check to become due and executes it.
+ * <p>When this worker is not active the scheduler will not hand over the due checks and the User Messages are checked
+ * by the {@link RetransmissionWorker}. This worker does not need any configuration.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class RetransmissionCheckWorker extends AbstractWorkerTask {
+
+    /**
+     * Maximum time in milliseconds to wait for a check to become due
+     */
+    private static final long POLL_TIMEOUT = 1000;
+
+    /**
+     * Executes the next due retransmission check. If the scheduler is not available or has been shut down the worker is
+     * stopped.
+     */
+    @Override
+    public void doProcessing() throws InterruptedException {
+        final RetransmissionScheduler scheduler = HolodeckB2BCore.getRetransmissionScheduler();
+        if (scheduler == null || scheduler.isShutdown()) {
+            log.debug("Retransmission scheduler not available, stopping worker");
+            Thread.currentThread().interrupt();
+            return;
+        }
+        scheduler.checkNext(POLL_TIMEOUT);
+    }
+
+    /**
+     * This worker does not need any configuration.
+     */
+    @Override
+    public void setParameters(final Map<String, ?> parameters) throws TaskConfigurationException {
+    }
+}
@@ -0,0 +1,296 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.receptionawareness;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.axis2.description.Parameter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.core.storage.QueryManager;
+import org.holodeckb2b.core.workerpool.PoolThreadFactory;
+import org.holodeckb2b.interfaces.config.IConfiguration;
+import org.holodeckb2b.interfaces.general.Interval;
+import org.holodeckb2b.interfaces.pmode.ILeg;
+import org.holodeckb2b.interfaces.pmode.IReceptionAwareness;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
+import org.holodeckb2b.interfaces.storage.IMessageUnitEntity;
+import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
+
+/**
+ * Is responsible for checking the retransmission of a User Message exactly at the time it is due. When an outgoing
+ * User Message enters one of the states in which it waits for a Receipt, the {@link
+ * org.holodeckb2b.core.storage.StorageManager} calculates the time of its next retransmission check based on the
+ * <i>Reception Awareness</i> configuration of its P-Mode, stores it with the message unit and hands the message unit
+ * together with the calculated time over to this scheduler. The schedule therefore does not depend on the Metadata
+ * Storage Provider actually storing the next retry time. The scheduler keeps the message units ordered by their due
+ * time and when the time has come hands them over to the {@link RetransmissionCheckWorker}s running in the Core worker
+ * pool, which execute the check using {@link RetransmissionWorker#checkRetransmission(IUserMessageEntity)}. As the
+ * timer only hands over the due message units, a slow check, e.g. because a <i>MissingReceipt</i> error must be
+ * delivered, does not delay the checks of other User Messages.
+ * <p>As the schedule is only kept in memory and the number of scheduled checks is limited, the {@link
+ * RetransmissionWorker} regularly checks the database for User Messages that are due but were not scheduled, for
+ * example because Holodeck B2B was restarted or no check workers are running. The maximum number of scheduled checks,
+ * which also limits the number of due checks waiting for a worker, can be set using the <i>MaxScheduledRetries</i>
+ * parameter in the Holodeck B2B configuration. By default 10000 checks can be scheduled.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class RetransmissionScheduler {
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * The processing states in which an outgoing User Message is waiting for a Receipt
+	 */
+	public static final Set<ProcessingState> WAITING_STATES = Set.of(ProcessingState.AWAITING_RECEIPT,
+																	  ProcessingState.TRANSPORT_FAILURE,
+																	  ProcessingState.WARNING);
+
+	/**
+	 * Name of the configuration parameter to set the maximum number of scheduled retransmission checks
+	 */
+	public static final String P_MAX_SCHEDULED = "MaxScheduledRetries";
+
+	private static final int DEFAULT_MAX_SCHEDULED = 10000;
+
+	/**
+	 * Time in milliseconds after the last poll of a worker during which the workers are considered to be running
+	 */
+	private static final long WORKER_TIMEOUT = 5000;
+
+	/**
+	 * The timer that hands over the User Messages to the workers when due
+	 */
+	private final ScheduledThreadPoolExecutor timer;
+
+	/**
+	 * The CoreIds of the User Messages that are due for a retransmission check and wait for a worker
+	 */
+	private final BlockingQueue<String> dueChecks;
+
+	/**
+	 * The number of workers currently executing a check
+	 */
+	private final AtomicInteger busyWorkers = new AtomicInteger();
+
+	/**
+	 * Timestamp of the last time a worker asked for a due check
+	 */
+	private volatile long lastPoll = 0;
+
+	/**
+	 * The maximum number of scheduled checks
+	 */
+	private final int maxScheduled;
+
+	/**
+	 * The Core QueryManager used to retrieve the current meta-data of the User Messages to check
+	 */
+	private final QueryManager queryManager;
+
+	/**
+	 * Initialises the scheduler.
+	 *
+	 * @param qm		the {@link QueryManager} to use for retrieving the User Messages to check
+	 * @param config	the Holodeck B2B configuration which may contain the maximum number of scheduled checks
+	 */
+	public RetransmissionScheduler(final QueryManager qm, final IConfiguration config) {
+		this.queryManager = qm;
+		int max = DEFAULT_MAX_SCHEDULED;
+		final Parameter maxParam = config.getParameter(P_MAX_SCHEDULED);
+		if (maxParam != null && maxParam.getParameterType() == Parameter.TEXT_PARAMETER) {
+			try { max = Integer.parseInt(((String) maxParam.getValue()).trim()); }
+			catch (NumberFormatException nan) {
+				log.warn("Invalid value [{}] for parameter {}, using default {}", maxParam.getValue(),
+						 P_MAX_SCHEDULED, DEFAULT_MAX_SCHEDULED);
+			}
+		}
+		this.maxScheduled = max;
+		dueChecks = new LinkedBlockingQueue<>(Math.max(1, max));
+		timer = new ScheduledThreadPoolExecutor(1, new PoolThreadFactory("hb2b-retransmission"));
+		timer.setRemoveOnCancelPolicy(true);
+		timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+	}
+
+	/**
+	 * Calculates the time at which the retransmission of the given User Message should be checked. This is the start
+	 * of the current waiting state plus the wait interval configured for the current attempt in the P-Mode. If there
+	 * is no retry configuration available the check is due immediately so the User Message can be suspended.
+	 *
+	 * @param um			the User Message waiting for a Receipt
+	 * @param attempts		the number of transmission attempts already executed
+	 * @param stateStart	the start of the waiting state
+	 * @return	the time at which the retransmission should be checked
+	 */
+	public static Date calculateNextRetryTime(final IUserMessageEntity um, final int attempts, final Date stateStart) {
+		final Interval[] intervals = getWaitIntervals(um);
+		if (intervals == null)
+			return stateStart;
+		final Interval interval = intervals[Math.min(Math.max(1, attempts), intervals.length) - 1];
+		return new Date(stateStart.getTime()
+						+ TimeUnit.MILLISECONDS.convert(interval.getLength(), interval.getUnit()));
+	}
+
+	/**
+	 * Gets the wait intervals configured in the <i>Reception Awareness</i> configuration of the P-Mode of the given
+	 * User Message.
+	 *
+	 * @param um	the User Message
+	 * @return	the configured wait intervals, or <code>null</code> if not available
+	 */
+	static Interval[] getWaitIntervals(final IUserMessageEntity um) {
+		ILeg leg;
+		try {
+			leg = PModeUtils.getLeg(um);
+		} catch (IllegalStateException pmodeNotAvailable) {
+			leg = null;
+		}
+		final IReceptionAwareness raConfig = leg != null ? leg.getReceptionAwareness() : null;
+		final Interval[] intervals = raConfig != null ? raConfig.getWaitIntervals() : null;
+		return intervals != null && intervals.length > 0 ? intervals : null;
+	}
+
+	/**
+	 * Schedules the retransmission check of the given User Message at its next retry time. The next retry time is
+	 * calculated from the start of its current processing state and the wait intervals configured in the P-Mode, so
+	 * the check is also scheduled when the Metadata Storage Provider does not store the next retry time. If the
+	 * maximum number of scheduled checks is reached the User Message is not scheduled and will be picked up by the
+	 * {@link RetransmissionWorker}.
+	 *
+	 * @param um	the User Message waiting for a Receipt
+	 */
+	public void schedule(final IUserMessageEntity um) {
+		schedule(um, calculateNextRetryTime(um, um.getTransmissionAttempts(),
+											um.getCurrentProcessingState().getStartTime()));
+	}
+
+	/**
+	 * Schedules the retransmission check of the given User Message at the given time. This is used when the check of
+	 * the User Message was executed before its wait interval expired. If the maximum number of scheduled checks is
+	 * reached the User Message is not scheduled and will be picked up by the {@link RetransmissionWorker}.
+	 *
+	 * @param um			the User Message waiting for a Receipt
+	 * @param nextRetryTime	the time at which the retransmission should be checked
+	 */
+	public void schedule(final IUserMessageEntity um, final Date nextRetryTime) {
+		if (nextRetryTime == null || timer.isShutdown())
+			return;
+		if (timer.getQueue().size() >= maxScheduled) {
+			log.debug("Maximum number of scheduled checks reached, User Message (msgId={}) is left to worker",
+						um.getMessageId());
+			return;
+		}
+		final String coreId = um.getCoreId();
+		final long delay = Math.max(0, nextRetryTime.getTime() - System.currentTimeMillis());
+		timer.schedule(() -> handOver(coreId), delay, TimeUnit.MILLISECONDS);
+		log.trace("Scheduled retransmission check of User Message (msgId={}) in {} ms", um.getMessageId(), delay);
+	}
+
+	/**
+	 * Hands over the User Message with the given <i>CoreId</i> to the workers. When no workers are running or too many
+	 * checks are already waiting, the User Message is left to the {@link RetransmissionWorker}.
+	 *
+	 * @param coreId	the CoreId of the User Message
+	 */
+	private void handOver(final String coreId) {
+		if (busyWorkers.get() == 0 && System.currentTimeMillis() - lastPoll > WORKER_TIMEOUT)
+			log.debug("No workers available, User Message (coreId={}) is left to worker", coreId);
+		else if (!dueChecks.offer(coreId))
+			log.debug("Too many checks waiting, User Message (coreId={}) is left to worker", coreId);
+	}
+
+	/**
+	 * Waits for the next User Message that is due for a retransmission check and executes the check. This method is
+	 * called by the {@link RetransmissionCheckWorker}s.
+	 *
+	 * @param timeout	the maximum time in milliseconds to wait for a check to become due
+	 * @return <code>true</code> if a check was executed,<br><code>false</code> if no check became due within the given
+	 * 		   time or the scheduler is shut down
+	 * @throws InterruptedException when the worker is interrupted while waiting
+	 */
+	public boolean checkNext(final long timeout) throws InterruptedException {
+		if (timer.isShutdown())
+			return false;
+		lastPoll = System.currentTimeMillis();
+		final String coreId = dueChecks.poll(timeout, TimeUnit.MILLISECONDS);
+		lastPoll = System.currentTimeMillis();
+		if (coreId == null)
+			return false;
+		busyWorkers.incrementAndGet();
+		try {
+			checkDue(coreId);
+		} finally {
+			busyWorkers.decrementAndGet();
+		}
+		return true;
+	}
+
+	/**
+	 * Indicates whether the scheduler has been shut down.
+	 *
+	 * @return <code>true</code> if the scheduler is shut down, <code>false</code> otherwise
+	 */
+	public boolean isShutdown() {
+		return timer.isShutdown();
+	}
+
+	/**
+	 * Checks the retransmission of the User Message with the given <i>CoreId</i> if it is still waiting for a Receipt
+	 * and due for a retransmission check.
+	 *
+	 * @param coreId	the CoreId of the User Message
+	 */
+	private void checkDue(final String coreId) {
+		try {
+			final IMessageUnitEntity mu = queryManager.getMessageUnitWithCoreId(coreId);
+			if (!(mu instanceof IUserMessageEntity)
+				|| !WAITING_STATES.contains(mu.getCurrentProcessingState().getState())) {
+				log.trace("User Message (coreId={}) is not waiting for a Receipt anymore", coreId);
+				return;
+			}
+			final IUserMessageEntity um = (IUserMessageEntity) mu;
+			if (um.getNextRetryTime() != null && um.getNextRetryTime().after(new Date())) {
+				log.trace("Retransmission check of User Message (msgId={}) has been rescheduled", um.getMessageId());
+				return;
+			}
+			RetransmissionWorker.checkRetransmission(um);
+		} catch (Throwable t) {
+			log.error("An error occurred checking the retransmission of User Message (coreId={}) : {}", coreId,
+						Utils.getExceptionTrace(t));
+		}
+	}
+
+	/**
+	 * Shuts down the scheduler. The scheduled and waiting checks are discarded, the User Messages will be picked up by
+	 * the {@link RetransmissionWorker} after restart.
+	 */
+	public void shutdown() {
+		log.trace("Stopping retransmission scheduler, {} checks scheduled and {} waiting", timer.getQueue().size(),
+					dueChecks.size());
+		timer.shutdownNow();
+		dueChecks.clear();
+	}
+}
@@ -20,8 +20,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,10 +32,6 @@ import org.holodeckb2b.core.storage.StorageManager;
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.delivery.MessageDeliveryException;
 import org.holodeckb2b.interfaces.general.Interval;
-import org.holodeckb2b.interfaces.messagemodel.Direction;
-import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
-import org.holodeckb2b.interfaces.pmode.ILeg;
-import org.holodeckb2b.interfaces.pmode.IReceptionAwareness;
 import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
 import org.holodeckb2b.interfaces.storage.IErrorMessageEntity;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
@@ -49,116 +43,117 @@ import org.holodeckb2b.interfaces.workerpool.TaskConfigurationException;
  * retransmission is configured in the <i>Reception Awareness</i> section of the P-Mode that governs the User Message's
  * exchange. When included Holodeck B2B will wait for a Receipt from the other gateway before marking the message unit
  * as <i>DELIVERED</i> and resend the message if no Receipt is received within the specified time.
+ * <p>Since version 8.0.0 the retransmission of a User Message is normally checked by the {@link
+ * RetransmissionScheduler} at the time stored as the <i>next retry time</i> of the message. This worker therefore only
+ * sweeps the database for User Messages whose next retry time has passed but that were not checked by the scheduler,
+ * for example because Holodeck B2B was restarted or the scheduler was full. As such checks are delayed until the next
+ * run of this worker, it should run at an interval that is not longer than the shortest wait interval in use.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class RetransmissionWorker extends AbstractWorkerTask {
+	private static final Logger raLog = LogManager.getLogger(RetransmissionWorker.class);
 
     /**
      * MissingReceipts errors are always logged, independent of P-Mode configuration, to a special log. Using the log
      * configuration users can decide if this logging should be enabled and where errors should be logged.
      */
-    private final Logger missingReceiptsLog = LogManager.getLogger("org.holodeckb2b.msgproc.errors.missingreceipts");
+    private static final Logger missingReceiptsLog =
+    										LogManager.getLogger("org.holodeckb2b.msgproc.errors.missingreceipts");
 
     @Override
     public void doProcessing() {
 
-        // Get all the message id's for unacknowledged user messages
+        // Get all the unacknowledged user messages that are due for a retransmission check
         log.trace("Get all user messages that may need to be resent");
         Collection<IUserMessageEntity> waitingForRcpt = null;
         try {
-            waitingForRcpt = HolodeckB2BCore.getQueryManager()
-                                                .getMessageUnitsInState(IUserMessage.class, Direction.OUT,
-                                                        				Set.of(ProcessingState.AWAITING_RECEIPT,
-                                                                                ProcessingState.TRANSPORT_FAILURE,
-                                                                                ProcessingState.WARNING
-                                                                               ));
+            waitingForRcpt = HolodeckB2BCore.getQueryManager().getUserMessagesDueForRetry(new Date());
         } catch (final StorageException ex) {
             log.error("Error retrieving message units from the database! Details: {}", ex.getMessage());
             return;
         }
 
         if (Utils.isNullOrEmpty(waitingForRcpt))
-        	log.trace("There are no messages waiting for a Receipt");
+        	log.trace("There are no messages waiting for a Receipt that are due for retransmission");
         else {
-            log.trace("{} messages may be waiting for a Receipt", waitingForRcpt.size());
-
-            StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+            log.trace("{} messages waiting for a Receipt may need to be resent", waitingForRcpt.size());
             // For each message check if it should be retransmitted or not
-            for (final IUserMessageEntity um : waitingForRcpt) {
-                try {
-					log.trace("Check if User Message [msgId={}] should be resend based on its P-Mode [{}]",
-                    			um.getMessageId(), um.getPModeId());
-                    // We need the current interval duration, the number of attempts already executed and the maximum
-                    // number of attempts allowed
-                    long intervalInMillis = 0;
-                    int  attempts = 1; // there is always the initial one
-                    int  maxAttempts = 1;
-                    // Retry information is contained in Leg
-                    ILeg leg;
-                    try {
-                    	leg = PModeUtils.getLeg(um);
-                    } catch (IllegalStateException pmodeNotAvailable) {
-                    	leg = null;
-                    }
-                    final IReceptionAwareness raConfig = leg != null ? leg.getReceptionAwareness() : null;
-                    final Interval[] intervals = raConfig != null ? raConfig.getWaitIntervals() : null;
-                    if (intervals != null && intervals.length > 0) {
-                    	maxAttempts = intervals.length;
-                    	// Check the current interval
-                    	attempts = Integer.max(1, HolodeckB2BCore.getQueryManager().getNumberOfTransmissions(um));
-                		// Get the current applicable interval in milliseconds
-                    	int interval = Math.min(attempts, maxAttempts) - 1;
-                		intervalInMillis = TimeUnit.MILLISECONDS.convert(intervals[interval].getLength(),
-                    													 intervals[interval].getUnit());
-                    } else {
-                        // There is no retry config available, can't determine if and how to resend.
-                        log.warn("Message [{}] cannot be resent due to missing retry configuration in P-Mode [{}]",
-                        		 um.getMessageId(), um.getPModeId());
-                    	// Set state to SUSPENDED as a new P-Mode with retry configuration may come available
-                        // And raise event to signal this issue
-                    	if (HolodeckB2BCore.getStorageManager().setProcessingState(um, ProcessingState.SUSPENDED,
-                    													"Missing reception awareness configuration"))
-	                    	HolodeckB2BCoreInterface.getEventProcessor().raiseEvent(new GenericSendMessageFailure(um,
-                    												"Missing reception awareness configuration", null));
-                    	continue;
-                    }
+            for (final IUserMessageEntity um : waitingForRcpt)
+            	checkRetransmission(um);
+        }
+    }
 
-                    // Check if the interval has expired
-                    if (((new Date()).getTime() - um.getCurrentProcessingState().getStartTime().getTime())
-                         >= intervalInMillis) {
-                        // The interval expired, check if message can be resend or if a MissingReceipt error
-                        // has to be generated
-                        if (attempts >= maxAttempts) {
-                            // No retries left, set the state to FAILURE, log and generate MissingReceipt error
-                        	if (storageManager.setProcessingState(um, ProcessingState.FAILURE)) {
-	                        	log.info("Retry attempts exhausted for User Message [msgId=" + um.getMessageId() + "]!");
-	                            missingReceiptsLog.error("No Receipt received for UserMessage with messageId="
-	                                                        + um.getMessageId());
-	                            log.trace("Changed processing state of user message to reflect failure");
-	                            // Generate and report (if requested) MissingReceipt
-	                            generateMissingReceiptError(um, leg);
-                        	}
-                        } else {
-                            // Message can be resent, is the message to be pushed or pulled?
-                        	log.debug("Sending of User Message [msgId={}] should be retried", um.getMessageId());
-                            if (PModeUtils.doesHolodeckB2BTrigger(leg)) {
-                                log.trace("Message must be pushed to receiver again");
-                                storageManager.setProcessingState(um, ProcessingState.READY_TO_PUSH);
-                            } else {
-                                log.trace("Message must be pulled by receiver again");
-                                storageManager.setProcessingState(um, ProcessingState.AWAITING_PULL);
-                            }
-                        }
+    /**
+     * Checks whether the given User Message that is waiting for a Receipt should be retransmitted. If the wait interval
+     * for the current attempt has expired the message is either made available for (re)sending again or, when all
+     * attempts are exhausted, marked as failed and a <i>MissingReceipt</i> error is generated. If the interval has not
+     * expired yet, the next check is scheduled at the time the interval expires.
+     *
+     * @param um	The User Message waiting for a Receipt
+     * @since 8.0.0
+     */
+    static void checkRetransmission(final IUserMessageEntity um) {
+        final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+        try {
+			raLog.trace("Check if User Message [msgId={}] should be resend based on its P-Mode [{}]",
+            			um.getMessageId(), um.getPModeId());
+            // Retry information is contained in Leg
+            final Interval[] intervals = RetransmissionScheduler.getWaitIntervals(um);
+            if (intervals == null) {
+                // There is no retry config available, can't determine if and how to resend.
+                raLog.warn("Message [{}] cannot be resent due to missing retry configuration in P-Mode [{}]",
+                		 um.getMessageId(), um.getPModeId());
+            	// Set state to SUSPENDED as a new P-Mode with retry configuration may come available
+                // And raise event to signal this issue
+            	if (storageManager.setProcessingState(um, ProcessingState.SUSPENDED,
+            													"Missing reception awareness configuration"))
+                	HolodeckB2BCoreInterface.getEventProcessor().raiseEvent(new GenericSendMessageFailure(um,
+            												"Missing reception awareness configuration", null));
+            	return;
+            }
+            // We need the number of attempts already executed and the maximum number of attempts allowed
+            final int maxAttempts = intervals.length;
+            final int attempts = Integer.max(1, um.getTransmissionAttempts());
+            final Date due = RetransmissionScheduler.calculateNextRetryTime(um, attempts,
+            														um.getCurrentProcessingState().getStartTime());
+            // Check if the interval has expired
+            if (!due.after(new Date())) {
+                // The interval expired, check if message can be resend or if a MissingReceipt error
+                // has to be generated
+                if (attempts >= maxAttempts) {
+                    // No retries left, set the state to FAILURE, log and generate MissingReceipt error
+                	if (storageManager.setProcessingState(um, ProcessingState.FAILURE)) {
+                    	raLog.info("Retry attempts exhausted for User Message [msgId=" + um.getMessageId() + "]!");
+                        missingReceiptsLog.error("No Receipt received for UserMessage with messageId="
+                                                    + um.getMessageId());
+                        raLog.trace("Changed processing state of user message to reflect failure");
+                        // Generate and report (if requested) MissingReceipt
+                        generateMissingReceiptError(um);
+                	}
+                } else {
+                    // Message can be resent, is the message to be pushed or pulled?
+                	raLog.debug("Sending of User Message [msgId={}] should be retried", um.getMessageId());
+                    if (PModeUtils.doesHolodeckB2BTrigger(PModeUtils.getLeg(um))) {
+                        raLog.trace("Message must be pushed to receiver again");
+                        storageManager.setProcessingState(um, ProcessingState.READY_TO_PUSH);
                     } else {
-                        // Time to wait for receipt has not expired yet, wait longer
-                        log.trace("Retransmit interval not expired yet. Nothing to do.");
+                        raLog.trace("Message must be pulled by receiver again");
+                        storageManager.setProcessingState(um, ProcessingState.AWAITING_PULL);
                     }
-                } catch (final StorageException dbe) {
-                    log.error("An error occurred when checking or updating the message meta-data [msgID={}]: {}",
-                               um.getMessageId(), dbe.getMessage());
                 }
+            } else {
+                // Time to wait for receipt has not expired yet, schedule next check. The stored next retry time is not
+                // updated to prevent an extra write of the meta-data, if the check is not executed by the scheduler it
+                // will be picked up again by this worker
+                raLog.trace("Retransmit interval not expired yet, next check at {}", due);
+                final RetransmissionScheduler scheduler = HolodeckB2BCore.getRetransmissionScheduler();
+                if (scheduler != null)
+                    scheduler.schedule(um, due);
             }
+        } catch (final StorageException dbe) {
+            raLog.error("An error occurred when checking or updating the message meta-data [msgID={}]: {}",
+                       um.getMessageId(), dbe.getMessage());
         }
     }
 
@@ -175,10 +170,9 @@ public class RetransmissionWorker extends AbstractWorkerTask {
      * the P-Mode.
      *
      * @param um        The <code>UserMessage</code> for which the <i>Receipt</i> is missing
-     * @param leg       The P-Mode Leg configuration for this user message
      */
-    private void generateMissingReceiptError(final IUserMessageEntity um, final ILeg leg) {
-        log.trace("Create and store MissingReceipt error");
+    private static void generateMissingReceiptError(final IUserMessageEntity um) {
+        raLog.trace("Create and store MissingReceipt error");
 
         // Create the error and set reference to user message
         IErrorMessageEntity   errorMessage;
@@ -187,10 +181,10 @@ public class RetransmissionWorker extends AbstractWorkerTask {
             errorMessage = storageManager.createErrorMsgFor(Collections.singleton(new MissingReceipt()), um);
             storageManager.setProcessingState(errorMessage, ProcessingState.READY_FOR_DELIVERY);
         } catch (final StorageException ex) {
-            log.error("An error occured saving the MissingReceipt in database! Details: {}", ex.getMessage());
+            raLog.error("An error occured saving the MissingReceipt in database! Details: {}", ex.getMessage());
             return;
         }
-        log.trace("Hand over MissingReceipt error to Delivery Manager to report error to back-end");
+        raLog.trace("Hand over MissingReceipt error to Delivery Manager to report error to back-end");
         try {
 			HolodeckB2BCoreInterface.getDeliveryManager().deliver(errorMessage);
 		} catch (IllegalArgumentException | MessageDeliveryException e) {
@@ -140,6 +140,16 @@ public class PayloadEntityProxy implements IPayloadEntity {
 		source.setMimeType(mt);
 	}
 
+	@Override
+	public long getContentLength() {
+		return source.getContentLength();
+	}
+
+	@Override
+	public void setContentLength(long length) {
+		source.setContentLength(length);
+	}
+
 	@Override
 	public void setPayloadURI(String uri) {
 		source.setPayloadURI(uri);
@@ -106,6 +106,12 @@ public class QueryManager implements IQueryManager {
 							.findFirst().orElse(0);
 	}
 
+	@Override
+	public List<IUserMessageEntity> getUserMessagesDueForRetry(Date maxRetryTime) throws StorageException {
+		return executeQuery(() -> mdsProvider.getUserMessagesDueForRetry(maxRetryTime))
+							.map(IUserMessageEntity.class::cast).collect(Collectors.toList());
+	}
+
 	@Override
 	public boolean isAlreadyProcessed(IUserMessageEntity userMessage) throws StorageException {
 		return executeQuery(() -> Collections.singleton(
@@ -130,6 +136,8 @@ public class QueryManager implements IQueryManager {
 
 	private <R> Stream<R> executeQuery(Query<R> query) throws StorageException {
 		try {
+			// Ensure pending updates of the current thread are included in the query results
+			UnitOfWork.checkpointCurrent();
 			return (Stream<R>) query.execute().stream()
 					.map(m -> m instanceof IUserMessageEntity ? new UserMessageEntityProxy((IUserMessageEntity) m) : m);
 		} catch (StorageException queryError) {
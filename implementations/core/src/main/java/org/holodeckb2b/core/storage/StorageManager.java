@@ -16,13 +16,22 @@
  */
 package org.holodeckb2b.core.storage;
 
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -37,9 +46,12 @@ import org.holodeckb2b.common.messagemodel.SelectivePullRequest;
 import org.holodeckb2b.common.messagemodel.UserMessage;
 import org.holodeckb2b.common.util.MessageUnitUtils;
 import org.holodeckb2b.commons.Pair;
+import org.holodeckb2b.commons.util.FileUtils;
 import org.holodeckb2b.commons.util.MessageIdUtils;
 import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.SendDispatcher;
 import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.core.receptionawareness.RetransmissionScheduler;
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.messagemodel.Direction;
 import org.holodeckb2b.interfaces.messagemodel.IEbmsError;
@@ -68,6 +80,8 @@ import org.holodeckb2b.interfaces.submit.DuplicateMessageIdException;
 /**
  * Is a facade to the {@link IMetadataStorageProvider} and {@link IPayloadStorageProvider} that provides a unified
  * interface to Core components to manage the data of message units.
+ * <p>Since version 8.0.0 the updates of message unit meta-data made during the processing of a message can be
+ * collected in a <i>unit of work</i> and saved together at defined checkpoints, see {@link #beginUnitOfWork()}.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  * @since  3.0.0
@@ -85,6 +99,18 @@ public class StorageManager {
 	 */
 	private final IPayloadStorageProvider	psProvider;
 
+	/**
+	 * The dispatcher to which message units are handed over when they become ready to be pushed
+	 * @since 8.0.0
+	 */
+	private SendDispatcher	sendDispatcher;
+
+	/**
+	 * The scheduler to which User Messages are handed over when they start waiting for a Receipt
+	 * @since 8.0.0
+	 */
+	private RetransmissionScheduler	retransmissionScheduler;
+
     /**
      * Creates a new facade to the given Metadata and Payload Storage Providers so other Core classes can update the
      * data of message units.
@@ -97,6 +123,88 @@ public class StorageManager {
         this.psProvider = psp;
     }
 
+    /**
+     * Sets the {@link SendDispatcher} to which message units are handed over when their processing state is changed
+     * to {@link ProcessingState#READY_TO_PUSH} so they can be sent immediately.
+     *
+     * @param dispatcher	The dispatcher to use, <code>null</code> if message units should only be sent by the
+     * 						SenderWorker
+     * @since 8.0.0
+     */
+    public void setSendDispatcher(final SendDispatcher dispatcher) {
+    	this.sendDispatcher = dispatcher;
+    }
+
+    /**
+     * Sets the {@link RetransmissionScheduler} to which outgoing User Messages are handed over when they start waiting
+     * for a Receipt so their retransmission can be checked when due.
+     *
+     * @param scheduler		The scheduler to use, <code>null</code> if retransmissions should only be checked by the
+     * 						RetransmissionWorker
+     * @since 8.0.0
+     */
+    public void setRetransmissionScheduler(final RetransmissionScheduler scheduler) {
+    	this.retransmissionScheduler = scheduler;
+    }
+
+    /**
+     * Starts a unit of work for the current thread. Until the unit of work is completed the updates of the message
+     * unit meta-data made by the thread that do not change the processing state are not saved immediately but
+     * collected and saved together, in one transaction if supported by the Metadata Storage Provider, at the following
+     * checkpoints:<ul>
+     * <li>before message units are retrieved by the {@link QueryManager} or claimed,</li>
+     * <li>when {@link #checkpoint()} is called and</li>
+     * <li>when the unit of work is completed.</li></ul>
+     * <p>Changes of the processing state are always saved immediately, together with the pending updates of the same
+     * message unit, so other threads see the current state and a conflicting change is reported to the caller of
+     * {@link #setProcessingState(IMessageUnitEntity, ProcessingState, String)} just like without a unit of work. The
+     * deferred updates are still checked for conflicting changes by other threads, but the conflict is detected when
+     * they are saved and then reported by an {@link AlreadyChangedException} to the caller of the checkpoint.
+     * <p>Units of work can be nested, in which case the thread's unit of work ends when the outermost one is completed.
+     * Every call to this method MUST therefore be matched with a call to {@link #completeUnitOfWork(int)}, preferably
+     * in a <code>finally</code> block, so the unit of work does not remain bound to the thread.
+     *
+     * @return the nesting level of the started unit of work which must be used to complete it
+     * @since 8.0.0
+     */
+    public int beginUnitOfWork() {
+    	return UnitOfWork.begin(mdsProvider);
+    }
+
+    /**
+     * Saves the pending updates of the current thread's unit of work. Does nothing when the thread has no active unit
+     * of work.
+     *
+     * @throws StorageException When a problem occurs saving the updates
+     * @since 8.0.0
+     */
+    public void checkpoint() throws StorageException {
+    	UnitOfWork.checkpointCurrent();
+    }
+
+    /**
+     * Completes the current thread's innermost unit of work and saves its pending updates.
+     *
+     * @throws StorageException When a problem occurs saving the updates
+     * @since 8.0.0
+     */
+    public void completeUnitOfWork() throws StorageException {
+    	UnitOfWork.complete();
+    }
+
+    /**
+     * Completes the current thread's unit of work at the given nesting level and saves its pending updates. Units of
+     * work nested in it that were not completed yet are completed as well. When this is the outermost unit of work, it
+     * is removed from the thread even if saving the updates fails.
+     *
+     * @param level		The nesting level of the unit of work as returned by {@link #beginUnitOfWork()}
+     * @throws StorageException When a problem occurs saving the updates
+     * @since 8.0.0
+     */
+    public void completeUnitOfWork(final int level) throws StorageException {
+    	UnitOfWork.complete(level);
+    }
+
     /**
      * Stores the meta-data of a received message unit. The processing state of the new entity object will be set to
      * {@linkplain ProcessingState#CREATED}.
@@ -202,13 +310,13 @@ public class StorageManager {
 				if (content == null) {
 					log.trace("Store content of payload (URI={})", p.getPayloadURI());
 					content = psProvider.createNewPayloadStorage(p);
-					try(OutputStream contentStream = content.openStorage()) {
-						Utils.copyStream(srcPayloads.stream()
-											.filter(pl -> Utils.nullSafeEqual(pl.getPayloadURI(), p.getPayloadURI()))
-											.findFirst().get().getContent(),
-										contentStream, 10240);
+					try {
+						saveContent(srcPayloads.stream()
+										.filter(pl -> Utils.nullSafeEqual(pl.getPayloadURI(), p.getPayloadURI()))
+										.findFirst().get(), p, content);
+						saveContentInfo(p.getSource());
 						log.debug("Saved content of payload (URI={})", p.getPayloadURI());
-					} catch (IOException plFailure) {
+					} catch (IOException | StorageException plFailure) {
 						log.error("Could not save content of payload (URI={}) of User Message (msgId={}) : {}",
 									p.getPayloadURI(), messageUnit.getMessageId(), Utils.getExceptionTrace(plFailure));
 						entity.setProcessingState(ProcessingState.FAILURE, "Payload storage error: URI="
@@ -297,25 +405,29 @@ public class StorageManager {
      * @throws StorageException when an error occurs storing the submitted payload
      */
     public IPayloadEntity storeSubmittedPayload(final IPayload payload, final IPMode pmode) throws StorageException {
-    	PayloadEntityProxy entity = null;
-    	try {
-    		IPayload pl2store = payload;
-    		// Ensure that when this is an attached payload it is assigned a unique Content-Id
-    		if (payload.getContainment() == Containment.ATTACHMENT & Utils.isNullOrEmpty(payload.getPayloadURI())) {
-    			pl2store = new Payload(payload);
-    			((Payload) pl2store).setPayloadURI(MessageIdUtils.createContentId(null));
-    		}
+		IPayload pl2store = payload;
+		// Ensure that when this is an attached payload it is assigned a unique Content-Id
+		if (payload.getContainment() == Containment.ATTACHMENT & Utils.isNullOrEmpty(payload.getPayloadURI())) {
+			pl2store = new Payload(payload);
+			((Payload) pl2store).setPayloadURI(MessageIdUtils.createContentId(null));
+		}
+		final PayloadEntityProxy entity;
+		try {
 	    	log.trace("Store meta-data of submitted payload");
 	    	entity = new PayloadEntityProxy(mdsProvider.storePayloadMetadata(pl2store, pmode.getId()));
+		} catch (StorageException saveFailed) {
+			log.error("Could not save meta-data of submitted payload : {}", Utils.getExceptionTrace(saveFailed));
+			throw saveFailed;
+		}
+		try {
 	    	log.trace("Store content of submitted payload");
 	    	IPayloadContent content = psProvider.createNewPayloadStorage(entity.getSource());
-			try(OutputStream contentStream = content.openStorage()) {
-				Utils.copyStream(payload.getContent(), contentStream, 10240);
-			}
+	    	saveContent(payload, entity, content);
+	    	saveContentInfo(entity.getSource());
 			log.debug("Saved content of payload");
 			entity.setContent(content);
 			return entity;
-		} catch (IOException contentFailure) {
+		} catch (IOException | StorageException contentFailure) {
 			log.error("Could not save content of submitted payload : {}", Utils.getExceptionTrace(contentFailure));
 			try {
 				mdsProvider.deletePayloadMetadata(entity.getSource());
@@ -324,12 +436,82 @@ public class StorageManager {
 							entity.getPayloadId());
 			}
 			throw new StorageException("Could not save payload content", contentFailure);
-		} catch (StorageException saveFailed) {
-			log.error("Could not save meta-data of submitted payload : {}", Utils.getExceptionTrace(saveFailed));
-			throw saveFailed;
 		}
     }
 
+    /**
+     * Saves the content of the given payload to the payload storage and records the size of the content and, when not
+     * specified for an attachment, its MIME type in the meta-data of the stored payload. This way the content does not
+     * need to be read again for this when the payload is sent. When the content is read from a file, the file's channel
+     * is passed to the storage so the <i>Payload Storage Provider</i> can transfer the data without copying it.
+     * <p>NOTE: The updated meta-data is not saved by this method.
+     *
+     * @param source	the payload which content should be saved
+     * @param target	the meta-data of the stored payload
+     * @param storage	the storage to save the content to
+     * @throws IOException when the content of the payload cannot be read
+     * @throws StorageException when the content cannot be written to storage
+     */
+    private static void saveContent(final IPayload source, final IPayloadEntity target, final IPayloadContent storage)
+    																				throws IOException, StorageException {
+    	try (InputStream content = source.getContent()) {
+    		if (content == null)
+    			throw new IOException("No content available");
+    		final boolean detectMimeType = target.getContainment() == Containment.ATTACHMENT
+    										&& Utils.isNullOrEmpty(target.getMimeType());
+    		final ReadableByteChannel channel;
+    		if (content instanceof FileInputStream) {
+    			final FileChannel fc = ((FileInputStream) content).getChannel();
+    			if (detectMimeType) {
+    				// The detection reads the start of the file, so the channel must be reset afterwards
+    				final long start = fc.position();
+    				target.setMimeType(detectMimeType(new BufferedInputStream(content)));
+    				fc.position(start);
+    			}
+    			channel = fc;
+    		} else {
+    			final BufferedInputStream buffered = new BufferedInputStream(content);
+    			if (detectMimeType)
+    				target.setMimeType(detectMimeType(buffered));
+    			channel = Channels.newChannel(buffered);
+    		}
+    		target.setContentLength(storage.transferFrom(channel));
+    	}
+    }
+
+    /**
+     * Detects the MIME type of the content available from the given stream. As the stream supports marking, the
+     * stream is reset to its start after the detection.
+     *
+     * @param content	the payload content
+     * @return	the detected MIME type, or <i>"application/octet-stream"</i> if the MIME type could not be detected
+     */
+    private static String detectMimeType(final BufferedInputStream content) {
+    	log.trace("Detecting MIME type of payload");
+    	try {
+    		return FileUtils.detectMimeType(content);
+    	} catch (Exception e) {
+    		log.warn("Error during Mime type detection: {}", e.getMessage());
+    		return "application/octet-stream";
+    	}
+    }
+
+    /**
+     * Saves the meta-data of the payload which was updated by {@link #saveContent(IPayload, IPayloadEntity,
+     * IPayloadContent)}. As the information is only used to optimise the sending of the payload, a failure to save it
+     * is not considered an error.
+     *
+     * @param payload	the meta-data of the stored payload
+     */
+    private void saveContentInfo(final IPayloadEntity payload) {
+    	try {
+    		mdsProvider.updatePayloadMetadata(payload);
+    	} catch (StorageException updFailure) {
+    		log.warn("Could not save MIME type and size of payload (URI={}) : {}", payload.getPayloadURI(),
+    				 updFailure.getMessage());
+    	}
+    }
+
     /**
      * Creates, or gets if it already exists, the content storage for the received payload.
      *
@@ -372,6 +554,12 @@ public class StorageManager {
      * time of the new state to the current time. Returns a boolean indicating whether the message unit's processing
      * state was updated successfully. In case the state could not be updated, the entity object will contain the latest
      * version of the meta-data.
+     * <p>When the new processing state is {@link ProcessingState#READY_TO_PUSH} the message unit is handed over to the
+     * {@link SendDispatcher} (if set) to start the send process. When an outgoing User Message enters one of the states
+     * in which it waits for a Receipt, the time of its next retransmission check is calculated and stored with the new
+     * state and the message is handed over to the {@link RetransmissionScheduler} (if set).
+     * <p>The change is always saved immediately, also when the current thread has a unit of work, in which case the
+     * pending updates of the message unit are saved with it, see {@link #beginUnitOfWork()}.
      *
      * @param msgUnit           The entity object representing the message unit
      * @param newProcState      The new processing state
@@ -385,8 +573,27 @@ public class StorageManager {
     public boolean setProcessingState(final IMessageUnitEntity msgUnit, final ProcessingState newProcState,
     							   	  final String description) throws StorageException {
     	final ProcessingState cState = msgUnit.getCurrentProcessingState().getState();
+    	final boolean isUserMessage = msgUnit instanceof IUserMessageEntity;
+    	final boolean waitsForReceipt = isUserMessage && msgUnit.getDirection() == Direction.OUT
+    									&& RetransmissionScheduler.WAITING_STATES.contains(newProcState);
+    	// The calculated next retry time is also used for scheduling as the provider may not store it
+    	final Date[] nextRetryTime = new Date[1];
 		try {
-			updateEntity(msgUnit, m -> m.setProcessingState(newProcState, description));
+			updateEntity(msgUnit, m -> {
+				m.setProcessingState(newProcState, description);
+				// The next retry time is based on the start of the new state, so the check finds it due at that time
+				if (isUserMessage) {
+					nextRetryTime[0] = !waitsForReceipt ? null :
+								RetransmissionScheduler.calculateNextRetryTime((IUserMessageEntity) m,
+													((IUserMessageEntity) m).getTransmissionAttempts(),
+													m.getCurrentProcessingState().getStartTime());
+					((IUserMessageEntity) m).setNextRetryTime(nextRetryTime[0]);
+				}
+			}, true);
+			if (newProcState == ProcessingState.READY_TO_PUSH && sendDispatcher != null)
+				sendDispatcher.dispatch(msgUnit);
+			else if (waitsForReceipt && retransmissionScheduler != null)
+				retransmissionScheduler.schedule((IUserMessageEntity) msgUnit, nextRetryTime[0]);
 			return true;
 		} catch (AlreadyChangedException changed) {
 			// This probably indicates that the processing state has already been changed
@@ -397,6 +604,88 @@ public class StorageManager {
 		}
     }
 
+    /**
+     * Claims at most the given number of message units of the specified type that are flowing in the specified
+     * direction and are in the given processing state by changing their processing state to the given new state. The
+     * oldest message units are claimed first. A message unit which processing state has already been changed by
+     * another thread is not claimed, so the number of claimed message units may be less than requested even when more
+     * message units are available.
+     *
+     * @param <T>       Limits the <code>type</code> parameter to only message unit classes
+     * @param <V>       The returned objects will be entity objects. V and T will share the same parent type.
+     * @param type      The type of message units to claim specified by the interface they implement
+     * @param direction The direction of the message units to claim
+     * @param state     The processing state the message units to claim should be in
+     * @param newState  The processing state to set on the claimed message units
+     * @param max       The maximum number of message units to claim
+     * @return          List with entity objects representing the claimed message units
+     * @throws StorageException When a problem occurs retrieving or updating the message units
+     * @since 8.0.0
+     */
+    public <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> claimMessageUnitsInState(
+    															final Class<T> type, final Direction direction,
+    															final ProcessingState state,
+    															final ProcessingState newState, final int max)
+    																						throws StorageException {
+    	try {
+    		UnitOfWork.checkpointCurrent();
+    		return wrapUserMessages(mdsProvider.claimMessageUnitsInState(type, direction, state, newState, max));
+    	} catch (StorageException claimFailure) {
+    		log.error("Error claiming {} message units in state {} : {}", direction, state,
+    					Utils.getExceptionTrace(claimFailure));
+    		throw claimFailure;
+    	}
+    }
+
+    /**
+     * Claims at most the given number of message units of the specified type that are in the given processing state
+     * and which processing is defined by a P-Mode with one of the given P-Mode ids by changing their processing state
+     * to the given new state. The message units that are the longest in the given state are claimed first. Only
+     * message units that meet the criteria of the optional filter are claimed.
+     *
+     * @param <T>       Limits the <code>type</code> parameter to only message unit classes
+     * @param <V>       The returned objects will be entity objects. V and T will share the same parent type.
+     * @param type      The type of message units to claim specified by the interface they implement
+     * @param pmodeIds  Set of P-Mode ids
+     * @param state     The processing state the message units to claim should be in
+     * @param newState  The processing state to set on the claimed message units
+     * @param filter	Additional criteria the message units must meet to be claimed, may be <code>null</code>
+     * @param max       The maximum number of message units to claim
+     * @return          List with entity objects representing the claimed message units
+     * @throws StorageException When a problem occurs retrieving or updating the message units
+     * @since 8.0.0
+     */
+    public <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> claimMessageUnitsForPModesInState(
+    															final Class<T> type, final Set<String> pmodeIds,
+    															final ProcessingState state,
+    															final ProcessingState newState,
+    															final Predicate<V> filter, final int max)
+    																						throws StorageException {
+    	try {
+    		UnitOfWork.checkpointCurrent();
+    		return wrapUserMessages(mdsProvider.claimMessageUnitsForPModesInState(type, pmodeIds, state, newState,
+    																				 filter, max));
+    	} catch (StorageException claimFailure) {
+    		log.error("Error claiming message units in state {} : {}", state, Utils.getExceptionTrace(claimFailure));
+    		throw claimFailure;
+    	}
+    }
+
+    /**
+     * Helper method to wrap the User Message entity objects returned by the Metadata Storage Provider in a {@link
+     * UserMessageEntityProxy}.
+     *
+     * @param <V>	the type of the entity objects
+     * @param msgUnits	the entity objects returned by the provider
+     * @return	the list of entity objects where User Messages are wrapped
+     */
+    @SuppressWarnings("unchecked")
+	private <V extends IMessageUnitEntity> List<V> wrapUserMessages(final List<V> msgUnits) {
+    	return msgUnits.stream().map(m -> m instanceof IUserMessageEntity ?
+    											(V) new UserMessageEntityProxy((IUserMessageEntity) m) : m)
+    							.collect(Collectors.toList());
+    }
+
     /**
      * Sets the ID of the P-Mode that defines how the message unit should be processed.
      *
@@ -407,7 +696,7 @@ public class StorageManager {
      * @throws StorageException  	   If some other error occured when saving the updated message unit to the database
      */
     public void setPModeId(final IMessageUnitEntity msgUnit, final String pmodeId) throws StorageException {
-		updateEntity(msgUnit, m -> m.setPModeId(pmodeId));
+		updateEntity(msgUnit, m -> m.setPModeId(pmodeId), false);
     }
 
     /**
@@ -423,7 +712,7 @@ public class StorageManager {
      */
     public void setPModeAndLeg(final IErrorMessageEntity msgUnit, final Pair<IPMode, ILeg.Label> pl)
     																					throws StorageException {
-    	updateEntity(msgUnit, m -> { m.setPModeId(pl.value1().getId()); m.setLeg(pl.value2()); });
+    	updateEntity(msgUnit, m -> { m.setPModeId(pl.value1().getId()); m.setLeg(pl.value2()); }, false);
     }
 
     /**
@@ -436,7 +725,7 @@ public class StorageManager {
      * @throws StorageException    	   If some other error occured when saving the updated message unit to the database
      */
     public void setMultiHop(final IMessageUnitEntity msgUnit, final boolean isMultihop) throws StorageException {
-        updateEntity(msgUnit, m -> m.setMultiHop(isMultihop));
+        updateEntity(msgUnit, m -> m.setMultiHop(isMultihop), false);
     }
 
     /**
@@ -453,7 +742,7 @@ public class StorageManager {
      */
     public void setAddSOAPFault(final IErrorMessageEntity errorMessage, final boolean addSOAPFault)
                                                                                         	throws StorageException {
-        updateEntity(errorMessage, e -> e.setAddSOAPFault(addSOAPFault));
+        updateEntity(errorMessage, e -> e.setAddSOAPFault(addSOAPFault), false);
     }
 
 
@@ -463,20 +752,30 @@ public class StorageManager {
      * In case there is a problem in the persistency layer, the Holodeck B2B Core will use an in-memory Error Message
      * entity object to be able to still respond to the sending MSH. Updates to this non persisted Error Message should
      * however not be passed to the persistency provider.
+     * <p>When the current thread has an active unit of work the update is added to it, unless it must be saved
+     * immediately, in which case it is saved together with the pending updates of the same message unit.
      *
      * @param m the entity object to be saved to the database
+     * @param update		the update to apply to the entity object
+     * @param immediate		indicates whether the update must be saved immediately, also within a unit of work
      * @throws AlreadyChangedException When the database contains more up to date data. The meta-data contained in the
      * 								   entity object is updated to the latest meta-data available.
      * @throws StorageException    	   If some other error occured when saving the updated message unit to the database
      */
-    private <E extends IMessageUnitEntity> void updateEntity(E entity, Consumer<E> update) throws StorageException {
+    private <E extends IMessageUnitEntity> void updateEntity(E entity, Consumer<E> update, boolean immediate)
+    																						throws StorageException {
     	update.accept(entity);
     	if (!(entity instanceof NonPersistedErrorMessage))
     		try {
-    			if (entity instanceof UserMessageEntityProxy)
-    				mdsProvider.updateMessageUnit(((UserMessageEntityProxy) entity).getSource());
+    			final IMessageUnitEntity source = entity instanceof UserMessageEntityProxy ?
+    													((UserMessageEntityProxy) entity).getSource() : entity;
+    			final UnitOfWork uow = UnitOfWork.getCurrent();
+    			if (uow == null)
+    				mdsProvider.updateMessageUnit(source);
+    			else if (immediate)
+    				uow.save(source);
     			else
-    				mdsProvider.updateMessageUnit(entity);
+    				uow.defer(source);
     		} catch (AlreadyChangedException alreadyChanged) {
     			log.warn("The meta-data of message unit (msgId={}) was already updated!", entity.getMessageId());
     			throw alreadyChanged;
@@ -521,8 +820,12 @@ public class StorageManager {
         // If not all payload content was removed, keep the meta-data of the message, so we can try again later
         if (plFailures.isEmpty())
 	        try {
-	        	mdsProvider.deleteMessageUnit(messageUnit instanceof UserMessageEntityProxy ?
-	        								 	((UserMessageEntityProxy) messageUnit).getSource() : messageUnit);
+	        	final IMessageUnitEntity source = messageUnit instanceof UserMessageEntityProxy ?
+	        								 			((UserMessageEntityProxy) messageUnit).getSource() : messageUnit;
+	        	final UnitOfWork uow = UnitOfWork.getCurrent();
+	        	if (uow != null)
+	        		uow.discard(source);
+	        	mdsProvider.deleteMessageUnit(source);
 	        	log.info("{} (MessageId={}) removed from storage", MessageUnitUtils.getMessageUnitName(messageUnit),
 	        				messageUnit.getMessageId());
 	        } catch (StorageException mmdDeleteFailed) {
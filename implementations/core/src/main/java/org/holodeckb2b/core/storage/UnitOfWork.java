@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.interfaces.storage.IMessageUnitEntity;
+import org.holodeckb2b.interfaces.storage.providers.AlreadyChangedException;
+import org.holodeckb2b.interfaces.storage.providers.IMetadataStorageProvider;
+import org.holodeckb2b.interfaces.storage.providers.StorageException;
+
+/**
+ * Collects the updates of message unit meta-data made by the current thread so they can be saved together using
+ * {@link IMetadataStorageProvider#updateMessageUnits(java.util.Collection)}. A unit of work is bound to the thread
+ * that started it and can be nested, in which case the pending updates are only discarded from the thread when the
+ * outermost unit of work is completed.
+ * <p>Only updates that do not change the processing state are collected, changes of the processing state are saved
+ * immediately using {@link #save(IMessageUnitEntity)} so they are directly visible to other threads and a conflicting
+ * change is reported to the caller. When the batch of updates is rejected, for example because one of the message
+ * units was already changed, the updates are saved one by one, so the conflict is detected for the message unit
+ * concerned and reported to the caller of the checkpoint.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ * @see StorageManager#beginUnitOfWork()
+ */
+final class UnitOfWork {
+	private static final Logger	log = LogManager.getLogger();
+
+	/**
+	 * The unit of work of the current thread
+	 */
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+	/**
+	 * The Metadata Storage Provider to save the updates to
+	 */
+	private final IMetadataStorageProvider	mdsProvider;
+	/**
+	 * The message units with pending updates, by their CoreId
+	 */
+	private final Map<String, IMessageUnitEntity> pending = new LinkedHashMap<>();
+	/**
+	 * The nesting level of the unit of work
+	 */
+	private int depth = 1;
+
+	private UnitOfWork(final IMetadataStorageProvider mdsProvider) {
+		this.mdsProvider = mdsProvider;
+	}
+
+	/**
+	 * @return the unit of work of the current thread, or <code>null</code> if the thread has no active unit of work
+	 */
+	static UnitOfWork getCurrent() {
+		return current.get();
+	}
+
+	/**
+	 * Starts a new unit of work for the current thread or, when the thread already has a unit of work, a nested one.
+	 *
+	 * @param mdsProvider	the Metadata Storage Provider to save the updates to
+	 * @return	the nesting level of the started unit of work, 1 for the outermost one
+	 */
+	static int begin(final IMetadataStorageProvider mdsProvider) {
+		final UnitOfWork uow = current.get();
+		if (uow != null)
+			return ++uow.depth;
+		current.set(new UnitOfWork(mdsProvider));
+		return 1;
+	}
+
+	/**
+	 * Completes the innermost unit of work of the current thread by saving the pending updates. When this completes the
+	 * outermost unit of work it is removed from the thread, even if the updates could not be saved.
+	 *
+	 * @throws StorageException when the pending updates could not be saved
+	 */
+	static void complete() throws StorageException {
+		final UnitOfWork uow = current.get();
+		if (uow != null)
+			complete(uow.depth);
+	}
+
+	/**
+	 * Completes the unit of work of the current thread at the given nesting level by saving the pending updates. The
+	 * units of work nested in it that were not completed, for example because the processing that started them was
+	 * aborted, are completed as well. When this completes the outermost unit of work it is removed from the thread,
+	 * even if the updates could not be saved.
+	 *
+	 * @param level	the nesting level of the unit of work to complete, as returned by {@link
+	 * 				#begin(IMetadataStorageProvider)}
+	 * @throws StorageException when the pending updates could not be saved
+	 */
+	static void complete(final int level) throws StorageException {
+		final UnitOfWork uow = current.get();
+		if (uow == null || uow.depth < level)
+			return;
+		if (uow.depth > level)
+			log.warn("Completing {} nested unit(s) of work that were not completed", uow.depth - level);
+		try {
+			uow.flush();
+		} finally {
+			uow.depth = level - 1;
+			if (uow.depth <= 0)
+				current.remove();
+		}
+	}
+
+	/**
+	 * Saves the pending updates of the unit of work of the current thread, if it has one.
+	 *
+	 * @throws StorageException when the pending updates could not be saved
+	 */
+	static void checkpointCurrent() throws StorageException {
+		final UnitOfWork uow = current.get();
+		if (uow != null)
+			uow.flush();
+	}
+
+	/**
+	 * Adds the given message unit to the pending updates. If the pending updates already include another entity object
+	 * of the same message unit, these are saved first so the update is checked against the correct version.
+	 *
+	 * @param messageUnit	the updated message unit
+	 * @throws StorageException when the pending updates had to be saved but this failed
+	 */
+	void defer(final IMessageUnitEntity messageUnit) throws StorageException {
+		final IMessageUnitEntity p = pending.get(messageUnit.getCoreId());
+		if (p != null && p != messageUnit)
+			flush();
+		pending.put(messageUnit.getCoreId(), messageUnit);
+	}
+
+	/**
+	 * Saves the given message unit immediately, including its pending updates. The pending updates of other message
+	 * units are not saved, unless they include another entity object of the same message unit, in which case they are
+	 * saved first so the update is checked against the correct version.
+	 *
+	 * @param messageUnit	the updated message unit
+	 * @throws AlreadyChangedException when the update was rejected because the message unit was already changed
+	 * @throws StorageException when the update could not be saved
+	 */
+	void save(final IMessageUnitEntity messageUnit) throws StorageException {
+		final IMessageUnitEntity p = pending.get(messageUnit.getCoreId());
+		if (p != null && p != messageUnit)
+			flush();
+		try {
+			mdsProvider.updateMessageUnit(messageUnit);
+			pending.remove(messageUnit.getCoreId(), messageUnit);
+		} catch (AlreadyChangedException alreadyChanged) {
+			// The entity object now contains the current meta-data, so there is nothing left to save
+			pending.remove(messageUnit.getCoreId(), messageUnit);
+			throw alreadyChanged;
+		}
+	}
+
+	/**
+	 * Removes the given message unit from the pending updates, used when the message unit is deleted.
+	 *
+	 * @param messageUnit	the message unit
+	 */
+	void discard(final IMessageUnitEntity messageUnit) {
+		pending.remove(messageUnit.getCoreId(), messageUnit);
+	}
+
+	/**
+	 * Saves the pending updates. When the batch of updates cannot be saved the updates are saved one by one. The
+	 * updates that fail because of a conflicting change are dropped, as the entity object then contains the current
+	 * meta-data, the updates that fail for another reason are kept so they are saved at the next checkpoint. In both
+	 * cases the failure is reported to the caller after all updates have been tried.
+	 *
+	 * @throws AlreadyChangedException when the update of a message unit was rejected because it was already changed
+	 * @throws StorageException when the pending updates could not be saved
+	 */
+	void flush() throws StorageException {
+		if (pending.isEmpty())
+			return;
+		final List<IMessageUnitEntity> batch = new ArrayList<>(pending.values());
+		try {
+			mdsProvider.updateMessageUnits(batch);
+			pending.clear();
+			log.trace("Saved updates of {} message units", batch.size());
+		} catch (StorageException batchFailed) {
+			log.debug("Batch update failed, saving updates of {} message units one by one", batch.size());
+			pending.clear();
+			StorageException failure = null;
+			for (IMessageUnitEntity m : batch)
+				try {
+					mdsProvider.updateMessageUnit(m);
+				} catch (AlreadyChangedException alreadyChanged) {
+					log.warn("The deferred update of message unit (msgId={}) was rejected as the meta-data was"
+							+ " already updated!", m.getMessageId());
+					if (failure == null)
+						failure = alreadyChanged;
+				} catch (StorageException saveFailure) {
+					pending.put(m.getCoreId(), m);
+					if (failure == null)
+						failure = saveFailure;
+				}
+			if (failure != null)
+				throw failure;
+		}
+	}
+}
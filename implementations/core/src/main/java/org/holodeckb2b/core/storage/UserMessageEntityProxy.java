@@ -145,4 +145,19 @@ public class UserMessageEntityProxy implements IUserMessageEntity {
 	public Collection<PayloadEntityProxy> getPayloads() {
 		return payloads;
 	}
+
+	@Override
+	public Date getNextRetryTime() {
+		return source.getNextRetryTime();
+	}
+
+	@Override
+	public void setNextRetryTime(Date nextRetryTime) {
+		source.setNextRetryTime(nextRetryTime);
+	}
+
+	@Override
+	public int getTransmissionAttempts() {
+		return source.getTransmissionAttempts();
+	}
 }
@@ -16,8 +16,18 @@
  */
 package org.holodeckb2b.core.validation;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -28,19 +38,52 @@ import org.holodeckb2b.interfaces.customvalidation.IMessageValidatorConfiguratio
 import org.holodeckb2b.interfaces.customvalidation.MessageValidationError;
 import org.holodeckb2b.interfaces.customvalidation.MessageValidationException;
 import org.holodeckb2b.interfaces.messagemodel.IMessageUnit;
+import org.holodeckb2b.interfaces.pmode.IPModeSetListener;
+import org.holodeckb2b.interfaces.pmode.PModeSetEvent;
 
 /**
- * Is the default implementation of {@link IValidationExecutor} to perform the validation of a message unit. This
- * implementation is not optimized for performance and just sequentially executes all specified validators for the
- * message unit. There is also no caching of validator factories.
+ * Is the default implementation of {@link IValidationExecutor} to perform the validation of a message unit. By
+ * default this implementation sequentially executes all specified validators for the message unit. When the
+ * validation specification indicates that the validators should be executed in parallel and execution in order is
+ * not required, the validators are executed concurrently on a shared {@link ForkJoinPool}.
+ * <p>The validator factories are created and initialised once per validator configuration, identified by its id,
+ * factory class and settings, and then re-used. When the factory indicates that its validators are thread safe the
+ * validator itself is re-used as well. As the validator configurations are part of the P-Modes the executor should
+ * be registered as listener to the P-Mode set so the cached factories are removed when the P-Mode set changes.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  * @since 4.0.0
+ * @since 8.0.0 Caching of validator factories and parallel execution of validators
  */
-public class DefaultValidationExecutor implements IValidationExecutor {
+public class DefaultValidationExecutor implements IValidationExecutor, IPModeSetListener {
 
     Logger  log = LogManager.getLogger(DefaultValidationExecutor.class);
 
+    /**
+     * The initialised validator factories, mapped by the id, factory class name and settings of the validator
+     * configuration
+     */
+    private final Map<List<Object>, CachedFactory> factories = new ConcurrentHashMap<>();
+
+    /**
+     * The pool shared by all executors for running validators in parallel. As validators often need to read the
+     * payloads, the pool has at least 4 threads even when there are less processors available.
+     */
+    private static final ForkJoinPool VALIDATION_POOL =
+    										new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Removes all cached validator factories when the P-Mode set changes.
+     *
+     * @param event the event that occurred
+     * @since 8.0.0
+     */
+    @Override
+    public void handleEvent(final PModeSetEvent event) {
+    	factories.clear();
+    	log.trace("Removed cached validator factories");
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -52,6 +95,34 @@ public class DefaultValidationExecutor implements IValidationExecutor {
             log.trace("No custom validation specified in P-Mode, skipping custom validation");
             return null;
         }
+        final ValidationResult result;
+        if (validationSpec.getValidators().size() > 1 && Boolean.TRUE.equals(validationSpec.executeInParallel())
+        	&& !Boolean.TRUE.equals(validationSpec.mustExecuteInOrder()))
+        	result = validateInParallel(userMessage, validationSpec);
+        else
+        	result = validateSequentially(userMessage, validationSpec);
+
+        if (Utils.isNullOrEmpty(result.getValidationErrors()))
+            log.debug("Successfully validated message unit [{}]", userMessage.getMessageId());
+        else {
+            log.info("Found {} validation errors in message unit [{}]", result.getValidationErrors().size()
+                        ,userMessage.getMessageId());
+        }
+        return result;
+    }
+
+    /**
+     * Executes the validators one after the other until all validators are executed or a validator finds an error
+     * with the severity level at which validation should stop.
+     *
+     * @param userMessage		The message unit to validate
+     * @param validationSpec	The specification of the validation to perform
+     * @return	The result of the validation
+     * @throws MessageValidationException	When a validator could not be created or could not complete the validation
+     */
+    private ValidationResult validateSequentially(final IMessageUnit userMessage,
+    											  final IMessageValidationSpecification validationSpec)
+    																				throws MessageValidationException {
         // Execute the validators as specified in the specification and collect found errors
         ValidationResult result = new ValidationResult();
         boolean stopValidation = false;
@@ -77,18 +148,82 @@ public class DefaultValidationExecutor implements IValidationExecutor {
         } while (!stopValidation && validatorsToRun.hasNext());
         result.setExecutedAllValidators(!stopValidation);
         result.setShouldRejectMessage(rejectMessage);
-
-        if (Utils.isNullOrEmpty(result.getValidationErrors()))
-            log.debug("Successfully validated message unit [{}]", userMessage.getMessageId());
-        else {
-            log.info("Found {} validation errors in message unit [{}]", result.getValidationErrors().size()
-                        ,userMessage.getMessageId());
-        }
         return result;
     }
 
     /**
-     * Creates an instance of the {@link IMessageValidator} based on the given {@link IMessageValidatorConfiguration}.
+     * Executes the validators concurrently using the shared {@link #VALIDATION_POOL}. The results are processed in
+     * the order the validators complete. When a validator finds an error with the severity level at which validation
+     * should stop, the validators that have not yet completed are cancelled. Note that a validator that is already
+     * running may not respond to the cancellation, but its result will be ignored.
+     *
+     * @param userMessage		The message unit to validate
+     * @param validationSpec	The specification of the validation to perform
+     * @return	The result of the validation
+     * @throws MessageValidationException	When a validator could not be created or could not complete the validation
+     * @since 8.0.0
+     */
+    private ValidationResult validateInParallel(final IMessageUnit userMessage,
+    											final IMessageValidationSpecification validationSpec)
+    																				throws MessageValidationException {
+    	final List<IMessageValidatorConfiguration> validatorCfgs = validationSpec.getValidators();
+    	final CompletionService<Collection<MessageValidationError>> completionService =
+    																new ExecutorCompletionService<>(VALIDATION_POOL);
+    	final Map<Future<Collection<MessageValidationError>>, String> running = new HashMap<>(validatorCfgs.size());
+    	try {
+	    	for (IMessageValidatorConfiguration validatorCfg : validatorCfgs) {
+	    		final IMessageValidator validator = createValidator(validatorCfg);
+	    		log.debug("Validating the message using validator {}", validatorCfg.getId());
+	    		running.put(completionService.submit(() -> validator.validate(userMessage)), validatorCfg.getId());
+	    	}
+	    	ValidationResult result = new ValidationResult();
+	    	boolean stopValidation = false;
+	    	boolean rejectMessage = false;
+	    	while (!stopValidation && !running.isEmpty()) {
+	    		final Future<Collection<MessageValidationError>> completed = completionService.take();
+	    		final String validatorId = running.remove(completed);
+	    		final Collection<MessageValidationError> errors;
+	    		try {
+	    			errors = completed.get();
+	    		} catch (ExecutionException failed) {
+	    			final Throwable cause = failed.getCause();
+	    			log.warn("Validator [{}] could not complete validation: {}", validatorId, cause.getMessage());
+	    			if (cause instanceof MessageValidationException)
+	    				throw (MessageValidationException) cause;
+	    			else if (cause instanceof RuntimeException)
+	    				throw (RuntimeException) cause;
+	    			else if (cause instanceof Error)
+	    				throw (Error) cause;
+	    			else
+	    				throw new MessageValidationException("Validator [" + validatorId + "] failed", cause);
+	    		}
+	    		if (Utils.isNullOrEmpty(errors))
+	    			log.debug("Messagge successfully validated by [{}]", validatorId);
+	    		else {
+	    			log.debug("Validator [{}] found {} errors in message", validatorId, errors.size());
+	    			result.addValidationErrors(validatorId, errors);
+	    			stopValidation = containsErrorAboveThreshold(validationSpec.getStopSeverity(), errors);
+	    			rejectMessage |= containsErrorAboveThreshold(validationSpec.getRejectionSeverity(), errors);
+	    		}
+	    	}
+	    	if (stopValidation && !running.isEmpty())
+	    		log.debug("Stop validation, cancelling {} validators", running.size());
+	    	result.setExecutedAllValidators(!stopValidation);
+	    	result.setShouldRejectMessage(rejectMessage);
+	    	return result;
+    	} catch (InterruptedException interrupted) {
+    		Thread.currentThread().interrupt();
+    		throw new MessageValidationException("Validation was interrupted");
+    	} finally {
+    		running.keySet().forEach(f -> f.cancel(true));
+    	}
+    }
+
+    /**
+     * Gets an instance of the {@link IMessageValidator} based on the given {@link IMessageValidatorConfiguration}.
+     * When a factory for the configuration has already been initialised, it is used to create the validator or if the
+     * factory's validators are thread safe, the validator is re-used. Otherwise a new factory is created and
+     * initialised.
      *
      * @param validatorCfg  The message validator configuration
      * @return  A validator instance based on the given configuration
@@ -97,21 +232,44 @@ public class DefaultValidationExecutor implements IValidationExecutor {
      */
     private IMessageValidator createValidator(final IMessageValidatorConfiguration validatorCfg)
                                                                                     throws MessageValidationException {
-        log.trace("Creating validator [{}]", validatorCfg.getId());
-        IMessageValidator.Factory factory = null;
-        try {
-            String factoryClassname = validatorCfg.getFactory();
-            factory = (IMessageValidator.Factory) Class.forName(factoryClassname).newInstance();
-        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
-            log.error("Could not create validator factory [{}] due to a ", validatorCfg.getFactory(),
-                        ex.getClass().getSimpleName());
-            throw new MessageValidationException("Could not create validator factory class ["
-                                                  + validatorCfg.getFactory() + "]!", ex);
-        }
-        log.trace("Initialize the factory");
-        factory.init(validatorCfg.getSettings());
-        log.trace("And create a validator");
-        return factory.createMessageValidator();
+    	final List<Object> key = Arrays.asList(validatorCfg.getId(), validatorCfg.getFactory(),
+    										   validatorCfg.getSettings());
+    	CachedFactory cached = factories.get(key);
+    	if (cached == null) {
+	        log.trace("Creating validator factory for [{}]", validatorCfg.getId());
+	        IMessageValidator.Factory factory = null;
+	        try {
+	            String factoryClassname = validatorCfg.getFactory();
+	            factory = (IMessageValidator.Factory) Class.forName(factoryClassname).newInstance();
+	        } catch (ClassNotFoundException | InstantiationException | IllegalAccessException ex) {
+	            log.error("Could not create validator factory [{}] due to a {}", validatorCfg.getFactory(),
+	                        ex.getClass().getSimpleName());
+	            throw new MessageValidationException("Could not create validator factory class ["
+	                                                  + validatorCfg.getFactory() + "]!", ex);
+	        }
+	        log.trace("Initialize the factory");
+	        factory.init(validatorCfg.getSettings());
+	        cached = new CachedFactory(factory, factory.createsThreadSafeValidators() ?
+	        													factory.createMessageValidator() : null);
+	        factories.put(key, cached);
+    	}
+    	if (cached.validator != null)
+    		return cached.validator;
+        log.trace("Create a validator");
+        return cached.factory.createMessageValidator();
+    }
+
+    /**
+     * Holds an initialised validator factory and, when its validators are thread safe, the validator to re-use.
+     */
+    private static class CachedFactory {
+    	final IMessageValidator.Factory factory;
+    	final IMessageValidator			validator;
+
+    	CachedFactory(final IMessageValidator.Factory factory, final IMessageValidator validator) {
+    		this.factory = factory;
+    		this.validator = validator;
+    	}
     }
 
     /**
@@ -131,7 +289,7 @@ public class DefaultValidationExecutor implements IValidationExecutor {
             // A threshold has been defined, check if reached by any of the found errors
             boolean stop = false;
             for(MessageValidationError e : errors)
-                stop = threshold.compareTo(e.getSeverityLevel()) <= 0;
+                stop |= threshold.compareTo(e.getSeverityLevel()) <= 0;
             return stop;
         }
     }
@@ -64,4 +64,15 @@ public abstract class AbstractHeaderValidatorFactory implements IMessageValidato
     public IMessageValidator createMessageValidator() throws MessageValidationException {
         return validator;
     }
+
+    /**
+     * The header validators are singletons shared by all factory instances and therefore already thread safe.
+     *
+     * @return <code>true</code>
+     * @since 8.0.0
+     */
+    @Override
+    public boolean createsThreadSafeValidators() {
+    	return true;
+    }
 }
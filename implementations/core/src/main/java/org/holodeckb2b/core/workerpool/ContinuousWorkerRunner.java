@@ -66,6 +66,11 @@ class ContinuousWorkerRunner implements IWorkerTask {
         actualTask.setParameters(parameters);
     }
 
+    @Override
+    public Map<String, ?> getStatistics() {
+    	return actualTask.getStatistics();
+    }
+
     @Override
     public void run() {
         try {
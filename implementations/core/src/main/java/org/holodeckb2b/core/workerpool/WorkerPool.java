@@ -18,6 +18,7 @@ package org.holodeckb2b.core.workerpool;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -181,6 +182,26 @@ public class WorkerPool implements IWorkerPool {
     	
     	return workers.stream().map(w -> w.config).collect(Collectors.toList());
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>As the instances of a worker normally share their statistics, only the statistics of the first instance of
+     * each worker are included.
+     */
+    @Override
+    public synchronized Map<String, Map<String, ?>> getWorkerStatistics() throws WorkerPoolException {
+    	if (!isRunning())
+    		throw new WorkerPoolException("Pool is stopped");
+
+    	final Map<String, Map<String, ?>> statistics = new LinkedHashMap<>();
+    	for (RunningWorker w : workers) {
+    		final Map<String, ?> taskStats = !w.instances.isEmpty() ? w.instances.get(0).value2().getStatistics()
+    																 : null;
+    		if (!Utils.isNullOrEmpty(taskStats))
+    			statistics.put(w.config.getName(), taskStats);
+    	}
+    	return statistics;
+    }
        
     /**
      * If needed, reloads and applies the new configuration.
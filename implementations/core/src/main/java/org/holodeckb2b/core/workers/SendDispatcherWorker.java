@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.workers;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.holodeckb2b.common.workers.AbstractWorkerTask;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.HolodeckB2BCore;
+import org.holodeckb2b.core.SendDispatcher;
+import org.holodeckb2b.interfaces.workerpool.TaskConfigurationException;
+
+/**
+ * Is the worker that sends the message units queued in the {@link SendDispatcher}. It should be configured to run
+ * continuously, i.e. with an interval of 0, with the number of concurrent instances set to the number of message units
+ * that may be sent in parallel. Each instance waits for the next message unit to become available and sends it.
+ * <p>The worker can be configured with two optional parameters that are applied to the dispatcher:<ul>
+ * <li><i>maxPerDestination</i> : the maximum number of message units that are sent concurrently to the same
+ * destination, default 2</li>
+ * <li><i>queueSize</i> : the maximum number of message units waiting to be sent, default 1000</li></ul>
+ * When this worker is not active the dispatcher will not queue message units and all message units are sent by the
+ * {@link SenderWorker}.
+ * <p>The statistics of the destinations served by the dispatcher are reported as the statistics of this worker, so
+ * they can be retrieved from the worker pool.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class SendDispatcherWorker extends AbstractWorkerTask {
+
+    /**
+     * Name of the configuration parameter to set the maximum number of concurrent senders per destination
+     */
+    public static final String P_MAX_PER_DESTINATION = "maxPerDestination";
+
+    /**
+     * Name of the configuration parameter to set the maximum number of message units waiting to be sent
+     */
+    public static final String P_QUEUE_SIZE = "queueSize";
+
+    /**
+     * Maximum time in milliseconds to wait for a message unit to become available
+     */
+    private static final long POLL_TIMEOUT = 1000;
+
+    /**
+     * Sends the next message unit queued in the dispatcher. If the dispatcher is not available or has been shut down
+     * the worker is stopped.
+     */
+    @Override
+    public void doProcessing() throws InterruptedException {
+        final SendDispatcher dispatcher = HolodeckB2BCore.getSendDispatcher();
+        if (dispatcher == null || dispatcher.isShutdown()) {
+            log.debug("Send dispatcher not available, stopping worker");
+            Thread.currentThread().interrupt();
+            return;
+        }
+        dispatcher.sendNext(POLL_TIMEOUT);
+    }
+
+    /**
+     * Gets the current statistics of the destinations served by the dispatcher.
+     *
+     * @return  map with the {@link SendDispatcher.DestinationStatistics} of each destination, keyed by the destination
+     */
+    @Override
+    public Map<String, ?> getStatistics() {
+        final SendDispatcher dispatcher = HolodeckB2BCore.getSendDispatcher();
+        if (dispatcher == null)
+            return Collections.emptyMap();
+        final Map<String, SendDispatcher.DestinationStatistics> statistics = new LinkedHashMap<>();
+        dispatcher.getStatistics().forEach(d -> statistics.put(d.getDestination(), d));
+        return statistics;
+    }
+
+    /**
+     * Configures the dispatcher using the <i>maxPerDestination</i> and <i>queueSize</i> parameters.
+     *
+     * @param parameters    A <code>Map</code> containing the configuration of the worker
+     */
+    @Override
+    public void setParameters(final Map<String, ?> parameters) throws TaskConfigurationException {
+        final int maxPerDestination = getIntParameter(parameters, P_MAX_PER_DESTINATION,
+                                                      SendDispatcher.DEFAULT_MAX_PER_DESTINATION, 1);
+        final int queueSize = getIntParameter(parameters, P_QUEUE_SIZE, SendDispatcher.DEFAULT_QUEUE_SIZE, 0);
+        final SendDispatcher dispatcher = HolodeckB2BCore.getSendDispatcher();
+        if (dispatcher != null)
+            dispatcher.configure(maxPerDestination, queueSize);
+    }
+
+    private static int getIntParameter(final Map<String, ?> parameters, final String name, final int defaultValue,
+                                       final int minValue) throws TaskConfigurationException {
+        final Object value = !Utils.isNullOrEmpty(parameters) ? parameters.get(name) : null;
+        if (value == null)
+            return defaultValue;
+        int i;
+        try {
+            i = Integer.parseInt(value.toString().trim());
+        } catch (final NumberFormatException NaN) {
+            i = minValue - 1;
+        }
+        if (i < minValue)
+            throw new TaskConfigurationException("Illegal value [" + value.toString() + "] used for \"" + name
+                                                + "\" parameter!");
+        return i;
+    }
+}
@@ -18,7 +18,6 @@ package org.holodeckb2b.core.workers;
 
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -26,6 +25,7 @@ import org.holodeckb2b.common.util.MessageUnitUtils;
 import org.holodeckb2b.common.workers.AbstractWorkerTask;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.HolodeckB2BCore;
+import org.holodeckb2b.core.SendDispatcher;
 import org.holodeckb2b.core.axis2.Axis2Sender;
 import org.holodeckb2b.interfaces.messagemodel.Direction;
 import org.holodeckb2b.interfaces.messagemodel.IMessageUnit;
@@ -36,7 +36,14 @@ import org.holodeckb2b.interfaces.workerpool.TaskConfigurationException;
 
 /**
  * Is responsible for selecting the message units to be send. It looks for all messages waiting in the database to
- * get send and starts the send process for each of them.
+ * get send and starts the send process for each of them. To limit the number of message units loaded in memory the
+ * message units are claimed for sending in batches. The maximum number of message units in a batch can be set using
+ * the optional <i>batchSize</i> parameter. If not specified 100 message units are claimed at once.
+ * <p>Since version 8.0.0 message units are normally sent immediately when they become ready to be pushed by the
+ * {@link SendDispatcher}. This worker therefore acts as a recovery sweep for message units that were not handed over to
+ * the dispatcher, e.g. because Holodeck B2B was restarted or the send queue was full, and can run at a low frequency.
+ * The message units it claims are also sent through the dispatcher, so a slow destination does not block sending to
+ * other destinations.
  * <p>This worker does not need configuration to run. As this worker is needed for Holodeck B2B to work properly it is
  * included in the default worker pool.
  *
@@ -47,21 +54,41 @@ public class SenderWorker extends AbstractWorkerTask {
     private static final Logger log = LogManager.getLogger(SenderWorker.class.getName());
 
     /**
-     * Looks for message units that are for sending and kicks off the send process
-     * for each of them. To prevent a message from being send twice the send process
-     * is only started if the processing state can be successfully changed.
+     * Name of the configuration parameter that can be used to set the maximum number of message units that are
+     * claimed at once for sending.
+     * @since 8.0.0
+     */
+    public static final String P_BATCH_SIZE = "batchSize";
+
+    /**
+     * The default maximum number of message units that are claimed at once
+     */
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of message units that are claimed at once
+     */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Looks for message units that are for sending and kicks off the send process for each of them. To prevent a
+     * message from being send twice the message units are claimed by changing their processing state to
+     * <i>PROCESSING</i> and only the successfully claimed message units are sent. The claimed message units are
+     * submitted to the {@link SendDispatcher} so they are sent in parallel. Only when the dispatcher cannot accept a
+     * message unit it is sent directly by this worker.
      */
     @Override
     public void doProcessing() {
+        final SendDispatcher dispatcher = HolodeckB2BCore.getSendDispatcher();
         try {
-            log.trace("Getting list of message units to send");
-            List<IMessageUnitEntity> msgUnitsToSend = HolodeckB2BCore.getQueryManager()
-                                                               .getMessageUnitsInState(IMessageUnit.class,
-                                                                Direction.OUT,
-                                                                Set.of(ProcessingState.READY_TO_PUSH));
-
-            if (!Utils.isNullOrEmpty(msgUnitsToSend)) {
-                log.trace("Found {} message units to send",  msgUnitsToSend.size());
+            List<IMessageUnitEntity> msgUnitsToSend;
+            do {
+                log.trace("Claiming next batch of message units to send");
+                msgUnitsToSend = HolodeckB2BCore.getStorageManager()
+                                                .claimMessageUnitsInState(IMessageUnit.class, Direction.OUT,
+                                                                          ProcessingState.READY_TO_PUSH,
+                                                                          ProcessingState.PROCESSING, batchSize);
+                log.trace("Claimed {} message units to send",  msgUnitsToSend.size());
                 for (final IMessageUnitEntity msgUnit : msgUnitsToSend) {
                     // Only message units associated with a P-Mode can be send
                     if (Utils.isNullOrEmpty(msgUnit.getPModeId())) {
@@ -69,19 +96,16 @@ public class SenderWorker extends AbstractWorkerTask {
                         HolodeckB2BCore.getStorageManager().setProcessingState(msgUnit, ProcessingState.FAILURE);
                         continue;
                     }
-
-                    // Indicate that processing will start
-                    if (HolodeckB2BCore.getStorageManager().setProcessingState(msgUnit, ProcessingState.PROCESSING)) {
-                    	// only when we could succesfully set processing state really start processing
-                        log.trace("Trigger send process for {} [{}]", MessageUnitUtils.getMessageUnitName(msgUnit),
-                        			msgUnit.getMessageId());
-                        Axis2Sender.sendMessage(msgUnit);
-                    } else
-                        // Message probably already in process
-                        log.trace("Could not start sending [{}] because processing state was already changed",
-                        		  msgUnit.getMessageId());
+                    if (dispatcher != null && dispatcher.submit(msgUnit))
+                    	log.trace("Submitted {} [{}] to send dispatcher", MessageUnitUtils.getMessageUnitName(msgUnit),
+                    				msgUnit.getMessageId());
+                    else {
+                    	log.trace("Trigger send process for {} [{}]", MessageUnitUtils.getMessageUnitName(msgUnit),
+                    				msgUnit.getMessageId());
+                    	Axis2Sender.sendMessage(msgUnit);
+                    }
                 }
-            }
+            } while (msgUnitsToSend.size() == batchSize);
         } catch (final StorageException dbError) {
             log.error("Could not process messages because a database error occurred. Details: {}",
                         Utils.getExceptionTrace(dbError));
@@ -89,9 +113,25 @@ public class SenderWorker extends AbstractWorkerTask {
     }
 
     /**
-     * This worker does not take any configuration. Therefor the implementation of this method is empty.
+     * Configures the worker by setting the maximum number of message units that are claimed at once for sending using
+     * the <i>batchSize</i> parameter. If not specified 100 is used as the default setting.
+     *
+     * @param parameters    A <code>Map</code> containing the configuration of the worker
      */
     @Override
     public void setParameters(final Map<String, ?> parameters) throws TaskConfigurationException {
+        final Object pBatchSize = !Utils.isNullOrEmpty(parameters) ? parameters.get(P_BATCH_SIZE) : null;
+        if (pBatchSize == null)
+            batchSize = DEFAULT_BATCH_SIZE;
+        else {
+            try {
+                batchSize = Integer.parseInt(pBatchSize.toString());
+            } catch (final NumberFormatException NaN) {
+                batchSize = -1;
+            }
+            if (batchSize <= 0)
+                throw new TaskConfigurationException("Illegal value [" + pBatchSize.toString() + "] used for \""
+                                                    + P_BATCH_SIZE + "\" parameter!");
+        }
     }
 }
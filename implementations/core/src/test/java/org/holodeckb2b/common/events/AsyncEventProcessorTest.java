@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.common.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.axis2.description.Parameter;
+import org.holodeckb2b.common.events.impl.MessageDeliveryFailure;
+import org.holodeckb2b.common.messagemodel.UserMessage;
+import org.holodeckb2b.common.testhelpers.HolodeckB2BTestCore;
+import org.holodeckb2b.commons.util.MessageIdUtils;
+import org.holodeckb2b.core.config.InternalConfiguration;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEvent;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventConfiguration;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventHandler;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventHandlerFactory;
+import org.holodeckb2b.interfaces.eventprocessing.MessageProccesingEventHandlingException;
+import org.holodeckb2b.interfaces.events.IMessageDeliveryFailure;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class AsyncEventProcessorTest {
+
+	private AsyncEventProcessor processor;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception {
+		HolodeckB2BCoreInterface.setImplementation(new HolodeckB2BTestCore());
+	}
+
+	@Before
+	public void setUp() {
+		RecordingHandlerFactory.inits.set(0);
+		RecordingHandlerFactory.threads.clear();
+		RecordingHandlerFactory.block = null;
+	}
+
+	@After
+	public void cleanUp() {
+		if (processor != null)
+			processor.shutdown();
+		List<IMessageProcessingEventConfiguration> evtCfgs = HolodeckB2BCoreInterface
+																			.getMessageProcessingEventConfiguration();
+		List<String> ids = evtCfgs.stream().map(c -> c.getId()).collect(Collectors.toList());
+		ids.stream().forEach(id -> HolodeckB2BCoreInterface.removeEventHandler(id));
+	}
+
+	@Test
+	public void testAsyncHandling() throws Exception {
+		registerHandler();
+		processor = createProcessor(null, null);
+
+		final CountDownLatch block = new CountDownLatch(1);
+		RecordingHandlerFactory.block = block;
+		for (int i = 0; i < 5; i++)
+			processor.raiseEvent(createEvent());
+		// The events are queued while the handler is blocked
+		assertTrue(processor.getStatistics().iterator().next().getQueued() > 0);
+		block.countDown();
+
+		waitForProcessed(5);
+		assertEquals(1, RecordingHandlerFactory.inits.get());
+		assertEquals(5, RecordingHandlerFactory.threads.size());
+		RecordingHandlerFactory.threads.forEach(t -> assertNotEquals(Thread.currentThread(), t));
+	}
+
+	@Test
+	public void testOverflowCallerRuns() throws Exception {
+		registerHandler();
+		processor = createProcessor("1", "CALLER_RUNS");
+
+		final CountDownLatch block = new CountDownLatch(1);
+		RecordingHandlerFactory.block = block;
+		processor.raiseEvent(createEvent());
+		waitForActive();
+		processor.raiseEvent(createEvent());
+		RecordingHandlerFactory.block = null;
+		// Queue is now full, so this event is handled by the current thread
+		processor.raiseEvent(createEvent());
+		assertTrue(RecordingHandlerFactory.threads.contains(Thread.currentThread()));
+		block.countDown();
+
+		waitForProcessed(3);
+		assertEquals(0, processor.getStatistics().iterator().next().getDiscarded());
+	}
+
+	@Test
+	public void testOverflowDiscard() throws Exception {
+		registerHandler();
+		processor = createProcessor("1", "DISCARD");
+
+		final CountDownLatch block = new CountDownLatch(1);
+		RecordingHandlerFactory.block = block;
+		processor.raiseEvent(createEvent());
+		waitForActive();
+		processor.raiseEvent(createEvent());
+		processor.raiseEvent(createEvent());
+		block.countDown();
+
+		waitForProcessed(2);
+		final AsyncEventProcessor.HandlerStatistics stats = processor.getStatistics().iterator().next();
+		assertEquals(1, stats.getDiscarded());
+		assertEquals(2, RecordingHandlerFactory.threads.size());
+	}
+
+	@Test
+	public void testOverflowBlock() throws Exception {
+		registerHandler();
+		processor = createProcessor("1", null);
+
+		final CountDownLatch block = new CountDownLatch(1);
+		RecordingHandlerFactory.block = block;
+		processor.raiseEvent(createEvent());
+		waitForActive();
+		processor.raiseEvent(createEvent());
+		// Queue is now full, so raising the next event waits until the blocked handler is released
+		final long start = System.currentTimeMillis();
+		new Thread(() -> {
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			block.countDown();
+		}).start();
+		processor.raiseEvent(createEvent());
+		assertTrue(System.currentTimeMillis() - start >= 200);
+
+		waitForProcessed(3);
+		assertEquals(0, processor.getStatistics().iterator().next().getDiscarded());
+		RecordingHandlerFactory.threads.forEach(t -> assertNotEquals(Thread.currentThread(), t));
+	}
+
+	@Test
+	public void testOverflowBlockMaxWait() throws Exception {
+		registerHandler();
+		processor = createProcessor("1", "BLOCK", "100");
+
+		final CountDownLatch block = new CountDownLatch(1);
+		RecordingHandlerFactory.block = block;
+		processor.raiseEvent(createEvent());
+		waitForActive();
+		processor.raiseEvent(createEvent());
+		// Queue stays full, so the event is discarded after the maximum wait time
+		processor.raiseEvent(createEvent());
+		assertEquals(1, processor.getStatistics().iterator().next().getDiscarded());
+		block.countDown();
+
+		waitForProcessed(2);
+	}
+
+	private void registerHandler() throws MessageProccesingEventHandlingException {
+		TestEventConfig globalConfig = new TestEventConfig();
+		globalConfig.setId("async");
+		globalConfig.addEvent(IMessageDeliveryFailure.class);
+		globalConfig.setFactoryClass(RecordingHandlerFactory.class.getName());
+		globalConfig.setHandlerSettings(Collections.emptyMap());
+		HolodeckB2BCoreInterface.registerEventHandler(globalConfig);
+	}
+
+	private static AsyncEventProcessor createProcessor(String queueSize, String policy) throws Exception {
+		return createProcessor(queueSize, policy, null);
+	}
+
+	private static AsyncEventProcessor createProcessor(String queueSize, String policy, String maxWait)
+																									throws Exception {
+		InternalConfiguration config = new InternalConfiguration(Paths.get("."));
+		if (queueSize != null)
+			config.addParameter(new Parameter(AsyncEventProcessor.P_QUEUE_SIZE, queueSize));
+		if (policy != null)
+			config.addParameter(new Parameter(AsyncEventProcessor.P_OVERFLOW_POLICY, policy));
+		if (maxWait != null)
+			config.addParameter(new Parameter(AsyncEventProcessor.P_OVERFLOW_MAX_WAIT, maxWait));
+		AsyncEventProcessor processor = new AsyncEventProcessor();
+		processor.init(config);
+		return processor;
+	}
+
+	private static IMessageProcessingEvent createEvent() {
+		UserMessage userMessage = new UserMessage();
+		userMessage.setMessageId(MessageIdUtils.createMessageId());
+		return new MessageDeliveryFailure(userMessage, null);
+	}
+
+	private void waitForActive() throws InterruptedException {
+		for (int i = 0; i < 100 && processor.getStatistics().iterator().next().getActive() == 0; i++)
+			Thread.sleep(50);
+		// Give the worker time to take the event from the queue
+		for (int i = 0; i < 100 && processor.getStatistics().iterator().next().getQueued() > 0; i++)
+			Thread.sleep(50);
+	}
+
+	private void waitForProcessed(long n) throws InterruptedException {
+		for (int i = 0; i < 100 && processor.getStatistics().iterator().next().getProcessed() < n; i++)
+			Thread.sleep(50);
+		assertEquals(n, processor.getStatistics().iterator().next().getProcessed());
+	}
+
+	public static class RecordingHandlerFactory implements IMessageProcessingEventHandlerFactory {
+		static final AtomicInteger inits = new AtomicInteger();
+		static final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+		static volatile CountDownLatch block;
+
+		@Override
+		public void init(Map<String, ?> settings) throws MessageProccesingEventHandlingException {
+			inits.incrementAndGet();
+		}
+
+		@Override
+		public IMessageProcessingEventHandler createHandler() throws MessageProccesingEventHandlingException {
+			return new IMessageProcessingEventHandler() {
+				@Override
+				public void handleEvent(IMessageProcessingEvent event) throws MessageProccesingEventHandlingException {
+					final CountDownLatch latch = block;
+					if (latch != null)
+						try {
+							latch.await(5, TimeUnit.SECONDS);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					threads.add(Thread.currentThread());
+				}
+			};
+		}
+	}
+}
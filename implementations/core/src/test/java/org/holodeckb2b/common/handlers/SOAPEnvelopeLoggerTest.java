@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.common.handlers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.om.OMAbstractFactory;
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMNamespace;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axiom.soap.SOAPFactory;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+public class SOAPEnvelopeLoggerTest {
+
+	private static final String LARGE_TEXT = "x".repeat(10000);
+
+	private static final String SOAP_ENV =
+			"<soapenv:Envelope xmlns:soapenv=\"http://www.w3.org/2003/05/soap-envelope\">"
+			+ "<soapenv:Header><h:Info xmlns:h=\"urn:header\" h:attr=\"value\">header text</h:Info></soapenv:Header>"
+			+ "<soapenv:Body><p:Payload xmlns:p=\"urn:test\" xmlns=\"urn:default\"><Item a=\"1\">" + LARGE_TEXT
+			+ "</Item><Item a=\"2\"><!-- comment --></Item></p:Payload></soapenv:Body>"
+			+ "</soapenv:Envelope>";
+
+	@Test
+	void testCompleteEnvelope() throws Exception {
+		SOAPEnvelope env = createEnvelope();
+		StringWriter out = new StringWriter();
+
+		SOAPEnvelopeLogger.serialize(env, out, -1);
+
+		assertTrue(parse(SOAP_ENV).getDocumentElement().isEqualNode(parse(out.toString()).getDocumentElement()));
+		// The Axiom tree should still be complete
+		assertEquals(LARGE_TEXT, env.getBody().getFirstElement().getFirstElement().getText());
+	}
+
+	@Test
+	void testTruncatedBody() throws Exception {
+		SOAPEnvelope env = createEnvelope();
+		StringWriter out = new StringWriter();
+
+		SOAPEnvelopeLogger.serialize(env, out, 100);
+
+		String logged = out.toString();
+		assertTrue(logged.length() < 500);
+		assertTrue(logged.contains("Body content truncated"));
+		assertTrue(logged.contains("header text"));
+		Document doc = parse(logged);
+		assertEquals("Payload", doc.getElementsByTagNameNS("urn:test", "Payload").item(0).getLocalName());
+		assertEquals(1, doc.getElementsByTagNameNS("urn:default", "Item").getLength());
+		assertEquals(LARGE_TEXT, env.getBody().getFirstElement().getFirstElement().getText());
+	}
+
+	@Test
+	void testOmittedBody() throws Exception {
+		SOAPEnvelope env = createEnvelope();
+		StringWriter out = new StringWriter();
+
+		SOAPEnvelopeLogger.serialize(env, out, 0);
+
+		String logged = out.toString();
+		assertTrue(logged.contains("Body content omitted"));
+		assertFalse(logged.contains("Payload"));
+		assertNotNull(parse(logged).getElementsByTagNameNS("http://www.w3.org/2003/05/soap-envelope", "Body")
+									.item(0));
+	}
+
+	@Test
+	void testCreatedEnvelope() throws Exception {
+		SOAPFactory factory = OMAbstractFactory.getSOAP12Factory();
+		SOAPEnvelope env = factory.getDefaultEnvelope();
+		OMNamespace ns = factory.createOMNamespace("urn:created", "c");
+		OMElement hdr = factory.createOMElement("Header", ns, env.getHeader());
+		hdr.addAttribute("attr", "value", ns);
+		factory.createOMElement("Content", ns, env.getBody()).setText("content");
+		StringWriter out = new StringWriter();
+
+		SOAPEnvelopeLogger.serialize(env, out, -1);
+
+		Document doc = parse(out.toString());
+		assertEquals("value", ((org.w3c.dom.Element) doc.getElementsByTagNameNS("urn:created", "Header").item(0))
+																			.getAttributeNS("urn:created", "attr"));
+		assertEquals("content", doc.getElementsByTagNameNS("urn:created", "Content").item(0).getTextContent());
+	}
+
+	private static SOAPEnvelope createEnvelope() {
+		return OMXMLBuilderFactory.createSOAPModelBuilder(new StringReader(SOAP_ENV)).getSOAPEnvelope();
+	}
+
+	private static Document parse(String xml) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -40,6 +40,7 @@ public class CustomValidationConfigurationTest extends AbstractBaseTest<CustomVa
 				"<CustomValidation  xmlns:tns=\"http://holodeck-b2b.org/schemas/2014/10/pmode\"" + 
 		        " 					xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">" +
 				"	<ExecuteInOrder>true</ExecuteInOrder>" +
+				"	<ExecuteInParallel>true</ExecuteInParallel>" +
 				"	<StopValidationOn>FAILURE</StopValidationOn>" +
 				"	<RejectMessageOn>WARN</RejectMessageOn>" +
 				"	<Validator>" +
@@ -54,6 +55,7 @@ public class CustomValidationConfigurationTest extends AbstractBaseTest<CustomVa
 		
 		assertNotNull(cvc);
 		assertTrue(cvc.mustExecuteInOrder());
+		assertTrue(cvc.executeInParallel());
 		assertEquals(MessageValidationError.Severity.Failure, cvc.getStopSeverity());
 		assertEquals(MessageValidationError.Severity.Warning, cvc.getRejectionSeverity());
 		assertFalse(Utils.isNullOrEmpty(cvc.getValidators()));
@@ -73,6 +75,7 @@ public class CustomValidationConfigurationTest extends AbstractBaseTest<CustomVa
 		
 		assertNotNull(cvc);
 		assertFalse(cvc.mustExecuteInOrder());
+		assertNull(cvc.executeInParallel());
 		assertNull(cvc.getStopSeverity());
 		assertNull(cvc.getRejectionSeverity());		
 	}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.common.pmode;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import org.holodeckb2b.interfaces.pmode.IPMode;
+import org.holodeckb2b.interfaces.pmode.PModeSetException;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryPModeSetTest {
+
+	@Test
+	void testAddAndGet() {
+		InMemoryPModeSet pmodes = new InMemoryPModeSet();
+		PMode pmode = createPMode();
+
+		assertEquals(pmode.getId(), assertDoesNotThrow(() -> pmodes.add(pmode)));
+		assertTrue(pmodes.containsId(pmode.getId()));
+		assertSame(pmode, pmodes.get(pmode.getId()));
+		assertNull(pmodes.get(null));
+		assertFalse(pmodes.containsId(null));
+
+		assertThrows(PModeSetException.class, () -> pmodes.add(pmode));
+
+		PMode noId = new PMode();
+		String generatedId = assertDoesNotThrow(() -> pmodes.add(noId));
+		assertNotNull(generatedId);
+		assertSame(noId, pmodes.get(generatedId));
+	}
+
+	@Test
+	void testReplaceAndRemove() {
+		InMemoryPModeSet pmodes = new InMemoryPModeSet();
+		PMode pmode = createPMode();
+		assertThrows(PModeSetException.class, () -> pmodes.replace(pmode));
+		assertDoesNotThrow(() -> pmodes.add(pmode));
+
+		PMode changed = new PMode(pmode);
+		assertDoesNotThrow(() -> pmodes.replace(changed));
+		assertSame(changed, pmodes.get(pmode.getId()));
+
+		assertDoesNotThrow(() -> pmodes.remove(pmode.getId()));
+		assertFalse(pmodes.containsId(pmode.getId()));
+		assertDoesNotThrow(() -> pmodes.remove(pmode.getId()));
+	}
+
+	@Test
+	void testSnapshot() {
+		InMemoryPModeSet pmodes = new InMemoryPModeSet();
+		PMode pmode1 = createPMode();
+		assertDoesNotThrow(() -> pmodes.add(pmode1));
+
+		Collection<IPMode> snapshot = pmodes.getAll();
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.clear());
+
+		PMode pmode2 = createPMode();
+		assertDoesNotThrow(() -> pmodes.add(pmode2));
+		assertDoesNotThrow(() -> pmodes.remove(pmode1.getId()));
+
+		assertEquals(1, snapshot.size());
+		assertSame(pmode1, snapshot.iterator().next());
+		assertEquals(1, pmodes.getAll().size());
+		assertSame(pmode2, pmodes.getAll().iterator().next());
+
+		assertDoesNotThrow(() -> pmodes.removeAll());
+		assertTrue(pmodes.getAll().isEmpty());
+	}
+
+	private static PMode createPMode() {
+		PMode pmode = new PMode();
+		pmode.setId(UUID.randomUUID().toString());
+		return pmode;
+	}
+}
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.holodeckb2b.common.messagemodel.PullRequest;
+import org.holodeckb2b.common.testhelpers.HolodeckB2BTestCore;
+import org.holodeckb2b.core.storage.QueryManager;
+import org.holodeckb2b.core.storage.StorageManager;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
+import org.holodeckb2b.interfaces.storage.IPullRequestEntity;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class SendDispatcherTest {
+
+	private static HolodeckB2BTestCore testCore;
+
+	@BeforeAll
+	static void setUpClass() throws Exception {
+		testCore = new HolodeckB2BTestCore();
+		HolodeckB2BCoreInterface.setImplementation(testCore);
+	}
+
+	@Test
+	void testNotQueuedWithoutWorkers() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+
+		IPullRequestEntity pullRequest = storageManager.storeOutGoingMessageUnit(new PullRequest());
+		storageManager.setProcessingState(pullRequest, ProcessingState.PROCESSING);
+		assertFalse(dispatcher.submit(pullRequest));
+
+		// Once a worker has polled, message units are accepted
+		assertFalse(dispatcher.sendNext(0));
+		assertTrue(dispatcher.submit(pullRequest));
+		dispatcher.shutdown(1);
+		assertTrue(dispatcher.isShutdown());
+		assertFalse(dispatcher.submit(pullRequest));
+		assertEquals(ProcessingState.READY_TO_PUSH, testCore.getQueryManager()
+														.getMessageUnitWithCoreId(pullRequest.getCoreId())
+														.getCurrentProcessingState().getState());
+	}
+
+	@Test
+	void testQueueSize() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+		dispatcher.configure(1, 2);
+		dispatcher.sendNext(0);
+
+		for (int i = 0; i < 3; i++) {
+			IPullRequestEntity pullRequest = storageManager.storeOutGoingMessageUnit(new PullRequest());
+			storageManager.setProcessingState(pullRequest, ProcessingState.PROCESSING);
+			assertEquals(i < 2, dispatcher.submit(pullRequest));
+		}
+		assertEquals(2, dispatcher.getStatistics().iterator().next().getQueued());
+		dispatcher.shutdown(1);
+	}
+
+	@Test
+	void testDispatchOnReadyToPush() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+		storageManager.setSendDispatcher(dispatcher);
+		List<Thread> workers = startWorkers(dispatcher, 2);
+
+		// As the Pull Request has no P-Mode the dispatcher should claim it and then set it to failed
+		IPullRequestEntity pullRequest = storageManager.storeOutGoingMessageUnit(new PullRequest());
+		storageManager.setProcessingState(pullRequest, ProcessingState.READY_TO_PUSH);
+		awaitProcessed(dispatcher, 1);
+		storageManager.setSendDispatcher(null);
+		stopWorkers(dispatcher, workers);
+
+		assertEquals(ProcessingState.FAILURE, testCore.getQueryManager()
+														.getMessageUnitWithCoreId(pullRequest.getCoreId())
+														.getCurrentProcessingState().getState());
+	}
+
+	@Test
+	void testSkipAlreadyClaimed() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+		List<Thread> workers = startWorkers(dispatcher, 1);
+
+		IPullRequestEntity pullRequest = storageManager.storeOutGoingMessageUnit(new PullRequest());
+		storageManager.setProcessingState(pullRequest, ProcessingState.READY_TO_PUSH);
+		storageManager.setProcessingState(pullRequest, ProcessingState.PROCESSING);
+		dispatcher.dispatch(pullRequest);
+		awaitProcessed(dispatcher, 1);
+		stopWorkers(dispatcher, workers);
+
+		assertEquals(ProcessingState.PROCESSING, testCore.getQueryManager()
+														.getMessageUnitWithCoreId(pullRequest.getCoreId())
+														.getCurrentProcessingState().getState());
+	}
+
+	@Test
+	void testSubmitClaimedWithStatistics() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+		dispatcher.configure(1, 10);
+		List<Thread> workers = startWorkers(dispatcher, 3);
+
+		List<IPullRequestEntity> claimed = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			IPullRequestEntity pullRequest = storageManager.storeOutGoingMessageUnit(new PullRequest());
+			storageManager.setProcessingState(pullRequest, ProcessingState.PROCESSING);
+			claimed.add(pullRequest);
+		}
+		for (IPullRequestEntity pr : claimed)
+			assertTrue(dispatcher.submit(pr));
+
+		Collection<SendDispatcher.DestinationStatistics> stats = awaitProcessed(dispatcher, 3);
+		stopWorkers(dispatcher, workers);
+
+		assertEquals(1, stats.size());
+		SendDispatcher.DestinationStatistics destStats = stats.iterator().next();
+		assertEquals("pmode:null", destStats.getDestination());
+		assertEquals(3, destStats.getProcessed());
+		assertEquals(0, destStats.getQueued());
+		assertEquals(0, destStats.getActive());
+		for (IPullRequestEntity pr : claimed)
+			assertEquals(ProcessingState.FAILURE, testCore.getQueryManager().getMessageUnitWithCoreId(pr.getCoreId())
+																		.getCurrentProcessingState().getState());
+	}
+
+	@Test
+	void testRecoverClaimed() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+
+		IPullRequestEntity claimed = storageManager.storeOutGoingMessageUnit(new PullRequest());
+		storageManager.setProcessingState(claimed, ProcessingState.READY_TO_PUSH);
+		storageManager.setProcessingState(claimed, ProcessingState.PROCESSING);
+		IPullRequestEntity other = storageManager.storeOutGoingMessageUnit(new PullRequest());
+		storageManager.setProcessingState(other, ProcessingState.PROCESSING);
+
+		dispatcher.recoverClaimedMessageUnits();
+
+		assertEquals(ProcessingState.READY_TO_PUSH, testCore.getQueryManager()
+														.getMessageUnitWithCoreId(claimed.getCoreId())
+														.getCurrentProcessingState().getState());
+		assertEquals(ProcessingState.PROCESSING, testCore.getQueryManager()
+														.getMessageUnitWithCoreId(other.getCoreId())
+														.getCurrentProcessingState().getState());
+		dispatcher.shutdown(1);
+	}
+
+	@Test
+	void testRemoveIdleDestination() throws Exception {
+		StorageManager storageManager = testCore.getStorageManager();
+		SendDispatcher dispatcher = new SendDispatcher(storageManager, (QueryManager) testCore.getQueryManager());
+		dispatcher.sendNext(0);
+
+		IPullRequestEntity pullRequest = storageManager.storeOutGoingMessageUnit(new PullRequest());
+		storageManager.setProcessingState(pullRequest, ProcessingState.PROCESSING);
+		assertTrue(dispatcher.submit(pullRequest));
+		assertTrue(dispatcher.sendNext(0));
+		assertEquals(1, dispatcher.getStatistics().size());
+
+		// Move the time of last sweep and use back so the destination is idle
+		setLongField(dispatcher, "lastSweep", 0);
+		Field destFld = SendDispatcher.class.getDeclaredField("destinations");
+		destFld.setAccessible(true);
+		for (Object d : ((Map<?, ?>) destFld.get(dispatcher)).values()) {
+			Field lastUsed = d.getClass().getDeclaredField("lastUsed");
+			lastUsed.setAccessible(true);
+			lastUsed.setLong(d, System.currentTimeMillis() - SendDispatcher.DESTINATION_IDLE_TIME - 1);
+		}
+		assertFalse(dispatcher.sendNext(0));
+		assertTrue(dispatcher.getStatistics().isEmpty());
+		dispatcher.shutdown(1);
+	}
+
+	private static List<Thread> startWorkers(SendDispatcher dispatcher, int n) throws InterruptedException {
+		List<Thread> workers = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			Thread t = new Thread(() -> {
+				try {
+					while (!dispatcher.isShutdown())
+						dispatcher.sendNext(100);
+				} catch (InterruptedException stopped) {
+				}
+			});
+			t.start();
+			workers.add(t);
+		}
+		// Make sure the workers have polled the dispatcher
+		Thread.sleep(20);
+		return workers;
+	}
+
+	private static void stopWorkers(SendDispatcher dispatcher, List<Thread> workers) throws InterruptedException {
+		dispatcher.shutdown(5);
+		for (Thread t : workers)
+			t.join(1000);
+	}
+
+	private static Collection<SendDispatcher.DestinationStatistics> awaitProcessed(SendDispatcher dispatcher, int n)
+																						throws InterruptedException {
+		final long timeout = System.currentTimeMillis() + 5000;
+		Collection<SendDispatcher.DestinationStatistics> stats;
+		do {
+			Thread.sleep(10);
+			stats = dispatcher.getStatistics();
+		} while (stats.stream().mapToLong(SendDispatcher.DestinationStatistics::getProcessed).sum() < n
+				&& System.currentTimeMillis() < timeout);
+		return stats;
+	}
+
+	private static void setLongField(SendDispatcher dispatcher, String name, long value) throws Exception {
+		Field fld = SendDispatcher.class.getDeclaredField(name);
+		fld.setAccessible(true);
+		fld.setLong(dispatcher, value);
+	}
+}
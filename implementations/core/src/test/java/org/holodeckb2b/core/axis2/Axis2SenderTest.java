@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.axis2;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.apache.axis2.client.OperationClient;
+import org.apache.axis2.description.AxisService;
+import org.apache.axis2.engine.AxisConfiguration;
+import org.holodeckb2b.common.testhelpers.HolodeckB2BTestCore;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class Axis2SenderTest {
+
+	private static HolodeckB2BTestCore testCore;
+
+	@BeforeAll
+	static void setUpClass() throws Exception {
+		testCore = new HolodeckB2BTestCore();
+		HolodeckB2BCoreInterface.setImplementation(testCore);
+	}
+
+	@Test
+	void testSendPipelineReused() throws Exception {
+		AxisConfiguration axisConfig = testCore.getConfiguration();
+		axisConfig.addService(new AxisService("cached"));
+
+		Axis2Sender.SendPipeline pipeline = Axis2Sender.getSendPipeline("cached");
+		assertNotNull(pipeline);
+		assertSame(pipeline, Axis2Sender.getSendPipeline("cached"));
+
+		OperationClient oc1 = pipeline.createClient();
+		OperationClient oc2 = pipeline.createClient();
+		assertNotSame(oc1, oc2);
+		assertNotSame(oc1.getOptions(), oc2.getOptions());
+		// Each send must use its own contexts
+		assertNotSame(oc1.getOperationContext(), oc2.getOperationContext());
+		assertNotSame(oc1.getOperationContext().getServiceContext(), oc2.getOperationContext().getServiceContext());
+		assertNotSame(oc1.getOperationContext().getServiceContext().getServiceGroupContext(),
+					  oc2.getOperationContext().getServiceContext().getServiceGroupContext());
+	}
+
+	@Test
+	void testSendPipelineRebuiltOnServiceChange() throws Exception {
+		AxisConfiguration axisConfig = testCore.getConfiguration();
+		axisConfig.addService(new AxisService("changing"));
+
+		Axis2Sender.SendPipeline pipeline = Axis2Sender.getSendPipeline("changing");
+		assertNotNull(pipeline);
+
+		axisConfig.removeService("changing");
+		assertNull(Axis2Sender.getSendPipeline("changing"));
+
+		AxisService redeployed = new AxisService("changing");
+		axisConfig.addService(redeployed);
+		Axis2Sender.SendPipeline newPipeline = Axis2Sender.getSendPipeline("changing");
+		assertNotSame(pipeline, newPipeline);
+		assertSame(redeployed, newPipeline.service);
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.core.axis2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.axiom.om.OMElement;
+import org.apache.axiom.om.OMXMLBuilderFactory;
+import org.apache.axiom.soap.SOAPEnvelope;
+import org.apache.axis2.context.MessageContext;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+public class Axis2UtilsTest {
+
+	private static final String SOAP_ENV =
+			"<soapenv:Envelope xmlns:soapenv=\"http://www.w3.org/2003/05/soap-envelope\""
+			+ " xmlns:wsu=\"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd\">"
+			+ "<soapenv:Header>"
+			+ "<eb:Messaging xmlns:eb=\"http://docs.oasis-open.org/ebxml-msg/ebms/v3.0/ns/core/200704/\" "
+			+ "soapenv:mustUnderstand=\"true\" wsu:Id=\"ebMessaging\">"
+			+ "<eb:UserMessage><eb:MessageInfo><eb:Timestamp>2025-01-01T12:00:00Z</eb:Timestamp>"
+			+ "<eb:MessageId>test@holodeck-b2b.org</eb:MessageId></eb:MessageInfo></eb:UserMessage>"
+			+ "</eb:Messaging>"
+			+ "</soapenv:Header>"
+			+ "<soapenv:Body wsu:Id=\"body\"><p:Payload xmlns:p=\"urn:test\" xmlns=\"urn:default\">"
+			+ "<Item attr=\"a &amp; b\">Text with &lt;markup&gt;</Item><!-- comment --></p:Payload></soapenv:Body>"
+			+ "</soapenv:Envelope>";
+
+	@Test
+	void testConvertAxiomSOAPEnvToDOM() throws Exception {
+		MessageContext mc = new MessageContext();
+		mc.setEnvelope(OMXMLBuilderFactory.createSOAPModelBuilder(new StringReader(SOAP_ENV)).getSOAPEnvelope());
+
+		Document converted = Axis2Utils.convertAxiomSOAPEnvToDOM(mc);
+
+		assertNotNull(converted);
+		assertTrue(parse(SOAP_ENV).getDocumentElement().isEqualNode(converted.getDocumentElement()));
+		// The Axiom tree should still be usable after conversion
+		assertNotNull(mc.getEnvelope().getHeader().getFirstElement());
+	}
+
+	@Test
+	void testConvertDOMSOAPEnvToAxiom() throws Exception {
+		Document document = parse(SOAP_ENV);
+
+		SOAPEnvelope env = Axis2Utils.convertDOMSOAPEnvToAxiom(document);
+
+		assertNotNull(env);
+		OMElement messaging = env.getHeader().getFirstElement();
+		assertEquals("Messaging", messaging.getLocalName());
+		assertEquals("ebMessaging", messaging.getAttributeValue(new QName(
+						"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-utility-1.0.xsd", "Id")));
+		assertEquals("Payload", env.getBody().getFirstElement().getLocalName());
+
+		MessageContext mc = new MessageContext();
+		mc.setEnvelope(env);
+		assertTrue(document.getDocumentElement().isEqualNode(
+												Axis2Utils.convertAxiomSOAPEnvToDOM(mc).getDocumentElement()));
+	}
+
+	private static Document parse(String xml) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+	}
+}
@@ -18,18 +18,25 @@ package org.holodeckb2b.core.storage;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.axis2.AxisFault;
 import org.holodeckb2b.common.errors.OtherContentError;
@@ -64,6 +71,8 @@ import org.holodeckb2b.interfaces.storage.IPullRequestEntity;
 import org.holodeckb2b.interfaces.storage.IReceiptEntity;
 import org.holodeckb2b.interfaces.storage.ISelectivePullRequestEntity;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
+import org.holodeckb2b.interfaces.storage.providers.AlreadyChangedException;
+import org.holodeckb2b.interfaces.storage.providers.StorageException;
 import org.holodeckb2b.test.storage.InMemoryMDSProvider;
 import org.holodeckb2b.test.storage.InMemoryPSProvider;
 import org.holodeckb2b.test.storage.PayloadEntity;
@@ -181,6 +190,11 @@ class StorageManagerTest {
 						 .filter(p -> equalContent(p, TestUtils.getTestResource("flower.jpg"))).count() == 1);
 		assertTrue(entity.getPayloads().stream()
 						.filter(p -> equalContent(p, TestUtils.getTestResource("kitten.jpg"))).count() == 1);
+
+		for(IPayloadEntity pe : entity.getPayloads()) {
+			assertEquals("image/jpeg", pe.getMimeType());
+			assertTrue(pe.getContentLength() > 0);
+		}
 	}
 
 	@Test
@@ -279,6 +293,29 @@ class StorageManagerTest {
 		assertEquals(1, psProvider.getPayloadCount());
 
 		assertTrue(equalContent(plEntity, TestUtils.getTestResource("flower.jpg")));
+
+		assertEquals("image/jpeg", plEntity.getMimeType());
+		assertEquals(TestUtils.getTestResource("flower.jpg").toFile().length(), plEntity.getContentLength());
+		IPayloadEntity stored = mdsProvider.getPayloadMetadata(plEntity.getPayloadId());
+		assertEquals("image/jpeg", stored.getMimeType());
+		assertEquals(plEntity.getContentLength(), stored.getContentLength());
+	}
+
+	@Test
+	void testStoreSubmittedPayloadKeepsMimeType() {
+		final byte[] data = "<?xml version=\"1.0\"?><document/>".getBytes();
+		Payload pl = new Payload();
+		pl.setContainment(Containment.ATTACHMENT);
+		pl.setMimeType("application/vnd.example+xml");
+		pl.setContentStream(new ByteArrayInputStream(data));
+
+		final PMode pmode = new PMode();
+		pmode.setId(UUID.randomUUID().toString());
+		IPayloadEntity plEntity = assertDoesNotThrow(() ->
+												HolodeckB2BCore.getStorageManager().storeSubmittedPayload(pl, pmode));
+
+		assertEquals("application/vnd.example+xml", plEntity.getMimeType());
+		assertEquals(data.length, plEntity.getContentLength());
 	}
 
 	@Test
@@ -363,6 +400,189 @@ class StorageManagerTest {
 		assertTrue(err.shouldHaveSOAPFault());
 	}
 
+	@Test
+	void testUnitOfWork() throws Exception {
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		IMessageUnitEntity mu = storageManager.storeReceivedMessageUnit(new UserMessage());
+
+		storageManager.beginUnitOfWork();
+		try {
+			storageManager.setPModeId(mu, "pm-uow");
+			storageManager.setMultiHop(mu, true);
+			// The updates should be pending
+			assertNull(mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+			assertFalse(mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).usesMultiHop());
+		} finally {
+			storageManager.completeUnitOfWork();
+		}
+		assertEquals("pm-uow", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+		assertTrue(mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).usesMultiHop());
+
+		// Changes made after completion are saved immediately again
+		storageManager.setPModeId(mu, "pm-direct");
+		assertEquals("pm-direct", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+	}
+
+	@Test
+	void testUnitOfWorkCheckpoints() throws Exception {
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		IMessageUnitEntity mu = storageManager.storeReceivedMessageUnit(new UserMessage());
+		IMessageUnitEntity rcpt = storageManager.storeReceivedMessageUnit(new Receipt());
+
+		storageManager.beginUnitOfWork();
+		try {
+			storageManager.setPModeId(rcpt, "pm-rcpt");
+			storageManager.setPModeId(mu, "pm-um");
+			assertNull(mdsProvider.getMessageUnitWithCoreId(rcpt.getCoreId()).getPModeId());
+
+			// A state change is saved immediately, together with the pending updates of the same message unit only
+			assertTrue(storageManager.setProcessingState(mu, ProcessingState.PROCESSING));
+			assertEquals(ProcessingState.PROCESSING,
+						 mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getCurrentProcessingState().getState());
+			assertEquals("pm-um", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+			assertNull(mdsProvider.getMessageUnitWithCoreId(rcpt.getCoreId()).getPModeId());
+
+			assertTrue(storageManager.setProcessingState(mu, ProcessingState.READY_FOR_DELIVERY));
+			assertEquals(ProcessingState.READY_FOR_DELIVERY,
+						 mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getCurrentProcessingState().getState());
+			assertTrue(storageManager.setProcessingState(rcpt, ProcessingState.DONE));
+			assertEquals(ProcessingState.DONE,
+						 mdsProvider.getMessageUnitWithCoreId(rcpt.getCoreId()).getCurrentProcessingState().getState());
+			assertEquals("pm-rcpt", mdsProvider.getMessageUnitWithCoreId(rcpt.getCoreId()).getPModeId());
+
+			// Queries should include the pending updates
+			storageManager.setPModeId(mu, "pm-query");
+			assertEquals("pm-query", HolodeckB2BCore.getQueryManager().getMessageUnitWithCoreId(mu.getCoreId())
+																	.getPModeId());
+		} finally {
+			storageManager.completeUnitOfWork();
+		}
+	}
+
+	@Test
+	void testUnitOfWorkConflictingStateChange() throws Exception {
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		IMessageUnitEntity stored = storageManager.storeReceivedMessageUnit(new UserMessage());
+		storageManager.setProcessingState(stored, ProcessingState.OUT_FOR_DELIVERY);
+		final IMessageUnitEntity mu = mdsProvider.getMessageUnitWithCoreId(stored.getCoreId());
+		final IMessageUnitEntity other = mdsProvider.getMessageUnitWithCoreId(stored.getCoreId());
+
+		storageManager.beginUnitOfWork();
+		try {
+			// Another thread, without unit of work, changes the state first
+			assertTrue(runInOtherThread(() -> storageManager.setProcessingState(other, ProcessingState.FAILURE)));
+
+			// The conflicting change must be reported immediately and not be deferred
+			assertFalse(storageManager.setProcessingState(mu, ProcessingState.DELIVERED));
+			assertEquals(ProcessingState.FAILURE, mu.getCurrentProcessingState().getState());
+		} finally {
+			storageManager.completeUnitOfWork();
+		}
+		assertEquals(ProcessingState.FAILURE,
+					 mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getCurrentProcessingState().getState());
+	}
+
+	@Test
+	void testUnitOfWorkDeferredConflictReported() throws Exception {
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		IMessageUnitEntity stored = storageManager.storeReceivedMessageUnit(new Receipt());
+		final IMessageUnitEntity mu = mdsProvider.getMessageUnitWithCoreId(stored.getCoreId());
+
+		storageManager.beginUnitOfWork();
+		try {
+			storageManager.setPModeId(mu, "pm-deferred");
+			runInOtherThread(() -> { storageManager.setPModeId(stored, "pm-concurrent"); return null; });
+		} finally {
+			assertThrows(AlreadyChangedException.class, () -> storageManager.completeUnitOfWork());
+		}
+		assertEquals("pm-concurrent", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+		assertEquals("pm-concurrent", mu.getPModeId());
+	}
+
+	private static <T> T runInOtherThread(final Callable<T> task) throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return executor.submit(task).get();
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void testUnitOfWorkKeepsFailedUpdates() throws Exception {
+		final Set<String> failing = new HashSet<>();
+		final InMemoryMDSProvider provider = new InMemoryMDSProvider() {
+			@Override
+			public void updateMessageUnit(IMessageUnitEntity messageUnit) throws StorageException {
+				if (failing.contains(messageUnit.getCoreId()))
+					throw new StorageException("Simulated failure");
+				super.updateMessageUnit(messageUnit);
+			}
+		};
+		IMessageUnitEntity mu1 = provider.storeMessageUnit(new Receipt());
+		IMessageUnitEntity mu2 = provider.storeMessageUnit(new Receipt());
+
+		UnitOfWork.begin(provider);
+		try {
+			final UnitOfWork uow = UnitOfWork.getCurrent();
+			mu1.setPModeId("pm-1");
+			uow.defer(mu1);
+			mu2.setPModeId("pm-2");
+			uow.defer(mu2);
+
+			failing.add(mu1.getCoreId());
+			assertThrows(StorageException.class, () -> uow.flush());
+			// The update that could be saved is saved, the failed one is kept
+			assertEquals("pm-2", provider.getMessageUnitWithCoreId(mu2.getCoreId()).getPModeId());
+			assertNull(provider.getMessageUnitWithCoreId(mu1.getCoreId()).getPModeId());
+
+			failing.clear();
+			assertDoesNotThrow(() -> uow.flush());
+			assertEquals("pm-1", provider.getMessageUnitWithCoreId(mu1.getCoreId()).getPModeId());
+		} finally {
+			UnitOfWork.complete();
+		}
+	}
+
+	@Test
+	void testNestedUnitOfWork() throws Exception {
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		IMessageUnitEntity mu = storageManager.storeReceivedMessageUnit(new Receipt());
+
+		storageManager.beginUnitOfWork();
+		try {
+			storageManager.beginUnitOfWork();
+			storageManager.completeUnitOfWork();
+			// Still in the outer unit of work
+			storageManager.setPModeId(mu, "pm-nested");
+			assertNull(mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+		} finally {
+			storageManager.completeUnitOfWork();
+		}
+		assertEquals("pm-nested", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+	}
+
+	@Test
+	void testCompleteUnitOfWorkWithOpenNested() throws Exception {
+		final StorageManager storageManager = HolodeckB2BCore.getStorageManager();
+		IMessageUnitEntity mu = storageManager.storeReceivedMessageUnit(new Receipt());
+
+		final int outer = storageManager.beginUnitOfWork();
+		try {
+			assertEquals(outer + 1, storageManager.beginUnitOfWork());
+			// The nested unit of work is never completed, e.g. because the flow was aborted
+			storageManager.setPModeId(mu, "pm-aborted");
+			assertNull(mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+		} finally {
+			storageManager.completeUnitOfWork(outer);
+		}
+		assertEquals("pm-aborted", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+
+		// No unit of work should remain bound to the thread
+		storageManager.setPModeId(mu, "pm-direct");
+		assertEquals("pm-direct", mdsProvider.getMessageUnitWithCoreId(mu.getCoreId()).getPModeId());
+	}
+
 	@Test
 	void testUpdatePayloadInfo() throws FileNotFoundException {
 		Payload pl = new Payload();
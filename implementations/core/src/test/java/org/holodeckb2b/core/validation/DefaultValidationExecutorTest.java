@@ -1,5 +1,6 @@
 package org.holodeckb2b.core.validation;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -8,8 +9,11 @@ import static org.junit.Assert.assertTrue;
 import org.holodeckb2b.common.messagemodel.UserMessage;
 import org.holodeckb2b.common.pmode.CustomValidationConfiguration;
 import org.holodeckb2b.common.pmode.MessageValidatorConfiguration;
+import org.holodeckb2b.common.pmode.PMode;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.customvalidation.MessageValidationError.Severity;
+import org.holodeckb2b.interfaces.pmode.PModeSetEvent;
+import org.holodeckb2b.interfaces.pmode.PModeSetEvent.PModeSetAction;
 import org.junit.Test;
 
 /**
@@ -90,6 +94,79 @@ public class DefaultValidationExecutorTest {
     	assertNotNull(result.getValidationErrors().get("infoValidator"));
     	assertNotNull(result.getValidationErrors().get("warningValidator"));    	
     }
+
+    @Test
+    public void testFactoryCaching() throws Exception {
+    	CustomValidationConfiguration validationSpec = new CustomValidationConfiguration();
+    	validationSpec.setStopSeverity(Severity.Failure);
+    	
+    	MessageValidatorConfiguration validator = new MessageValidatorConfiguration();
+    	validator.setId("cachedValidator");
+    	validator.setFactory(ValidatorMock.Factory.class.getName());
+    	validator.addSetting(ValidatorMock.SEVERITY, Severity.Warning);        
+    	validationSpec.addValidator(validator);
+    	
+    	DefaultValidationExecutor executor = new DefaultValidationExecutor();
+    	int inits = ValidatorMock.Factory.initCount.get();
+    	for (int i = 0; i < 3; i++)
+    		assertNotNull(executor.validate(new UserMessage(), validationSpec).getValidationErrors()
+    																		.get("cachedValidator"));
+    	assertEquals(inits + 1, ValidatorMock.Factory.initCount.get());
+    	
+    	executor.handleEvent(new PModeSetEvent(new PMode(), PModeSetAction.UPDATE));
+    	executor.validate(new UserMessage(), validationSpec);
+    	assertEquals(inits + 2, ValidatorMock.Factory.initCount.get());
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+    	CustomValidationConfiguration validationSpec = new CustomValidationConfiguration();
+    	validationSpec.setExecuteInParallel(Boolean.TRUE);
+    	validationSpec.setStopSeverity(Severity.Failure);
+    	validationSpec.setRejectSeverity(Severity.Warning);
+    	
+    	for (int i = 0; i < 3; i++) {
+    		MessageValidatorConfiguration validator = new MessageValidatorConfiguration();
+    		validator.setId("parallelValidator" + i);
+    		validator.setFactory(ValidatorMock.Factory.class.getName());
+    		validator.addSetting(ValidatorMock.SEVERITY, i == 0 ? Severity.Warning : Severity.Info);
+    		validator.addSetting(ValidatorMock.DELAY, 500);
+    		validationSpec.addValidator(validator);
+    	}
+    	
+    	long start = System.currentTimeMillis();
+    	ValidationResult result = new DefaultValidationExecutor().validate(new UserMessage(), validationSpec);
+    	
+    	assertTrue(System.currentTimeMillis() - start < 1400);
+    	assertTrue(result.executedAllValidators());
+    	assertTrue(result.shouldRejectMessage());
+    	assertEquals(3, result.getValidationErrors().size());
+    }
     
-    
-}
\ No newline at end of file
+    @Test
+    public void testParallelStop() throws Exception {
+    	CustomValidationConfiguration validationSpec = new CustomValidationConfiguration();
+    	validationSpec.setExecuteInParallel(Boolean.TRUE);
+    	validationSpec.setStopSeverity(Severity.Failure);
+    	
+    	MessageValidatorConfiguration validator = new MessageValidatorConfiguration();
+    	validator.setId("slowValidator");
+    	validator.setFactory(ValidatorMock.Factory.class.getName());
+    	validator.addSetting(ValidatorMock.SEVERITY, Severity.Info);
+    	validator.addSetting(ValidatorMock.DELAY, 3000);
+    	validationSpec.addValidator(validator);
+    	validator = new MessageValidatorConfiguration();
+    	validator.setId("stoppingValidator");
+    	validator.setFactory(ValidatorMock.Factory.class.getName());
+    	validator.addSetting(ValidatorMock.SEVERITY, Severity.Failure);
+    	validationSpec.addValidator(validator);
+    	
+    	long start = System.currentTimeMillis();
+    	ValidationResult result = new DefaultValidationExecutor().validate(new UserMessage(), validationSpec);
+    	
+    	assertTrue(System.currentTimeMillis() - start < 2000);
+    	assertFalse(result.executedAllValidators());
+    	assertNotNull(result.getValidationErrors().get("stoppingValidator"));
+    	assertNull(result.getValidationErrors().get("slowValidator"));
+    }
+}
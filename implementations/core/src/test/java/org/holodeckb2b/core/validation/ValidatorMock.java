@@ -3,6 +3,7 @@ package org.holodeckb2b.core.validation;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.customvalidation.IMessageValidator;
@@ -19,17 +20,27 @@ import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
 public class ValidatorMock implements IMessageValidator<IUserMessage> {
 
 	static final String SEVERITY = "errorLevel";
+	static final String DELAY = "delay";
 	
 	private Severity errorLevel;
+	private long delay;
 	
-	private ValidatorMock(Severity toGenerate) {
+	private ValidatorMock(Severity toGenerate, long delay) {
 		this.errorLevel = toGenerate;
+		this.delay = delay;
 	}
 	
 	@Override
     public Collection<MessageValidationError> validate(IUserMessage userMessage)
             throws MessageValidationException {
 		Collection<MessageValidationError> errors = new ArrayList<>();
+		
+		if (delay > 0)
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException interrupted) {
+				Thread.currentThread().interrupt();
+			}
         
 		if (errorLevel != null)
 			errors.add(new MessageValidationError("Some error for testing.", errorLevel));
@@ -42,17 +53,23 @@ public class ValidatorMock implements IMessageValidator<IUserMessage> {
      */
     public static class Factory implements IMessageValidator.Factory {
     	
+    	static final AtomicInteger initCount = new AtomicInteger();
+    	
     	private Severity errorLevel;
+    	private long delay;
     	
         @Override
         public void init(Map<String, ?> parameters) throws MessageValidationException {
+        	initCount.incrementAndGet();
         	String levelString = (String) parameters.get(SEVERITY);
         	errorLevel = Utils.isNullOrEmpty(levelString) ? null : Severity.valueOf(levelString);
+        	String delayString = (String) parameters.get(DELAY);
+        	delay = Utils.isNullOrEmpty(delayString) ? 0 : Long.parseLong(delayString);
         }
 
         @Override
         public IMessageValidator createMessageValidator() throws MessageValidationException {
-            return new ValidatorMock(errorLevel);
+            return new ValidatorMock(errorLevel, delay);
         }
     }
 }
@@ -16,6 +16,7 @@
  */
 package org.holodeckb2b.core.workerpool;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.holodeckb2b.common.workers.AbstractWorkerTask;
@@ -44,4 +45,10 @@ public class TestTask extends AbstractWorkerTask {
         reporter.reportRun(this.name);
     }
 
+    @Override
+    public Map<String, ?> getStatistics() {
+    	final Integer runs = reporter.workerRuns.get(this.name);
+    	return runs == null ? Collections.emptyMap() : Collections.singletonMap("runs", runs);
+    }
+
 }
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.holodeckb2b.commons.util.Utils;
@@ -98,6 +99,34 @@ public class WorkerPoolTest {
 		assertFalse(pool.isRunning());		
 	}
 	
+	@Test
+	public void testWorkerStatistics() throws WorkerPoolException, InterruptedException {
+		TaskReporter reporter = new TaskReporter();
+
+		WorkerPoolTestConfiguration configuration = new WorkerPoolTestConfiguration();
+		configuration.configs.add(new WorkerTestConfig("withstats", reporter, null));
+		WorkerTestConfig delayedCfg = new WorkerTestConfig("nostats", reporter, null);
+		delayedCfg.delay = 5000;
+		configuration.configs.add(delayedCfg);
+
+		WorkerPool pool = new WorkerPool("test", configuration);
+		pool.start();
+		Thread.sleep(500);
+
+		Map<String, Map<String, ?>> stats = pool.getWorkerStatistics();
+		assertEquals(1, stats.size());
+		assertEquals(1, stats.get("withstats").get("runs"));
+
+		pool.shutdown(1);
+		Thread.sleep(1100);
+		try {
+			pool.getWorkerStatistics();
+			fail();
+		} catch (WorkerPoolException stopped) {
+			// Expected as the pool is stopped
+		}
+	}
+
 	@Test
 	public void testDelayedRun() throws WorkerPoolException, InterruptedException {
 		TaskReporter reporter = new TaskReporter();
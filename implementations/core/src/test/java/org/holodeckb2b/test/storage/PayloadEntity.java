@@ -41,6 +41,7 @@ public class PayloadEntity implements IPayloadEntity {
 	private String                  pmodeId;
 	private Direction				direction;
 	private String                  mimeType;
+	private long                    contentLength = -1;
     private IPayload.Containment    containment;
     private String                  uri;
     private ArrayList<IProperty>    properties = new ArrayList<>();
@@ -81,6 +82,7 @@ public class PayloadEntity implements IPayloadEntity {
     		this.parentCoreId = ((IPayloadEntity) source).getParentCoreId();
     		this.pmodeId = ((IPayloadEntity) source).getPModeId();
 			this.direction = ((IPayloadEntity) source).getDirection();
+			this.contentLength = ((IPayloadEntity) source).getContentLength();
     	}
 
         this.mimeType = source.getMimeType();
@@ -166,6 +168,16 @@ public class PayloadEntity implements IPayloadEntity {
         this.mimeType = mimeType;
     }
 
+    @Override
+    public long getContentLength() {
+    	return contentLength;
+    }
+
+    @Override
+    public void setContentLength(final long length) {
+    	this.contentLength = length;
+    }
+
 	@Override
 	public void removeProperty(IProperty p2r) {
 		properties.removeIf(p -> CompareUtils.areEqual(p, p2r));
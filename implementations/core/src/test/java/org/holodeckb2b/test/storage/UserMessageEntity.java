@@ -18,6 +18,7 @@ package org.holodeckb2b.test.storage;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 
 import org.holodeckb2b.common.messagemodel.CollaborationInfo;
 import org.holodeckb2b.common.messagemodel.Property;
@@ -41,6 +42,7 @@ public class UserMessageEntity extends MessageUnitEntity implements IUserMessage
     private CollaborationInfo    collabInfo;
     private ArrayList<IProperty> msgProperties = new ArrayList<>();
     private ArrayList<PayloadEntity>  payloads = new ArrayList<>();
+    private Date				 nextRetryTime;
 
     public UserMessageEntity() {
         super();
@@ -64,6 +66,8 @@ public class UserMessageEntity extends MessageUnitEntity implements IUserMessage
         this.payloads = new ArrayList<>();
         if (!Utils.isNullOrEmpty(sourceUserMessage.getPayloads()))
         	sourceUserMessage.getPayloads().forEach(p -> payloads.add(new PayloadEntity(this, p)));
+        if (sourceUserMessage instanceof IUserMessageEntity)
+        	this.nextRetryTime = ((IUserMessageEntity) sourceUserMessage).getNextRetryTime();
     }
 
     @Override
@@ -127,4 +131,14 @@ public class UserMessageEntity extends MessageUnitEntity implements IUserMessage
     public Collection<PayloadEntity> getPayloads() {
         return payloads;
     }
+
+    @Override
+    public Date getNextRetryTime() {
+    	return nextRetryTime;
+    }
+
+    @Override
+    public void setNextRetryTime(Date nextRetryTime) {
+    	this.nextRetryTime = nextRetryTime;
+    }
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEvent;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventConfiguration;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventHandler;
+import org.holodeckb2b.interfaces.eventprocessing.IMessageProcessingEventHandlerFactory;
+import org.holodeckb2b.interfaces.eventprocessing.MessageProccesingEventHandlingException;
+import org.holodeckb2b.interfaces.events.IMessageUnitPurged;
+import org.holodeckb2b.interfaces.messagemodel.IMessageUnit;
+import org.holodeckb2b.interfaces.messagemodel.IPayload;
+import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
+import org.holodeckb2b.interfaces.storage.IPayloadEntity;
+
+/**
+ * Is the event handler, and its factory, that removes the compressed data of the payloads of a purged User Message
+ * from the cache of the {@link CompressionEngine}, so the disk space is released directly instead of after the cache's
+ * maximum age has expired. The handler is registered as a global event handler for {@link IMessageUnitPurged} events
+ * by the ebMS3/AS4 module using {@link #register()}.
+ * <p>NOTE: As global event handlers are only called when the handlers configured in the P-Mode allow further
+ * processing of the event, the cached data may still be removed only when it expires.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class CompressedDataCleaner implements IMessageProcessingEventHandlerFactory, IMessageProcessingEventHandler {
+	private static final Logger log = LogManager.getLogger(CompressedDataCleaner.class);
+
+	/**
+	 * The id of the event handler configuration
+	 */
+	static final String HANDLER_ID = "hb2b-as4-compressed-data-cleaner";
+
+	/**
+	 * Registers the handler as global event handler for {@link IMessageUnitPurged} events of User Messages.
+	 *
+	 * @throws MessageProccesingEventHandlingException when the handler could not be registered
+	 */
+	public static void register() throws MessageProccesingEventHandlingException {
+		HolodeckB2BCoreInterface.registerEventHandler(new IMessageProcessingEventConfiguration() {
+			@Override
+			public String getId() {
+				return HANDLER_ID;
+			}
+
+			@Override
+			public List<Class<? extends IMessageProcessingEvent>> getHandledEvents() {
+				return List.of(IMessageUnitPurged.class);
+			}
+
+			@Override
+			public List<Class<? extends IMessageUnit>> appliesTo() {
+				return List.of(IUserMessage.class);
+			}
+
+			@Override
+			public String getFactoryClass() {
+				return CompressedDataCleaner.class.getName();
+			}
+
+			@Override
+			public Map<String, ?> getHandlerSettings() {
+				return null;
+			}
+
+			@Override
+			public boolean continueEventProcessing() {
+				return true;
+			}
+		});
+	}
+
+	@Override
+	public void init(Map<String, ?> settings) throws MessageProccesingEventHandlingException {
+	}
+
+	@Override
+	public IMessageProcessingEventHandler createHandler() throws MessageProccesingEventHandlingException {
+		return this;
+	}
+
+	@Override
+	public void handleEvent(IMessageProcessingEvent event) throws MessageProccesingEventHandlingException {
+		if (!(event instanceof IMessageUnitPurged) || !(event.getSubject() instanceof IUserMessage))
+			return;
+		final Collection<? extends IPayload> payloads = ((IUserMessage) event.getSubject()).getPayloads();
+		if (payloads == null || payloads.isEmpty())
+			return;
+		log.trace("Remove cached compressed data of purged User Message (msgId={})", event.getSubject().getMessageId());
+		final CompressionEngine engine = CompressionEngine.getInstance(HolodeckB2BCoreInterface.getConfiguration());
+		for (IPayload p : payloads)
+			if (p instanceof IPayloadEntity)
+				engine.removeCached(((IPayloadEntity) p).getPayloadId());
+	}
+}
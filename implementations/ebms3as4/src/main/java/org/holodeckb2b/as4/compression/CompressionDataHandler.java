@@ -19,8 +19,10 @@ package org.holodeckb2b.as4.compression;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.Deflater;
 import java.util.zip.ZipException;
 
 import javax.activation.DataHandler;
@@ -33,7 +35,11 @@ import javax.activation.DataHandler;
  * or decompressed; when the content type is <i>"application/gzip"</i> it will be compressed, otherwise it will be
  * decompressed.
  * <p>For decompression of the data the {@link DataHandler#getInputStream()} is used, so the source <code>DataHandler
- * </code> MUST implement this method to ensure correct decompression.
+ * </code> MUST implement this method to ensure correct decompression. The decompression can be limited in size and
+ * compression ratio, in which case it is aborted with a {@link DecompressionLimitException} when the limit is exceeded.
+ * The number of compressed and decompressed bytes read can be retrieved after the data has been decompressed.
+ * <p>When compressing, the data can also be read from a file that already contains the compressed data, which is used
+ * by the {@link CompressionEngine} to re-use the compressed data when a message is resent.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
@@ -56,6 +62,31 @@ public class CompressionDataHandler extends DataHandler {
      */
     private boolean     compressing;
 
+    /**
+     * The compression level to use when compressing the data
+     */
+    private int         level = Deflater.DEFAULT_COMPRESSION;
+
+    /**
+     * Path of the file that already contains the compressed data, if available
+     */
+    private Path        compressedContent = null;
+
+    /**
+     * The maximum size of the decompressed data, or -1 if there is no limit
+     */
+    private long        maxDecompressedSize = -1;
+
+    /**
+     * The maximum ratio between the size of the decompressed and compressed data, or -1 if there is no limit
+     */
+    private int         maxCompressionRatio = -1;
+
+    /**
+     * The stream used for the last decompression of the data
+     */
+    private GZIPDecompressingInputStream decompressor = null;
+
     /**
      * This constructor should be used to create a facade to a {@link DataHandler} for decompressing the contained data.
      * The specified MIME type is not used by this class itself but only to inform using classes about the expected
@@ -65,10 +96,29 @@ public class CompressionDataHandler extends DataHandler {
      * @param mimeType  The MIME type of the decompressed data.
      */
     public CompressionDataHandler(final DataHandler source, final String mimeType) {
+        this(source, mimeType, -1, -1);
+    }
+
+    /**
+     * This constructor should be used to create a facade to a {@link DataHandler} for decompressing the contained data
+     * with limits on the decompressed data to protect against <i>"zip bombs"</i>. The specified MIME type is not used
+     * by this class itself but only to inform using classes about the expected content.
+     *
+     * @param source    The {@link DataHandler} that contains the compressed data
+     * @param mimeType  The MIME type of the decompressed data.
+     * @param maxSize   The maximum size of the decompressed data, or -1 if there is no limit
+     * @param maxRatio  The maximum ratio between the size of the decompressed and compressed data, or -1 if there is
+     *                  no limit
+     * @since 8.0.0
+     */
+    public CompressionDataHandler(final DataHandler source, final String mimeType, final long maxSize,
+                                  final int maxRatio) {
         super(source.getDataSource());
         this.source = source;
         this.resultContentType = mimeType;
         this.compressing = false;
+        this.maxDecompressedSize = maxSize;
+        this.maxCompressionRatio = maxRatio;
     }
 
     /**
@@ -77,10 +127,38 @@ public class CompressionDataHandler extends DataHandler {
      * @param source    The {@link DataHandler} that contains the uncompressed data
      */
     public CompressionDataHandler(final DataHandler source) {
+        this(source, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * This constructor should be used to create a facade to a {@link DataHandler} for compressing the contained data
+     * using the given compression level.
+     *
+     * @param source    The {@link DataHandler} that contains the uncompressed data
+     * @param level     The compression level to use, from 0 to 9 or -1 for the default level
+     * @since 8.0.0
+     */
+    public CompressionDataHandler(final DataHandler source, final int level) {
+        this(source, level, null);
+    }
+
+    /**
+     * This constructor should be used to create a facade to a {@link DataHandler} for which the data has already been
+     * compressed. The compressed data is read from the given file instead of compressing the data again. When the file
+     * does not exist anymore when the data is read, the data is compressed using the given compression level.
+     *
+     * @param source        The {@link DataHandler} that contains the uncompressed data
+     * @param level         The compression level to use, from 0 to 9 or -1 for the default level
+     * @param compressed    Path of the file containing the compressed data, may be <code>null</code>
+     * @since 8.0.0
+     */
+    public CompressionDataHandler(final DataHandler source, final int level, final Path compressed) {
         super(source.getDataSource());
         this.source = source;
         this.resultContentType = CompressionFeature.COMPRESSED_CONTENT_TYPE;
         this.compressing = true;
+        this.level = level;
+        this.compressedContent = compressed;
     }
 
     /**
@@ -142,25 +220,59 @@ public class CompressionDataHandler extends DataHandler {
      */
     @Override
     public InputStream getInputStream() throws IOException, ZipException {
-        if (compressing)
-            return new GZIPCompressingInputStream(super.getInputStream());
-        else
-            return new GZIPInputStream(super.getInputStream());
+        if (compressing) {
+            if (compressedContent != null)
+                try {
+                    return Files.newInputStream(compressedContent);
+                } catch (NoSuchFileException removed) {
+                    compressedContent = null;
+                }
+            return new GZIPCompressingInputStream(super.getInputStream(), level);
+        } else
+            return decompressor = new GZIPDecompressingInputStream(super.getInputStream(), maxDecompressedSize,
+                                                                   maxCompressionRatio);
     }
 
+    /**
+     * Gets the number of compressed bytes read in the last decompression of the data.
+     *
+     * @return  the size of the compressed data, or -1 if the data has not been decompressed
+     * @since 8.0.0
+     */
+    public long getCompressedSize() {
+        return decompressor != null ? decompressor.getCompressedSize() : -1;
+    }
 
     /**
-     * Writes the data GZip compressed to the given output stream.
+     * Gets the number of bytes the data expanded to in the last decompression of the data.
+     *
+     * @return  the size of the decompressed data, or -1 if the data has not been decompressed
+     * @since 8.0.0
+     */
+    public long getDecompressedSize() {
+        return decompressor != null ? decompressor.getDecompressedSize() : -1;
+    }
+
+
+    /**
+     * Writes the data GZip compressed to the given output stream. When the compressed data is already available it is
+     * copied from the file, otherwise the data is compressed while it is written.
      *
      * @param out           The {@link OutputStream} to write the compressed data to
      * @throws IOException  When an error occurs while writing the data to the stream
      */
     private void compress(final OutputStream out) throws IOException {
-        // Writing compressed data is easy, we only need to wrap the given output stream in a GZIPOutputStream to get
-        // compression.
-        final GZIPOutputStream gzOutputStream = new GZIPOutputStream(out);
-        source.writeTo(gzOutputStream);
-        gzOutputStream.finish();
+        if (compressedContent != null)
+            try {
+                Files.copy(compressedContent, out);
+                return;
+            } catch (NoSuchFileException removed) {
+                // The cached data has been removed in the meantime, so compress the data now
+                compressedContent = null;
+            }
+        try (InputStream gzInputStream = new GZIPCompressingInputStream(source.getInputStream(), level)) {
+            gzInputStream.transferTo(out);
+        }
     }
 
     /**
@@ -169,15 +281,13 @@ public class CompressionDataHandler extends DataHandler {
      * @param out           The {@link OutputStream} to write the uncompressed data to
      * @throws ZipException When there is an error while decompressing the data. Most probably cause is corrupted data,
      *                      but also errors writing the decompressed data to the output stream can be cause of this
-     *                      exception
+     *                      exception. When the decompressed data exceeds one of the limits a {@link
+     *                      DecompressionLimitException} is thrown
      */
     private void decompress(final OutputStream out) throws ZipException {
-        try (GZIPInputStream gzInputStream = new GZIPInputStream(source.getInputStream()))
-        {
-            final byte[]  buffer = new byte[2048];
-            int     r = 0;
-            while ((r = gzInputStream.read(buffer)) > 0)
-                out.write(buffer, 0, r);
+        try (InputStream gzInputStream = decompressor = new GZIPDecompressingInputStream(source.getInputStream(),
+                                                                  maxDecompressedSize, maxCompressionRatio)) {
+            gzInputStream.transferTo(out);
         } catch (Exception ex) {
             if (!(ex instanceof ZipException))
                 ex = new ZipException(ex.getClass().getName() + " {" + ex.getMessage()
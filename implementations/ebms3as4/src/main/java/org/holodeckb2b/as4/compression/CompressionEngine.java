@@ -0,0 +1,291 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import javax.activation.DataHandler;
+
+import org.apache.axis2.description.Parameter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.commons.Pair;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.interfaces.config.IConfiguration;
+import org.holodeckb2b.interfaces.storage.IPayloadEntity;
+
+/**
+ * Is the engine that compresses the payload data of messages that are sent using the AS4 Compression Feature. Instead
+ * of compressing the data while the message is serialised, the engine compresses the data in advance and stores the
+ * result in a cache directory. This allows the payloads of a message to be compressed in parallel and the compressed
+ * data to be re-used when the message is resent.
+ * <p>The compressed data is stored in the <code>compressed</code> sub directory of the Holodeck B2B temp directory in
+ * files named by the <i>payloadId</i> and compression level. As the content of a payload does not change once stored
+ * the cached data stays valid, but to limit the used disk space files are removed when they have not been used for
+ * the number of hours set by the <i>"CompressedPayloadCacheMaxAge"</i> parameter in the Holodeck B2B configuration,
+ * default 24 hours. When the parameter is set to 0 the cache is disabled and the data is compressed while the message
+ * is serialised. The cached data of a payload is also removed when the User Message is purged, see {@link
+ * CompressedDataCleaner}.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+final class CompressionEngine {
+	private static final Logger log = LogManager.getLogger(CompressionEngine.class);
+
+	static final String P_CACHE_MAX_AGE = "CompressedPayloadCacheMaxAge";
+
+	private static final int DEFAULT_CACHE_MAX_AGE = 24;
+
+	/**
+	 * The interval at which the cache directory is checked for files that should be removed
+	 */
+	private static final long SWEEP_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+	/**
+	 * Suffix of the files the data is written to while being compressed
+	 */
+	private static final String TMP_SUFFIX = ".tmp";
+
+	/**
+	 * The pattern a payloadId must match to be used as file name. Data of payloads with other payloadIds is not cached
+	 */
+	private static final Pattern CACHEABLE_ID = Pattern.compile("[A-Za-z0-9._-]+");
+
+	/**
+	 * The pool shared by all engines for compressing the payloads in parallel. As compression is CPU bound, the number
+	 * of threads is equal to the number of processors.
+	 */
+	private static final ForkJoinPool COMPRESSION_POOL =
+												new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The engine for the current Holodeck B2B configuration
+	 */
+	private static CompressionEngine instance;
+
+	/**
+	 * The Holodeck B2B configuration the engine was created for
+	 */
+	private final IConfiguration config;
+	/**
+	 * The directory where the compressed data is cached, <code>null</code> if the cache is disabled
+	 */
+	private final Path cacheDirectory;
+	/**
+	 * Time in milliseconds after which unused compressed data is removed from the cache
+	 */
+	private final long maxAge;
+	/**
+	 * Time after which the cache directory should be checked again for files to remove
+	 */
+	private final AtomicLong nextSweep = new AtomicLong();
+
+	/**
+	 * Gets the compression engine for the current Holodeck B2B configuration.
+	 *
+	 * @param config	the Holodeck B2B configuration
+	 * @return	the compression engine
+	 */
+	static synchronized CompressionEngine getInstance(final IConfiguration config) {
+		if (instance == null || instance.config != config)
+			instance = new CompressionEngine(config);
+		return instance;
+	}
+
+	/**
+	 * Creates a new engine using the settings from the given Holodeck B2B configuration.
+	 *
+	 * @param config	the Holodeck B2B configuration, may be <code>null</code> in which case the cache is disabled
+	 */
+	private CompressionEngine(final IConfiguration config) {
+		this.config = config;
+		int maxAgeHours = DEFAULT_CACHE_MAX_AGE;
+		final Parameter param = config != null ? config.getParameter(P_CACHE_MAX_AGE) : null;
+		if (param != null && param.getParameterType() == Parameter.TEXT_PARAMETER) {
+			try {
+				maxAgeHours = Integer.parseInt(((String) param.getValue()).trim());
+			} catch (NumberFormatException nan) {
+				log.warn("Invalid value [{}] for parameter {}, using default {}", param.getValue(), P_CACHE_MAX_AGE,
+						 maxAgeHours);
+			}
+		}
+		if (config == null || config.getTempDirectory() == null || maxAgeHours <= 0) {
+			log.debug("Caching of compressed payload data is disabled");
+			this.cacheDirectory = null;
+			this.maxAge = 0;
+		} else {
+			this.cacheDirectory = config.getTempDirectory().resolve("compressed");
+			this.maxAge = TimeUnit.HOURS.toMillis(maxAgeHours);
+			log.trace("Compressed payload data is cached in {} for {} hours", cacheDirectory.toString(), maxAgeHours);
+		}
+	}
+
+	/**
+	 * Creates the data handlers that provide the compressed data of the given payloads. When the cache is enabled the
+	 * data of the payloads that is not cached yet is compressed now, in parallel when there are multiple payloads.
+	 *
+	 * @param payloads	the payloads to compress, each with the data handler providing the uncompressed data
+	 * @param level		the compression level to use, from 0 to 9 or -1 for the default level
+	 * @return	the data handlers providing the compressed data, in the same order as the given payloads
+	 */
+	List<CompressionDataHandler> compress(final List<Pair<IPayloadEntity, DataHandler>> payloads, final int level) {
+		final List<CompressionDataHandler> result = new ArrayList<>(payloads.size());
+		if (cacheDirectory == null) {
+			payloads.forEach(p -> result.add(new CompressionDataHandler(p.value2(), level)));
+			return result;
+		}
+		removeExpired();
+		if (payloads.size() == 1) {
+			result.add(compress(payloads.get(0).value1(), payloads.get(0).value2(), level));
+			return result;
+		}
+		log.trace("Compress {} payloads in parallel", payloads.size());
+		final List<Future<CompressionDataHandler>> tasks = new ArrayList<>(payloads.size());
+		payloads.forEach(p -> tasks.add(COMPRESSION_POOL.submit(() -> compress(p.value1(), p.value2(), level))));
+		for (int i = 0; i < tasks.size(); i++) {
+			try {
+				result.add(tasks.get(i).get());
+			} catch (ExecutionException | InterruptedException failure) {
+				if (failure instanceof InterruptedException)
+					Thread.currentThread().interrupt();
+				// Should not happen as the task handles all errors, fall back to compression on send
+				result.add(new CompressionDataHandler(payloads.get(i).value2(), level));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the data handler providing the compressed data of the given payload. If the compressed data is not cached
+	 * yet, the data is compressed and saved to the cache. When the data cannot be cached, a data handler that
+	 * compresses the data while it is sent is returned.
+	 *
+	 * @param payload	the payload to compress
+	 * @param source	the data handler providing the uncompressed data
+	 * @param level		the compression level to use
+	 * @return	the data handler providing the compressed data
+	 */
+	private CompressionDataHandler compress(final IPayloadEntity payload, final DataHandler source, final int level) {
+		final String payloadId = payload.getPayloadId();
+		if (Utils.isNullOrEmpty(payloadId) || !CACHEABLE_ID.matcher(payloadId).matches()) {
+			log.debug("Compressed data of payload (URI={}) cannot be cached", payload.getPayloadURI());
+			return new CompressionDataHandler(source, level);
+		}
+		final Path cached = cacheDirectory.resolve(payloadId + "." + (level < 0 ? "default" : level) + ".gz");
+		try {
+			Files.setLastModifiedTime(cached, FileTime.fromMillis(System.currentTimeMillis()));
+			log.debug("Using cached compressed data of payload (payloadId={})", payloadId);
+			return new CompressionDataHandler(source, level, cached);
+		} catch (NoSuchFileException notCached) {
+			// Data still needs to be compressed
+		} catch (IOException touchFailure) {
+			log.warn("Could not access cached compressed data of payload (payloadId={}) : {}", payloadId,
+					 touchFailure.getMessage());
+			return new CompressionDataHandler(source, level);
+		}
+		Path tmpFile = null;
+		try {
+			log.trace("Compress data of payload (payloadId={})", payloadId);
+			Files.createDirectories(cacheDirectory);
+			tmpFile = Files.createTempFile(cacheDirectory, payloadId, TMP_SUFFIX);
+			try (InputStream gzInputStream = new GZIPCompressingInputStream(source.getInputStream(), level);
+				 OutputStream out = Files.newOutputStream(tmpFile)) {
+				gzInputStream.transferTo(out);
+			}
+			Files.move(tmpFile, cached, StandardCopyOption.ATOMIC_MOVE);
+			log.debug("Compressed data of payload (payloadId={}) saved to cache", payloadId);
+			return new CompressionDataHandler(source, level, cached);
+		} catch (IOException compressionFailure) {
+			log.warn("Could not cache compressed data of payload (payloadId={}) : {}", payloadId,
+					 Utils.getExceptionTrace(compressionFailure));
+			if (tmpFile != null)
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException deleteFailure) {
+					log.warn("Could not remove temporary file {}", tmpFile.toString());
+				}
+			return new CompressionDataHandler(source, level);
+		}
+	}
+
+	/**
+	 * Removes the cached compressed data of the given payload, for all compression levels.
+	 *
+	 * @param payloadId	the payloadId of the payload whose compressed data should be removed
+	 */
+	void removeCached(final String payloadId) {
+		if (cacheDirectory == null || Utils.isNullOrEmpty(payloadId) || !CACHEABLE_ID.matcher(payloadId).matches()
+			|| !Files.isDirectory(cacheDirectory))
+			return;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory, payloadId + ".*.gz")) {
+			for (Path f : files) {
+				Files.deleteIfExists(f);
+				log.debug("Removed compressed data {} of purged payload from cache", f.getFileName().toString());
+			}
+		} catch (IOException removeFailure) {
+			log.warn("Could not remove compressed data of payload (payloadId={}) from cache : {}", payloadId,
+					 removeFailure.getMessage());
+		}
+	}
+
+	/**
+	 * Removes the files from the cache directory that were not used in the configured period. As the check is only
+	 * needed once in a while, it is executed at most once in the {@link #SWEEP_INTERVAL} and on a thread from the
+	 * compression pool.
+	 */
+	private void removeExpired() {
+		final long now = System.currentTimeMillis();
+		final long next = nextSweep.get();
+		if (now < next || !nextSweep.compareAndSet(next, now + SWEEP_INTERVAL) || !Files.isDirectory(cacheDirectory))
+			return;
+		COMPRESSION_POOL.execute(() -> {
+			int removed = 0;
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+				for (Path f : files) {
+					try {
+						if (Files.getLastModifiedTime(f).toMillis() < now - maxAge && Files.deleteIfExists(f))
+							removed++;
+					} catch (IOException removeFailure) {
+						log.warn("Could not remove expired file {} from cache : {}", f.toString(),
+								 removeFailure.getMessage());
+					}
+				}
+			} catch (IOException readFailure) {
+				log.error("Could not read the cache directory {} : {}", cacheDirectory.toString(),
+						  readFailure.getMessage());
+			}
+			log.debug("Removed {} expired files from compressed payload data cache", removed);
+		});
+	}
+}
@@ -18,6 +18,7 @@ package org.holodeckb2b.as4.compression;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import javax.activation.DataHandler;
 
@@ -26,14 +27,17 @@ import org.apache.axis2.context.MessageContext;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.handlers.AbstractUserMessageHandler;
 import org.holodeckb2b.common.messagemodel.Property;
+import org.holodeckb2b.commons.Pair;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.pmode.PModeUtils;
 import org.holodeckb2b.interfaces.as4.pmode.IAS4PayloadProfile;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
 import org.holodeckb2b.interfaces.general.IProperty;
 import org.holodeckb2b.interfaces.messagemodel.IPayload;
 import org.holodeckb2b.interfaces.pmode.IPayloadProfile;
 import org.holodeckb2b.interfaces.pmode.IUserMessageFlow;
+import org.holodeckb2b.interfaces.storage.IPayloadEntity;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
 
 /**
@@ -45,9 +49,10 @@ import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
  * <code>eb:PartProperties</code> of the payload meta data in the ebMS header:<ol>
  * <li><code>@name = <i>"CompressionType"</i></code> and fixed value <i>"application/gzip"</i>;</li>
  * <li><code>@name = <i>"MimeType"</i></code> and value the MIME Type of the uncompressed data.</li></ol>
- * <p>The actual compression of the data is done by the {@link CompressionDataHandler} that will encapsulate the
- * original <code>DataHandler</code> that contains the payload data. This way the compression is only executed at the
- * moment the payload data is sent to the receiving MSH and an extra operation is prevented.
+ * <p>The compressed data is provided by the {@link CompressionDataHandler} that will encapsulate the original <code>
+ * DataHandler</code> that contains the payload data. The data is compressed by the {@link CompressionEngine} which
+ * compresses the payloads in parallel and caches the compressed data so it can be re-used when the message is resent.
+ * The level of compression can be set in the P-Mode, see {@link IAS4PayloadProfile#getCompressionLevel()}.
  * <p>NOTE: Although the AS4 profiles states that payloads containing already compressed data do not need to be
  * compressed Holodeck B2B will compress all payloads regardless of their content.
  *
@@ -70,11 +75,27 @@ public class CompressionHandler extends AbstractUserMessageHandler {
              CompressionFeature.COMPRESSED_CONTENT_TYPE.equalsIgnoreCase(
                                                                ((IAS4PayloadProfile) plProfile).getCompressionType())) {
             log.debug("AS4 Compression feature is used");
-            // enable compression by decorating DataHandler and setting payload properties
-            for (final IPayload p : um.getPayloads())
-                // Only payloads contained in attachment can use compression
+            final MessageContext mc = procCtx.getParentContext();
+            // Only payloads contained in attachment can use compression
+            final List<Pair<IPayloadEntity, DataHandler>> attachments = new ArrayList<>();
+            for (final IPayloadEntity p : um.getPayloads())
                 if (p.getContainment() == IPayload.Containment.ATTACHMENT)
-                    enableCompression(p, procCtx.getParentContext());
+                    attachments.add(new Pair<>(p, mc.getAttachment(p.getPayloadURI())));
+            if (attachments.isEmpty())
+                return InvocationResponse.CONTINUE;
+
+            int level = ((IAS4PayloadProfile) plProfile).getCompressionLevel();
+            if (level < -1 || level > 9) {
+            	log.warn("Invalid compression level ({}) specified in P-Mode, using default level", level);
+            	level = -1;
+            }
+            log.trace("Compress {} payloads using level {}", attachments.size(), level);
+            final List<CompressionDataHandler> compressed = CompressionEngine.getInstance(
+            														HolodeckB2BCoreInterface.getConfiguration())
+            																	.compress(attachments, level);
+            // enable compression by decorating DataHandler and setting payload properties
+            for (int i = 0; i < attachments.size(); i++)
+                enableCompression(attachments.get(i).value1(), attachments.get(i).value2(), compressed.get(i), mc);
 
             log.trace("Enabled compression for all attached payloads");
         } else
@@ -83,12 +104,11 @@ public class CompressionHandler extends AbstractUserMessageHandler {
         return InvocationResponse.CONTINUE;
     }
 
-    private void enableCompression(final IPayload p, final MessageContext mc) {
+    private void enableCompression(final IPayload p, final DataHandler source, final CompressionDataHandler compressed,
+    							   final MessageContext mc) {
 
         // Replace current data handler of attachment with CompressionDataHandler to facilitate compression
-        final String cid = p.getPayloadURI();
-        final DataHandler source = mc.getAttachment(cid);
-        mc.addAttachment(cid, new CompressionDataHandler(source));
+        mc.addAttachment(p.getPayloadURI(), compressed);
 
         // Set the part properties to indicate AS4 Compression feature was used and original MIME Type
         // First ensure that there do not exists properties with this name
@@ -21,13 +21,21 @@ import java.util.Collection;
 import java.util.Iterator;
 
 import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.description.Parameter;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.handlers.AbstractUserMessageHandler;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.HolodeckB2BCore;
+import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.interfaces.as4.pmode.IAS4PayloadProfile;
+import org.holodeckb2b.interfaces.config.IConfiguration;
+import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
 import org.holodeckb2b.interfaces.general.IProperty;
 import org.holodeckb2b.interfaces.messagemodel.IPayload;
+import org.holodeckb2b.interfaces.pmode.ILeg;
+import org.holodeckb2b.interfaces.pmode.IPayloadProfile;
+import org.holodeckb2b.interfaces.pmode.IUserMessageFlow;
 import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
 import org.holodeckb2b.interfaces.storage.providers.StorageException;
@@ -42,11 +50,37 @@ import org.holodeckb2b.interfaces.storage.providers.StorageException;
  * <p>The actual decompression of the data is done by the {@link CompressionDataHandler} that will encapsulate the
  * original <code>DataHandler</code> that contains the payload data. This way the decompression is only executed at the
  * moment the payload data is written to an output stream and an extra operation is prevented.
+ * <p>To protect against <i>"zip bombs"</i> the P-Mode can limit the size of the decompressed data and the ratio between
+ * the decompressed and compressed size, see {@link IAS4PayloadProfile#getMaxDecompressedSize()} and {@link
+ * IAS4PayloadProfile#getMaxCompressionRatio()}. When the P-Mode does not set a limit, the gateway wide default from
+ * the <i>"MaxDecompressedSize"</i> and <i>"MaxCompressionRatio"</i> parameters in the Holodeck B2B configuration is
+ * used. When these are not set either, the size is not limited and the ratio is limited to {@link
+ * #DEFAULT_MAX_COMPRESSION_RATIO}. A value of 0 or less, in either the P-Mode or the configuration, disables the limit.
+ * These limits are passed to
+ * the <code>CompressionDataHandler</code>, which aborts the decompression as soon as a limit is exceeded, which
+ * results in a <i>DeCompressionFailure</i> error.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
 public class DecompressionHandler extends AbstractUserMessageHandler {
 
+	/**
+	 * Name of the configuration parameter with the default maximum size of decompressed payload data
+	 * @since 8.0.0
+	 */
+	public static final String P_MAX_DECOMPRESSED_SIZE = "MaxDecompressedSize";
+
+	/**
+	 * Name of the configuration parameter with the default maximum compression ratio of received payloads
+	 * @since 8.0.0
+	 */
+	public static final String P_MAX_COMPRESSION_RATIO = "MaxCompressionRatio";
+
+	/**
+	 * The maximum compression ratio used when neither the P-Mode nor the configuration set a limit
+	 * @since 8.0.0
+	 */
+	public static final int DEFAULT_MAX_COMPRESSION_RATIO = 200;
 
     @Override
     protected InvocationResponse doProcessing(final IUserMessageEntity um, final IMessageProcessingContext procCtx,
@@ -55,6 +89,17 @@ public class DecompressionHandler extends AbstractUserMessageHandler {
         if (Utils.isNullOrEmpty(um.getPayloads()))
             return InvocationResponse.CONTINUE;
 
+        // The limits on the decompressed data are set in the P-Mode, or else by the gateway wide defaults
+        final IAS4PayloadProfile plProfile = getPayloadProfile(um);
+        final Long pmodeMaxSize = plProfile != null ? plProfile.getMaxDecompressedSize() : null;
+        final long maxSize = pmodeMaxSize != null ? pmodeMaxSize
+        							: getDefaultLimit(P_MAX_DECOMPRESSED_SIZE, -1, Long.MAX_VALUE, log);
+        final Integer pmodeMaxRatio = plProfile != null ? plProfile.getMaxCompressionRatio() : null;
+        final int maxRatio = pmodeMaxRatio != null ? pmodeMaxRatio
+        							: (int) getDefaultLimit(P_MAX_COMPRESSION_RATIO, DEFAULT_MAX_COMPRESSION_RATIO,
+        													Integer.MAX_VALUE, log);
+        log.trace("Limits for decompression: max size={}, max ratio={}", maxSize, maxRatio);
+
         // The compression feature can be used per payload, so check all payloads in message
         for (final IPayload p : um.getPayloads()) {
             // Only payloads contained in attachment can use compression
@@ -83,7 +128,8 @@ public class DecompressionHandler extends AbstractUserMessageHandler {
                     try {
                         final String cid = p.getPayloadURI();
                         final MessageContext mc = procCtx.getParentContext();
-                        mc.addAttachment(cid, new CompressionDataHandler(mc.getAttachment(cid), mimeType));
+                        mc.addAttachment(cid, new CompressionDataHandler(mc.getAttachment(cid), mimeType, maxSize,
+                                                                         maxRatio));
                         log.trace("Replaced DataHandler to enable decompression");
                         // Remove part property specific to AS4 Compression feature
                         removeProperty(p);
@@ -101,6 +147,49 @@ public class DecompressionHandler extends AbstractUserMessageHandler {
         return InvocationResponse.CONTINUE;
     }
 
+    /**
+     * Is a helper method to get the gateway wide default for a decompression limit from the Holodeck B2B configuration.
+     *
+     * @param name			the name of the configuration parameter
+     * @param defaultValue	the value to use when the parameter is not set or invalid
+     * @param maxValue		the maximum value allowed for the parameter
+     * @param log			the log of the handler
+     * @return	the configured limit, or -1 if the limit is disabled
+     */
+    private long getDefaultLimit(final String name, final long defaultValue, final long maxValue, final Logger log) {
+    	final IConfiguration config = HolodeckB2BCoreInterface.getConfiguration();
+    	final Parameter param = config != null ? config.getParameter(name) : null;
+    	if (param == null || param.getParameterType() != Parameter.TEXT_PARAMETER)
+    		return defaultValue;
+    	try {
+    		final long limit = Long.parseLong(((String) param.getValue()).trim());
+    		if (limit > maxValue) {
+    			log.warn("Value [{}] for parameter {} exceeds maximum of {}, using default {}", limit, name,
+    					 maxValue, defaultValue);
+    			return defaultValue;
+    		}
+    		return limit > 0 ? limit : -1;
+    	} catch (NumberFormatException nan) {
+    		log.warn("Invalid value [{}] for parameter {}, using default {}", param.getValue(), name, defaultValue);
+    		return defaultValue;
+    	}
+    }
+
+    /**
+     * Is a helper method to get the AS4 payload profile from the P-Mode of the user message.
+     *
+     * @param um    The user message
+     * @return      The AS4 payload profile of the leg the user message is received on,<br>
+     *              <code>null</code> if the message is not assigned to a P-Mode or the P-Mode has no AS4 payload
+     *              profile
+     */
+    private IAS4PayloadProfile getPayloadProfile(final IUserMessageEntity um) {
+        final ILeg leg = PModeUtils.getLeg(um);
+        final IUserMessageFlow flow = leg != null ? leg.getUserMessageFlow() : null;
+        final IPayloadProfile plProfile = flow != null ? flow.getPayloadProfile() : null;
+        return plProfile instanceof IAS4PayloadProfile ? (IAS4PayloadProfile) plProfile : null;
+    }
+
     /**
      * Is a helper method to determine if the payload uses the AS4 compression feature. As described in section 3.1 of
      * the AS4 profile use of the compression feature is indicated by a <i>part property</i> named <i>"CompressionType"
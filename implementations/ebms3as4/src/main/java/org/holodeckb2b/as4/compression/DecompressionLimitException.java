@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import java.util.zip.ZipException;
+
+/**
+ * Indicates that the decompression of a payload was aborted because the decompressed data exceeded the maximum size
+ * or compression ratio set in the P-Mode. As it extends {@link ZipException} it results in a <i>DeCompressionFailure
+ * </i> error like other decompression problems.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ * @see GZIPDecompressingInputStream
+ */
+public class DecompressionLimitException extends ZipException {
+	private static final long serialVersionUID = 3627261584924617360L;
+
+	/**
+	 * Creates a new exception with the given description of the exceeded limit.
+	 *
+	 * @param message	description of the exceeded limit
+	 */
+	public DecompressionLimitException(final String message) {
+		super(message);
+	}
+}
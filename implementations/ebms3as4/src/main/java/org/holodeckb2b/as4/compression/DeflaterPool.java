@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Is a pool of {@link Deflater}s used for the GZIP compression of payloads. As a <code>Deflater</code> allocates native
+ * memory, which is only released when it is ended or garbage collected, they are re-used instead of creating a new one
+ * for each compressed payload. All <code>Deflater</code>s in the pool produce raw deflate data, i.e. without ZLIB
+ * header and trailer, as needed for GZIP.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+final class DeflaterPool {
+
+	/**
+	 * The idle <code>Deflater</code>s. The number of idle instances is limited to twice the number of processors, as
+	 * there are at most that many payloads compressed at the same time in normal operation
+	 */
+	private static final ArrayBlockingQueue<Deflater> idle =
+								new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+	private DeflaterPool() {}
+
+	/**
+	 * Gets a <code>Deflater</code> from the pool, or a new one if there is no idle instance, and sets it to the given
+	 * compression level.
+	 *
+	 * @param level		the compression level to use, from 0 to 9 or -1 for the default level
+	 * @return	a <code>Deflater</code> ready for use
+	 */
+	static Deflater borrow(final int level) {
+		final Deflater deflater = idle.poll();
+		if (deflater == null)
+			return new Deflater(level, true);
+		deflater.setLevel(level);
+		return deflater;
+	}
+
+	/**
+	 * Returns the given <code>Deflater</code> to the pool. When the pool is full the <code>Deflater</code> is ended so
+	 * its native resources are released immediately.
+	 *
+	 * @param deflater	the <code>Deflater</code> that is not used anymore
+	 */
+	static void release(final Deflater deflater) {
+		deflater.reset();
+		if (!idle.offer(deflater))
+			deflater.end();
+	}
+}
@@ -62,13 +62,30 @@ public class GZIPCompressingInputStream extends DeflaterInputStream {
     // Position within part (only applicable for header and trailer)
     private int position = 0;
 
+    // Indicates whether the deflater has been returned to the pool
+    private boolean released = false;
+
     /**
-     * Creates a new {@link GZIPCompressingInputStream} from an uncompressed {@link InputStream}.
+     * Creates a new {@link GZIPCompressingInputStream} from an uncompressed {@link InputStream} that uses the default
+     * compression level.
      *
      * @param in The uncompressed {@link InputStream}.
      */
     public GZIPCompressingInputStream(final InputStream in) {
-        super(new CheckedInputStream(in, new CRC32()), new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        this(in, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates a new {@link GZIPCompressingInputStream} from an uncompressed {@link InputStream} that uses the given
+     * compression level. The {@link Deflater} is taken from a pool and returned to it when the stream is closed, so
+     * the stream should always be closed after use.
+     *
+     * @param in    The uncompressed {@link InputStream}.
+     * @param level The compression level to use, from 0 to 9 or -1 for the default level
+     * @since 8.0.0
+     */
+    public GZIPCompressingInputStream(final InputStream in, final int level) {
+        super(new CheckedInputStream(in, new CRC32()), DeflaterPool.borrow(level));
         part = Part.HEADER;
     }
 
@@ -85,6 +102,10 @@ public class GZIPCompressingInputStream extends DeflaterInputStream {
      */
     @Override
     public int read(final byte b[], final int off, final int len) throws IOException {
+        // As specified by InputStream a request for zero bytes should not signal the end of the stream
+        if (len == 0)
+            return 0;
+
         // The number of bytes read
         int count = 0;
 
@@ -130,6 +151,24 @@ public class GZIPCompressingInputStream extends DeflaterInputStream {
         return (count > 0 ? count : -1) ;
     }
 
+    /**
+     * Closes the stream and the uncompressed input stream and returns the {@link Deflater} to the pool.
+     *
+     * @throws IOException If an I/O error occurs closing the uncompressed input stream
+     * @since 8.0.0
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (!released) {
+                released = true;
+                DeflaterPool.release(def);
+            }
+        }
+    }
+
     /**
      * Create the GZIP trailer for the currently read and compressed data
      *
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Is an {@link InputStream} implementation with on the fly GZIP decompression that protects against <i>"zip bombs"</i>.
+ * <p>Like {@link java.util.zip.GZIPInputStream} it reads the GZIP header and trailer around the compressed data, but it
+ * uses an {@link java.util.zip.Inflater} from a pool and can limit both the size of the decompressed data and the ratio
+ * between the size of the decompressed and compressed data. The limits are checked while the data is read, so when a
+ * limit is exceeded the decompression is aborted immediately with a {@link DecompressionLimitException} and no more
+ * data than allowed is produced. As the <code>Inflater</code> is returned to the pool when the stream is closed, the
+ * stream should always be closed after use.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class GZIPDecompressingInputStream extends InflaterInputStream {
+
+    // GZIP header magic number.
+    private final static int GZIP_MAGIC = 0x8b1f;
+
+    // Flags of the GZIP header
+    private final static int FHCRC      = 2;
+    private final static int FEXTRA     = 4;
+    private final static int FNAME      = 8;
+    private final static int FCOMMENT   = 16;
+
+    // Size of the buffer used for reading the compressed data
+    private final static int BUFFER_SIZE = 8192;
+
+    // The CRC-32 of the decompressed data of the current GZIP member
+    private final CRC32 crc = new CRC32();
+
+    // The maximum size of the decompressed data, or -1 if there is no limit
+    private final long maxSize;
+
+    // The maximum ratio between the decompressed and compressed size, or -1 if there is no limit
+    private final int maxRatio;
+
+    // The number of compressed bytes consumed by the inflater for the previous GZIP members
+    private long compressed = 0;
+
+    // The number of decompressed bytes read
+    private long decompressed = 0;
+
+    // Indicates whether the end of the compressed data has been reached
+    private boolean eos = false;
+
+    // Indicates whether the inflater has been returned to the pool
+    private boolean released = false;
+
+    /**
+     * Creates a new {@link GZIPDecompressingInputStream} that decompresses the data from the given {@link InputStream}
+     * without limits on the decompressed data.
+     *
+     * @param in The compressed {@link InputStream}.
+     * @throws IOException  When the GZIP header cannot be read
+     */
+    public GZIPDecompressingInputStream(final InputStream in) throws IOException {
+        this(in, -1, -1);
+    }
+
+    /**
+     * Creates a new {@link GZIPDecompressingInputStream} that decompresses the data from the given {@link InputStream}
+     * and aborts when the decompressed data exceeds the given limits.
+     *
+     * @param in        The compressed {@link InputStream}.
+     * @param maxSize   The maximum size of the decompressed data, or -1 if there is no limit
+     * @param maxRatio  The maximum ratio between the decompressed and compressed size, or -1 if there is no limit
+     * @throws IOException  When the GZIP header cannot be read
+     */
+    public GZIPDecompressingInputStream(final InputStream in, final long maxSize, final int maxRatio)
+                                                                                                    throws IOException {
+        super(new PushbackInputStream(in, BUFFER_SIZE), InflaterPool.borrow(), BUFFER_SIZE);
+        this.maxSize = maxSize;
+        this.maxRatio = maxRatio;
+        try {
+            readHeader();
+        } catch (IOException invalidHeader) {
+            close();
+            throw invalidHeader;
+        }
+    }
+
+    /**
+     * Reads decompressed data into a byte array. After each read it is checked that the decompressed data does not
+     * exceed the limits.
+     *
+     * @param b     buffer into which the data is read
+     * @param off   starting offset of the data within b
+     * @param len   maximum number of decompressed bytes to read into b
+     * @return      the actual number of bytes read, or -1 if the end of the compressed data is reached
+     * @throws DecompressionLimitException  if the decompressed data exceeds one of the limits
+     * @throws ZipException if the compressed data is corrupt or incomplete
+     * @throws IOException  if an I/O error occurs or if this input stream is already closed
+     */
+    @Override
+    public int read(final byte b[], final int off, final int len) throws IOException {
+        if (eos)
+            return -1;
+        if (len == 0)
+            return 0;
+
+        final int n;
+        try {
+            n = super.read(b, off, len);
+        } catch (EOFException truncated) {
+            throw new ZipException("Unexpected end of the compressed data");
+        }
+        if (n == -1) {
+            if (readTrailer())
+                eos = true;
+            return eos ? -1 : read(b, off, len);
+        }
+        crc.update(b, off, n);
+        decompressed += n;
+        checkLimits();
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return eos ? 0 : super.available();
+    }
+
+    /**
+     * Closes the stream and the compressed input stream and returns the {@link java.util.zip.Inflater} to the pool.
+     *
+     * @throws IOException If an I/O error occurs closing the compressed input stream
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (!released) {
+                compressed += inf.getBytesRead();
+                released = true;
+                InflaterPool.release(inf);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of compressed bytes decompressed so far. This is the number of bytes consumed by the {@link
+     * java.util.zip.Inflater} and therefore does not include the GZIP headers and trailers or the compressed data
+     * that has been read ahead but not yet decompressed.
+     *
+     * @return the number of compressed bytes decompressed so far
+     */
+    public long getCompressedSize() {
+        return released ? compressed : compressed + inf.getBytesRead();
+    }
+
+    /**
+     * @return the number of decompressed bytes read so far
+     */
+    public long getDecompressedSize() {
+        return decompressed;
+    }
+
+    /**
+     * Checks that the decompressed data does not exceed the maximum size and compression ratio.
+     *
+     * @throws DecompressionLimitException if one of the limits is exceeded
+     */
+    private void checkLimits() throws DecompressionLimitException {
+        if (maxSize > 0 && decompressed > maxSize)
+            throw new DecompressionLimitException("Decompressed data exceeds maximum size of " + maxSize + " bytes");
+        if (maxRatio > 0 && decompressed > maxRatio * getCompressedSize())
+            throw new DecompressionLimitException("Decompressed data exceeds maximum compression ratio of " + maxRatio);
+    }
+
+    /**
+     * Reads the GZIP header of the next member in the compressed data.
+     *
+     * @throws ZipException If the data does not start with a valid GZIP header
+     * @throws IOException  If an I/O error occurs reading the header
+     */
+    private void readHeader() throws IOException {
+        crc.reset();
+        final InputStream hdr = new CheckedInputStream(in, crc);
+        if (readUShort(hdr) != GZIP_MAGIC)
+            throw new ZipException("Not in GZIP format");
+        if (readUByte(hdr) != Deflater.DEFLATED)
+            throw new ZipException("Unsupported compression method");
+        final int flags = readUByte(hdr);
+        // Skip MTIME, XFL, and OS fields
+        skipBytes(hdr, 6);
+        if ((flags & FEXTRA) == FEXTRA)
+            skipBytes(hdr, readUShort(hdr));
+        if ((flags & FNAME) == FNAME)
+            while (readUByte(hdr) != 0) ;
+        if ((flags & FCOMMENT) == FCOMMENT)
+            while (readUByte(hdr) != 0) ;
+        if ((flags & FHCRC) == FHCRC) {
+            final int v = (int) crc.getValue() & 0xffff;
+            if (readUShort(hdr) != v)
+                throw new ZipException("Corrupt GZIP header");
+        }
+        crc.reset();
+    }
+
+    /**
+     * Reads the GZIP trailer of the current member and checks it against the decompressed data. When the trailer is
+     * followed by another GZIP member, the inflater is prepared for decompressing it. Other data following the trailer
+     * is ignored, as is done by {@link java.util.zip.GZIPInputStream}.
+     *
+     * @return <code>true</code> if the end of the compressed data is reached,<br>
+     *         <code>false</code> if another member follows
+     * @throws ZipException If the trailer does not match the decompressed data
+     * @throws IOException  If an I/O error occurs reading the trailer
+     */
+    private boolean readTrailer() throws IOException {
+        // The inflater may have read beyond the end of the deflate data, push those bytes back
+        final int remaining = inf.getRemaining();
+        if (remaining > 0)
+            ((PushbackInputStream) in).unread(buf, len - remaining, remaining);
+        if (readUInt(in) != crc.getValue() || readUInt(in) != (inf.getBytesWritten() & 0xffffffffL))
+            throw new ZipException("Corrupt GZIP trailer");
+
+        final int next = in.read();
+        if (next == -1)
+            return true;
+        ((PushbackInputStream) in).unread(next);
+        try {
+            readHeader();
+        } catch (IOException noMember) {
+            return true;
+        }
+        compressed += inf.getBytesRead();
+        inf.reset();
+        return false;
+    }
+
+    private long readUInt(final InputStream in) throws IOException {
+        final long s = readUShort(in);
+        return ((long) readUShort(in) << 16) | s;
+    }
+
+    private int readUShort(final InputStream in) throws IOException {
+        final int b = readUByte(in);
+        return (readUByte(in) << 8) | b;
+    }
+
+    private int readUByte(final InputStream in) throws IOException {
+        final int b = in.read();
+        if (b == -1)
+            throw new ZipException("Unexpected end of the compressed data");
+        return b;
+    }
+
+    private void skipBytes(final InputStream in, int n) throws IOException {
+        while (n-- > 0)
+            readUByte(in);
+    }
+}
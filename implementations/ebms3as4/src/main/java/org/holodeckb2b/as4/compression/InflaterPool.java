@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Inflater;
+
+/**
+ * Is a pool of {@link Inflater}s used for the decompression of received GZIP compressed payloads. Like the {@link
+ * DeflaterPool} it prevents that native memory is allocated for each payload that is decompressed. All <code>Inflater
+ * </code>s in the pool expect raw deflate data, i.e. without ZLIB header and trailer, as contained in GZIP data.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+final class InflaterPool {
+
+	/**
+	 * The idle <code>Inflater</code>s, limited to twice the number of processors
+	 */
+	private static final ArrayBlockingQueue<Inflater> idle =
+								new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+	private InflaterPool() {}
+
+	/**
+	 * Gets an <code>Inflater</code> from the pool, or a new one if there is no idle instance.
+	 *
+	 * @return	an <code>Inflater</code> ready for use
+	 */
+	static Inflater borrow() {
+		final Inflater inflater = idle.poll();
+		return inflater != null ? inflater : new Inflater(true);
+	}
+
+	/**
+	 * Returns the given <code>Inflater</code> to the pool. When the pool is full the <code>Inflater</code> is ended so
+	 * its native resources are released immediately.
+	 *
+	 * @param inflater	the <code>Inflater</code> that is not used anymore
+	 */
+	static void release(final Inflater inflater) {
+		inflater.reset();
+		if (!idle.offer(inflater))
+			inflater.end();
+	}
+}
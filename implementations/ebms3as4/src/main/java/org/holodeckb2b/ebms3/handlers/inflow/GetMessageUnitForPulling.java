@@ -82,9 +82,8 @@ public class GetMessageUnitForPulling extends AbstractBaseHandler {
      * Helper method to retrieve a User Message waiting for pulling on the requested MPC from the database. The longest
      * waiting message is selected by default. Because the MPC is not always specified in the P-Mode the query based on
      * P-Mode does not guarantee that only messages with the given MPC are returned. Therefore the MPC is checked before
-     * selecting the message. Also the message unit's processing state is changed to {@link ProcessingState#PROCESSING}.
-     * Only if the state change is successful the message unit is returned. If the state could not be changed the next
-     * available message unit is selected.
+     * selecting the message. The message unit is claimed by changing its processing state to {@link
+     * ProcessingState#PROCESSING}, which ensures that the message unit will only be pulled once.
      *
      * @param authPModes    The list of P-Modes messages may be selected from
      * @param reqMPC        The MPC contained in the pull request
@@ -95,48 +94,25 @@ public class GetMessageUnitForPulling extends AbstractBaseHandler {
      */
     private IUserMessageEntity getForPulling(final List<IPMode> authPModes, final String reqMPC, final Logger log)
                                                                                         throws StorageException {
-        log.trace("Get list of messages waiting to be pulled");
+        log.trace("Claim oldest message waiting to be pulled");
         // Query is based on the P-Mode ids so convert given set of P-Modes to id only collection
         Set<String> pmodeIds = new HashSet<>(authPModes.size());
         for (IPMode p : authPModes) pmodeIds.add(p.getId());
-        List<IUserMessageEntity> waitingUserMessages =  HolodeckB2BCore.getQueryManager()
-                                                            .getMessageUnitsForPModesInState(IUserMessage.class,
-                                                                                        pmodeIds,
-                                                                                        ProcessingState.AWAITING_PULL);
-        // Are there messages waiting?
-        if (Utils.isNullOrEmpty(waitingUserMessages))
+        // The usermessage should be on assigned to the requested MPC or a parent MPC. But take care of possible
+        // empty MPC values
+        final String rMPC = Utils.isNullOrEmpty(reqMPC) ? EbMSConstants.DEFAULT_MPC : reqMPC;
+        final List<IUserMessageEntity> claimed = HolodeckB2BCore.getStorageManager()
+        								.claimMessageUnitsForPModesInState(IUserMessage.class, pmodeIds,
+        																   ProcessingState.AWAITING_PULL,
+        																   ProcessingState.PROCESSING,
+        																   (IUserMessageEntity um) ->
+        											rMPC.startsWith(Utils.isNullOrEmpty(um.getMPC()) ?
+        																	EbMSConstants.DEFAULT_MPC : um.getMPC()),
+        																   1);
+        if (Utils.isNullOrEmpty(claimed)) {
+            log.debug("None of the available messages is available for pulling!");
             return null;
-        else {
-            // There is at least one message available, take the oldest one. This is the first one in result list (as
-            // the result is ordered)
-            // Message must be selected only if their MPC (defined in message meta-data or P-Mode) matches the requested
-            // MPC and its state can be changed to Processing to ensure that message will only be pulled once
-            boolean r = false; int i = 0;
-            IUserMessageEntity userMsgToPull = null;
-            do {
-                userMsgToPull = waitingUserMessages.get(i);
-                log.trace("Check if User Message [" + userMsgToPull.getMessageId() + "] can be pulled.");
-                // The usermessage should be on assigned to the requested MPC or a parent MPC. But take care of possible
-                // empty MPC values                
-                final String rMPC = Utils.isNullOrEmpty(reqMPC) ? EbMSConstants.DEFAULT_MPC : reqMPC;
-                final String uMPC = Utils.isNullOrEmpty(userMsgToPull.getMPC()) ? EbMSConstants.DEFAULT_MPC : 
-                																  userMsgToPull.getMPC();                
-                if (rMPC.startsWith(uMPC)) {
-                    log.trace("User Message can be pulled, set processing state to Processing");
-                    r = HolodeckB2BCore.getStorageManager().setProcessingState(userMsgToPull,
-                                                                              ProcessingState.PROCESSING);
-                    log.trace("Processing state was " + (r ? "" : "not ")  + "changed");
-                } else
-                    log.trace("MPC value of selected message is different from requested MPC!");
-                i++;
-            } while (!r && i < waitingUserMessages.size());
-
-            if (r)
-                return userMsgToPull;
-            else {
-                log.debug("None of the available messages is available for pulling!");
-                return null;
-            }
-        }
+        } else
+            return claimed.get(0);
     }
  }
@@ -16,8 +16,11 @@
  */
 package org.holodeckb2b.ebms3.handlers.inflow;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.zip.ZipException;
@@ -27,10 +30,14 @@ import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.apache.axiom.attachments.CachedFileDataSource;
+import org.apache.axiom.mime.PartDataHandler;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.soap.SOAPBody;
 import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.as4.compression.CompressionDataHandler;
 import org.holodeckb2b.as4.compression.DeCompressionFailure;
+import org.holodeckb2b.as4.compression.DecompressionLimitException;
 import org.holodeckb2b.common.errors.FailedDecryption;
 import org.holodeckb2b.common.errors.MimeInconsistency;
 import org.holodeckb2b.common.errors.OtherContentError;
@@ -52,6 +59,8 @@ import org.holodeckb2b.interfaces.storage.providers.StorageException;
 
 /**
  * Is the <i>IN_FLOW</i> handler responsible for reading the payload content from the SOAP message.
+ * <p>When payloads are compressed using the AS4 Compression Feature they are decompressed while being saved. The
+ * number of compressed and decompressed bytes of the message is logged (on DEBUG level).
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  */
@@ -80,6 +89,8 @@ public class SaveUserMsgAttachments extends AbstractUserMessageHandler {
         }
 
         log.debug("UserMessage contains " + payloads.size() + " payloads.");
+        // The number of compressed bytes received and decompressed bytes saved for the message
+        long compressedBytes = 0, decompressedBytes = 0;
         try {
             // Save each payload to storage
         	IPMode pmode = HolodeckB2BCoreInterface.getPModeSet().get(um.getPModeId());
@@ -148,10 +159,9 @@ public class SaveUserMsgAttachments extends AbstractUserMessageHandler {
                             createInconsistentError(procCtx, um, plRef, log);
                             return InvocationResponse.CONTINUE;
                         } else {
-                            try (final OutputStream aOS = storage.openStorage())
-                            {
-                                dh.writeTo(aOS);
-                            } catch (final IOException ioException) {
+                            try {
+                                saveAttachment(dh, storage, log);
+                            } catch (final IOException | StorageException ioException) {
                                 // Get root cause as this problem can be caused by failure to decompress, decrypt or
                                 // writing to file system
                                 Throwable rootCause = Utils.getRootCause(ioException);
@@ -164,6 +174,10 @@ public class SaveUserMsgAttachments extends AbstractUserMessageHandler {
                                     writeFailure = new DeCompressionFailure("Payload [" + plRef
                                                                         + "] in message could not be decompressed!",
                                                                         um.getMessageId());
+                                    // Inform the sender when the payload was rejected because it is too large
+                                    if (rootCause instanceof DecompressionLimitException)
+                                        writeFailure.setErrorDetail(writeFailure.getErrorDetail() + " "
+                                                                    + rootCause.getMessage());
                                 } else if (Utils.getRootCause(ioException)
                                                                 instanceof java.security.GeneralSecurityException) {
                                     errMessage = "decrypted";
@@ -182,6 +196,13 @@ public class SaveUserMsgAttachments extends AbstractUserMessageHandler {
                                 updateManager.setProcessingState(um, ProcessingState.FAILURE);
                                 return InvocationResponse.CONTINUE;
                             }
+                            if (dh instanceof CompressionDataHandler) {
+                                final CompressionDataHandler cdh = (CompressionDataHandler) dh;
+                                log.trace("Payload decompressed from {} to {} bytes", cdh.getCompressedSize(),
+                                          cdh.getDecompressedSize());
+                                compressedBytes += cdh.getCompressedSize();
+                                decompressedBytes += cdh.getDecompressedSize();
+                            }
                             log.debug("Payload saved to storage, set Mime type in meta data");
                             p.setMimeType(dh.getContentType());
                         }
@@ -194,6 +215,9 @@ public class SaveUserMsgAttachments extends AbstractUserMessageHandler {
                 updateManager.updatePayloadInformation(p);
             }
             log.debug("All payloads saved to temp file");
+            if (compressedBytes > 0)
+                log.debug("Decompressed payloads of message [{}] from {} to {} bytes", um.getMessageId(),
+                          compressedBytes, decompressedBytes);
         } catch (IOException | XMLStreamException | StorageException ex) {
             log.error("Payload(s) could not be saved to temporary file! Details:" + ex.getMessage());
             procCtx.addGeneratedError(new OtherContentError("Internal error", um.getMessageId()));
@@ -203,6 +227,33 @@ public class SaveUserMsgAttachments extends AbstractUserMessageHandler {
         return InvocationResponse.CONTINUE;
     }
 
+    /**
+     * Saves the content of the attachment to the payload storage. When Axiom has already buffered the attachment in a
+     * temporary file, the file is handed over to the storage so it does not need to be written again. Otherwise the
+     * content is transferred from the attachment's stream.
+     *
+     * @param dh		the data handler of the attachment
+     * @param storage	the payload storage to save the content to
+     * @param log		the Log to be used
+     * @throws IOException when the attachment content cannot be read
+     * @throws StorageException when the content cannot be saved to storage
+     */
+    private void saveAttachment(final DataHandler dh, final IPayloadContent storage, final Logger log)
+    																				throws IOException, StorageException {
+    	// Only when the data handler is Axiom's own the file contains the actual attachment content
+    	if (dh instanceof PartDataHandler && dh.getDataSource() instanceof CachedFileDataSource) {
+    		final File cachedFile = ((CachedFileDataSource) dh.getDataSource()).getFile();
+    		log.trace("Attachment is buffered in {}, hand over to payload storage", cachedFile.getName());
+    		if (storage.adoptFile(cachedFile.toPath()))
+    			log.debug("Moved buffered attachment file to payload storage");
+    		else
+    			log.debug("Copied buffered attachment file to payload storage");
+    	} else
+	    	try (InputStream content = dh.getInputStream()) {
+	    		storage.transferFrom(Channels.newChannel(content));
+	    	}
+    }
+
     /**
      * Searches for and returns the element in the SOAP body with the given id.
      * <p>This method only looks for the <code>xml:id</code> attribute of the elements.
@@ -18,18 +18,21 @@ package org.holodeckb2b.ebms3.handlers.outflow;
 
 import static org.holodeckb2b.interfaces.messagemodel.IPayload.Containment.ATTACHMENT;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 
+import javax.activation.DataSource;
 import javax.xml.namespace.QName;
 
 import org.apache.axiom.attachments.ConfigurableDataHandler;
+import org.apache.axiom.ext.activation.SizeAwareDataSource;
 import org.apache.axiom.om.OMElement;
 import org.apache.axiom.om.OMException;
 import org.apache.axiom.om.OMNamespace;
 import org.apache.axiom.om.OMXMLBuilderFactory;
 import org.apache.axiom.om.OMXMLParserWrapper;
-import org.apache.axis2.builder.unknowncontent.InputStreamDataSource;
 import org.apache.axis2.context.MessageContext;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.handlers.AbstractUserMessageHandler;
@@ -123,7 +126,8 @@ public class AddPayloads extends AbstractUserMessageHandler {
     protected void addContent(final IPayloadEntity p, final MessageContext mc, Logger log) throws Exception {
         switch (p.getContainment()) {
             case ATTACHMENT :
-                // Use specified MIME type or detect it when none is specified
+                // Use specified MIME type, which is normally detected when the payload was stored. Only for
+                // payloads stored by earlier versions it may need to be detected now
                 String mimeType = p.getMimeType();
                 if (mimeType == null || mimeType.isEmpty()) {
                     log.trace("Detecting MIME type of payload");
@@ -137,7 +141,7 @@ public class AddPayloads extends AbstractUserMessageHandler {
 
                 log.trace("Payload mime type is " + mimeType);
                 // Use Axiom ConfigurableDataHandler to enable setting of mime type
-                ConfigurableDataHandler dh = new ConfigurableDataHandler(new InputStreamDataSource(p.getContent()));
+                ConfigurableDataHandler dh = new ConfigurableDataHandler(new PayloadDataSource(p, mimeType));
                 dh.setContentType(mimeType);
                 final String cid = p.getPayloadURI();
                 log.trace("Adding payload to message as attachment with Content-id = {}", cid);
@@ -177,4 +181,47 @@ public class AddPayloads extends AbstractUserMessageHandler {
             	log.warn("Payload containment is set to EXTERNAL, handling unspecified!");
         }
     }
+
+    /**
+     * Is the {@link DataSource} used to add the payload content as attachment. It opens the payload content only when
+     * the data is read, i.e. when the message is serialised, and provides the size of the content as recorded when the
+     * payload was stored.
+     */
+    static class PayloadDataSource implements SizeAwareDataSource {
+    	private final IPayloadEntity	payload;
+    	private final String			mimeType;
+
+    	PayloadDataSource(final IPayloadEntity payload, final String mimeType) {
+    		this.payload = payload;
+    		this.mimeType = mimeType;
+    	}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			final InputStream content = payload.getContent();
+			if (content == null)
+				throw new IOException("Payload content not available");
+			return content;
+		}
+
+		@Override
+		public OutputStream getOutputStream() throws IOException {
+			throw new IOException("Payload data source is read-only");
+		}
+
+		@Override
+		public String getContentType() {
+			return mimeType;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+
+		@Override
+		public long getSize() {
+			return payload.getContentLength();
+		}
+    }
 }
@@ -29,10 +29,12 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.neethi.Assertion;
 import org.apache.neethi.Policy;
+import org.holodeckb2b.as4.compression.CompressedDataCleaner;
 import org.holodeckb2b.common.VersionInfo;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.HolodeckB2BCore;
 import org.holodeckb2b.ebms3.pulling.PullConfiguration;
+import org.holodeckb2b.interfaces.eventprocessing.MessageProccesingEventHandlingException;
 import org.holodeckb2b.interfaces.security.ISecurityProvider;
 import org.holodeckb2b.interfaces.security.SecurityProcessingException;
 import org.holodeckb2b.interfaces.workerpool.WorkerPoolException;
@@ -123,6 +125,14 @@ public class EbMS3Module implements Module {
         } else {
         	log.warn("Pulling disabled, as no configuration is provided.");
         }
+
+        log.trace("Register the cleaner of cached compressed payload data");
+        try {
+        	CompressedDataCleaner.register();
+        } catch (MessageProccesingEventHandlingException registrationFailure) {
+        	log.warn("Could not register the cleaner of cached compressed payload data : {}",
+        			 registrationFailure.getMessage());
+        }
         
         log.info("Holodeck B2B ebMS3/AS4 module " + VersionInfo.fullVersion + " STARTED.");
     }
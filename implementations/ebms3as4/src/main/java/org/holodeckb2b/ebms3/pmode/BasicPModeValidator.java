@@ -23,9 +23,11 @@ import java.util.List;
 import java.util.Set;
 
 import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.interfaces.as4.pmode.IAS4PayloadProfile;
 import org.holodeckb2b.interfaces.general.EbMSConstants;
 import org.holodeckb2b.interfaces.pmode.ILeg;
 import org.holodeckb2b.interfaces.pmode.IPMode;
+import org.holodeckb2b.interfaces.pmode.IPayloadProfile;
 import org.holodeckb2b.interfaces.pmode.IPullRequestFlow;
 import org.holodeckb2b.interfaces.pmode.IUserMessageFlow;
 import org.holodeckb2b.interfaces.pmode.validation.IPModeValidator;
@@ -34,7 +36,8 @@ import org.holodeckb2b.interfaces.pmode.validation.PModeValidationError;
 /**
  * Is the default implementation of {@link IPModeValidator} for ebMS3 / AS4 P-Modes. Since Holodeck B2B for most
  * parameters accepts any  value as long as processing permits and also allows very generic P-Modes, this implementation
- * only checks basic settings like the values for MEP, MEP binding, MPC for pulling and security settings. If needed
+ * only checks basic settings like the values for MEP, MEP binding, MPC for pulling, the compression level and security
+ * settings. If needed
  * because of specific requirements in a certain domain a custom validator could be added.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
@@ -73,6 +76,7 @@ public class BasicPModeValidator implements IPModeValidator {
 
         errors.addAll(checkMEPParameters(pmode));
         errors.addAll(checkPullingMPCs(pmode));
+        errors.addAll(checkCompressionLevel(pmode));
 
         return errors;
     }
@@ -144,5 +148,31 @@ public class BasicPModeValidator implements IPModeValidator {
         return errors;
     }
 
+    /**
+     * Checks that the compression level, if specified, is in the range supported by {@link java.util.zip.Deflater},
+     * i.e. from 0 to 9.
+     *
+     * @param pmode	the P-Mode to check
+     * @return	the errors found in the compression level settings
+     * @since 8.0.0
+     */
+    protected Collection<PModeValidationError> checkCompressionLevel(IPMode pmode) {
+        Collection<PModeValidationError>    errors = new ArrayList<>();
+
+        List<? extends ILeg> legs = pmode.getLegs();
+        if (!Utils.isNullOrEmpty(legs)) {
+            for (int i = 0; i < legs.size(); i++) {
+                IUserMessageFlow userMsgFlow = legs.get(i).getUserMessageFlow();
+                IPayloadProfile plProfile = userMsgFlow != null ? userMsgFlow.getPayloadProfile() : null;
+                if (plProfile instanceof IAS4PayloadProfile) {
+                    int level = ((IAS4PayloadProfile) plProfile).getCompressionLevel();
+                    if (level < -1 || level > 9)
+                        errors.add(new PModeValidationError("PMode[" + i + "].PayloadProfile.CompressionLevel",
+                                                            "The compression level must be in the range 0 to 9"));
+                }
+            }
+        }
 
+        return errors;
+    }
 }
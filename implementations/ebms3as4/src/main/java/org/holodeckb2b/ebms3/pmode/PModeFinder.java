@@ -21,14 +21,17 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.apache.axis2.description.Parameter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.util.CompareUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.interfaces.config.IConfiguration;
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.general.EbMSConstants;
 import org.holodeckb2b.interfaces.general.IAgreement;
@@ -95,6 +98,18 @@ public class PModeFinder {
         MATCH_WEIGHTS = Collections.unmodifiableMap(aMap);
     }
 
+    /**
+     * The index on the current P-Mode set used to limit the number of P-Modes to check for a received User Message
+     * @since 8.0.0
+     */
+    private static volatile PModeMatchingIndex matchingIndex;
+
+    /**
+     * The cache of look up results for the current P-Mode set
+     * @since 8.0.0
+     */
+    private static volatile PModeResolutionCache resolutionCache;
+
     /**
      * Finds the P-Mode for a received <i>User Message</i> message unit.
      * <p>The ebMS specifications do not describe or recommend how the P-Mode for a user message should be determined,
@@ -122,6 +137,10 @@ public class PModeFinder {
      * message receiving. It is up to the handlers to decide whether the result is acceptable or not. This method will
      * only find one matching P-Mode. This means that when multiple P-Modes with the highest match score are found none
      * is returned.
+     * <p>To prevent that all P-Modes have to be checked for each received message, a {@link PModeMatchingIndex} is used
+     * to select the P-Modes that can match to the message based on the party ids, Service, Action and MPC. Only these
+     * candidates are scored using the weights from the table above. As the result only depends on the meta-data used
+     * for matching, it is cached in the {@link PModeResolutionCache} until the P-Mode set changes.
      *
      * @param mu        The user message message unit to find the P-Mode for
      * @return          The P-Mode for the message unit if the message unit can be matched to a <b>single</b> P-Mode,
@@ -132,263 +151,368 @@ public class PModeFinder {
         if (pmodes == null)
             return null;
 
+        final Optional<IPMode> result = getResolutionCache(pmodes).get(PModeResolutionCache.userMessageKey(mu),
+        														() -> Optional.ofNullable(findBestMatch(pmodes, mu)));
+        return result.orElse(null);
+    }
+
+    /**
+     * Finds the P-Mode that best matches to the given User Message.
+     *
+     * @param pmodes	The current P-Mode set
+     * @param mu		The received User Message
+     * @return			The best matching P-Mode, or <code>null</code> if there is no single best match
+     * @since 8.0.0
+     */
+    private static IPMode findBestMatch(final IPModeSet pmodes, final IUserMessage mu) {
         IPMode    hPMode = null;
         int       hValue = 0;
         boolean   multiple = false;
 
         log.debug("Finding P-Mode for User Message (msgId={})", mu.getMessageId());
-        for (final IPMode p : pmodes.getAll()) {
+        final Collection<IPMode> candidates = getMatchingIndex(pmodes).getCandidates(mu);
+        log.debug("{} P-Modes are candidate for matching", candidates.size());
+        for (final IPMode p : candidates) {
         	if (log.isDebugEnabled())
         		log.debug("Checking P-Mode : {}", p.getId());
 
-        	// If the P-Mode MEP binding does not start with the ebMS3 namespace URI it does not apply to ebMS3/AS4 and
-        	// therefore should be ignored
-        	if (!p.getMepBinding().startsWith(EbMSConstants.EBMS3_NS_URI))
-        		continue;
-
-        	/*
-        	 * First step is to determine if the P-Mode should be evaluated, i.e. if it governs message receiving. For
-        	 * a 2-Way P-Mode this is always true. But for 1-Way P-Modes this is only the case when it is not triggering
-        	 * a Push or responding to a Pull.
-        	 */
-        	final boolean initiator = PModeUtils.isHolodeckB2BInitiator(p);
-        	final String  mepBinding = p.getMepBinding();
-        	if ((initiator && mepBinding.equals(EbMSConstants.ONE_WAY_PUSH)) // sending using Push
-    		|| (!initiator && mepBinding.equals(EbMSConstants.ONE_WAY_PULL))) { // sending using Pull
-                continue;
-            }
+            final int cValue = getMatchValue(p, mu);
+            if (cValue < 0)
+            	continue;
 
-        	/*
-        	 * Now first check the generic meta-data elements like P-Mode identifier, agreement reference and trading
-        	 * partners.
-        	 */
-            int cValue = 0;
-            // P-Mode id and agreement info are contained in optional element
-            final IAgreementReference agreementRef = mu.getCollaborationInfo().getAgreement();
-
-            if (p.includeId() != null && p.includeId()) {
-                // The P-Mode id can be used for matching, so check if one is given in message
-                if (agreementRef != null) {
-                    final String pid = agreementRef.getPModeId();
-                    if (!Utils.isNullOrEmpty(pid) && pid.equals(p.getId())) {
-                        cValue = MATCH_WEIGHTS.get(PARAMETERS.ID);
-                        log.debug("P-Mode.id match");
-                    }
-                }
+            // Does this P-Mode better match to the message meta data than the current highest match?
+            if (cValue > hValue) {
+                // Yes, it does, set it as new best match
+                hValue = cValue;
+                hPMode = p;
+                multiple = false;
+                log.debug("{} is new candidate", p.getId());
+            } else if (cValue == hValue) {
+                // It has the same match as the current highest scoring one
+                multiple = true;
+                if (log.isDebugEnabled())
+                    log.debug("{} has same match value as {}", p.getId(), hPMode.getId());
             }
+        }
 
-            // Check agreement info
-            final IAgreement agreementPMode = p.getAgreement();
-            if (agreementPMode != null) {
-                final int i = Utils.compareStrings(agreementRef != null ? agreementRef.getName() : null
-                                                  , agreementPMode.getName());
-                switch (i) {
-                    case -2 :
-                    case 2 :
-                        // mismatch on agreement name, either because different or one defined in P-Mode but not in msg
-                        log.debug("Agreement name mis-match");
-                        continue;
-                    case 0 :
-                        // names equal, but for match also types must be equal
-                        final int j = Utils.compareStrings(agreementRef.getType(), agreementPMode.getType());
-                        if (j == -1 || j == 0) {
-                            cValue += MATCH_WEIGHTS.get(PARAMETERS.AGREEMENT);
-                            log.debug("Agreement found");
-                        }
-                        else {
-                            log.debug("Agreement type mis-match");
-                            continue; // mis-match on agreement type
-                        }
-                    case -1 :
-                        // both P-Mode and message agreement ref are empty, ignore
-                    case 1 :
-                        // the message contains agreement ref, but P-Mode does not, ignore
-                }
-            }
+        // Only return a single P-Mode
+        return !multiple ? hPMode : null;
+    }
 
-            // Check trading partner info
-            final ITradingPartner from = mu.getSender(), to = mu.getReceiver();
-            ITradingPartner fromPMode = null, toPMode = null;
-            /*
-             * If HB2B is the initiator of the MEP it will either send the first User Message or Pull Request which
-             * implies that it will receive the User Message from the Responder. If it isn't the initiator the first
-             * User Message is either pushed to HB2B by the other MSH or send by HB2B as a response to a Pull Request
-             * meaning that the sender is always the Initiator of the MEP.
-             */
-            if (initiator) {
-            	fromPMode = p.getResponder(); toPMode = p.getInitiator();
-            } else {
-            	fromPMode = p.getInitiator(); toPMode = p.getResponder();
-            }
+    /**
+     * Gets the index on the P-Modes in the given P-Mode set. If no index exists yet for the P-Mode set, it is created.
+     *
+     * @param pmodes	The current P-Mode set
+     * @return			The matching index for the P-Mode set
+     * @since 8.0.0
+     */
+    private static PModeMatchingIndex getMatchingIndex(final IPModeSet pmodes) {
+    	PModeMatchingIndex index = matchingIndex;
+    	if (index == null || index.getPModeSet() != pmodes) {
+    		synchronized (PModeFinder.class) {
+    			index = matchingIndex;
+    			if (index == null || index.getPModeSet() != pmodes) {
+    				if (index != null)
+    					index.close();
+    				log.debug("Creating P-Mode matching index");
+    				index = new PModeMatchingIndex(pmodes);
+    				matchingIndex = index;
+    			}
+    		}
+    	}
+    	return index;
+    }
 
-            // Check To info
-            if (toPMode != null) {
-                final int c = Utils.compareStrings(to.getRole(), toPMode.getRole());
-                if ( c == -1 || c == 0) {
-                    cValue += MATCH_WEIGHTS.get(PARAMETERS.TO_ROLE);
-                    log.debug("To party role match");
-                }
-                else if (c != 1) {
-                    log.debug("To party role mis-match");
-                    continue; // mis-match on To party role
+    /**
+     * Gets the cache of P-Mode look up results for the given P-Mode set. If no cache exists yet for the P-Mode set, it
+     * is created.
+     *
+     * @param pmodes	The current P-Mode set
+     * @return			The result cache for the P-Mode set
+     * @since 8.0.0
+     */
+    private static PModeResolutionCache getResolutionCache(final IPModeSet pmodes) {
+    	PModeResolutionCache cache = resolutionCache;
+    	if (cache == null || cache.getPModeSet() != pmodes) {
+    		synchronized (PModeFinder.class) {
+    			cache = resolutionCache;
+    			if (cache == null || cache.getPModeSet() != pmodes) {
+    				if (cache != null)
+    					cache.close();
+    				int maxSize = PModeResolutionCache.DEFAULT_CACHE_SIZE;
+    				final IConfiguration config = HolodeckB2BCoreInterface.getConfiguration();
+    				final Parameter sizeParam = config != null ?
+    										config.getParameter(PModeResolutionCache.P_CACHE_SIZE) : null;
+    				if (sizeParam != null && sizeParam.getParameterType() == Parameter.TEXT_PARAMETER) {
+    					try {
+    						maxSize = Integer.parseInt(((String) sizeParam.getValue()).trim());
+    					} catch (NumberFormatException nan) {
+    						log.warn("Invalid value [{}] for parameter {}, using default {}", sizeParam.getValue(),
+    								 PModeResolutionCache.P_CACHE_SIZE, maxSize);
+    					}
+    				}
+    				cache = new PModeResolutionCache(getMatchingIndex(pmodes), maxSize);
+    				resolutionCache = cache;
+    			}
+    		}
+    	}
+    	return cache;
+    }
+
+    /**
+     * Gets the cache of P-Mode look up results for the current P-Mode set, which can be used to monitor the number of
+     * cache hits and misses.
+     *
+     * @return	The result cache, or <code>null</code> if no P-Mode set is available
+     * @since 8.0.0
+     */
+    public static PModeResolutionCache getResolutionCache() {
+    	final IPModeSet pmodes = HolodeckB2BCoreInterface.getPModeSet();
+    	return pmodes != null ? getResolutionCache(pmodes) : null;
+    }
+
+    /**
+     * Calculates how well the given P-Mode matches to the meta-data of the User Message using the weights defined in
+     * {@link #MATCH_WEIGHTS}.
+     *
+     * @param p		The P-Mode to check
+     * @param mu	The received User Message
+     * @return		The match value, or -1 if the P-Mode does not match to the User Message
+     * @since 8.0.0
+     */
+    private static int getMatchValue(final IPMode p, final IUserMessage mu) {
+        // If the P-Mode MEP binding does not start with the ebMS3 namespace URI it does not apply to ebMS3/AS4 and
+        // therefore should be ignored
+        if (!p.getMepBinding().startsWith(EbMSConstants.EBMS3_NS_URI))
+        	return -1;
+
+        /*
+         * First step is to determine if the P-Mode should be evaluated, i.e. if it governs message receiving. For
+         * a 2-Way P-Mode this is always true. But for 1-Way P-Modes this is only the case when it is not triggering
+         * a Push or responding to a Pull.
+         */
+        final boolean initiator = PModeUtils.isHolodeckB2BInitiator(p);
+        final String  mepBinding = p.getMepBinding();
+        if ((initiator && mepBinding.equals(EbMSConstants.ONE_WAY_PUSH)) // sending using Push
+    		|| (!initiator && mepBinding.equals(EbMSConstants.ONE_WAY_PULL))) { // sending using Pull
+            return -1;
+        }
+
+        /*
+         * Now first check the generic meta-data elements like P-Mode identifier, agreement reference and trading
+         * partners.
+         */
+        int cValue = 0;
+        // P-Mode id and agreement info are contained in optional element
+        final IAgreementReference agreementRef = mu.getCollaborationInfo().getAgreement();
+
+        if (p.includeId() != null && p.includeId()) {
+            // The P-Mode id can be used for matching, so check if one is given in message
+            if (agreementRef != null) {
+                final String pid = agreementRef.getPModeId();
+                if (!Utils.isNullOrEmpty(pid) && pid.equals(p.getId())) {
+                    cValue = MATCH_WEIGHTS.get(PARAMETERS.ID);
+                    log.debug("P-Mode.id match");
                 }
-                Collection<IPartyId> pmodeToIds = toPMode.getPartyIds();
-                if (!Utils.isNullOrEmpty(pmodeToIds))
-                    if (CompareUtils.areEqual(to.getPartyIds(), pmodeToIds)) {
-                        cValue += MATCH_WEIGHTS.get(PARAMETERS.TO);
-                        log.debug("To party id(s) match");
-                    }
-                    else {
-                        log.debug("To party id(s) mis-match");
-                        continue; // mis-match on To party id('s)
-                    }
             }
+        }
 
-            // Check From info
-            if (fromPMode != null) {
-                final int c = Utils.compareStrings(from.getRole(), fromPMode.getRole());
-                if ( c == -1 || c == 0) {
-                    cValue += MATCH_WEIGHTS.get(PARAMETERS.FROM_ROLE);
-                    log.debug("From party role match");
-                }
-                else if (c != 1) {
-                    log.debug("From party role mis-match");
-                    continue; // mis-match on From party role
-                }
-                Collection<IPartyId> pmodeFromIds = fromPMode.getPartyIds();
-                if (!Utils.isNullOrEmpty(pmodeFromIds))
-                    if (CompareUtils.areEqual(from.getPartyIds(), pmodeFromIds)) {
-                        cValue += MATCH_WEIGHTS.get(PARAMETERS.FROM);
-                        log.debug("From party ids match");
+        // Check agreement info
+        final IAgreement agreementPMode = p.getAgreement();
+        if (agreementPMode != null) {
+            final int i = Utils.compareStrings(agreementRef != null ? agreementRef.getName() : null
+                                              , agreementPMode.getName());
+            switch (i) {
+                case -2 :
+                case 2 :
+                    // mismatch on agreement name, either because different or one defined in P-Mode but not in msg
+                    log.debug("Agreement name mis-match");
+                    return -1;
+                case 0 :
+                    // names equal, but for match also types must be equal
+                    final int j = Utils.compareStrings(agreementRef.getType(), agreementPMode.getType());
+                    if (j == -1 || j == 0) {
+                        cValue += MATCH_WEIGHTS.get(PARAMETERS.AGREEMENT);
+                        log.debug("Agreement found");
                     }
                     else {
-                        log.debug("From party id(s) mis-match");
-                        continue;  // mis-match on From party id('s)
+                        log.debug("Agreement type mis-match");
+                        return -1; // mis-match on agreement type
                     }
+                case -1 :
+                    // both P-Mode and message agreement ref are empty, ignore
+                case 1 :
+                    // the message contains agreement ref, but P-Mode does not, ignore
             }
+        }
 
-            /*
-             * Remaining meta-data to be matched are defined per Leg basis. All relevant information is contained in the
-             * user message flow, except for the MPC which can also be specified in a pull request flow.
-             */
-            final ILeg leg = PModeUtils.getReceiveLeg(p);
-            final IUserMessageFlow  flow = leg.getUserMessageFlow();
-            final IBusinessInfo     pmBI = flow != null ? flow.getBusinessInfo() : null;
-            if (pmBI != null) {
-                // Check Service
-                final IService svcPMode = pmBI.getService();
-                if (svcPMode != null) {
-                    final IService svc = mu.getCollaborationInfo().getService();
-                    if (svc.getName().equals(svcPMode.getName())) {
-                        final int i = Utils.compareStrings(svc.getType(), svcPMode.getType());
-                        if (i == -1 || i == 0) {
-                            cValue += MATCH_WEIGHTS.get(PARAMETERS.SERVICE);
-                            log.debug("Service match");
-                        }
-                        else {
-                            log.debug("Service type mis-match");
-                            continue; // mis-match on service type
-                        }
-                    } else {
-                        log.debug("Service name mis-match");
-                        continue; // mis-match on service name
-                    }
-                }
-                // Check Action
-                final int i = Utils.compareStrings(mu.getCollaborationInfo().getAction(), pmBI.getAction());
-                if (i == 0) {
-                    cValue += MATCH_WEIGHTS.get(PARAMETERS.ACTION);
-                    log.debug("Action match");
-                }
-                else if (i == -2) {
-                    log.debug("Action mis-match");
-                    continue; // mis-match on action
-                }
-            }
+        // Check trading partner info
+        final ITradingPartner from = mu.getSender(), to = mu.getReceiver();
+        ITradingPartner fromPMode = null, toPMode = null;
+        /*
+         * If HB2B is the initiator of the MEP it will either send the first User Message or Pull Request which
+         * implies that it will receive the User Message from the Responder. If it isn't the initiator the first
+         * User Message is either pushed to HB2B by the other MSH or send by HB2B as a response to a Pull Request
+         * meaning that the sender is always the Initiator of the MEP.
+         */
+        if (initiator) {
+        	fromPMode = p.getResponder(); toPMode = p.getInitiator();
+        } else {
+        	fromPMode = p.getInitiator(); toPMode = p.getResponder();
+        }
 
-            /*
-             * Check MPC, first check the MPC defined in the User Message flow, and if there is none there, check
-             * if there is maybe on in Pull Request flow. When no MPC is provided the default MPC is used (applies to
-             * both message and P-Mode)
-             */
-            String mpc = mu.getMPC();
-            if (Utils.isNullOrEmpty(mpc))
-                mpc = EbMSConstants.DEFAULT_MPC;
-            String mpcPMode = pmBI != null ? pmBI.getMpc() : null;
-
-            if (Utils.isNullOrEmpty(mpcPMode) && !Utils.isNullOrEmpty(leg.getPullRequestFlows())) {
-            	mpcPMode = leg.getPullRequestFlows().iterator().next().getMPC();
-                if (Utils.isNullOrEmpty(mpcPMode))
-                    mpcPMode = EbMSConstants.DEFAULT_MPC;
-                // Now compare MPC, but take into account that MPC in a PullRequestFlow can be a sub MPC, so the one
-                // from the message can be a parent MPC
-                if (mpcPMode.startsWith(mpc)) {
-                    cValue += MATCH_WEIGHTS.get(PARAMETERS.MPC);
-                    log.debug("MPC match");
+        // Check To info
+        if (toPMode != null) {
+            final int c = Utils.compareStrings(to.getRole(), toPMode.getRole());
+            if ( c == -1 || c == 0) {
+                cValue += MATCH_WEIGHTS.get(PARAMETERS.TO_ROLE);
+                log.debug("To party role match");
+            }
+            else if (c != 1) {
+                log.debug("To party role mis-match");
+                return -1; // mis-match on To party role
+            }
+            Collection<IPartyId> pmodeToIds = toPMode.getPartyIds();
+            if (!Utils.isNullOrEmpty(pmodeToIds))
+                if (CompareUtils.areEqual(to.getPartyIds(), pmodeToIds)) {
+                    cValue += MATCH_WEIGHTS.get(PARAMETERS.TO);
+                    log.debug("To party id(s) match");
                 }
                 else {
-                    log.debug("MPC mis-match");
-                    continue; // mis-match on MPC
+                    log.debug("To party id(s) mis-match");
+                    return -1; // mis-match on To party id('s)
                 }
-            } else {
-                // If no MPC is given in P-Mode, it uses the default
-                if (Utils.isNullOrEmpty(mpcPMode))
-                    mpcPMode = EbMSConstants.DEFAULT_MPC;
-                // Now compare the MPC values
-                if (mpc.equals(mpcPMode)) {
-                    cValue += MATCH_WEIGHTS.get(PARAMETERS.MPC);
-                    log.debug("Default MPC match");
+        }
+
+        // Check From info
+        if (fromPMode != null) {
+            final int c = Utils.compareStrings(from.getRole(), fromPMode.getRole());
+            if ( c == -1 || c == 0) {
+                cValue += MATCH_WEIGHTS.get(PARAMETERS.FROM_ROLE);
+                log.debug("From party role match");
+            }
+            else if (c != 1) {
+                log.debug("From party role mis-match");
+                return -1; // mis-match on From party role
+            }
+            Collection<IPartyId> pmodeFromIds = fromPMode.getPartyIds();
+            if (!Utils.isNullOrEmpty(pmodeFromIds))
+                if (CompareUtils.areEqual(from.getPartyIds(), pmodeFromIds)) {
+                    cValue += MATCH_WEIGHTS.get(PARAMETERS.FROM);
+                    log.debug("From party ids match");
                 }
                 else {
-                    log.debug("MPC mis-match");
-                    continue; // mis-match on MPC
+                    log.debug("From party id(s) mis-match");
+                    return -1;  // mis-match on From party id('s)
                 }
-            }
+        }
 
-            /*
-             * Check the message properties. Only the properties defined in the P-Mode are checked for matching, i.e.
-             * when a property exists in the message, but is not defined in the P-Mode, it is ignored. Properties
-             * defined in the P-Mode, but not available in the message result in a mismatch.
-             */
-            Collection<IProperty> pModeProperties = pmBI != null ? pmBI.getProperties() : null;
-            if (!Utils.isNullOrEmpty(pModeProperties)) {
-            	Collection<IProperty> messageProperties = mu.getMessageProperties();
-            	if (Utils.isNullOrEmpty(messageProperties))
-            		continue; // mismatch because properties defined in P-Mode are missing
-            	boolean propMisMatch = false;
-            	for(IProperty pp : pModeProperties) {
-            		if (messageProperties.stream().anyMatch(mp -> CompareUtils.areEqual(mp, pp))) {
-            			cValue += MATCH_WEIGHTS.get(PARAMETERS.MSG_PROPERTY);
-                        if (log.isDebugEnabled())
-                            log.debug("Property {} match", pp.getName());
+        /*
+         * Remaining meta-data to be matched are defined per Leg basis. All relevant information is contained in the
+         * user message flow, except for the MPC which can also be specified in a pull request flow.
+         */
+        final ILeg leg = PModeUtils.getReceiveLeg(p);
+        final IUserMessageFlow  flow = leg.getUserMessageFlow();
+        final IBusinessInfo     pmBI = flow != null ? flow.getBusinessInfo() : null;
+        if (pmBI != null) {
+            // Check Service
+            final IService svcPMode = pmBI.getService();
+            if (svcPMode != null) {
+                final IService svc = mu.getCollaborationInfo().getService();
+                if (svc.getName().equals(svcPMode.getName())) {
+                    final int i = Utils.compareStrings(svc.getType(), svcPMode.getType());
+                    if (i == -1 || i == 0) {
+                        cValue += MATCH_WEIGHTS.get(PARAMETERS.SERVICE);
+                        log.debug("Service match");
                     }
-            		else {
-            			propMisMatch = true;
-                        if (log.isDebugEnabled())
-                            log.debug("Property {} mis-match", pp.getName());
+                    else {
+                        log.debug("Service type mis-match");
+                        return -1; // mis-match on service type
                     }
-            	}
-            	if (propMisMatch)
-            		continue; // mismatch on a property
+                } else {
+                    log.debug("Service name mis-match");
+                    return -1; // mis-match on service name
+                }
             }
+            // Check Action
+            final int i = Utils.compareStrings(mu.getCollaborationInfo().getAction(), pmBI.getAction());
+            if (i == 0) {
+                cValue += MATCH_WEIGHTS.get(PARAMETERS.ACTION);
+                log.debug("Action match");
+            }
+            else if (i == -2) {
+                log.debug("Action mis-match");
+                return -1; // mis-match on action
+            }
+        }
 
-            // Does this P-Mode better match to the message meta data than the current highest match?
-            if (cValue > hValue) {
-                // Yes, it does, set it as new best match
-                hValue = cValue;
-                hPMode = p;
-                multiple = false;
-                log.debug("{} is new candidate", p.getId());
-            } else if (cValue == hValue) {
-                // It has the same match as the current highest scoring one
-                multiple = true;
-                if (log.isDebugEnabled())
-                    log.debug("{} has same match value as {}", p.getId(), hPMode.getId());
+        /*
+         * Check MPC, first check the MPC defined in the User Message flow, and if there is none there, check
+         * if there is maybe on in Pull Request flow. When no MPC is provided the default MPC is used (applies to
+         * both message and P-Mode)
+         */
+        String mpc = mu.getMPC();
+        if (Utils.isNullOrEmpty(mpc))
+            mpc = EbMSConstants.DEFAULT_MPC;
+        String mpcPMode = pmBI != null ? pmBI.getMpc() : null;
+
+        if (Utils.isNullOrEmpty(mpcPMode) && !Utils.isNullOrEmpty(leg.getPullRequestFlows())) {
+        	mpcPMode = leg.getPullRequestFlows().iterator().next().getMPC();
+            if (Utils.isNullOrEmpty(mpcPMode))
+                mpcPMode = EbMSConstants.DEFAULT_MPC;
+            // Now compare MPC, but take into account that MPC in a PullRequestFlow can be a sub MPC, so the one
+            // from the message can be a parent MPC
+            if (mpcPMode.startsWith(mpc)) {
+                cValue += MATCH_WEIGHTS.get(PARAMETERS.MPC);
+                log.debug("MPC match");
+            }
+            else {
+                log.debug("MPC mis-match");
+                return -1; // mis-match on MPC
+            }
+        } else {
+            // If no MPC is given in P-Mode, it uses the default
+            if (Utils.isNullOrEmpty(mpcPMode))
+                mpcPMode = EbMSConstants.DEFAULT_MPC;
+            // Now compare the MPC values
+            if (mpc.equals(mpcPMode)) {
+                cValue += MATCH_WEIGHTS.get(PARAMETERS.MPC);
+                log.debug("Default MPC match");
+            }
+            else {
+                log.debug("MPC mis-match");
+                return -1; // mis-match on MPC
             }
         }
 
-        // Only return a single P-Mode
-        return !multiple ? hPMode : null;
+        /*
+         * Check the message properties. Only the properties defined in the P-Mode are checked for matching, i.e.
+         * when a property exists in the message, but is not defined in the P-Mode, it is ignored. Properties
+         * defined in the P-Mode, but not available in the message result in a mismatch.
+         */
+        Collection<IProperty> pModeProperties = pmBI != null ? pmBI.getProperties() : null;
+        if (!Utils.isNullOrEmpty(pModeProperties)) {
+        	Collection<IProperty> messageProperties = mu.getMessageProperties();
+        	if (Utils.isNullOrEmpty(messageProperties))
+        		return -1; // mismatch because properties defined in P-Mode are missing
+        	boolean propMisMatch = false;
+        	for(IProperty pp : pModeProperties) {
+        		if (messageProperties.stream().anyMatch(mp -> CompareUtils.areEqual(mp, pp))) {
+        			cValue += MATCH_WEIGHTS.get(PARAMETERS.MSG_PROPERTY);
+                    if (log.isDebugEnabled())
+                        log.debug("Property {} match", pp.getName());
+                }
+        		else {
+        			propMisMatch = true;
+                    if (log.isDebugEnabled())
+                        log.debug("Property {} mis-match", pp.getName());
+                }
+        	}
+        	if (propMisMatch)
+        		return -1; // mismatch on a property
+        }
+
+        return cValue;
     }
 
     /**
@@ -406,11 +530,66 @@ public class PModeFinder {
                                                     final String mpc) throws SecurityProcessingException {
         final ArrayList<IPMode> pmodesForPulling = new ArrayList<>();
 
-        for(final IPMode p : HolodeckB2BCoreInterface.getPModeSet().getAll()) {
+        final IPModeSet pmodes = HolodeckB2BCoreInterface.getPModeSet();
+        // The P-Modes that can be pulled on the MPC don't depend on the authentication info, so can be cached
+        final List<PullCandidate> candidates = getResolutionCache(pmodes).get(
+        						PModeResolutionCache.simpleKey(PModeResolutionCache.LookupType.PULLING, mpc),
+        						() -> findPullCandidates(pmodes, mpc));
+        for(final PullCandidate c : candidates) {
+            boolean authorized = false;
+            if (c.flows == null) {
+                // There is no specific configuration for pulling, so use trading partner security settings only
+                authorized = verifyPullRequestAuthorization(null, c.tpSecCfg, authInfo);
+            } else {
+                for (final Iterator<IPullRequestFlow> it = c.flows.iterator(); it.hasNext() && !authorized;) {
+                    final IPullRequestFlow flow = it.next();
+                    authorized = verifyPullRequestAuthorization(flow.getSecurityConfiguration(), c.tpSecCfg,
+                                                                authInfo);
+                }
+            }
+            // If the info from the message is succesfully verified this P-Mode can be pulled
+            if (authorized)
+                pmodesForPulling.add(c.pmode);
+        }
+
+        return pmodesForPulling;
+    }
+
+    /**
+     * Is a P-Mode in which Holodeck B2B responds to a pull operation on a specific MPC, together with the security
+     * configuration needed to authorize the Pull Request.
+     *
+     * @since 8.0.0
+     */
+    private static class PullCandidate {
+        final IPMode                    pmode;
+        final ISecurityConfiguration    tpSecCfg;
+        /*
+         * The pull request flows applicable to the MPC, or null when the P-Mode has no pull request flows
+         */
+        final List<IPullRequestFlow>    flows;
+
+        PullCandidate(final IPMode pmode, final ISecurityConfiguration tpSecCfg, final List<IPullRequestFlow> flows) {
+            this.pmode = pmode;
+            this.tpSecCfg = tpSecCfg;
+            this.flows = flows;
+        }
+    }
+
+    /**
+     * Gets the P-Modes for which Holodeck B2B is the responder in a pull operation for the given MPC.
+     *
+     * @param pmodes    The current P-Mode set
+     * @param mpc       The <i>MPC</i> that the message are exchanged on
+     * @return          The P-Modes that can be pulled on the MPC with the security configurations to check
+     * @since 8.0.0
+     */
+    private static List<PullCandidate> findPullCandidates(final IPModeSet pmodes, final String mpc) {
+        final List<PullCandidate> candidates = new ArrayList<>();
+        for(final IPMode p : pmodes.getAll()) {
             // Check if this P-Mode uses pulling with Holodeck B2B being the responder
             final ILeg leg = PModeUtils.getInPullRequestLeg(p);
             if (leg != null) {
-                boolean authorized = false;
                 // Get the security configuration of the trading partner
                 ISecurityConfiguration tpSecCfg = null;
                 if (PModeUtils.isHolodeckB2BInitiator(p) && p.getResponder() != null)
@@ -422,26 +601,21 @@ public class PModeFinder {
                 // as well
                 final Collection<IPullRequestFlow> flows = leg.getPullRequestFlows();
                 if (Utils.isNullOrEmpty(flows)) {
-                    // There is no specific configuration for pulling, so use trading partner security settings only
-                    // also means we need to check the MPC on leg level
-                    authorized = checkMainMPC(leg, mpc) && verifyPullRequestAuthorization(null, tpSecCfg, authInfo);
+                    // No specific configuration for pulling, also means we need to check the MPC on leg level
+                    if (checkMainMPC(leg, mpc))
+                        candidates.add(new PullCandidate(p, tpSecCfg, null));
                 } else {
-                    for (final Iterator<IPullRequestFlow> it = flows.iterator(); it.hasNext() && !authorized;) {
-                        final IPullRequestFlow flow = it.next();
-                        // Check if mpc matches to this specific PR-flow
-                        authorized = checkSubMPC(flow, mpc)
-                                     && verifyPullRequestAuthorization(flow.getSecurityConfiguration(),
-                                                                        tpSecCfg,
-                                                                        authInfo);
-                    }
+                    // Check which of the specific PR-flows match to the mpc
+                    final List<IPullRequestFlow> mpcFlows = new ArrayList<>();
+                    for (final IPullRequestFlow flow : flows)
+                        if (checkSubMPC(flow, mpc))
+                            mpcFlows.add(flow);
+                    if (!mpcFlows.isEmpty())
+                        candidates.add(new PullCandidate(p, tpSecCfg, mpcFlows));
                 }
-                // If the info from the message is succesfully verified this P-Mode can be pulled
-                if (authorized)
-                    pmodesForPulling.add(p);
             }
         }
-
-        return pmodesForPulling;
+        return candidates;
     }
 
     /**
@@ -581,9 +755,25 @@ public class PModeFinder {
      *              exists <code>null</code> is returned
      */
     public static Collection<IPMode> getPModesWithErrorsTo(final String url) {
+        final IPModeSet pmodes = HolodeckB2BCoreInterface.getPModeSet();
+        final Collection<IPMode> result = getResolutionCache(pmodes).get(
+        						PModeResolutionCache.simpleKey(PModeResolutionCache.LookupType.ERRORS_TO, url),
+        						() -> findPModesWithErrorsTo(pmodes, url));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Finds the P-Modes in the given P-Mode set which specify the given URL as the destination of <i>Error</i> signals.
+     *
+     * @param pmodes	The current P-Mode set
+     * @param url		The destination URL
+     * @return			Collection of {@link IPMode}s for which errors must be sent to the given URL
+     * @since 8.0.0
+     */
+    private static Collection<IPMode> findPModesWithErrorsTo(final IPModeSet pmodes, final String url) {
         final Collection<IPMode>  result = new ArrayList<>();
 
-        for(final IPMode p : HolodeckB2BCoreInterface.getPModeSet().getAll()) {
+        for(final IPMode p : pmodes.getAll()) {
             // Get all relevent P-Mode info
             final ILeg leg = p.getLegs().iterator().next();
             final IProtocol protocolInfo = leg.getProtocol();
@@ -611,9 +801,25 @@ public class PModeFinder {
      *              exists <code>null</code> is returned
      */
     public static Collection<IPMode> getPModesWithReceiptsTo(final String url) {
+        final IPModeSet pmodes = HolodeckB2BCoreInterface.getPModeSet();
+        final Collection<IPMode> result = getResolutionCache(pmodes).get(
+        						PModeResolutionCache.simpleKey(PModeResolutionCache.LookupType.RECEIPTS_TO, url),
+        						() -> findPModesWithReceiptsTo(pmodes, url));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Finds the P-Modes in the given P-Mode set which specify the given URL as the destination of <i>Receipt</i> signals.
+     *
+     * @param pmodes	The current P-Mode set
+     * @param url		The destination URL
+     * @return			Collection of {@link IPMode}s for which receipts must be sent to the given URL
+     * @since 8.0.0
+     */
+    private static Collection<IPMode> findPModesWithReceiptsTo(final IPModeSet pmodes, final String url) {
         final Collection<IPMode>  result = new ArrayList<>();
 
-        for(final IPMode p : HolodeckB2BCoreInterface.getPModeSet().getAll()) {
+        for(final IPMode p : pmodes.getAll()) {
             // Get all relevent P-Mode info
             final ILeg leg = p.getLegs().iterator().next();
             final IProtocol protocolInfo = leg.getProtocol();
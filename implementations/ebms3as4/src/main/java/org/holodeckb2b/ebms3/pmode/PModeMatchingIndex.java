@@ -0,0 +1,391 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.ebms3.pmode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.core.pmode.PModeUtils;
+import org.holodeckb2b.ebms3.pmode.PModeFinder.PARAMETERS;
+import org.holodeckb2b.interfaces.general.EbMSConstants;
+import org.holodeckb2b.interfaces.general.IPartyId;
+import org.holodeckb2b.interfaces.general.IService;
+import org.holodeckb2b.interfaces.general.ITradingPartner;
+import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
+import org.holodeckb2b.interfaces.pmode.IBusinessInfo;
+import org.holodeckb2b.interfaces.pmode.ILeg;
+import org.holodeckb2b.interfaces.pmode.IPMode;
+import org.holodeckb2b.interfaces.pmode.IPModeSet;
+import org.holodeckb2b.interfaces.pmode.IPModeSetListener;
+import org.holodeckb2b.interfaces.pmode.IUserMessageFlow;
+import org.holodeckb2b.interfaces.pmode.PModeSetEvent;
+
+/**
+ * Is an index on the P-Modes that govern the receiving of ebMS3 User Messages which is used by the {@link PModeFinder}
+ * to limit the number of P-Modes that need to be scored for a received User Message. The index only uses the meta-data
+ * elements for which a difference between the value in the message and the P-Mode always results in a mis-match, i.e.
+ * the From and To party ids, Service name, Action and MPC. For each of these elements a P-Mode is either registered
+ * under the value it specifies or as a <i>wildcard</i> when it does not restrict the element. Therefore the set of
+ * candidates returned by {@link #getCandidates(IUserMessage)} always includes all P-Modes that could match the message
+ * and the {@link PModeFinder} still applies the complete matching algorithm, including the <i>MATCH_WEIGHTS</i>, to
+ * the candidates.
+ * <p>The index is kept up to date by listening to the events of the {@link IPModeSet} it was built for. Updates of
+ * the index are serialised and result in a new immutable snapshot of the index that replaces the current one at once.
+ * Look ups therefore don't need any locking and always see a consistent index, i.e. never both the old and new
+ * version of an updated P-Mode.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+class PModeMatchingIndex implements IPModeSetListener {
+	private static final Logger log = LogManager.getLogger(PModeMatchingIndex.class);
+
+	/**
+	 * The meta-data elements used for indexing
+	 */
+	private static final PARAMETERS[] INDEXED = { PARAMETERS.FROM, PARAMETERS.TO, PARAMETERS.SERVICE,
+												  PARAMETERS.ACTION, PARAMETERS.MPC };
+
+	/**
+	 * Represents an indexed P-Mode together with the values under which it is indexed. When the P-Mode does not
+	 * restrict an element there is no value for it.
+	 */
+	private static class Entry {
+		final IPMode					pmode;
+		final Map<PARAMETERS, String>	keys;
+
+		Entry(final IPMode pmode, final Map<PARAMETERS, String> keys) {
+			this.pmode = pmode;
+			this.keys = keys;
+		}
+	}
+
+	/**
+	 * The index on a single meta-data element, consisting of the P-Modes registered per value and the P-Modes that do
+	 * not restrict the element. It is only changed while the snapshot it belongs to is built.
+	 */
+	private static class ElementIndex {
+		final Map<String, Set<Entry>>	byValue = new HashMap<>();
+		final Set<Entry>				wildcard = new HashSet<>();
+
+		void add(final Entry e, final String key) {
+			if (key == null)
+				wildcard.add(e);
+			else
+				byValue.computeIfAbsent(key, k -> new HashSet<>()).add(e);
+		}
+	}
+
+	/**
+	 * An immutable snapshot of the index, consisting of the indexed P-Modes and the index per meta-data element.
+	 */
+	private static class Snapshot {
+		final long							version;
+		final Collection<Entry>				entries;
+		final Map<PARAMETERS, ElementIndex>	elementIndexes = new EnumMap<>(PARAMETERS.class);
+
+		Snapshot(final long version, final Collection<Entry> indexed) {
+			this.version = version;
+			this.entries = Collections.unmodifiableList(new ArrayList<>(indexed));
+			for (PARAMETERS p : INDEXED)
+				elementIndexes.put(p, new ElementIndex());
+			for (Entry e : entries)
+				for (PARAMETERS p : INDEXED)
+					elementIndexes.get(p).add(e, e.keys.get(p));
+		}
+	}
+
+	/**
+	 * The P-Mode set this index is built for
+	 */
+	private final IPModeSet	pmodeSet;
+
+	/**
+	 * The indexed P-Modes, mapped by their id. Only accessed while holding the lock on this object.
+	 */
+	private final Map<String, Entry> entries = new HashMap<>();
+
+	/**
+	 * The current snapshot of the index used for look ups
+	 */
+	private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyList());
+
+	/**
+	 * Creates a new index for the given P-Mode set. The index registers itself as listener for the P-Mode set's events
+	 * and indexes the P-Modes currently contained in the set.
+	 *
+	 * @param pmodes	The P-Mode set to index
+	 */
+	PModeMatchingIndex(final IPModeSet pmodes) {
+		this.pmodeSet = pmodes;
+		synchronized (this) {
+			pmodes.registerEventListener(this);
+			final Collection<IPMode> current = pmodes.getAll();
+			if (current != null)
+				new ArrayList<>(current).forEach(this::add);
+			snapshot = new Snapshot(1, entries.values());
+			log.debug("Created P-Mode matching index with {} P-Modes", entries.size());
+		}
+	}
+
+	/**
+	 * @return the P-Mode set this index is built for
+	 */
+	IPModeSet getPModeSet() {
+		return pmodeSet;
+	}
+
+	/**
+	 * Gets the version of the index, which is incremented each time a change of the P-Mode set has been applied to the
+	 * index. It can be used to check whether results based on the index are still valid.
+	 *
+	 * @return the current version of the index
+	 */
+	long getVersion() {
+		return snapshot.version;
+	}
+
+	/**
+	 * Stops the maintenance of the index by unregistering from the P-Mode set.
+	 */
+	void close() {
+		pmodeSet.unregisterEventListener(this);
+	}
+
+	@Override
+	public synchronized void handleEvent(final PModeSetEvent event) {
+		if (event.getFailure() != null)
+			return;
+		final IPMode pmode = event.getSource();
+		switch (event.getEventType()) {
+		case ADD:
+		case UPDATE:
+			add(pmode);
+			break;
+		case REMOVE:
+			entries.remove(getEntryKey(pmode));
+		}
+		snapshot = new Snapshot(snapshot.version + 1, entries.values());
+	}
+
+	/**
+	 * Gets the P-Modes that may match to the given User Message. A P-Mode is a candidate when for each of the indexed
+	 * meta-data elements it does not restrict the element or specifies the same value as the message.
+	 *
+	 * @param mu	The received User Message
+	 * @return		The candidate P-Modes
+	 */
+	Collection<IPMode> getCandidates(final IUserMessage mu) {
+		final Snapshot index = snapshot;
+		final Map<PARAMETERS, Set<String>> msgValues = getMessageValues(mu);
+		// Use the element that results in the smallest set of candidates for look up
+		Collection<? extends Collection<Entry>> smallest = null;
+		int smallestSize = Integer.MAX_VALUE;
+		for (Map.Entry<PARAMETERS, Set<String>> v : msgValues.entrySet()) {
+			final ElementIndex idx = index.elementIndexes.get(v.getKey());
+			final Collection<Set<Entry>> sets = new ArrayList<>(v.getValue().size() + 1);
+			int size = idx.wildcard.size();
+			sets.add(idx.wildcard);
+			for (String value : v.getValue()) {
+				final Set<Entry> s = idx.byValue.get(value);
+				if (s != null) {
+					sets.add(s);
+					size += s.size();
+				}
+			}
+			if (size < smallestSize) {
+				smallest = sets;
+				smallestSize = size;
+			}
+		}
+		if (smallest == null)
+			smallest = Collections.singleton(index.entries);
+
+		final Set<IPMode> candidates = new HashSet<>();
+		for (Collection<Entry> s : smallest)
+			for (Entry e : s)
+				if (matches(e, msgValues))
+					candidates.add(e.pmode);
+		return candidates;
+	}
+
+	/**
+	 * Checks whether the indexed values of the P-Mode are consistent with the meta-data of the message.
+	 *
+	 * @param e			The index entry of the P-Mode
+	 * @param msgValues	The values of the message for the indexed elements
+	 * @return	<code>true</code> if the P-Mode may match to the message, <code>false</code> if not
+	 */
+	private static boolean matches(final Entry e, final Map<PARAMETERS, Set<String>> msgValues) {
+		for (Map.Entry<PARAMETERS, Set<String>> v : msgValues.entrySet()) {
+			final String key = e.keys.get(v.getKey());
+			if (key != null && !v.getValue().contains(key))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the values of the indexed meta-data elements from the message. Elements that can not be used for
+	 * filtering, for example because the message does not contain an Action, are not included.
+	 *
+	 * @param mu	The User Message
+	 * @return		The values per meta-data element
+	 */
+	private static Map<PARAMETERS, Set<String>> getMessageValues(final IUserMessage mu) {
+		final Map<PARAMETERS, Set<String>> values = new EnumMap<>(PARAMETERS.class);
+		final Set<String> fromIds = getPartyIdValues(mu.getSender());
+		if (fromIds != null)
+			values.put(PARAMETERS.FROM, fromIds);
+		final Set<String> toIds = getPartyIdValues(mu.getReceiver());
+		if (toIds != null)
+			values.put(PARAMETERS.TO, toIds);
+		if (mu.getCollaborationInfo() != null) {
+			final IService svc = mu.getCollaborationInfo().getService();
+			if (svc != null)
+				values.put(PARAMETERS.SERVICE, Collections.singleton(toKey(svc.getName())));
+			final String action = mu.getCollaborationInfo().getAction();
+			// The Action is only a mis-match when specified in both message and P-Mode
+			if (!Utils.isNullOrEmpty(action))
+				values.put(PARAMETERS.ACTION, Collections.singleton(action));
+		}
+		values.put(PARAMETERS.MPC, Collections.singleton(Utils.getValueOrDefault(mu.getMPC(),
+																				 EbMSConstants.DEFAULT_MPC)));
+		return values;
+	}
+
+	/**
+	 * Gets the values of the party ids of the given trading partner.
+	 *
+	 * @param tp	The trading partner
+	 * @return		The set of party id values, or <code>null</code> if the trading partner is not available
+	 */
+	private static Set<String> getPartyIdValues(final ITradingPartner tp) {
+		if (tp == null || tp.getPartyIds() == null)
+			return null;
+		final Set<String> ids = new HashSet<>();
+		for (IPartyId pid : tp.getPartyIds())
+			ids.add(toKey(pid.getId()));
+		return ids;
+	}
+
+	/**
+	 * Adds the given P-Mode to the indexed P-Modes, replacing the current version if the P-Mode was already indexed. The
+	 * P-Mode is only indexed if it can govern the receiving of ebMS3 User Messages. The change only becomes visible to
+	 * look ups when a new snapshot is created.
+	 *
+	 * @param pmode	The P-Mode to add
+	 */
+	private void add(final IPMode pmode) {
+		final String id = getEntryKey(pmode);
+		Entry e = null;
+		try {
+			if (isReceivingPMode(pmode))
+				e = new Entry(pmode, getPModeKeys(pmode));
+		} catch (RuntimeException invalidPMode) {
+			// Let the matching algorithm handle the P-Mode so it behaves the same as without index
+			log.warn("Could not determine index values of P-Mode ({}), P-Mode is always a candidate", pmode.getId());
+			e = new Entry(pmode, Collections.emptyMap());
+		}
+		if (e != null)
+			entries.put(id, e);
+		else
+			entries.remove(id);
+	}
+
+	/**
+	 * Determines whether the P-Mode applies to ebMS3 and governs receiving of User Messages, i.e. it is not a One-Way
+	 * P-Mode in which Holodeck B2B sends the User Message.
+	 *
+	 * @param p	The P-Mode
+	 * @return	<code>true</code> if the P-Mode governs receiving of ebMS3 User Messages, <code>false</code> otherwise
+	 */
+	private static boolean isReceivingPMode(final IPMode p) {
+		final String  mepBinding = p.getMepBinding();
+		if (mepBinding == null || !mepBinding.startsWith(EbMSConstants.EBMS3_NS_URI))
+			return false;
+		final boolean initiator = PModeUtils.isHolodeckB2BInitiator(p);
+		return !((initiator && mepBinding.equals(EbMSConstants.ONE_WAY_PUSH))
+				|| (!initiator && mepBinding.equals(EbMSConstants.ONE_WAY_PULL)));
+	}
+
+	/**
+	 * Gets the values of the indexed elements as specified in the P-Mode. The values are determined in the same way
+	 * as done by {@link PModeFinder#forReceivedUserMessage(IUserMessage)}.
+	 *
+	 * @param p	The P-Mode
+	 * @return	The values for the elements restricted by the P-Mode
+	 */
+	private static Map<PARAMETERS, String> getPModeKeys(final IPMode p) {
+		final Map<PARAMETERS, String> keys = new EnumMap<>(PARAMETERS.class);
+
+		final boolean initiator = PModeUtils.isHolodeckB2BInitiator(p);
+		final ITradingPartner fromPMode = initiator ? p.getResponder() : p.getInitiator();
+		final ITradingPartner toPMode = initiator ? p.getInitiator() : p.getResponder();
+		// As all party ids must match, we only need to index one of them
+		if (fromPMode != null && !Utils.isNullOrEmpty(fromPMode.getPartyIds()))
+			keys.put(PARAMETERS.FROM, toKey(fromPMode.getPartyIds().iterator().next().getId()));
+		if (toPMode != null && !Utils.isNullOrEmpty(toPMode.getPartyIds()))
+			keys.put(PARAMETERS.TO, toKey(toPMode.getPartyIds().iterator().next().getId()));
+
+		final ILeg leg = PModeUtils.getReceiveLeg(p);
+		final IUserMessageFlow  flow = leg.getUserMessageFlow();
+		final IBusinessInfo     pmBI = flow != null ? flow.getBusinessInfo() : null;
+		if (pmBI != null) {
+			if (pmBI.getService() != null)
+				keys.put(PARAMETERS.SERVICE, toKey(pmBI.getService().getName()));
+			if (!Utils.isNullOrEmpty(pmBI.getAction()))
+				keys.put(PARAMETERS.ACTION, pmBI.getAction());
+		}
+		// When the MPC is taken from a PullRequest flow it can be a sub-channel and cannot be indexed
+		final String mpcPMode = pmBI != null ? pmBI.getMpc() : null;
+		if (!Utils.isNullOrEmpty(mpcPMode) || Utils.isNullOrEmpty(leg.getPullRequestFlows()))
+			keys.put(PARAMETERS.MPC, Utils.getValueOrDefault(mpcPMode, EbMSConstants.DEFAULT_MPC));
+
+		return keys;
+	}
+
+	/**
+	 * Gets the key under which the P-Mode is registered in the index. This is the P-Mode's id or, when the P-Mode has
+	 * no id, a key based on the object's identity.
+	 *
+	 * @param p	The P-Mode
+	 * @return	The key of the P-Mode
+	 */
+	private static String getEntryKey(final IPMode p) {
+		return p.getId() != null ? p.getId() : "@" + Integer.toHexString(System.identityHashCode(p));
+	}
+
+	/**
+	 * Converts a value to a key that can be used in the index, i.e. replaces <code>null</code> by an empty string.
+	 *
+	 * @param value	The value
+	 * @return	The key to use
+	 */
+	private static String toKey(final String value) {
+		return value != null ? value : "";
+	}
+}
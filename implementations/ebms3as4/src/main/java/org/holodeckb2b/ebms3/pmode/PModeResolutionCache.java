@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.ebms3.pmode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.holodeckb2b.interfaces.general.IPartyId;
+import org.holodeckb2b.interfaces.general.IService;
+import org.holodeckb2b.interfaces.general.ITradingPartner;
+import org.holodeckb2b.interfaces.messagemodel.IAgreementReference;
+import org.holodeckb2b.interfaces.messagemodel.ICollaborationInfo;
+import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
+import org.holodeckb2b.interfaces.pmode.IPModeSet;
+import org.holodeckb2b.interfaces.pmode.IPModeSetListener;
+import org.holodeckb2b.interfaces.pmode.PModeSetEvent;
+
+/**
+ * Is a bounded cache of the results of the P-Mode look ups done by the {@link PModeFinder}. As the outcome of these
+ * look ups only depends on the meta-data used for matching and the deployed P-Modes, the result for a set of meta-data
+ * can be re-used until the P-Mode set changes. Therefore each result is cached together with the version of the {@link
+ * PModeMatchingIndex} of the P-Mode set it was calculated with, and it is only used while the index has that version.
+ * As the version only changes after the index has applied the change of the P-Mode set, a result calculated with the
+ * old index can never be used after the change. The cache also listens to the events of the {@link IPModeSet} to
+ * remove the outdated results when a P-Mode is added, updated or removed.
+ * <p>The maximum number of cached results can be set using the <i>PModeCacheSize</i> parameter in the Holodeck B2B
+ * configuration. By default 10000 results are cached. When the maximum is reached arbitrary results are evicted from the
+ * cache. Setting the size to 0 disables caching. The number of cache hits and misses can be retrieved for monitoring.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class PModeResolutionCache implements IPModeSetListener {
+	private static final Logger log = LogManager.getLogger(PModeResolutionCache.class);
+
+	/**
+	 * Name of the configuration parameter to set the maximum number of cached results
+	 */
+	public static final String P_CACHE_SIZE = "PModeCacheSize";
+
+	/**
+	 * The default maximum number of cached results
+	 */
+	static final int DEFAULT_CACHE_SIZE = 10000;
+
+	/**
+	 * Identifies the different kinds of look ups
+	 */
+	enum LookupType { USER_MESSAGE, PULLING, ERRORS_TO, RECEIPTS_TO }
+
+	/**
+	 * A cached result together with the version of the index and the cache it was calculated for
+	 */
+	private static class CachedResult {
+		final long		indexVersion;
+		final long		generation;
+		final Object	value;
+
+		CachedResult(final long indexVersion, final long generation, final Object value) {
+			this.indexVersion = indexVersion;
+			this.generation = generation;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * Compares lists of strings that may contain <code>null</code> values element by element
+	 */
+	private static final Comparator<List<String>> KEY_COMPARATOR = (l1, l2) -> {
+		final Comparator<String> c = Comparator.nullsFirst(Comparator.naturalOrder());
+		for (int i = 0; i < Math.min(l1.size(), l2.size()); i++) {
+			final int r = c.compare(l1.get(i), l2.get(i));
+			if (r != 0)
+				return r;
+		}
+		return Integer.compare(l1.size(), l2.size());
+	};
+
+	/**
+	 * The matching index of the P-Mode set this cache is created for
+	 */
+	private final PModeMatchingIndex	index;
+
+	/**
+	 * The maximum number of cached results
+	 */
+	private final int			maxSize;
+
+	/**
+	 * The cached results
+	 */
+	private final Map<List<Object>, CachedResult> results = new ConcurrentHashMap<>();
+
+	/**
+	 * The current version of the cache, incremented each time the cache is invalidated
+	 */
+	private final AtomicLong	generation = new AtomicLong();
+
+	/**
+	 * Counters for cache hits and misses
+	 */
+	private final LongAdder		hits = new LongAdder();
+	private final LongAdder		misses = new LongAdder();
+
+	/**
+	 * Creates a new cache for the P-Mode set of the given matching index which registers itself as listener for the
+	 * P-Mode set's events.
+	 *
+	 * @param index		The matching index of the P-Mode set
+	 * @param maxSize	The maximum number of results to cache
+	 */
+	PModeResolutionCache(final PModeMatchingIndex index, final int maxSize) {
+		this.index = index;
+		this.maxSize = maxSize;
+		index.getPModeSet().registerEventListener(this);
+		log.debug("Created P-Mode resolution cache with maximum size of {}", maxSize);
+	}
+
+	/**
+	 * @return the P-Mode set this cache is created for
+	 */
+	IPModeSet getPModeSet() {
+		return index.getPModeSet();
+	}
+
+	/**
+	 * Stops the invalidation of the cache by unregistering from the P-Mode set.
+	 */
+	void close() {
+		index.getPModeSet().unregisterEventListener(this);
+	}
+
+	@Override
+	public void handleEvent(final PModeSetEvent event) {
+		invalidate();
+	}
+
+	/**
+	 * Removes all cached results.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		results.clear();
+		log.trace("Invalidated P-Mode resolution cache");
+	}
+
+	/**
+	 * @return the number of look ups that were answered from the cache
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the number of look ups that had to be executed because no result was cached
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return the current number of cached results
+	 */
+	public int getSize() {
+		return results.size();
+	}
+
+	/**
+	 * Gets the result of the look up identified by the given key from the cache or, when not cached yet, executes the
+	 * look up and caches its result.
+	 *
+	 * @param key		The key identifying the look up
+	 * @param lookup	The function executing the look up
+	 * @return	The result of the look up
+	 */
+	@SuppressWarnings("unchecked")
+	<T> T get(final List<Object> key, final Supplier<T> lookup) {
+		// Get the versions before executing the look up, so a result based on outdated P-Modes is never used
+		final long indexVersion = index.getVersion();
+		final long gen = generation.get();
+		final CachedResult cached = results.get(key);
+		if (cached != null && cached.indexVersion == indexVersion && cached.generation == gen) {
+			hits.increment();
+			return (T) cached.value;
+		}
+		misses.increment();
+		final T value = lookup.get();
+		if (maxSize > 0) {
+			if (results.size() >= maxSize)
+				evict();
+			results.put(key, new CachedResult(indexVersion, gen, value));
+		}
+		return value;
+	}
+
+	/**
+	 * Evicts some results from the cache to make room for new ones.
+	 */
+	private void evict() {
+		final Iterator<List<Object>> it = results.keySet().iterator();
+		for (int i = 0; i < Math.max(1, maxSize / 10) && it.hasNext(); i++) {
+			it.next();
+			it.remove();
+		}
+	}
+
+	/**
+	 * Creates the cache key for a look up of the P-Mode of a received User Message. The key consists of all meta-data
+	 * of the User Message used in the matching.
+	 *
+	 * @param mu	The User Message
+	 * @return		The key for the look up
+	 */
+	static List<Object> userMessageKey(final IUserMessage mu) {
+		final ICollaborationInfo ci = mu.getCollaborationInfo();
+		final IAgreementReference agreement = ci != null ? ci.getAgreement() : null;
+		final IService svc = ci != null ? ci.getService() : null;
+		return Arrays.asList(LookupType.USER_MESSAGE,
+							 agreement != null ? Arrays.asList(agreement.getName(), agreement.getType(),
+									 						   agreement.getPModeId()) : null,
+							 partnerKey(mu.getSender()), partnerKey(mu.getReceiver()),
+							 svc != null ? Arrays.asList(svc.getName(), svc.getType()) : null,
+							 ci != null ? ci.getAction() : null,
+							 mu.getMPC(),
+							 sortedKey(mu.getMessageProperties(),
+									   p -> Arrays.asList(p.getName(), p.getValue(), p.getType())));
+	}
+
+	/**
+	 * Creates the cache key for a look up with a single string parameter.
+	 *
+	 * @param type	The type of look up
+	 * @param value	The parameter of the look up
+	 * @return		The key for the look up
+	 */
+	static List<Object> simpleKey(final LookupType type, final String value) {
+		return Arrays.asList(type, value);
+	}
+
+	private static List<Object> partnerKey(final ITradingPartner tp) {
+		return tp == null ? null : Arrays.asList(tp.getRole(),
+								sortedKey(tp.getPartyIds(), (IPartyId pid) -> Arrays.asList(pid.getId(), pid.getType())));
+	}
+
+	private static <T> List<List<String>> sortedKey(final Collection<? extends T> items,
+													final Function<T, List<String>> keyFunction) {
+		if (items == null)
+			return null;
+		if (items.isEmpty())
+			return Collections.emptyList();
+		final List<List<String>> keys = new ArrayList<>(items.size());
+		for (T i : items)
+			keys.add(keyFunction.apply(i));
+		keys.sort(KEY_COMPARATOR);
+		return keys;
+	}
+}
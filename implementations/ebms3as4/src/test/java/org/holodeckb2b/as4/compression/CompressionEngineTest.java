@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import javax.activation.DataHandler;
+import javax.activation.FileDataSource;
+
+import org.holodeckb2b.common.testhelpers.HolodeckB2BTestCore;
+import org.holodeckb2b.commons.Pair;
+import org.holodeckb2b.commons.util.FileUtils;
+import org.holodeckb2b.core.config.InternalConfiguration;
+import org.holodeckb2b.interfaces.storage.IPayloadEntity;
+import org.holodeckb2b.test.storage.PayloadEntity;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class CompressionEngineTest {
+
+	private static Path tempDir;
+	private static InternalConfiguration config;
+
+	@BeforeAll
+	static void setUpClass() throws IOException {
+		tempDir = Files.createTempDirectory("hb2b-compression");
+		config = new HolodeckB2BTestCore().getConfiguration();
+		config.setTempDirectory(tempDir);
+	}
+
+	@AfterAll
+	static void tearDownClass() throws IOException {
+		FileUtils.removeDirectory(tempDir);
+	}
+
+	@Test
+	void testCachesCompressedData() throws IOException {
+		final byte[] data = createData();
+		final Path src = createFile(data);
+		final IPayloadEntity payload = new PayloadEntity();
+
+		List<CompressionDataHandler> result = CompressionEngine.getInstance(config)
+													.compress(List.of(new Pair<>(payload, createHandler(src))), 9);
+		assertEquals(1, result.size());
+		assertArrayEquals(data, decompress(result.get(0)));
+		assertTrue(Files.exists(tempDir.resolve("compressed").resolve(payload.getPayloadId() + ".9.gz")));
+
+		// When the payload is compressed again, the cached data should be used
+		Files.delete(src);
+		result = CompressionEngine.getInstance(config).compress(List.of(new Pair<>(payload, createHandler(src))), 9);
+		assertArrayEquals(data, decompress(result.get(0)));
+	}
+
+	@Test
+	void testParallelCompression() throws IOException {
+		final List<Pair<IPayloadEntity, DataHandler>> payloads = new ArrayList<>();
+		final List<byte[]> data = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			data.add(createData());
+			payloads.add(new Pair<>(new PayloadEntity(), createHandler(createFile(data.get(i)))));
+		}
+
+		List<CompressionDataHandler> result = CompressionEngine.getInstance(config).compress(payloads, -1);
+		assertEquals(payloads.size(), result.size());
+		for (int i = 0; i < payloads.size(); i++) {
+			assertArrayEquals(data.get(i), decompress(result.get(i)));
+			assertTrue(Files.exists(tempDir.resolve("compressed")
+												.resolve(payloads.get(i).value1().getPayloadId() + ".default.gz")));
+		}
+	}
+
+	@Test
+	void testRemoveCached() throws IOException {
+		final IPayloadEntity payload = new PayloadEntity();
+		final CompressionEngine engine = CompressionEngine.getInstance(config);
+		engine.compress(List.of(new Pair<>(payload, createHandler(createFile(createData())))), 9);
+		engine.compress(List.of(new Pair<>(payload, createHandler(createFile(createData())))), -1);
+		final Path cacheDir = tempDir.resolve("compressed");
+		assertTrue(Files.exists(cacheDir.resolve(payload.getPayloadId() + ".9.gz")));
+		assertTrue(Files.exists(cacheDir.resolve(payload.getPayloadId() + ".default.gz")));
+
+		engine.removeCached(payload.getPayloadId());
+
+		assertFalse(Files.exists(cacheDir.resolve(payload.getPayloadId() + ".9.gz")));
+		assertFalse(Files.exists(cacheDir.resolve(payload.getPayloadId() + ".default.gz")));
+	}
+
+	@Test
+	void testCompressWhenCacheRemoved() throws IOException {
+		final byte[] data = createData();
+		final IPayloadEntity payload = new PayloadEntity();
+
+		List<CompressionDataHandler> result = CompressionEngine.getInstance(config)
+								.compress(List.of(new Pair<>(payload, createHandler(createFile(data)))), 1);
+		FileUtils.cleanDirectory(tempDir.resolve("compressed"));
+
+		assertArrayEquals(data, decompress(result.get(0)));
+	}
+
+	@Test
+	void testCacheDisabled() throws IOException {
+		final InternalConfiguration noCacheConfig = new HolodeckB2BTestCore().getConfiguration();
+		final Path noCacheDir = Files.createTempDirectory("hb2b-nocache");
+		noCacheConfig.setTempDirectory(noCacheDir);
+		noCacheConfig.addParameter(CompressionEngine.P_CACHE_MAX_AGE, "0");
+
+		final byte[] data = createData();
+		List<CompressionDataHandler> result = CompressionEngine.getInstance(noCacheConfig)
+						.compress(List.of(new Pair<>(new PayloadEntity(), createHandler(createFile(data)))), 5);
+
+		assertArrayEquals(data, decompress(result.get(0)));
+		assertFalse(Files.exists(noCacheDir.resolve("compressed")));
+		FileUtils.removeDirectory(noCacheDir);
+	}
+
+	private static byte[] createData() {
+		final byte[] data = new byte[64 * 1024];
+		new Random().nextBytes(data);
+		return data;
+	}
+
+	private static Path createFile(final byte[] data) throws IOException {
+		final Path f = Files.createTempFile(tempDir, "payload", ".bin");
+		Files.write(f, data);
+		return f;
+	}
+
+	private static DataHandler createHandler(final Path f) {
+		return new DataHandler(new FileDataSource(f.toFile()));
+	}
+
+	private static byte[] decompress(final CompressionDataHandler dh) throws IOException {
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		dh.writeTo(compressed);
+		try (InputStream gzis = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			return gzis.readAllBytes();
+		}
+	}
+}
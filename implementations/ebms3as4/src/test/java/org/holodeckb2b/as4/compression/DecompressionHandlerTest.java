@@ -21,26 +21,39 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
 
 import javax.activation.DataHandler;
+import javax.activation.FileDataSource;
 
 import org.apache.axiom.attachments.Attachments;
 import org.apache.axis2.context.MessageContext;
+import org.apache.axis2.description.Parameter;
 import org.apache.axis2.engine.Handler;
 import org.holodeckb2b.common.messagemodel.Payload;
 import org.holodeckb2b.common.messagemodel.UserMessage;
+import org.holodeckb2b.common.pmode.PMode;
+import org.holodeckb2b.common.pmode.PayloadProfile;
 import org.holodeckb2b.common.pmode.Property;
+import org.holodeckb2b.common.pmode.UserMessageFlow;
+import org.holodeckb2b.common.testhelpers.HB2BTestUtils;
 import org.holodeckb2b.common.testhelpers.HolodeckB2BTestCore;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.HolodeckB2BCore;
 import org.holodeckb2b.core.MessageProcessingContext;
+import org.holodeckb2b.core.config.InternalConfiguration;
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
 import org.holodeckb2b.interfaces.general.IProperty;
 import org.holodeckb2b.interfaces.messagemodel.IPayload;
+import org.holodeckb2b.interfaces.pmode.ILeg.Label;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -107,4 +120,128 @@ public class DecompressionHandlerTest {
         assertTrue(mc.getAttachment(deCompPayload.getPayloadURI()) instanceof CompressionDataHandler);
         assertEquals("image/jpeg", mc.getAttachment(deCompPayload.getPayloadURI()).getContentType());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDefaultLimits() throws Exception {
+        // Zeros compress extremely well, like a zip bomb does, with a ratio of about 1000
+        final Path compressed = Files.createTempFile("hb2b-bomb", ".gz");
+        try (GZIPOutputStream gzos = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            gzos.write(new byte[1024 * 1024]);
+        }
+        final InternalConfiguration config = (InternalConfiguration) HolodeckB2BCoreInterface.getConfiguration();
+        try {
+            // Without configuration the default maximum ratio applies
+            try (InputStream is = decompress(compressed)) {
+                is.transferTo(OutputStream.nullOutputStream());
+                fail("Default compression ratio limit not applied");
+            } catch (DecompressionLimitException limitExceeded) {
+                // Expected
+            }
+
+            // Disabling the limit in the configuration
+            config.addParameter(DecompressionHandler.P_MAX_COMPRESSION_RATIO, "0");
+            try (InputStream is = decompress(compressed)) {
+                assertEquals(1024 * 1024, is.transferTo(OutputStream.nullOutputStream()));
+            }
+
+            // Setting a maximum size in the configuration
+            config.addParameter(DecompressionHandler.P_MAX_DECOMPRESSED_SIZE, "1024");
+            try (InputStream is = decompress(compressed)) {
+                is.transferTo(OutputStream.nullOutputStream());
+                fail("Configured decompressed size limit not applied");
+            } catch (DecompressionLimitException limitExceeded) {
+                // Expected
+            }
+        } finally {
+            Parameter p = config.getParameter(DecompressionHandler.P_MAX_COMPRESSION_RATIO);
+            if (p != null)
+                config.removeParameter(p);
+            p = config.getParameter(DecompressionHandler.P_MAX_DECOMPRESSED_SIZE);
+            if (p != null)
+                config.removeParameter(p);
+            Files.delete(compressed);
+        }
+    }
+
+    @Test
+    public void testPModeLimits() throws Exception {
+        final Path compressed = Files.createTempFile("hb2b-bomb", ".gz");
+        try (GZIPOutputStream gzos = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            gzos.write(new byte[1024 * 1024]);
+        }
+        final PMode pmode = HB2BTestUtils.create1WayReceivePMode();
+        final UserMessageFlow umFlow = new UserMessageFlow();
+        final PayloadProfile plProfile = new PayloadProfile();
+        umFlow.setPayloadProfile(plProfile);
+        pmode.getLeg(Label.REQUEST).setUserMessageFlow(umFlow);
+        HolodeckB2BCore.getPModeSet().add(pmode);
+        try {
+            // When the P-Mode does not set a limit the default maximum ratio applies
+            try (InputStream is = decompress(compressed, pmode.getId())) {
+                is.transferTo(OutputStream.nullOutputStream());
+                fail("Default compression ratio limit not applied");
+            } catch (DecompressionLimitException limitExceeded) {
+                // Expected
+            }
+
+            // An explicit 0 in the P-Mode disables the limit
+            plProfile.setMaxCompressionRatio(0);
+            try (InputStream is = decompress(compressed, pmode.getId())) {
+                assertEquals(1024 * 1024, is.transferTo(OutputStream.nullOutputStream()));
+            }
+
+            // And so does a negative value
+            plProfile.setMaxCompressionRatio(-1);
+            try (InputStream is = decompress(compressed, pmode.getId())) {
+                assertEquals(1024 * 1024, is.transferTo(OutputStream.nullOutputStream()));
+            }
+        } finally {
+            HolodeckB2BCore.getPModeSet().remove(pmode.getId());
+            Files.delete(compressed);
+        }
+    }
+
+    /**
+     * Lets the handler process a received User Message without P-Mode with a compressed payload and returns the stream
+     * to read the decompressed data.
+     */
+    private static InputStream decompress(final Path compressed) throws Exception {
+        return decompress(compressed, null);
+    }
+
+    /**
+     * Lets the handler process a received User Message with a compressed payload and returns the stream to read the
+     * decompressed data.
+     */
+    private static InputStream decompress(final Path compressed, final String pmodeId) throws Exception {
+        MessageContext mc = new MessageContext();
+        mc.setFLOW(MessageContext.IN_FLOW);
+
+        UserMessage userMessage = new UserMessage();
+        userMessage.setPModeId(pmodeId);
+        Payload payload = new Payload();
+        payload.setContainment(IPayload.Containment.ATTACHMENT);
+        ArrayList<IProperty> props = new ArrayList<>();
+        Property p = new Property();
+        p.setName(CompressionFeature.FEATURE_PROPERTY_NAME);
+        p.setValue(CompressionFeature.COMPRESSED_CONTENT_TYPE);
+        props.add(p);
+        p = new Property();
+        p.setName(CompressionFeature.MIME_TYPE_PROPERTY_NAME);
+        p.setValue("application/octet-stream");
+        props.add(p);
+        payload.setProperties(props);
+        payload.setPayloadURI("compressed-att-cid");
+        userMessage.addPayload(payload);
+
+        Attachments attachments = new Attachments();
+        attachments.addDataHandler(payload.getPayloadURI(), new DataHandler(new FileDataSource(compressed.toFile())));
+        mc.setAttachmentMap(attachments);
+
+        IUserMessageEntity userMessageEntity = HolodeckB2BCore.getStorageManager().storeReceivedMessageUnit(userMessage);
+        MessageProcessingContext.getFromMessageContext(mc).setUserMessage(userMessageEntity);
+
+        assertEquals(Handler.InvocationResponse.CONTINUE, new DecompressionHandler().invoke(mc));
+        return mc.getAttachment(payload.getPayloadURI()).getInputStream();
+    }
+}
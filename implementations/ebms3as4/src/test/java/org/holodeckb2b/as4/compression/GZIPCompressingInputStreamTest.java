@@ -17,6 +17,8 @@
 package org.holodeckb2b.as4.compression;
 
 import static org.junit.Assert.fail;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -59,4 +61,30 @@ public class GZIPCompressingInputStreamTest {
         	fail();
 		}
     }
+
+    @Test
+    void testCompressionLevels() throws IOException {
+        final byte[] data = new byte[256 * 1024];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) ((i / 64) % 16 + 'a');
+
+        // The deflaters are pooled, so check that each stream uses the requested level
+        final byte[] best = compress(data, 9);
+        final byte[] stored = compress(data, 0);
+        final byte[] fastest = compress(data, 1);
+
+        assertTrue(stored.length > data.length);
+        assertTrue(best.length <= fastest.length);
+        assertTrue(fastest.length < data.length);
+        for (byte[] c : new byte[][] { best, stored, fastest })
+            try (GZIPInputStream decompressed = new GZIPInputStream(new ByteArrayInputStream(c))) {
+                assertArrayEquals(data, decompressed.readAllBytes());
+            }
+    }
+
+    private byte[] compress(final byte[] data, final int level) throws IOException {
+        try (GZIPCompressingInputStream cis = new GZIPCompressingInputStream(new ByteArrayInputStream(data), level)) {
+            return cis.readAllBytes();
+        }
+    }
 }
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.as4.compression;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import org.junit.jupiter.api.Test;
+
+public class GZIPDecompressingInputStreamTest {
+
+	@Test
+	void testDecompression() throws IOException {
+		final byte[] data = createData(200 * 1024);
+		final byte[] compressed = compress(data);
+
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+																		new ByteArrayInputStream(compressed))) {
+			assertArrayEquals(data, dis.readAllBytes());
+			// The compressed size excludes the 10 byte GZIP header and 8 byte trailer
+			assertEquals(compressed.length - 18, dis.getCompressedSize());
+			assertEquals(data.length, dis.getDecompressedSize());
+		}
+	}
+
+	@Test
+	void testMultipleMembers() throws IOException {
+		final byte[] part1 = createData(10 * 1024);
+		final byte[] part2 = createData(20 * 1024);
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		compressed.write(compress(part1));
+		compressed.write(compress(part2));
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(part1);
+		expected.write(part2);
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+															new ByteArrayInputStream(compressed.toByteArray()))) {
+			assertArrayEquals(expected.toByteArray(), dis.readAllBytes());
+		}
+	}
+
+	@Test
+	void testMaxSize() throws IOException {
+		final byte[] compressed = compress(createData(100 * 1024));
+
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+														new ByteArrayInputStream(compressed), 100 * 1024, -1)) {
+			assertEquals(100 * 1024, dis.readAllBytes().length);
+		}
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+														new ByteArrayInputStream(compressed), 64 * 1024, -1)) {
+			assertThrows(DecompressionLimitException.class, () -> dis.readAllBytes());
+			assertTrue(dis.getDecompressedSize() <= 64 * 1024 + 8192);
+		}
+	}
+
+	@Test
+	void testMaxRatio() throws IOException {
+		// Zeros compress extremely well, like a zip bomb does
+		final byte[] compressed = compress(new byte[10 * 1024 * 1024]);
+
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+																new ByteArrayInputStream(compressed), -1, 100)) {
+			assertThrows(DecompressionLimitException.class, () -> dis.readAllBytes());
+			assertTrue(dis.getDecompressedSize() < 10 * 1024 * 1024);
+		}
+		// Random data hardly compresses, so is accepted
+		final byte[] data = createData(100 * 1024);
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+																new ByteArrayInputStream(compress(data)), -1, 2)) {
+			assertArrayEquals(data, dis.readAllBytes());
+		}
+	}
+
+	@Test
+	void testCorruptData() throws IOException {
+		assertThrows(ZipException.class, () -> new GZIPDecompressingInputStream(
+															new ByteArrayInputStream(createData(1024))));
+
+		final byte[] compressed = compress(createData(10 * 1024));
+		// Change the CRC in the trailer
+		compressed[compressed.length - 8] ^= 0xff;
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+																		new ByteArrayInputStream(compressed))) {
+			assertThrows(ZipException.class, () -> dis.readAllBytes());
+		}
+
+		final byte[] truncated = new byte[compressed.length / 2];
+		System.arraycopy(compressed, 0, truncated, 0, truncated.length);
+		try (GZIPDecompressingInputStream dis = new GZIPDecompressingInputStream(
+																		new ByteArrayInputStream(truncated))) {
+			assertThrows(ZipException.class, () -> dis.readAllBytes());
+		}
+	}
+
+	private static byte[] createData(final int size) {
+		final byte[] data = new byte[size];
+		new Random().nextBytes(data);
+		return data;
+	}
+
+	private static byte[] compress(final byte[] data) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
+			gzos.write(data);
+		}
+		return baos.toByteArray();
+	}
+}
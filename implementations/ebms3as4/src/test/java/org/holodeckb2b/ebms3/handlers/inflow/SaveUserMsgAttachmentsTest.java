@@ -18,20 +18,35 @@ package org.holodeckb2b.ebms3.handlers.inflow;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
 
 import javax.activation.DataHandler;
 import javax.activation.FileDataSource;
 
 import org.apache.axiom.attachments.Attachments;
+import org.apache.axiom.attachments.CachedFileDataSource;
+import org.apache.axiom.mime.PartDataHandler;
 import org.apache.axis2.context.MessageContext;
 import org.apache.axis2.engine.Handler;
+import org.holodeckb2b.as4.compression.CompressionDataHandler;
+import org.holodeckb2b.as4.compression.DeCompressionFailure;
 import org.holodeckb2b.common.messagemodel.Payload;
 import org.holodeckb2b.common.messagemodel.UserMessage;
 import org.holodeckb2b.common.testhelpers.HB2BTestUtils;
@@ -40,16 +55,21 @@ import org.holodeckb2b.commons.testing.TestUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.core.HolodeckB2BCore;
 import org.holodeckb2b.core.MessageProcessingContext;
+import org.holodeckb2b.core.config.InternalConfiguration;
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 import org.holodeckb2b.interfaces.core.IMessageProcessingContext;
+import org.holodeckb2b.interfaces.messagemodel.IEbmsError;
 import org.holodeckb2b.interfaces.messagemodel.IPayload.Containment;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
 import org.holodeckb2b.interfaces.storage.IPayloadContent;
 import org.holodeckb2b.interfaces.storage.IPayloadEntity;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
+import org.holodeckb2b.storage.payloads.DefaultPayloadStorageProvider;
 import org.holodeckb2b.test.storage.InMemoryPSProvider;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Created at 12:09 15.03.17
@@ -150,4 +170,142 @@ public class SaveUserMsgAttachmentsTest {
         assertNotNull(userMsgEntity.getPayloads().iterator().next().getContent());
 		assertEquals(1, ((InMemoryPSProvider) testCore.getPayloadStorageProvider()).getPayloadCount());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testBufferedAttachment() throws Exception {
+    	final byte[] data = new byte[100 * 1024];
+    	new Random().nextBytes(data);
+
+    	MessageContext mc = new MessageContext();
+    	mc.setFLOW(MessageContext.IN_FLOW);
+
+    	UserMessage userMessage = new UserMessage();
+    	Payload payload = new Payload();
+    	payload.setContainment(Containment.ATTACHMENT);
+    	payload.setPayloadURI("some-att-cid");
+    	userMessage.addPayload(payload);
+
+    	IMessageProcessingContext procCtx = MessageProcessingContext.getFromMessageContext(mc);
+    	IUserMessageEntity userMsgEntity = HolodeckB2BCore.getStorageManager().storeReceivedMessageUnit(userMessage);
+    	procCtx.setUserMessage(userMsgEntity);
+
+    	// Let Axiom buffer the attachment in a file
+    	Attachments attachments = createBufferedAttachment(Files.createTempDirectory("hb2b-att"), data);
+    	DataHandler dh = attachments.getDataHandler(payload.getPayloadURI());
+    	assertTrue(dh instanceof PartDataHandler && dh.getDataSource() instanceof CachedFileDataSource);
+    	mc.setAttachmentMap(attachments);
+
+    	assertEquals(Handler.InvocationResponse.CONTINUE,
+    					assertDoesNotThrow(() -> new SaveUserMsgAttachments().invoke(mc)));
+
+    	IPayloadEntity storedPayload = userMsgEntity.getPayloads().iterator().next();
+    	try (InputStream stored = storedPayload.getContent()) {
+    		HB2BTestUtils.assertEqual(new ByteArrayInputStream(data), stored);
+    	}
+    }
+
+    @Test
+    public void testBufferedAttachmentMoved(@TempDir Path tempDir) throws Exception {
+    	final byte[] data = new byte[100 * 1024];
+    	new Random().nextBytes(data);
+
+    	// Use the default Payload Storage Provider, with its own directory, which can take over the buffered file
+    	final Path payloadDir = Files.createDirectory(tempDir.resolve("pldata"));
+    	final InternalConfiguration config = testCore.getConfiguration();
+    	config.addParameter("payload-directory", payloadDir.toString());
+    	try {
+    		testCore.setPayloadStorageProvider(new DefaultPayloadStorageProvider());
+
+	    	MessageContext mc = new MessageContext();
+	    	mc.setFLOW(MessageContext.IN_FLOW);
+
+	    	UserMessage userMessage = new UserMessage();
+	    	Payload payload = new Payload();
+	    	payload.setContainment(Containment.ATTACHMENT);
+	    	payload.setPayloadURI("some-att-cid");
+	    	userMessage.addPayload(payload);
+
+	    	IMessageProcessingContext procCtx = MessageProcessingContext.getFromMessageContext(mc);
+	    	IUserMessageEntity userMsgEntity = HolodeckB2BCore.getStorageManager()
+	    																.storeReceivedMessageUnit(userMessage);
+	    	procCtx.setUserMessage(userMsgEntity);
+
+	    	// Buffer the attachment on the same file system as the payload storage so it can be moved
+	    	Path cacheDir = Files.createDirectory(tempDir.resolve("att"));
+	    	Attachments attachments = createBufferedAttachment(cacheDir, data);
+	    	DataHandler dh = attachments.getDataHandler(payload.getPayloadURI());
+	    	assertTrue(dh instanceof PartDataHandler && dh.getDataSource() instanceof CachedFileDataSource);
+	    	File bufferFile = ((CachedFileDataSource) dh.getDataSource()).getFile();
+	    	mc.setAttachmentMap(attachments);
+
+	    	assertEquals(Handler.InvocationResponse.CONTINUE,
+	    					assertDoesNotThrow(() -> new SaveUserMsgAttachments().invoke(mc)));
+
+	    	assertFalse(bufferFile.exists());
+	    	IPayloadEntity storedPayload = userMsgEntity.getPayloads().iterator().next();
+	    	try (InputStream stored = storedPayload.getContent()) {
+	    		HB2BTestUtils.assertEqual(new ByteArrayInputStream(data), stored);
+	    	}
+    	} finally {
+    		config.removeParameter(config.getParameter("payload-directory"));
+    		testCore.setPayloadStorageProvider(new InMemoryPSProvider());
+    	}
+    }
+
+    @Test
+    public void testDecompressionLimitExceeded() throws Exception {
+    	// Zeros compress extremely well, like a zip bomb does
+    	final Path compressed = Files.createTempFile("hb2b-bomb", ".gz");
+    	try (GZIPOutputStream gzos = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+    		gzos.write(new byte[10 * 1024 * 1024]);
+    	}
+
+    	MessageContext mc = new MessageContext();
+    	mc.setFLOW(MessageContext.IN_FLOW);
+
+    	UserMessage userMessage = new UserMessage();
+    	Payload payload = new Payload();
+    	payload.setContainment(Containment.ATTACHMENT);
+    	payload.setPayloadURI("compressed-att-cid");
+    	userMessage.addPayload(payload);
+    	userMessage.setMessageId("bomb-" + System.currentTimeMillis() + "@test.holodeck-b2b.org");
+
+    	IMessageProcessingContext procCtx = MessageProcessingContext.getFromMessageContext(mc);
+    	IUserMessageEntity userMsgEntity = HolodeckB2BCore.getStorageManager().storeReceivedMessageUnit(userMessage);
+    	procCtx.setUserMessage(userMsgEntity);
+
+    	Attachments attachments = new Attachments();
+    	attachments.addDataHandler(payload.getPayloadURI(), new CompressionDataHandler(
+    						new DataHandler(new FileDataSource(compressed.toFile())),
+    						"application/octet-stream", -1, 100));
+    	mc.setAttachmentMap(attachments);
+
+    	assertEquals(Handler.InvocationResponse.CONTINUE,
+    					assertDoesNotThrow(() -> new SaveUserMsgAttachments().invoke(mc)));
+
+    	Collection<IEbmsError> errors = procCtx.getGeneratedErrors().get(userMsgEntity.getMessageId());
+    	assertNotNull(errors);
+    	assertEquals(1, errors.size());
+    	assertEquals(DeCompressionFailure.ERROR_CODE, errors.iterator().next().getErrorCode());
+    	assertEquals(ProcessingState.FAILURE, userMsgEntity.getCurrentProcessingState().getState());
+    	Files.delete(compressed);
+    }
+
+    /**
+     * Creates a MIME package with a SOAP envelope and an attachment with the given content and lets Axiom buffer the
+     * attachment in a file in the given directory.
+     */
+    private static Attachments createBufferedAttachment(final Path cacheDir, final byte[] data) throws IOException {
+    	ByteArrayOutputStream mime = new ByteArrayOutputStream();
+    	mime.write(("--MIMEBoundary\r\nContent-Type: application/soap+xml\r\nContent-ID: <root>\r\n\r\n"
+    				+ "<soapenv:Envelope xmlns:soapenv=\"http://www.w3.org/2003/05/soap-envelope\"/>\r\n"
+    				+ "--MIMEBoundary\r\nContent-Type: application/octet-stream\r\nContent-ID: <some-att-cid>\r\n\r\n")
+    				.getBytes(StandardCharsets.US_ASCII));
+    	mime.write(data);
+    	mime.write("\r\n--MIMEBoundary--\r\n".getBytes(StandardCharsets.US_ASCII));
+
+    	return new Attachments(new ByteArrayInputStream(mime.toByteArray()),
+    						"multipart/related; boundary=MIMEBoundary; type=\"application/soap+xml\"; start=\"<root>\"",
+    						true, cacheDir.toString(), "1");
+    }
+}
@@ -22,6 +22,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import java.io.FileInputStream;
 
+import javax.activation.DataHandler;
+
+import org.apache.axiom.ext.activation.SizeAwareDataSource;
 import org.apache.axis2.context.MessageContext;
 import org.holodeckb2b.common.messagemodel.Payload;
 import org.holodeckb2b.common.messagemodel.UserMessage;
@@ -75,6 +78,12 @@ public class AddPayloadsTest {
 		assertNotNull(mc.getAttachmentMap());
 		assertEquals(1, mc.getAttachmentMap().getAllContentIDs().length);
 		assertEquals(payload.getPayloadURI(), mc.getAttachmentMap().getAllContentIDs()[0]);
+
+		// MIME type and size should be available from the meta-data recorded when the payload was stored
+		DataHandler dh = mc.getAttachmentMap().getDataHandler(payload.getPayloadURI());
+		assertEquals("image/jpeg", dh.getContentType());
+		assertEquals(TestUtils.getTestResource("flower.jpg").toFile().length(),
+					 ((SizeAwareDataSource) dh.getDataSource()).getSize());
 	}
 
 	@Test
@@ -22,9 +22,11 @@ import static org.junit.Assert.assertTrue;
 import org.holodeckb2b.common.pmode.BusinessInfo;
 import org.holodeckb2b.common.pmode.Leg;
 import org.holodeckb2b.common.pmode.PMode;
+import org.holodeckb2b.common.pmode.PayloadProfile;
 import org.holodeckb2b.common.pmode.PullRequestFlow;
 import org.holodeckb2b.common.pmode.UserMessageFlow;
 import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.interfaces.as4.pmode.IAS4PayloadProfile;
 import org.holodeckb2b.interfaces.general.EbMSConstants;
 import org.junit.Test;
 
@@ -126,4 +128,24 @@ public class BasicPModeValidatorTest {
 
         assertFalse(Utils.isNullOrEmpty(validator.validatePMode(invalidPMode)));
     }
+
+    @Test
+    public void testInvalidCompressionLevel() {
+    	PMode pmode = new PMode();
+    	pmode.setMep(EbMSConstants.ONE_WAY_MEP);
+    	pmode.setMepBinding(EbMSConstants.ONE_WAY_PUSH);
+    	Leg leg = new Leg();
+    	UserMessageFlow umFlow = new UserMessageFlow();
+    	PayloadProfile plProfile = new PayloadProfile();
+    	plProfile.setCompressionType(IAS4PayloadProfile.GZIP_CONTENT_TYPE);
+    	umFlow.setPayloadProfile(plProfile);
+    	leg.setUserMessageFlow(umFlow);
+    	pmode.addLeg(leg);
+
+    	assertTrue(Utils.isNullOrEmpty(validator.validatePMode(pmode)));
+    	plProfile.setCompressionLevel(9);
+    	assertTrue(Utils.isNullOrEmpty(validator.validatePMode(pmode)));
+    	plProfile.setCompressionLevel(10);
+    	assertFalse(Utils.isNullOrEmpty(validator.validatePMode(pmode)));
+    }
 }
@@ -18,6 +18,7 @@ package org.holodeckb2b.ebms3.pmode;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -26,12 +27,26 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.holodeckb2b.common.messagemodel.CollaborationInfo;
+import org.holodeckb2b.common.messagemodel.Service;
+import org.holodeckb2b.common.messagemodel.TradingPartner;
+import org.holodeckb2b.common.messagemodel.UserMessage;
+import org.holodeckb2b.common.pmode.BusinessInfo;
+import org.holodeckb2b.common.pmode.Leg;
+import org.holodeckb2b.common.pmode.PMode;
 import org.holodeckb2b.common.pmode.PModeWatcher;
+import org.holodeckb2b.common.pmode.PartnerConfig;
+import org.holodeckb2b.common.pmode.PartyId;
+import org.holodeckb2b.common.pmode.UserMessageFlow;
+import org.holodeckb2b.common.testhelpers.HB2BTestUtils;
 import org.holodeckb2b.common.testhelpers.HolodeckB2BTestCore;
 import org.holodeckb2b.commons.testing.TestUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
+import org.holodeckb2b.interfaces.pmode.ILeg.Label;
 import org.holodeckb2b.interfaces.pmode.IPMode;
 import org.holodeckb2b.interfaces.security.ISecurityProcessingResult;
 import org.holodeckb2b.interfaces.security.IUsernameTokenProcessingResult;
@@ -131,4 +146,123 @@ public class PModeFinderTest {
 
         assertTrue(Utils.isNullOrEmpty(pmodes));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testForReceivedUserMessageAfterChanges() throws Exception {
+    	PMode pmodeA = createReceivePMode("IdxFinderTest", "ActionA");
+    	PMode pmodeB = createReceivePMode("IdxFinderTest", "ActionB");
+    	PMode pmodeAny = createReceivePMode(null, null);
+    	pmodeAny.getInitiator().addPartyId(new PartyId("IdxSender", null));
+    	core.getPModeSet().add(pmodeA);
+    	core.getPModeSet().add(pmodeB);
+    	core.getPModeSet().add(pmodeAny);
+
+    	assertEquals(pmodeA.getId(), PModeFinder.forReceivedUserMessage(createUserMessage("ActionA")).getId());
+    	assertEquals(pmodeB.getId(), PModeFinder.forReceivedUserMessage(createUserMessage("ActionB")).getId());
+    	// P-Mode without business info still matches on the party ids
+    	assertEquals(pmodeAny.getId(), PModeFinder.forReceivedUserMessage(createUserMessage("ActionC")).getId());
+
+    	PMode changedA = createReceivePMode("IdxFinderTest", "ActionC");
+    	changedA.setId(pmodeA.getId());
+    	core.getPModeSet().replace(changedA);
+    	assertEquals(pmodeAny.getId(), PModeFinder.forReceivedUserMessage(createUserMessage("ActionA")).getId());
+    	assertEquals(pmodeA.getId(), PModeFinder.forReceivedUserMessage(createUserMessage("ActionC")).getId());
+
+    	core.getPModeSet().remove(pmodeB.getId());
+    	core.getPModeSet().remove(pmodeAny.getId());
+    	assertNull(PModeFinder.forReceivedUserMessage(createUserMessage("ActionB")));
+
+    	core.getPModeSet().remove(pmodeA.getId());
+    }
+
+    @Test
+    public void testForReceivedUserMessageDuringReload() throws Exception {
+    	PMode pmode = createReceivePMode("IdxFinderTest", "ReloadAction");
+    	core.getPModeSet().add(pmode);
+
+    	// Keep replacing the P-Mode with a new version while looking it up, each look up should find one P-Mode
+    	final AtomicBoolean stop = new AtomicBoolean(false);
+    	Thread reloader = new Thread(() -> {
+    		try {
+    			while (!stop.get()) {
+    				PMode newVersion = createReceivePMode("IdxFinderTest", "ReloadAction");
+    				newVersion.setId(pmode.getId());
+    				core.getPModeSet().replace(newVersion);
+    			}
+    		} catch (Exception e) {
+    			stop.set(true);
+    		}
+    	});
+    	reloader.start();
+    	try {
+    		for (int i = 0; i < 2000 && !stop.get(); i++) {
+    			IPMode found = PModeFinder.forReceivedUserMessage(createUserMessage("ReloadAction"));
+    			assertEquals(pmode.getId(), found != null ? found.getId() : null);
+    		}
+    		assertFalse(stop.get());
+    	} finally {
+    		stop.set(true);
+    		reloader.join();
+    		core.getPModeSet().remove(pmode.getId());
+    	}
+    }
+
+    @Test
+    public void testResolutionCache() throws Exception {
+    	PMode pmode = createReceivePMode("IdxFinderTest", "CacheAction");
+    	core.getPModeSet().add(pmode);
+
+    	PModeResolutionCache cache = PModeFinder.getResolutionCache();
+    	PModeFinder.forReceivedUserMessage(createUserMessage("CacheAction"));
+    	long hits = cache.getHits();
+    	long misses = cache.getMisses();
+
+    	assertEquals(pmode.getId(), PModeFinder.forReceivedUserMessage(createUserMessage("CacheAction")).getId());
+    	assertEquals(hits + 1, cache.getHits());
+    	assertEquals(misses, cache.getMisses());
+
+    	// A change in the P-Mode set should invalidate the cache
+    	core.getPModeSet().remove(pmode.getId());
+    	assertEquals(0, cache.getSize());
+    	assertNull(PModeFinder.forReceivedUserMessage(createUserMessage("CacheAction")));
+    	assertEquals(misses + 1, cache.getMisses());
+    }
+
+    private static PMode createReceivePMode(String service, String action) {
+    	PMode pmode = HB2BTestUtils.create1WayReceivePMode();
+    	PartnerConfig initiator = new PartnerConfig();
+    	initiator.setRole("Sender");
+    	pmode.setInitiator(initiator);
+    	PartnerConfig responder = new PartnerConfig();
+    	responder.setRole("Receiver");
+    	responder.addPartyId(new PartyId("IdxReceiver", null));
+    	pmode.setResponder(responder);
+    	if (service != null) {
+    		BusinessInfo busInfo = new BusinessInfo();
+    		busInfo.setService(new org.holodeckb2b.common.pmode.Service(service));
+    		busInfo.setAction(action);
+    		UserMessageFlow flow = new UserMessageFlow();
+    		flow.setBusinnessInfo(busInfo);
+    		((Leg) pmode.getLeg(Label.REQUEST)).setUserMessageFlow(flow);
+    	}
+    	return pmode;
+    }
+
+    private static UserMessage createUserMessage(String action) {
+    	UserMessage userMessage = new UserMessage();
+    	userMessage.setMessageId(UUID.randomUUID().toString());
+    	TradingPartner sender = new TradingPartner();
+    	sender.addPartyId(new PartyId("IdxSender", null));
+    	sender.setRole("Sender");
+    	userMessage.setSender(sender);
+    	TradingPartner receiver = new TradingPartner();
+    	receiver.addPartyId(new PartyId("IdxReceiver", null));
+    	receiver.setRole("Receiver");
+    	userMessage.setReceiver(receiver);
+    	CollaborationInfo collabInfo = new CollaborationInfo();
+    	collabInfo.setService(new Service("IdxFinderTest"));
+    	collabInfo.setAction(action);
+    	userMessage.setCollaborationInfo(collabInfo);
+    	return userMessage;
+    }
+}
@@ -19,6 +19,7 @@ package org.holodeckb2b.storage.metadata;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.sql.Driver;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -31,21 +32,163 @@ import javax.persistence.spi.PersistenceUnitInfo;
 import javax.persistence.spi.PersistenceUnitTransactionType;
 import javax.sql.DataSource;
 
+import org.apache.axis2.description.Parameter;
+import org.apache.derby.jdbc.EmbeddedDriver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.hibernate.dialect.DerbyTenSevenDialect;
 import org.hibernate.jpa.HibernatePersistenceProvider;
 import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.interfaces.config.IConfiguration;
 
 /**
- * Contains the database configuration used by the default Meta-data Storage Provider of Holodeck B2B. It creates an
- * embedded Derby database in the <code>db</code> subdirectory of the Holodeck B2B home directory. The directory were
- * the database is stored can be changed by setting the environment variable <code>HB2B_DB_DIR</code>.
+ * Contains the database configuration used by the default Meta-data Storage Provider of Holodeck B2B. By default it
+ * creates an embedded Derby database in the <code>db</code> subdirectory of the Holodeck B2B home directory. The
+ * directory were the database is stored can be changed by setting the environment variable <code>HB2B_DB_DIR</code>.
+ * <p>Since version 8.0.0 the database can also be configured using the following parameters in the Holodeck B2B
+ * configuration:<ul>
+ * <li><i>MDSJdbcUrl</i>, <i>MDSJdbcUser</i> and <i>MDSJdbcPassword</i> : the JDBC URL and credentials to use for
+ * connecting to the database, which allows to use a Derby network server instead of the embedded database,</li>
+ * <li><i>MDSJdbcDriver</i> : the class name of the JDBC driver to use for connecting to the database. When not set
+ * the embedded Derby driver is used for <code>jdbc:derby:</code> URLs and the driver is looked up using the
+ * {@link java.sql.DriverManager} for other URLs,</li>
+ * <li><i>MDSPoolMaxSize</i>, <i>MDSPoolMinIdle</i>, <i>MDSPoolConnectionTimeout</i> and <i>MDSPoolIdleTimeout</i> :
+ * the settings of the {@link PooledConnectionProvider connection pool},</li>
+ * <li><i>MDSDerbyPageCacheSize</i>, <i>MDSDerbyPageSize</i>, <i>MDSDerbyLogBufferSize</i> and
+ * <i>MDSDerbyStatementCacheSize</i> : tuning settings of the embedded Derby database. These are applied as Derby system
+ * properties and only when not already set as system property.</li></ul>
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  * @since  7.0.0
  */
 final class DatabaseConfiguration implements PersistenceUnitInfo {
+	private static final Logger log = LogManager.getLogger(DatabaseConfiguration.class);
 
-	public static final DatabaseConfiguration INSTANCE = new DatabaseConfiguration();
+	static final String P_JDBC_URL = "MDSJdbcUrl";
+	static final String P_JDBC_USER = "MDSJdbcUser";
+	static final String P_JDBC_PASSWORD = "MDSJdbcPassword";
+	static final String P_JDBC_DRIVER = "MDSJdbcDriver";
+	static final String P_POOL_MAX_SIZE = "MDSPoolMaxSize";
+	static final String P_POOL_MIN_IDLE = "MDSPoolMinIdle";
+	static final String P_POOL_CONNECTION_TIMEOUT = "MDSPoolConnectionTimeout";
+	static final String P_POOL_IDLE_TIMEOUT = "MDSPoolIdleTimeout";
+
+	/**
+	 * Maps the configuration parameters for tuning Derby to the corresponding Derby system properties
+	 */
+	private static final String[][] DERBY_PROPERTIES = {
+			{ "MDSDerbyPageCacheSize", "derby.storage.pageCacheSize" },
+			{ "MDSDerbyPageSize", "derby.storage.pageSize" },
+			{ "MDSDerbyLogBufferSize", "derby.storage.logBufferSize" },
+			{ "MDSDerbyStatementCacheSize", "derby.language.statementCacheSize" }
+		};
+
+	private static final int DEFAULT_POOL_MAX_SIZE = 20;
+	private static final int DEFAULT_POOL_MIN_IDLE = 2;
+	private static final int DEFAULT_POOL_CONNECTION_TIMEOUT = 30000;
+	private static final int DEFAULT_POOL_IDLE_TIMEOUT = 600000;
+
+	/**
+	 * The connection pool used for connecting to the database
+	 */
+	private final PooledConnectionProvider connectionPool;
+
+	/**
+	 * Creates the database configuration based on the given Holodeck B2B configuration.
+	 *
+	 * @param config	the Holodeck B2B configuration, may be <code>null</code> in which case the defaults are used
+	 */
+	DatabaseConfiguration(final IConfiguration config) {
+		applyDerbySettings(config);
+
+		String jdbcUrl = getTextParameter(config, P_JDBC_URL);
+		if (Utils.isNullOrEmpty(jdbcUrl)) {
+			String dbPath = System.getenv("HB2B_DB_DIR");
+			if (Utils.isNullOrEmpty(dbPath) || !Files.isDirectory(Paths.get(dbPath))
+				|| !Files.isWritable(Paths.get(dbPath)))
+				dbPath = "db";
+			jdbcUrl = "jdbc:derby:" + dbPath + "/coreDB;databaseName=coreDB;create=true";
+		}
+		final Properties connProps = new Properties();
+		final String user = getTextParameter(config, P_JDBC_USER);
+		if (!Utils.isNullOrEmpty(user))
+			connProps.put("user", user);
+		final String pwd = getTextParameter(config, P_JDBC_PASSWORD);
+		if (!Utils.isNullOrEmpty(pwd))
+			connProps.put("password", pwd);
+
+		connectionPool = new PooledConnectionProvider(jdbcUrl, loadDriver(config, jdbcUrl), connProps,
+								getIntParameter(config, P_POOL_MAX_SIZE, DEFAULT_POOL_MAX_SIZE),
+								getIntParameter(config, P_POOL_MIN_IDLE, DEFAULT_POOL_MIN_IDLE),
+								getIntParameter(config, P_POOL_CONNECTION_TIMEOUT, DEFAULT_POOL_CONNECTION_TIMEOUT),
+								getIntParameter(config, P_POOL_IDLE_TIMEOUT, DEFAULT_POOL_IDLE_TIMEOUT));
+	}
+
+	/**
+	 * @return the connection pool used for connecting to the database
+	 */
+	PooledConnectionProvider getConnectionPool() {
+		return connectionPool;
+	}
+
+	/**
+	 * Gets the JDBC driver to use for connecting to the database. As the Holodeck B2B libraries may be loaded by a
+	 * class loader that is not visible to the {@link java.sql.DriverManager}, the driver is instantiated directly
+	 * instead of relying on its registration with the driver manager.
+	 *
+	 * @param config	the Holodeck B2B configuration
+	 * @param jdbcUrl	the JDBC URL of the database
+	 * @return	the JDBC driver to use, or <code>null</code> if the driver should be looked up using the driver manager
+	 */
+	private static Driver loadDriver(final IConfiguration config, final String jdbcUrl) {
+		final String driverClass = getTextParameter(config, P_JDBC_DRIVER);
+		if (!Utils.isNullOrEmpty(driverClass))
+			try {
+				return (Driver) Class.forName(driverClass, true, DatabaseConfiguration.class.getClassLoader())
+									 .getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | ClassCastException | LinkageError driverError) {
+				log.error("Could not load the configured JDBC driver ({}), using DriverManager instead : {}",
+							driverClass, Utils.getExceptionTrace(driverError));
+				return null;
+			}
+		else if (jdbcUrl.startsWith("jdbc:derby:") && !jdbcUrl.startsWith("jdbc:derby://"))
+			return new EmbeddedDriver();
+		else
+			return null;
+	}
+
+	/**
+	 * Sets the Derby system properties for the tuning parameters included in the configuration. As the Derby engine
+	 * reads these when it boots, a property already set, for example on the command line, is not overwritten.
+	 *
+	 * @param config	the Holodeck B2B configuration
+	 */
+	private static void applyDerbySettings(final IConfiguration config) {
+		for (String[] p : DERBY_PROPERTIES) {
+			final int value = getIntParameter(config, p[0], -1);
+			if (value > 0 && System.getProperty(p[1]) == null) {
+				log.debug("Setting Derby property {} to {}", p[1], value);
+				System.setProperty(p[1], String.valueOf(value));
+			}
+		}
+	}
+
+	static String getTextParameter(final IConfiguration config, final String name) {
+		final Parameter param = config != null ? config.getParameter(name) : null;
+		return param != null && param.getParameterType() == Parameter.TEXT_PARAMETER && param.getValue() != null ?
+																		((String) param.getValue()).trim() : null;
+	}
+
+	static int getIntParameter(final IConfiguration config, final String name, final int defaultValue) {
+		final String value = getTextParameter(config, name);
+		if (!Utils.isNullOrEmpty(value))
+			try {
+				return Integer.parseInt(value);
+			} catch (NumberFormatException nan) {
+				log.warn("Invalid value [{}] for parameter {}, using default {}", value, name, defaultValue);
+			}
+		return defaultValue;
+	}
 
     @Override
     public String getPersistenceUnitName() {
@@ -86,12 +229,7 @@ final class DatabaseConfiguration implements PersistenceUnitInfo {
     @Override
     public Properties getProperties() {
         Properties props = new Properties();
-        props.put(org.hibernate.cfg.AvailableSettings.DRIVER, org.apache.derby.jdbc.EmbeddedDriver.class.getName());
-        String dbPath = System.getenv("HB2B_DB_DIR");
-        if (Utils.isNullOrEmpty(dbPath) || !Files.isDirectory(Paths.get(dbPath)) || !Files.isWritable(Paths.get(dbPath)))
-        	dbPath = "db";
-        props.put(org.hibernate.cfg.AvailableSettings.URL,
-                                                    "jdbc:derby:" + dbPath + "/coreDB;databaseName=coreDB;create=true");
+        props.put(org.hibernate.cfg.AvailableSettings.CONNECTION_PROVIDER, connectionPool);
         props.put(org.hibernate.cfg.AvailableSettings.DIALECT, DerbyTenSevenDialect.class);
         props.put(org.hibernate.cfg.AvailableSettings.HBM2DDL_AUTO, "update");
         props.put(org.hibernate.cfg.AvailableSettings.SHOW_SQL, false);
@@ -163,6 +301,4 @@ final class DatabaseConfiguration implements PersistenceUnitInfo {
     public ClassLoader getNewTempClassLoader() {
         return null;
     }
-
-    private DatabaseConfiguration() {}
 }
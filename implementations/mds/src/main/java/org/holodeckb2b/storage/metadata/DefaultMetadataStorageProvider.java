@@ -17,12 +17,16 @@
 package org.holodeckb2b.storage.metadata;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -34,6 +38,7 @@ import javax.persistence.TypedQuery;
 
 import org.hibernate.jpa.HibernatePersistenceProvider;
 import org.holodeckb2b.common.VersionInfo;
+import org.holodeckb2b.common.messagemodel.MessageProcessingState;
 import org.holodeckb2b.common.util.MessageUnitUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.config.IConfiguration;
@@ -65,7 +70,20 @@ import org.holodeckb2b.storage.metadata.jpa.UserMessage;
  */
 @SuppressWarnings("unchecked")
 public class DefaultMetadataStorageProvider implements IMetadataStorageProvider {
+	/**
+	 * The minimum number of candidate message units retrieved at once when claiming message units
+	 */
+	private static final int MIN_CLAIM_PAGE_SIZE = 20;
+
 	private EntityManagerFactory emf;
+	/**
+	 * The pool of connections to the database
+	 */
+	private PooledConnectionProvider connectionPool;
+	/**
+	 * The cache of message unit meta-data, <code>null</code> when caching is disabled
+	 */
+	private MessageUnitCache cache;
 	/**
 	 * The running instance of the provider is used by the default UI to retrieve the message meta-data.
 	 */
@@ -78,11 +96,64 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 
 	@Override
 	public void init(final IConfiguration config) throws StorageException {
-		emf = new HibernatePersistenceProvider().createContainerEntityManagerFactory(DatabaseConfiguration.INSTANCE,
-				Collections.emptyMap());
+		final DatabaseConfiguration dbConfig = new DatabaseConfiguration(config);
+		connectionPool = dbConfig.getConnectionPool();
+		try {
+			emf = new HibernatePersistenceProvider().createContainerEntityManagerFactory(dbConfig,
+																						Collections.emptyMap());
+		} catch (Exception dbFailure) {
+			connectionPool.stop();
+			throw new StorageException("Could not initialise the database", dbFailure);
+		}
+		completeCurrentStateData();
+		cache = MessageUnitCache.create(config);
 		instance = this;
 	}
 
+	/**
+	 * Ensures that for all message units the current processing state is also stored in the message unit table. As
+	 * this data was added in version 8.0.0 the columns will be empty in databases created by earlier versions and
+	 * need to be filled with the data from the last processing state of each message unit. For message units stored
+	 * by this version of the provider the data is already available and nothing will be updated. To prevent scanning
+	 * the complete table on every start up, it is first checked whether there is any message unit without current
+	 * state data, which can be answered using the index on direction and current state.
+	 *
+	 * @throws StorageException when the current processing state data could not be completed
+	 */
+	protected void completeCurrentStateData() throws StorageException {
+		final String lastState = "FROM MSG_STATE s "
+								+ "WHERE s.MSGUNIT_OID = MSG_UNIT.OID "
+								+ "AND s.PROC_STATE_NUM = (SELECT MAX(s2.PROC_STATE_NUM) FROM MSG_STATE s2 "
+								+ 						  "WHERE s2.MSGUNIT_OID = MSG_UNIT.OID)";
+		EntityManager em = null;
+		EntityTransaction tx = null;
+		try {
+			em = emf.createEntityManager();
+			tx = em.getTransaction();
+			tx.begin();
+			// The condition on the direction is always true, but allows the use of the index
+			if (em.createQuery("SELECT mu.OID FROM MessageUnit mu "
+								+ "WHERE mu.DIRECTION IN (:directions) AND mu.CURRENT_STATE IS NULL", Long.class)
+				  .setParameter("directions", Arrays.asList(Direction.values()))
+				  .setMaxResults(1).getResultList().isEmpty()) {
+				tx.commit();
+				return;
+			}
+			em.createNativeQuery("UPDATE MSG_UNIT "
+								+ "SET CURRENT_STATE = (SELECT s.STATE " + lastState + "), "
+								+ "CURRENT_STATE_START = (SELECT s.START " + lastState + ") "
+								+ "WHERE CURRENT_STATE IS NULL").executeUpdate();
+			tx.commit();
+		} catch (Exception ex) {
+			if (tx != null && tx.isActive())
+				tx.rollback();
+			throw new StorageException("Could not complete the current processing state data", ex);
+		} finally {
+			if (em != null && em.isOpen())
+				em.close();
+		}
+	}
+
 	/**
 	 * @return	the running instance of the provider
 	 */
@@ -90,10 +161,24 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		return instance;
 	}
 
+	/**
+	 * Gets the current utilisation statistics of the connection pool used by the provider.
+	 *
+	 * @return	the statistics of the connection pool, or <code>null</code> when the provider does not use a pool
+	 * @since 8.0.0
+	 */
+	public PooledConnectionProvider.PoolStatistics getConnectionPoolStatistics() {
+		return connectionPool != null ? connectionPool.getStatistics() : null;
+	}
+
 	@Override
 	public void shutdown() {
+		if (cache != null)
+			cache.close();
 		if (emf != null && emf.isOpen())
 			emf.close();
+		if (connectionPool != null)
+			connectionPool.stop();
 	}
 
 	@Override
@@ -146,6 +231,8 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 			tx.begin();
 			em.persist(jpaMsgUnit);
 			tx.commit();
+			if (cache != null)
+				cache.removeMessageId(jpaMsgUnit.getMessageId());
 			return (E) JPAObjectHelper.proxy(jpaMsgUnit);
 		} catch (Exception ex) {
 			if (tx != null && tx.isActive())
@@ -189,6 +276,52 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		updateEntity((JPAObjectProxy<MessageUnit>) messageUnit);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>All updates are saved in a single transaction, so when the update of one of the message units is rejected
+	 * none of the updates is saved.
+	 */
+	@Override
+	public void updateMessageUnits(Collection<? extends IMessageUnitEntity> messageUnits)
+																	throws AlreadyChangedException, StorageException {
+		final List<JPAObjectProxy<MessageUnit>> proxies = new ArrayList<>(messageUnits.size());
+		for (IMessageUnitEntity m : messageUnits) {
+			assertManagedType(m);
+			proxies.add((JPAObjectProxy<MessageUnit>) m);
+		}
+		EntityManager em = null;
+		EntityTransaction tx = null;
+		final List<MessageUnit> updated = new ArrayList<>(proxies.size());
+		try {
+			em = emf.createEntityManager();
+			tx = em.getTransaction();
+			tx.begin();
+			for (JPAObjectProxy<MessageUnit> p : proxies)
+				updated.add(em.merge(p.getJPAObject()));
+			// Flushing will trigger the OptimisticLockException
+			em.flush();
+			for (int i = 0; i < proxies.size(); i++)
+				proxies.get(i).updateJPAObject(updated.get(i));
+		} catch (OptimisticLockException alreadyChanged) {
+			tx.setRollbackOnly();
+			proxies.forEach(p -> evictFromCache(p.getJPAObject()));
+			throw new AlreadyChangedException();
+		} catch (Exception updateFailure) {
+			tx.setRollbackOnly();
+			proxies.forEach(p -> evictFromCache(p.getJPAObject()));
+			throw new StorageException("Failure updating meta-data", updateFailure);
+		} finally {
+			if (tx != null && tx.isActive() && tx.getRollbackOnly())
+				tx.rollback();
+			else if (tx != null && tx.isActive())
+				tx.commit();
+			if (em != null && em.isOpen())
+				em.close();
+		}
+		if (cache != null)
+			updated.forEach(cache::put);
+	}
+
 	@Override
 	public void deleteMessageUnit(IMessageUnitEntity messageUnit) throws StorageException {
 		assertManagedType(messageUnit);
@@ -215,19 +348,23 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 																									StorageException {
 		EntityManager em = null;
 		EntityTransaction tx = null;
+		final T original = proxy.getJPAObject();
+		T updated = null;
 		try {
 			em = emf.createEntityManager();
 			tx = em.getTransaction();
 			tx.begin();
-			T updated = em.merge(proxy.getJPAObject());
+			updated = em.merge(original);
 			// Flushing will trigger the OptimisticLockException
 			em.flush();
 			proxy.updateJPAObject(updated);
 		} catch (OptimisticLockException alreadyChanged) {
 			tx.setRollbackOnly();
+			evictFromCache(original);
 			throw new AlreadyChangedException();
 		} catch (Exception updateFailure) {
 			tx.setRollbackOnly();
+			evictFromCache(original);
 			throw new StorageException("Failure updating meta-data", updateFailure);
 		} finally {
 			// Ensure that the object stays completely loaded
@@ -238,6 +375,10 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 			if (em != null && em.isOpen())
 				em.close();
 		}
+		if (cache != null && updated instanceof MessageUnit)
+			cache.put((MessageUnit) updated);
+		else
+			evictFromCache(original);
 	}
 
 	private <T extends JPAEntityObject> void deleteEntity(JPAObjectProxy<T> proxy) throws StorageException {
@@ -250,6 +391,9 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 			tx.begin();
 			em.remove(em.find(jpaObject.getClass(), jpaObject.getOID()));
 			tx.commit();
+			evictFromCache(jpaObject);
+			if (cache != null && jpaObject instanceof MessageUnit)
+				cache.removeMessageId(((MessageUnit) jpaObject).getMessageId());
 		} catch (final Exception e) {
 			// Something went wrong while executing the update, rollback the transaction (if active) and throw exception
 			if (tx != null && tx.isActive())
@@ -260,6 +404,21 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		}
 	}
 
+	/**
+	 * Removes the meta-data of the message unit that is affected by a change of the given JPA object from the cache.
+	 * For a message unit this is the message unit itself, for a payload the User Message that contains it.
+	 *
+	 * @param jpaObject	the changed JPA object
+	 */
+	private void evictFromCache(final JPAEntityObject jpaObject) {
+		if (cache == null)
+			return;
+		if (jpaObject instanceof MessageUnit)
+			cache.remove(((MessageUnit) jpaObject).getCoreId());
+		else if (jpaObject instanceof PayloadInfo)
+			cache.remove(((PayloadInfo) jpaObject).getParentCoreId());
+	}
+
 	@Override
 	public <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> getMessageUnitsForPModesInState(Class<T> type,
 			Set<String> pmodeIds, ProcessingState state) throws StorageException {
@@ -267,11 +426,9 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		return executeMessageUnitQuery(em -> em.createQuery(
 										"SELECT mu "
 						                + "FROM " + JPAObjectHelper.getJPAClass(type).getSimpleName() + " mu "
-						                + "JOIN mu.states s1 "
 						                + "WHERE mu.PMODE_ID IN :pmodeIds "
-						                + "AND s1.PROC_STATE_NUM = (SELECT MAX(s2.PROC_STATE_NUM) FROM mu.states s2) "
-						                + "AND s1.STATE = :state "
-						                + "ORDER BY s1.START", JPAObjectHelper.getJPAClass(type))
+						                + "AND mu.CURRENT_STATE = :state "
+						                + "ORDER BY mu.CURRENT_STATE_START", JPAObjectHelper.getJPAClass(type))
 								      .setParameter("pmodeIds", pmodeIds)
 								      .setParameter("state", state));
 	}
@@ -283,18 +440,165 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		return executeMessageUnitQuery(em -> em.createQuery(
 								"SELECT mu "
 				                + "FROM " + JPAObjectHelper.getJPAClass(type).getSimpleName() + " mu "
-		                		+ "JOIN mu.states s1 "
 				                + "WHERE mu.DIRECTION = :direction "
-				                + "AND s1.PROC_STATE_NUM = (SELECT MAX(s2.PROC_STATE_NUM) FROM mu.states s2) "
-				                + "AND s1.STATE IN :states "
+				                + "AND mu.CURRENT_STATE IN :states "
 				                + "ORDER BY mu.MU_TIMESTAMP", JPAObjectHelper.getJPAClass(type))
                                 .setParameter("direction", direction)
                                 .setParameter("states", states));
 	}
 
+	@Override
+	public <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> claimMessageUnitsInState(Class<T> type,
+			Direction direction, ProcessingState state, ProcessingState newState, int max) throws StorageException {
+
+		return claimMessageUnits(em -> em.createQuery(
+								"SELECT mu "
+				                + "FROM " + JPAObjectHelper.getJPAClass(type).getSimpleName() + " mu "
+				                + "WHERE mu.DIRECTION = :direction "
+				                + "AND mu.CURRENT_STATE = :state "
+				                + "ORDER BY mu.MU_TIMESTAMP", JPAObjectHelper.getJPAClass(type))
+                                .setParameter("direction", direction)
+                                .setParameter("state", state),
+                                newState, null, max);
+	}
+
+	@Override
+	public <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> claimMessageUnitsForPModesInState(
+			Class<T> type, Set<String> pmodeIds, ProcessingState state, ProcessingState newState, Predicate<V> filter,
+			int max) throws StorageException {
+
+		return claimMessageUnits(em -> em.createQuery(
+								"SELECT mu "
+						        + "FROM " + JPAObjectHelper.getJPAClass(type).getSimpleName() + " mu "
+						        + "WHERE mu.PMODE_ID IN :pmodeIds "
+						        + "AND mu.CURRENT_STATE = :state "
+						        + "ORDER BY mu.CURRENT_STATE_START", JPAObjectHelper.getJPAClass(type))
+								.setParameter("pmodeIds", pmodeIds)
+								.setParameter("state", state),
+								newState, filter, max);
+	}
+
+	/**
+	 * Helper method to claim message units. The candidates for claiming are retrieved in pages so no more message
+	 * units than needed are loaded. The candidates of a page that meet the filter criteria are then claimed in one
+	 * transaction. Each candidate is claimed by a conditional update that only changes the processing state when the
+	 * message unit is still in the state it was selected in. As the database holds the row lock on the updated message
+	 * unit until the transaction is committed, a concurrent claim of the same message unit waits for this transaction
+	 * and then does not update the row anymore. Therefore only the message units that were actually updated are
+	 * returned and no optimistic locking failures occur.
+	 *
+	 * @param <V>			The type of entity objects
+	 * @param prepareQuery	Function that creates the query to select the candidate message units
+	 * @param newState		The processing state to set on the claimed message units
+	 * @param filter		Additional criteria the candidates must meet, may be <code>null</code>
+	 * @param max			The maximum number of message units to claim
+	 * @return				The claimed message units
+	 * @throws StorageException When an error occurs retrieving the candidates or updating the processing state
+	 */
+	private <V extends IMessageUnitEntity> List<V> claimMessageUnits(
+			@SuppressWarnings("rawtypes") Function<EntityManager, TypedQuery> prepareQuery,
+			ProcessingState newState, Predicate<V> filter, int max) throws StorageException {
+
+		final List<V> claimed = new ArrayList<>();
+		if (max <= 0)
+			return claimed;
+		// When a filter is used more candidates may be needed, so retrieve at least a minimum number at once
+		final int pageSize = filter == null ? max : Math.max(max, MIN_CLAIM_PAGE_SIZE);
+		// Claimed candidates are not in the selected state anymore, so only the filtered ones need to be skipped
+		int skipped = 0;
+		List<V> candidates;
+		do {
+			final int offset = skipped;
+			candidates = executeMessageUnitQuery(em -> prepareQuery.apply(em)
+																   .setFirstResult(offset).setMaxResults(pageSize));
+			final List<MessageUnit> selected = new ArrayList<>(candidates.size());
+			for (V m : candidates) {
+				if (claimed.size() + selected.size() >= max)
+					break;
+				if (filter != null && !filter.test(m))
+					skipped++;
+				else
+					selected.add(((JPAObjectProxy<MessageUnit>) m).getJPAObject());
+			}
+			if (!selected.isEmpty())
+				claimed.addAll(JPAObjectHelper.proxy(claimSelected(selected, newState)));
+		} while (claimed.size() < max && candidates.size() == pageSize);
+
+		return claimed;
+	}
+
+	/**
+	 * Claims the given message units by changing their current processing state to the new state, on condition that
+	 * they are still in the processing state they were selected in. All message units are claimed in a single
+	 * transaction.
+	 *
+	 * @param selected	The message units to claim
+	 * @param newState	The processing state to set on the claimed message units
+	 * @return			The updated meta-data of the message units that were claimed, in the same order as given
+	 * @throws StorageException When an error occurs updating the processing state
+	 */
+	private List<MessageUnit> claimSelected(final List<MessageUnit> selected, final ProcessingState newState)
+																							throws StorageException {
+		final List<MessageUnit> claimed = new ArrayList<>(selected.size());
+		EntityManager em = null;
+		EntityTransaction tx = null;
+		try {
+			em = emf.createEntityManager();
+			tx = em.getTransaction();
+			tx.begin();
+			for (MessageUnit m : selected) {
+				final MessageProcessingState claimState = new MessageProcessingState(newState, null);
+				final int updated = em.createNativeQuery("UPDATE MSG_UNIT "
+														+ "SET CURRENT_STATE = ?1, CURRENT_STATE_START = ?2 "
+														+ "WHERE OID = ?3 AND CURRENT_STATE = ?4")
+									  .setParameter(1, newState.name())
+									  .setParameter(2, claimState.getStartTime(), TemporalType.TIMESTAMP)
+									  .setParameter(3, m.getOID())
+									  .setParameter(4, m.getCurrentProcessingState().getState().name())
+									  .executeUpdate();
+				if (updated == 1) {
+					// Add the new state to the history, which also increases the version of the message unit
+					final MessageUnit current = em.find(MessageUnit.class, m.getOID());
+					current.setProcessingState(claimState);
+					claimed.add(current);
+				}
+			}
+			tx.commit();
+		} catch (Exception claimFailure) {
+			if (tx != null && tx.isActive())
+				tx.rollback();
+			selected.forEach(this::evictFromCache);
+			throw new StorageException("Failure claiming message units", claimFailure);
+		} finally {
+			if (em != null && em.isOpen())
+				em.close();
+		}
+		if (cache != null)
+			claimed.forEach(cache::put);
+		return claimed;
+	}
+
 	@Override
 	public Collection<IMessageUnitEntity> getMessageUnitsWithId(String messageId, Direction... direction)
 																							throws StorageException {
+		if (cache != null && !Utils.isNullOrEmpty(messageId)) {
+			List<MessageUnit> messageUnits = cache.getWithMessageId(messageId);
+			if (messageUnits == null) {
+				final long generation = cache.getMessageIdGeneration();
+				messageUnits = queryMessageUnitsWithId(messageId).stream()
+											.map(m -> ((JPAObjectProxy<MessageUnit>) m).getJPAObject())
+											.collect(Collectors.toList());
+				cache.putWithMessageId(messageId, messageUnits, generation);
+			}
+			return JPAObjectHelper.proxy(messageUnits.stream()
+											.filter(m -> direction.length != 1 || m.getDirection() == direction[0])
+											.collect(Collectors.toList()));
+		} else
+			return queryMessageUnitsWithId(messageId, direction);
+	}
+
+	private Collection<IMessageUnitEntity> queryMessageUnitsWithId(String messageId, Direction... direction)
+																							throws StorageException {
 		return executeMessageUnitQuery(em -> {
 					StringBuilder queryString = new StringBuilder();
 			        queryString.append("SELECT mu ")
@@ -320,9 +624,7 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		return executeMessageUnitQuery(em -> em.createQuery(
 								"SELECT mu "
 				                + "FROM MessageUnit mu "
-				                + "JOIN mu.states s1 "
-				                + "WHERE s1.PROC_STATE_NUM = (SELECT MAX(s2.PROC_STATE_NUM) FROM mu.states s2) "
-				                + "AND   s1.START <= :beforeDate", MessageUnit.class)
+				                + "WHERE mu.CURRENT_STATE_START <= :beforeDate", MessageUnit.class)
 								.setParameter("beforeDate", maxLastChangeDate, TemporalType.TIMESTAMP));
 	}
 
@@ -330,12 +632,20 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 	public IMessageUnitEntity getMessageUnitWithCoreId(String coreId)
 			throws StorageException {
 
-		return executeMessageUnitQuery(em -> em.createQuery(
+		if (cache != null && !Utils.isNullOrEmpty(coreId)) {
+			final MessageUnit cached = cache.get(coreId);
+			if (cached != null)
+				return JPAObjectHelper.proxy(cached);
+		}
+		final IMessageUnitEntity messageUnit = executeMessageUnitQuery(em -> em.createQuery(
 								"SELECT mu "
 								+ "FROM MessageUnit mu "
 								+ "WHERE mu.CORE_ID = :coreId ", MessageUnit.class)
 								.setParameter("coreId", coreId)).stream()
 				.findFirst().orElse(null);
+		if (cache != null && messageUnit != null)
+			cache.put(((JPAObjectProxy<MessageUnit>) messageUnit).getJPAObject());
+		return messageUnit;
 	}
 
 	private <V extends IMessageUnitEntity> List<V> executeMessageUnitQuery(
@@ -357,29 +667,45 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 	public int getNumberOfTransmissions(IUserMessageEntity userMessage) throws StorageException {
 		assertManagedType(userMessage);
 
-        int result = 0;
         final EntityManager em = emf.createEntityManager();
-
-        final String query = "SELECT COUNT(s1.STATE) "
-                           + "FROM UserMessage um "
-                           + "JOIN um.states s1 "
-                           + "WHERE um.MESSAGE_ID = :msgId "
-                           + "AND s1.STATE = :state";
         try {
             em.getTransaction().begin();
-            result = em.createQuery(query, Long.class)
-                                    .setParameter("msgId", userMessage.getMessageId())
-                                    .setParameter("state", ProcessingState.SENDING)
-                                    .getSingleResult().intValue();
-        } catch (final NoResultException nothingFound) {
-            result = 0;
+            final long oid = ((UserMessageEntity) userMessage).getOID();
+            final Integer transmissions = em.createQuery("SELECT um.TRANSMISSIONS FROM UserMessage um "
+            											+ "WHERE um.OID = :oid", Integer.class)
+            								.setParameter("oid", oid).getSingleResult();
+            if (transmissions != null)
+            	return transmissions;
+            // The counter is not set for user messages stored by a previous version, so count the SENDING states
+            return em.createQuery("SELECT COUNT(s) FROM UserMessage um JOIN um.states s "
+            					+ "WHERE um.OID = :oid "
+            					+ "AND s.STATE = org.holodeckb2b.interfaces.processingmodel.ProcessingState.SENDING",
+            					Long.class)
+            		 .setParameter("oid", oid).getSingleResult().intValue();
+        } catch (final NoResultException notFound) {
+        	return 0;
         } catch (final Exception e) {
             throw new StorageException("Could not execute query \"getNumberOfTransmissions\"", e);
         } finally {
             em.getTransaction().commit();
             em.close();
         }
-        return result;
+	}
+
+	@Override
+	public List<IUserMessageEntity> getUserMessagesDueForRetry(Date maxRetryTime) throws StorageException {
+
+		return executeMessageUnitQuery(em -> em.createQuery(
+								"SELECT um "
+								+ "FROM UserMessage um "
+								+ "WHERE um.DIRECTION = org.holodeckb2b.interfaces.messagemodel.Direction.OUT "
+								+ "AND um.CURRENT_STATE IN ( "
+								+ 			"org.holodeckb2b.interfaces.processingmodel.ProcessingState.AWAITING_RECEIPT, "
+								+ 			"org.holodeckb2b.interfaces.processingmodel.ProcessingState.TRANSPORT_FAILURE, "
+								+ 			"org.holodeckb2b.interfaces.processingmodel.ProcessingState.WARNING) "
+								+ "AND (um.NEXT_RETRY_TIME IS NULL OR um.NEXT_RETRY_TIME <= :maxRetryTime) "
+								+ "ORDER BY um.NEXT_RETRY_TIME", UserMessage.class)
+								.setParameter("maxRetryTime", maxRetryTime, TemporalType.TIMESTAMP));
 	}
 
 	@Override
@@ -391,11 +717,9 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 
         final String query = "SELECT COUNT(um) "
                            + "FROM UserMessage um "
-                           + "JOIN um.states s1 "
                            + "WHERE um.DIRECTION = org.holodeckb2b.interfaces.messagemodel.Direction.IN "
                            + "AND um.MESSAGE_ID = :msgId "
-                           + "AND s1.PROC_STATE_NUM = (SELECT MAX(s2.PROC_STATE_NUM) FROM um.states s2) "
-                           + "AND s1.STATE IN ( org.holodeckb2b.interfaces.processingmodel.ProcessingState.DELIVERED, "
+                           + "AND um.CURRENT_STATE IN ( org.holodeckb2b.interfaces.processingmodel.ProcessingState.DELIVERED, "
                            + 			"org.holodeckb2b.interfaces.processingmodel.ProcessingState.OUT_FOR_DELIVERY, "
         				   + 			"org.holodeckb2b.interfaces.processingmodel.ProcessingState.FAILURE)";
         try {
@@ -433,10 +757,8 @@ public class DefaultMetadataStorageProvider implements IMetadataStorageProvider
 		 return executeMessageUnitQuery(em -> em.createQuery(
 						"SELECT mu "
 		                + "FROM MessageUnit mu "
-		                + "JOIN mu.states s1 "
-		                + "WHERE s1.PROC_STATE_NUM = (SELECT MAX(s2.PROC_STATE_NUM) FROM mu.states s2) "
-		                + "AND   s1.START <= :beforeDate "
-		                + "ORDER BY s1.START DESC", MessageUnit.class)
+		                + "WHERE mu.CURRENT_STATE_START <= :beforeDate "
+		                + "ORDER BY mu.CURRENT_STATE_START DESC", MessageUnit.class)
 						.setParameter("beforeDate", upto, TemporalType.TIMESTAMP)
 						.setMaxResults(max));
     }
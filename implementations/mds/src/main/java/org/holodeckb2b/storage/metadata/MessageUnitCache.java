@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.ehcache.UserManagedCache;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.builders.UserManagedCacheBuilder;
+import org.holodeckb2b.commons.util.Utils;
+import org.holodeckb2b.interfaces.config.IConfiguration;
+import org.holodeckb2b.storage.metadata.jpa.MessageUnit;
+
+/**
+ * Is the read-through cache of message unit meta-data used by the {@link DefaultMetadataStorageProvider}. The meta-data
+ * of the message units is cached by their <i>CoreId</i> and an index maps the <i>MessageId</i> to the CoreIds of the
+ * message units with that MessageId.
+ * <p>The cache holds a serialised copy of the JPA object together with its version. Each lookup therefore returns a
+ * new JPA object, so changes made to a message unit that are not saved do not affect the cached meta-data. When a
+ * message unit is added to the cache while it already holds a newer version of its meta-data, the cached version is
+ * kept. This ensures that a lookup that started before an update is saved cannot replace the updated meta-data. Note
+ * that a cached version can still be outdated when the database is changed by another process, but as updates are
+ * checked against the version of the meta-data, this will result in the update being rejected.
+ * <p>The MessageId index is invalidated when a message unit is added or removed. To prevent that a lookup that
+ * queried the database before the change was saved adds its outdated list of CoreIds to the index after the
+ * invalidation, the invalidations are counted. A lookup gets the current count before it queries the database and
+ * its result is only kept in the index when there was no invalidation since.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+final class MessageUnitCache {
+	private static final Logger	log = LogManager.getLogger(MessageUnitCache.class);
+
+	static final String P_CACHE_MAX_SIZE = "MDSCacheMaxSize";
+	static final String P_CACHE_TTL = "MDSCacheTimeToLive";
+
+	private static final int DEFAULT_CACHE_MAX_SIZE = 1000;
+	private static final int DEFAULT_CACHE_TTL = 300;
+
+	/**
+	 * The cached message unit meta-data, by CoreId
+	 */
+	private final UserManagedCache<String, CachedMessageUnit>	entities;
+	/**
+	 * The CoreIds of the message units, by MessageId
+	 */
+	private final UserManagedCache<String, CoreIds>	messageIds;
+	/**
+	 * The number of invalidations of the MessageId index
+	 */
+	private final AtomicLong	messageIdGeneration = new AtomicLong();
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxSize	the maximum number of message units kept in the cache
+	 * @param ttl		the time in seconds the meta-data of a message unit is kept in the cache
+	 */
+	private MessageUnitCache(final int maxSize, final int ttl) {
+		entities = UserManagedCacheBuilder.newUserManagedCacheBuilder(String.class, CachedMessageUnit.class)
+						.withResourcePools(ResourcePoolsBuilder.heap(maxSize))
+						.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttl)))
+						.build(true);
+		messageIds = UserManagedCacheBuilder.newUserManagedCacheBuilder(String.class, CoreIds.class)
+						.withResourcePools(ResourcePoolsBuilder.heap(maxSize))
+						.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(Duration.ofSeconds(ttl)))
+						.build(true);
+	}
+
+	/**
+	 * Creates the cache using the settings from the given Holodeck B2B configuration.
+	 *
+	 * @param config	the Holodeck B2B configuration, may be <code>null</code> in which case the defaults are used
+	 * @return	the new cache, or <code>null</code> when caching is disabled by setting the size or time to live to 0
+	 */
+	static MessageUnitCache create(final IConfiguration config) {
+		final int maxSize = DatabaseConfiguration.getIntParameter(config, P_CACHE_MAX_SIZE, DEFAULT_CACHE_MAX_SIZE);
+		final int ttl = DatabaseConfiguration.getIntParameter(config, P_CACHE_TTL, DEFAULT_CACHE_TTL);
+		if (maxSize <= 0 || ttl <= 0) {
+			log.debug("Message unit cache is disabled");
+			return null;
+		}
+		log.trace("Initialise message unit cache with max size = {} and TTL = {}s", maxSize, ttl);
+		return new MessageUnitCache(maxSize, ttl);
+	}
+
+	/**
+	 * Gets a copy of the cached meta-data of the message unit with the given CoreId.
+	 *
+	 * @param coreId	the CoreId of the message unit
+	 * @return	a new JPA object with the cached meta-data, or <code>null</code> if the message unit is not cached
+	 */
+	MessageUnit get(final String coreId) {
+		final CachedMessageUnit c = entities.get(coreId);
+		return c != null ? c.restore() : null;
+	}
+
+	/**
+	 * Gets copies of the cached meta-data of the message units with the given MessageId. The message units are
+	 * returned in the same order as they were added.
+	 *
+	 * @param messageId		the MessageId of the message units
+	 * @return	new JPA objects with the cached meta-data, or <code>null</code> if the meta-data of not all message units
+	 * 			with the given MessageId is cached
+	 */
+	List<MessageUnit> getWithMessageId(final String messageId) {
+		final CoreIds coreIds = messageIds.get(messageId);
+		if (coreIds == null)
+			return null;
+		final List<MessageUnit> result = new ArrayList<>(coreIds.ids.length);
+		for (String coreId : coreIds.ids) {
+			final MessageUnit m = get(coreId);
+			if (m == null) {
+				messageIds.remove(messageId, coreIds);
+				return null;
+			}
+			result.add(m);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds the meta-data of the given message unit to the cache, unless the cache already holds a newer version or the
+	 * message unit has no CoreId.
+	 *
+	 * @param messageUnit	the message unit's JPA object
+	 */
+	void put(final MessageUnit messageUnit) {
+		if (messageUnit.getCoreId() == null)
+			return;
+		final CachedMessageUnit n;
+		try {
+			n = new CachedMessageUnit(messageUnit);
+		} catch (IOException serialisationFailure) {
+			log.warn("Could not cache meta-data of message unit (coreId={}) : {}", messageUnit.getCoreId(),
+					Utils.getExceptionTrace(serialisationFailure));
+			entities.remove(messageUnit.getCoreId());
+			return;
+		}
+		CachedMessageUnit c;
+		do {
+			c = entities.putIfAbsent(messageUnit.getCoreId(), n);
+			if (c == null || c.version > n.version)
+				return;
+		} while (!entities.replace(messageUnit.getCoreId(), c, n));
+	}
+
+	/**
+	 * Gets the current generation of the MessageId index, which must be retrieved before the message units with a
+	 * MessageId are queried from the database so they can be added to the index using {@link
+	 * #putWithMessageId(String, Collection, long)}.
+	 *
+	 * @return	the current generation of the MessageId index
+	 */
+	long getMessageIdGeneration() {
+		return messageIdGeneration.get();
+	}
+
+	/**
+	 * Adds the meta-data of the given message units, which are all the message units with the given MessageId, to the
+	 * cache. The MessageId index is only updated when it was not invalidated since the given generation, i.e. when
+	 * no message unit was added or removed since the message units were queried.
+	 *
+	 * @param messageId		the MessageId
+	 * @param messageUnits	the message units' JPA objects
+	 * @param generation	the generation of the MessageId index before the message units were queried
+	 */
+	void putWithMessageId(final String messageId, final Collection<? extends MessageUnit> messageUnits,
+						  final long generation) {
+		if (Utils.isNullOrEmpty(messageUnits))
+			return;
+		final String[] ids = new String[messageUnits.size()];
+		int i = 0;
+		for (MessageUnit m : messageUnits) {
+			// Message units without CoreId cannot be cached and therefore neither can the index
+			if (m.getCoreId() == null)
+				return;
+			put(m);
+			ids[i++] = m.getCoreId();
+		}
+		if (messageIdGeneration.get() != generation)
+			return;
+		final CoreIds coreIds = new CoreIds(ids);
+		if (messageIds.putIfAbsent(messageId, coreIds) == null && messageIdGeneration.get() != generation)
+			// The index was invalidated while adding, so the list may be outdated
+			messageIds.remove(messageId, coreIds);
+	}
+
+	/**
+	 * Removes the meta-data of the message unit with the given CoreId from the cache.
+	 *
+	 * @param coreId	the CoreId of the message unit
+	 */
+	void remove(final String coreId) {
+		if (coreId != null)
+			entities.remove(coreId);
+	}
+
+	/**
+	 * Removes the index of the message units with the given MessageId, used when a new message unit with the same
+	 * MessageId is added or one is removed.
+	 *
+	 * @param messageId	the MessageId of the message units
+	 */
+	void removeMessageId(final String messageId) {
+		if (messageId != null) {
+			messageIdGeneration.incrementAndGet();
+			messageIds.remove(messageId);
+		}
+	}
+
+	/**
+	 * Removes all meta-data from the cache and releases its resources.
+	 */
+	void close() {
+		entities.close();
+		messageIds.close();
+	}
+
+	/**
+	 * Holds the serialised form of the meta-data of a message unit together with its version.
+	 */
+	private static final class CachedMessageUnit {
+		private final long		version;
+		private final byte[]	data;
+
+		CachedMessageUnit(final MessageUnit messageUnit) throws IOException {
+			version = messageUnit.getVersion();
+			final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+				oos.writeObject(messageUnit);
+			}
+			data = bos.toByteArray();
+		}
+
+		MessageUnit restore() {
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+				return (MessageUnit) ois.readObject();
+			} catch (IOException | ClassNotFoundException deserialisationFailure) {
+				// Should not happen as the data was serialised from the same class
+				throw new IllegalStateException(deserialisationFailure);
+			}
+		}
+	}
+
+	/**
+	 * Holds the CoreIds of the message units with the same MessageId.
+	 */
+	private static final class CoreIds {
+		private final String[]	ids;
+
+		CoreIds(final String[] ids) {
+			this.ids = ids;
+		}
+	}
+}
@@ -96,6 +96,16 @@ public class PayloadEntity extends JPAObjectProxy<PayloadInfo> implements IPaylo
 		jpaEntityObject.setMimeType(mt);
 	}
 
+	@Override
+	public long getContentLength() {
+		return jpaEntityObject.getContentLength();
+	}
+
+	@Override
+	public void setContentLength(long length) {
+		jpaEntityObject.setContentLength(length);
+	}
+
 	@Override
 	public void setPayloadURI(String uri) {
 		jpaEntityObject.setPayloadURI(uri);
@@ -0,0 +1,384 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.metadata;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.spi.Stoppable;
+
+/**
+ * Is the JDBC connection pool used by the default Metadata Storage Provider. It is a Hibernate {@link
+ * ConnectionProvider} that keeps a bounded number of connections to the database which are handed out to the entity
+ * managers on request. When all connections are in use, requests wait until a connection is returned or the
+ * configured time out expires.
+ * <p>Idle connections are re-used most recently returned first, so a small number of connections stays "warm" when
+ * the load is low. Connections that have been idle longer than the idle time out are closed, as long as the minimum
+ * number of idle connections remains available. Before a connection that has been idle for a while is handed out it is
+ * checked to be still valid.
+ * <p>Statistics on the utilisation of the pool are available through {@link #getStatistics()}.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Stoppable {
+	private static final long serialVersionUID = 6011283093520153876L;
+
+	private static final Logger log = LogManager.getLogger(PooledConnectionProvider.class);
+
+	/**
+	 * Time in milliseconds a connection can be idle before it is validated when handed out
+	 */
+	private static final long VALIDATION_INTERVAL = 30000;
+
+	/**
+	 * Time out in seconds for validating a connection
+	 */
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	private final String		jdbcUrl;
+	private final Driver		driver;
+	private final Properties	connectionProps;
+	private final int			maxSize;
+	private final int			minIdle;
+	private final long			connectionTimeout;
+	private final long			idleTimeout;
+
+	/**
+	 * Permits for handing out connections, limits the number of connections in use to the maximum pool size
+	 */
+	private final Semaphore		permits;
+
+	/**
+	 * The idle connections, most recently returned first
+	 */
+	private final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+
+	private final AtomicInteger	total = new AtomicInteger();
+	private final AtomicInteger	waiting = new AtomicInteger();
+	private final LongAdder		acquired = new LongAdder();
+	private final LongAdder		timeouts = new LongAdder();
+	private final LongAdder		totalWaitTime = new LongAdder();
+
+	private volatile boolean	stopped = false;
+
+	/**
+	 * Creates a new connection pool.
+	 *
+	 * @param jdbcUrl			the JDBC URL of the database
+	 * @param driver			the JDBC driver to use for connecting to the database, when <code>null</code> the
+	 * 							driver is looked up using the {@link DriverManager}
+	 * @param connectionProps	the properties, like user name and password, to use when connecting to the database
+	 * @param maxSize			the maximum number of connections
+	 * @param minIdle			the minimum number of idle connections to keep open
+	 * @param connectionTimeout	the maximum time in milliseconds to wait for a connection
+	 * @param idleTimeout		the time in milliseconds after which an idle connection is closed
+	 */
+	PooledConnectionProvider(final String jdbcUrl, final Driver driver, final Properties connectionProps,
+							 final int maxSize, final int minIdle, final long connectionTimeout,
+							 final long idleTimeout) {
+		this.jdbcUrl = jdbcUrl;
+		this.driver = driver;
+		this.connectionProps = connectionProps != null ? connectionProps : new Properties();
+		this.maxSize = Math.max(1, maxSize);
+		this.minIdle = Math.max(0, Math.min(minIdle, this.maxSize));
+		this.connectionTimeout = connectionTimeout;
+		this.idleTimeout = idleTimeout;
+		this.permits = new Semaphore(this.maxSize, true);
+		log.debug("Created connection pool for {} : maxSize={}, minIdle={}, connectionTimeout={}ms, idleTimeout={}ms",
+					jdbcUrl, this.maxSize, this.minIdle, connectionTimeout, idleTimeout);
+	}
+
+	/**
+	 * @return the JDBC URL of the database the pool connects to
+	 */
+	public String getJdbcUrl() {
+		return jdbcUrl;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (stopped)
+			throw new SQLException("Connection pool has been stopped");
+		final long start = System.nanoTime();
+		waiting.incrementAndGet();
+		try {
+			if (!permits.tryAcquire(connectionTimeout, TimeUnit.MILLISECONDS)) {
+				timeouts.increment();
+				log.warn("No database connection available within {}ms (pool size={}, waiting={})",
+						 connectionTimeout, maxSize, waiting.get());
+				throw new SQLTransientConnectionException("No connection available within " + connectionTimeout
+															+ "ms");
+			}
+		} catch (InterruptedException interrupted) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection", interrupted);
+		} finally {
+			waiting.decrementAndGet();
+		}
+		try {
+			final Connection c = takeIdleConnection();
+			acquired.increment();
+			totalWaitTime.add(System.nanoTime() - start);
+			return c;
+		} catch (SQLException | RuntimeException failure) {
+			permits.release();
+			throw failure;
+		}
+	}
+
+	/**
+	 * Gets a valid idle connection or when there is none, opens a new connection to the database.
+	 *
+	 * @return	a connection to the database
+	 * @throws SQLException	when a new connection could not be opened
+	 */
+	private Connection takeIdleConnection() throws SQLException {
+		IdleConnection ic;
+		while ((ic = idle.pollFirst()) != null) {
+			if (System.currentTimeMillis() - ic.since < VALIDATION_INTERVAL || isValid(ic.connection))
+				return ic.connection;
+			log.debug("Closing invalid connection");
+			close(ic.connection);
+		}
+		final Connection c = driver != null ? driver.connect(jdbcUrl, connectionProps)
+											: DriverManager.getConnection(jdbcUrl, connectionProps);
+		if (c == null)
+			throw new SQLException("Driver " + driver.getClass().getName() + " does not accept URL " + jdbcUrl);
+		total.incrementAndGet();
+		log.trace("Opened new database connection, total connections={}", total.get());
+		return c;
+	}
+
+	@Override
+	public void closeConnection(final Connection conn) throws SQLException {
+		if (conn == null)
+			return;
+		try {
+			if (stopped || conn.isClosed()) {
+				close(conn);
+				return;
+			}
+			// Ensure the connection is returned in a clean state
+			if (!conn.getAutoCommit())
+				conn.rollback();
+			conn.clearWarnings();
+			idle.addFirst(new IdleConnection(conn));
+		} catch (SQLException resetFailed) {
+			log.debug("Could not reset connection, closing it : {}", resetFailed.getMessage());
+			close(conn);
+		} finally {
+			permits.release();
+		}
+		evictIdleConnections();
+	}
+
+	/**
+	 * Closes the connections that have been idle for longer than the idle time out while keeping the minimum number of
+	 * idle connections. As connections are returned at the head of the queue the oldest are at the tail.
+	 */
+	private void evictIdleConnections() {
+		final long now = System.currentTimeMillis();
+		int n = idle.size();
+		final Iterator<IdleConnection> oldest = idle.descendingIterator();
+		while (n > minIdle && oldest.hasNext()) {
+			final IdleConnection ic = oldest.next();
+			if (now - ic.since < idleTimeout)
+				break;
+			if (idle.removeLastOccurrence(ic)) {
+				close(ic.connection);
+				n--;
+			}
+		}
+	}
+
+	private boolean isValid(final Connection c) {
+		try {
+			return c.isValid(VALIDATION_TIMEOUT);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	private void close(final Connection c) {
+		total.decrementAndGet();
+		try {
+			c.close();
+		} catch (SQLException e) {
+			log.debug("Error closing connection : {}", e.getMessage());
+		}
+	}
+
+	/**
+	 * Stops the pool and closes all idle connections. Connections still in use are closed when they are returned.
+	 */
+	@Override
+	public void stop() {
+		if (stopped)
+			return;
+		stopped = true;
+		IdleConnection ic;
+		while ((ic = idle.pollFirst()) != null)
+			close(ic.connection);
+		log.debug("Connection pool stopped");
+	}
+
+	@Override
+	public boolean supportsAggressiveRelease() {
+		return false;
+	}
+
+	@Override
+	public boolean isUnwrappableAs(@SuppressWarnings("rawtypes") final Class unwrapType) {
+		return unwrapType.isAssignableFrom(PooledConnectionProvider.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> T unwrap(final Class<T> unwrapType) {
+		if (isUnwrappableAs(unwrapType))
+			return (T) this;
+		throw new IllegalArgumentException("Cannot unwrap to " + unwrapType.getName());
+	}
+
+	/**
+	 * Gets a snapshot of the current utilisation of the pool.
+	 *
+	 * @return	the current pool statistics
+	 */
+	public PoolStatistics getStatistics() {
+		final long n = acquired.sum();
+		return new PoolStatistics(maxSize, total.get(), maxSize - permits.availablePermits(), idle.size(),
+								  waiting.get(), n, timeouts.sum(),
+								  n > 0 ? TimeUnit.NANOSECONDS.toMicros(totalWaitTime.sum() / n) : 0);
+	}
+
+	/**
+	 * Holds an idle connection together with the time it was returned to the pool.
+	 */
+	private static class IdleConnection {
+		final Connection connection;
+		final long		 since;
+
+		IdleConnection(final Connection connection) {
+			this.connection = connection;
+			this.since = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * Contains a snapshot of the statistics of the connection pool.
+	 */
+	public static class PoolStatistics {
+		private final int	maxSize;
+		private final int	total;
+		private final int	active;
+		private final int	idle;
+		private final int	waiting;
+		private final long	acquired;
+		private final long	timeouts;
+		private final long	avgWaitTime;
+
+		PoolStatistics(final int maxSize, final int total, final int active, final int idle, final int waiting,
+					   final long acquired, final long timeouts, final long avgWaitTime) {
+			this.maxSize = maxSize;
+			this.total = total;
+			this.active = active;
+			this.idle = idle;
+			this.waiting = waiting;
+			this.acquired = acquired;
+			this.timeouts = timeouts;
+			this.avgWaitTime = avgWaitTime;
+		}
+
+		/**
+		 * @return the maximum number of connections in the pool
+		 */
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		/**
+		 * @return the number of currently open connections
+		 */
+		public int getTotal() {
+			return total;
+		}
+
+		/**
+		 * @return the number of connections currently in use
+		 */
+		public int getActive() {
+			return active;
+		}
+
+		/**
+		 * @return the number of idle connections
+		 */
+		public int getIdle() {
+			return idle;
+		}
+
+		/**
+		 * @return the number of threads waiting for a connection
+		 */
+		public int getWaiting() {
+			return waiting;
+		}
+
+		/**
+		 * @return the total number of connections handed out
+		 */
+		public long getAcquired() {
+			return acquired;
+		}
+
+		/**
+		 * @return the number of requests for a connection that timed out
+		 */
+		public long getTimeouts() {
+			return timeouts;
+		}
+
+		/**
+		 * @return the average time in microseconds it took to get a connection
+		 */
+		public long getAverageWaitTime() {
+			return avgWaitTime;
+		}
+
+		@Override
+		public String toString() {
+			return "[maxSize=" + maxSize + ", total=" + total + ", active=" + active + ", idle=" + idle + ", waiting="
+					+ waiting + ", acquired=" + acquired + ", timeouts=" + timeouts + ", avgWaitTime=" + avgWaitTime
+					+ "us]";
+		}
+	}
+}
@@ -18,6 +18,7 @@ package org.holodeckb2b.storage.metadata;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.hibernate.Hibernate;
@@ -90,4 +91,18 @@ public class UserMessageEntity extends MessageUnitEntity<UserMessage> implements
         return payloadEntities;
     }
 
+    @Override
+    public Date getNextRetryTime() {
+    	return jpaEntityObject.getNextRetryTime();
+    }
+
+    @Override
+    public void setNextRetryTime(Date nextRetryTime) {
+    	jpaEntityObject.setNextRetryTime(nextRetryTime);
+    }
+
+    @Override
+    public int getTransmissionAttempts() {
+    	return jpaEntityObject.getTransmissionAttempts();
+    }
 }
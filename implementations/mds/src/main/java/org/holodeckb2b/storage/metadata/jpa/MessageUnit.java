@@ -24,9 +24,12 @@ import java.util.UUID;
 import javax.persistence.CollectionTable;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Inheritance;
 import javax.persistence.InheritanceType;
 import javax.persistence.JoinColumn;
@@ -53,7 +56,9 @@ import org.holodeckb2b.interfaces.storage.IMessageUnitEntity;
  * @since  3.0.0
  */
 @Entity
-@Table(name = "MSG_UNIT")
+@Table(name = "MSG_UNIT", indexes = {
+		@Index(name = "IDX_MU_DIR_STATE", columnList = "DIRECTION, CURRENT_STATE, MU_TIMESTAMP"),
+		@Index(name = "IDX_MU_PMODE_STATE", columnList = "PMODE_ID, CURRENT_STATE") })
 @Inheritance(strategy = InheritanceType.JOINED)
 public abstract class MessageUnit implements JPAEntityObject {
 	private static final long serialVersionUID = 7831718632775664604L;
@@ -66,6 +71,14 @@ public abstract class MessageUnit implements JPAEntityObject {
         return OID;
     }
 
+    /**
+     * @return the version of the meta-data used for optimistic locking
+     * @since 8.0.0
+     */
+    public long getVersion() {
+    	return VERSION;
+    }
+
     public String getCoreId() {
     	return CORE_ID;
     }
@@ -119,6 +132,8 @@ public abstract class MessageUnit implements JPAEntityObject {
     		states = new ArrayList<>();
 
     	states.add(new MessageUnitProcessingState(state, states.size()));
+    	CURRENT_STATE = state.getState();
+    	CURRENT_STATE_START = state.getStartTime();
     }
 
     public void setProcessingState(final ProcessingState state, final String description) {
@@ -208,6 +223,17 @@ public abstract class MessageUnit implements JPAEntityObject {
     @Temporal(TemporalType.TIMESTAMP)
     private Date    	MU_TIMESTAMP;
 
+    /*
+     * The current processing state and its start time are also stored in the message unit table itself so queries
+     * on the current state do not need to find the last state in the MSG_STATE table.
+     * Since 8.0.0
+     */
+    @Enumerated(EnumType.STRING)
+    private ProcessingState	CURRENT_STATE;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date		CURRENT_STATE_START;
+
     @ElementCollection(targetClass = MessageUnitProcessingState.class, fetch = FetchType.EAGER)
     @CollectionTable(name="MSG_STATE", joinColumns = @JoinColumn(name="MSGUNIT_OID"))
     @OrderBy("PROC_STATE_NUM")
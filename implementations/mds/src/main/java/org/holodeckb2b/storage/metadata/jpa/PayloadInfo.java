@@ -166,6 +166,14 @@ public class PayloadInfo implements JPAEntityObject {
         MIME_TYPE = mimeType;
     }
 
+    public long getContentLength() {
+        return CONTENT_LENGTH != null ? CONTENT_LENGTH : -1;
+    }
+
+    public void setContentLength(final long length) {
+        CONTENT_LENGTH = length >= 0 ? length : null;
+    }
+
     /*
      * Constructors
      */
@@ -231,6 +239,8 @@ public class PayloadInfo implements JPAEntityObject {
 
     private String              MIME_TYPE;
 
+    private Long                CONTENT_LENGTH;
+
     @Enumerated(EnumType.STRING)
     private Containment         CONTAINMENT;
 
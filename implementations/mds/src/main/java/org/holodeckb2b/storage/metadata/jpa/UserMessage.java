@@ -18,6 +18,7 @@ package org.holodeckb2b.storage.metadata.jpa;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,12 +31,15 @@ import javax.persistence.ElementCollection;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
+import javax.persistence.Index;
 import javax.persistence.JoinTable;
 import javax.persistence.Lob;
 import javax.persistence.MapKeyColumn;
 import javax.persistence.MapKeyEnumerated;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
 
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.general.EbMSConstants;
@@ -43,6 +47,8 @@ import org.holodeckb2b.interfaces.general.IProperty;
 import org.holodeckb2b.interfaces.general.ITradingPartner;
 import org.holodeckb2b.interfaces.messagemodel.ICollaborationInfo;
 import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
+import org.holodeckb2b.interfaces.processingmodel.IMessageUnitProcessingState;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
 import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
 
 /**
@@ -53,7 +59,7 @@ import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
  * @since  3.0.0
  */
 @Entity
-@Table(name="USER_MESSAGE")
+@Table(name="USER_MESSAGE", indexes = @Index(name = "IDX_UM_NEXT_RETRY", columnList = "NEXT_RETRY_TIME"))
 @DiscriminatorValue("USERMSG")
 public class UserMessage extends MessageUnit {
 	private static final long serialVersionUID = 2076775451055156430L;
@@ -87,6 +93,44 @@ public class UserMessage extends MessageUnit {
         return payloads;
     }
 
+    public Date getNextRetryTime() {
+    	return NEXT_RETRY_TIME;
+    }
+
+    public void setNextRetryTime(Date nextRetryTime) {
+    	NEXT_RETRY_TIME = nextRetryTime;
+    }
+
+    /**
+     * Gets the number of times the user message has been transmitted. For user messages stored before the counter was
+     * introduced the number is derived from the processing state history.
+     *
+     * @return the number of transmission attempts
+     * @since 8.0.0
+     */
+    public int getTransmissionAttempts() {
+    	if (TRANSMISSIONS == null) {
+    		final List<IMessageUnitProcessingState> states = getProcessingStates();
+    		TRANSMISSIONS = states == null ? 0 : (int) states.stream()
+    												.filter(s -> s.getState() == ProcessingState.SENDING).count();
+    	}
+    	return TRANSMISSIONS;
+    }
+
+    /**
+     * Sets the new processing state of the user message and increments the transmission counter when the new state is
+     * {@link ProcessingState#SENDING}.
+     *
+     * @param state	the new processing state
+     * @since 8.0.0
+     */
+    @Override
+    public void setProcessingState(final IMessageUnitProcessingState state) {
+    	final int attempts = getTransmissionAttempts();
+    	super.setProcessingState(state);
+    	TRANSMISSIONS = state.getState() == ProcessingState.SENDING ? attempts + 1 : attempts;
+    }
+
     public void addPayload(PayloadInfo payload) {
     	if (payloads == null)
 			payloads = new ArrayList<>();
@@ -178,4 +222,18 @@ public class UserMessage extends MessageUnit {
     @ElementCollection(targetClass = Property.class)
     @CollectionTable(name="UM_PROPERTIES")
     private List<IProperty>      properties;
+
+    /*
+     * The time at which the user message is due for the next retransmission check.
+     * @since 8.0.0
+     */
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date                NEXT_RETRY_TIME;
+
+    /*
+     * The number of times the user message has been transmitted, i.e. the number of SENDING states recorded. May be
+     * null for user messages stored by a previous version.
+     * @since 8.0.0
+     */
+    private Integer             TRANSMISSIONS;
 }
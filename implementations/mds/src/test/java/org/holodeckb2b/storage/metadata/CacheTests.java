@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+
+import org.holodeckb2b.common.messagemodel.Receipt;
+import org.holodeckb2b.common.messagemodel.UserMessage;
+import org.holodeckb2b.interfaces.messagemodel.Direction;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
+import org.holodeckb2b.interfaces.storage.IMessageUnitEntity;
+import org.holodeckb2b.interfaces.storage.providers.AlreadyChangedException;
+import org.holodeckb2b.storage.metadata.testhelpers.EntityManagerUtil;
+import org.holodeckb2b.storage.metadata.testhelpers.TestMDSProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class CacheTests {
+	private static TestMDSProvider 	provider;
+
+	@BeforeAll
+	static void setupTest() throws Exception {
+		provider = new TestMDSProvider();
+		provider.init(null);
+		Field cacheField = DefaultMetadataStorageProvider.class.getDeclaredField("cache");
+		cacheField.setAccessible(true);
+		cacheField.set(provider, MessageUnitCache.create(null));
+	}
+
+	@Test
+	void testReturnsCopies() {
+		ReceiptEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+
+		IMessageUnitEntity first = assertDoesNotThrow(() -> provider.getMessageUnitWithCoreId(stored.getCoreId()));
+		first.setPModeId("not-saved");
+
+		IMessageUnitEntity second = assertDoesNotThrow(() -> provider.getMessageUnitWithCoreId(stored.getCoreId()));
+		assertNotSame(first, second);
+		assertNull(second.getPModeId());
+	}
+
+	@Test
+	void testRefreshedOnUpdate() {
+		ReceiptEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+		assertDoesNotThrow(() -> provider.getMessageUnitWithCoreId(stored.getCoreId()));
+
+		stored.setProcessingState(ProcessingState.PROCESSING, null);
+		assertDoesNotThrow(() -> provider.updateMessageUnit(stored));
+
+		IMessageUnitEntity cached = assertDoesNotThrow(() -> provider.getMessageUnitWithCoreId(stored.getCoreId()));
+		assertEquals(ProcessingState.PROCESSING, cached.getCurrentProcessingState().getState());
+
+		// The cached copy must have the current version, so it can be updated again
+		cached.setProcessingState(ProcessingState.DELIVERED, null);
+		assertDoesNotThrow(() -> provider.updateMessageUnit(cached));
+		assertEquals(ProcessingState.DELIVERED, assertDoesNotThrow(() ->
+				provider.getMessageUnitWithCoreId(stored.getCoreId())).getCurrentProcessingState().getState());
+	}
+
+	@Test
+	void testKeepsNewestVersion() {
+		ReceiptEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+		final org.holodeckb2b.storage.metadata.jpa.Receipt outdated = stored.getJPAObject();
+
+		stored.setPModeId("pm-v1");
+		assertDoesNotThrow(() -> provider.updateMessageUnit(stored));
+
+		MessageUnitCache cache = MessageUnitCache.create(null);
+		cache.put(stored.getJPAObject());
+		cache.put(outdated);
+		assertEquals("pm-v1", cache.get(stored.getCoreId()).getPModeId());
+		cache.close();
+	}
+
+	@Test
+	void testEvictedOnAlreadyChanged() {
+		ReceiptEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+		assertDoesNotThrow(() -> provider.getMessageUnitWithCoreId(stored.getCoreId()));
+
+		EntityManager em = EntityManagerUtil.getEntityManager();
+		org.holodeckb2b.storage.metadata.jpa.Receipt dbObj = em
+											.find(org.holodeckb2b.storage.metadata.jpa.Receipt.class, stored.getOID());
+		dbObj.setPModeId("pm-other");
+		em.getTransaction().begin();
+		em.persist(dbObj);
+		em.getTransaction().commit();
+		em.close();
+
+		stored.setPModeId("pm-rejected");
+		assertThrows(AlreadyChangedException.class, () -> provider.updateMessageUnit(stored));
+
+		assertEquals("pm-other", assertDoesNotThrow(() ->
+										provider.getMessageUnitWithCoreId(stored.getCoreId())).getPModeId());
+	}
+
+	@Test
+	void testMessageIdIndex() {
+		final String msgId = UUID.randomUUID().toString();
+		UserMessage um = new UserMessage();
+		um.setMessageId(msgId);
+		um.setDirection(Direction.IN);
+		assertDoesNotThrow(() -> provider.storeMessageUnit(um));
+
+		Collection<IMessageUnitEntity> found = assertDoesNotThrow(() -> provider.getMessageUnitsWithId(msgId));
+		assertEquals(1, found.size());
+
+		// Storing a new message unit with the same MessageId must be reflected in the result
+		UserMessage dup = new UserMessage();
+		dup.setMessageId(msgId);
+		dup.setDirection(Direction.OUT);
+		IMessageUnitEntity storedDup = assertDoesNotThrow(() -> provider.storeMessageUnit(dup));
+
+		found = assertDoesNotThrow(() -> provider.getMessageUnitsWithId(msgId));
+		assertEquals(2, found.size());
+		found = assertDoesNotThrow(() -> provider.getMessageUnitsWithId(msgId, Direction.OUT));
+		assertEquals(1, found.size());
+		assertEquals(storedDup.getCoreId(), found.iterator().next().getCoreId());
+
+		// And so must its removal
+		assertDoesNotThrow(() -> provider.deleteMessageUnit(storedDup));
+		found = assertDoesNotThrow(() -> provider.getMessageUnitsWithId(msgId));
+		assertEquals(1, found.size());
+		assertTrue(found.stream().allMatch(m -> m.getDirection() == Direction.IN));
+		assertNull(assertDoesNotThrow(() -> provider.getMessageUnitWithCoreId(storedDup.getCoreId())));
+	}
+
+	@Test
+	void testOutdatedMessageIdIndexNotAdded() {
+		final String msgId = UUID.randomUUID().toString();
+		UserMessage um = new UserMessage();
+		um.setMessageId(msgId);
+		um.setDirection(Direction.IN);
+		UserMessageEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(um));
+
+		MessageUnitCache cache = MessageUnitCache.create(null);
+		// Simulate a lookup that queried the database before the index was invalidated
+		final long generation = cache.getMessageIdGeneration();
+		cache.removeMessageId(msgId);
+		cache.putWithMessageId(msgId, List.of(stored.getJPAObject()), generation);
+		assertNull(cache.getWithMessageId(msgId));
+
+		// A lookup started after the invalidation can add the index
+		cache.putWithMessageId(msgId, List.of(stored.getJPAObject()), cache.getMessageIdGeneration());
+		assertEquals(1, cache.getWithMessageId(msgId).size());
+		cache.close();
+	}
+}
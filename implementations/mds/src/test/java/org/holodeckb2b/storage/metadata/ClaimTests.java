@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.holodeckb2b.common.messagemodel.UserMessage;
+import org.holodeckb2b.interfaces.messagemodel.Direction;
+import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
+import org.holodeckb2b.interfaces.storage.IUserMessageEntity;
+import org.holodeckb2b.storage.metadata.jpa.MessageUnit;
+import org.holodeckb2b.storage.metadata.testhelpers.EntityManagerUtil;
+import org.junit.jupiter.api.Test;
+
+public class ClaimTests extends BaseProviderTest {
+
+	@Test
+	void testClaimInState() {
+		List<UserMessageEntity> stored = storeUserMessages(3, null, ProcessingState.AWAITING_PULL, null);
+
+		List<IUserMessageEntity> claimed = assertDoesNotThrow(() -> provider.claimMessageUnitsInState(
+									IUserMessage.class, Direction.OUT, ProcessingState.AWAITING_PULL,
+									ProcessingState.PROCESSING, 2));
+		assertEquals(2, claimed.size());
+		assertEquals(stored.get(0).getCoreId(), claimed.get(0).getCoreId());
+		assertEquals(stored.get(1).getCoreId(), claimed.get(1).getCoreId());
+		assertTrue(claimed.stream().allMatch(m ->
+								m.getCurrentProcessingState().getState() == ProcessingState.PROCESSING));
+		assertEquals(ProcessingState.PROCESSING, EntityManagerUtil.getEntityManager()
+													.find(MessageUnit.class, stored.get(0).getOID())
+													.getCurrentProcessingState().getState());
+
+		claimed = assertDoesNotThrow(() -> provider.claimMessageUnitsInState(IUserMessage.class, Direction.OUT,
+									ProcessingState.AWAITING_PULL, ProcessingState.PROCESSING, 2));
+		assertEquals(1, claimed.size());
+		assertEquals(stored.get(2).getCoreId(), claimed.get(0).getCoreId());
+
+		assertTrue(assertDoesNotThrow(() -> provider.claimMessageUnitsInState(IUserMessage.class, Direction.OUT,
+									ProcessingState.AWAITING_PULL, ProcessingState.PROCESSING, 2)).isEmpty());
+	}
+
+	@Test
+	void testClaimForPModesWithFilter() {
+		final String pmodeId = UUID.randomUUID().toString();
+		final String mpc = "http://test.holodeck-b2b.org/claim";
+		List<UserMessageEntity> stored = storeUserMessages(25, pmodeId, ProcessingState.READY_TO_PUSH, null);
+		stored.addAll(storeUserMessages(1, pmodeId, ProcessingState.READY_TO_PUSH, mpc));
+
+		List<IUserMessageEntity> claimed = assertDoesNotThrow(() -> provider.claimMessageUnitsForPModesInState(
+									IUserMessage.class, Set.of(pmodeId), ProcessingState.READY_TO_PUSH,
+									ProcessingState.PROCESSING, (IUserMessageEntity um) -> mpc.equals(um.getMPC()),
+									1));
+		assertEquals(1, claimed.size());
+		assertEquals(stored.get(25).getCoreId(), claimed.get(0).getCoreId());
+		assertEquals(ProcessingState.PROCESSING, claimed.get(0).getCurrentProcessingState().getState());
+
+		assertTrue(assertDoesNotThrow(() -> provider.claimMessageUnitsForPModesInState(IUserMessage.class,
+									Set.of(pmodeId), ProcessingState.READY_TO_PUSH, ProcessingState.PROCESSING,
+									(IUserMessageEntity um) -> mpc.equals(um.getMPC()), 1)).isEmpty());
+
+		claimed = assertDoesNotThrow(() -> provider.claimMessageUnitsForPModesInState(IUserMessage.class,
+									Set.of(pmodeId), ProcessingState.READY_TO_PUSH, ProcessingState.PROCESSING,
+									null, 30));
+		assertEquals(25, claimed.size());
+	}
+
+	@Test
+	void testConcurrentClaims() throws Exception {
+		final String pmodeId = UUID.randomUUID().toString();
+		List<UserMessageEntity> stored = storeUserMessages(40, pmodeId, ProcessingState.READY_TO_PUSH, null);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<List<IUserMessageEntity>>> results = new ArrayList<>();
+		for (int i = 0; i < 4; i++)
+			results.add(executor.submit(() -> provider.claimMessageUnitsForPModesInState(IUserMessage.class,
+									Set.of(pmodeId), ProcessingState.READY_TO_PUSH, ProcessingState.PROCESSING,
+									null, 15)));
+		final Set<String> claimedIds = new HashSet<>();
+		int total = 0;
+		for (Future<List<IUserMessageEntity>> r : results)
+			for (IUserMessageEntity um : r.get(30, TimeUnit.SECONDS)) {
+				assertEquals(ProcessingState.PROCESSING, um.getCurrentProcessingState().getState());
+				claimedIds.add(um.getCoreId());
+				total++;
+			}
+		executor.shutdown();
+
+		assertEquals(stored.size(), total);
+		assertEquals(stored.size(), claimedIds.size());
+	}
+
+	private List<UserMessageEntity> storeUserMessages(int n, String pmodeId, ProcessingState state, String mpc) {
+		List<UserMessageEntity> stored = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			UserMessage um = new UserMessage();
+			um.setMessageId(UUID.randomUUID().toString());
+			um.setDirection(Direction.OUT);
+			um.setTimestamp(new Date(System.currentTimeMillis() - (n - i) * 1000));
+			um.setPModeId(pmodeId);
+			um.setMPC(mpc);
+			um.setProcessingState(state);
+			stored.add(assertDoesNotThrow(() -> provider.storeMessageUnit(um)));
+		}
+		return stored;
+	}
+}
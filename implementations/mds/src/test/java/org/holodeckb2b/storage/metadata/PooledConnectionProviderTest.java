@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.metadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import org.apache.derby.jdbc.EmbeddedDriver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PooledConnectionProviderTest {
+
+	private static final String T_JDBC_URL = "jdbc:derby:memory:pooltest;create=true";
+
+	private PooledConnectionProvider pool;
+
+	@BeforeEach
+	void createPool() {
+		pool = new PooledConnectionProvider(T_JDBC_URL, new EmbeddedDriver(), null, 2, 1, 200, 600000);
+	}
+
+	@AfterEach
+	void stopPool() {
+		pool.stop();
+	}
+
+	@Test
+	void testReuse() throws SQLException {
+		Connection c1 = pool.getConnection();
+		c1.setAutoCommit(false);
+		pool.closeConnection(c1);
+
+		Connection c2 = pool.getConnection();
+		assertSame(c1, c2);
+		assertFalse(c2.isClosed());
+		pool.closeConnection(c2);
+
+		PooledConnectionProvider.PoolStatistics stats = pool.getStatistics();
+		assertEquals(1, stats.getTotal());
+		assertEquals(0, stats.getActive());
+		assertEquals(1, stats.getIdle());
+		assertEquals(2, stats.getAcquired());
+	}
+
+	@Test
+	void testMaxSize() throws SQLException {
+		Connection c1 = pool.getConnection();
+		Connection c2 = pool.getConnection();
+		assertEquals(2, pool.getStatistics().getActive());
+
+		assertThrows(SQLTransientConnectionException.class, () -> pool.getConnection());
+		assertEquals(1, pool.getStatistics().getTimeouts());
+
+		pool.closeConnection(c1);
+		assertSame(c1, pool.getConnection());
+		pool.closeConnection(c1);
+		pool.closeConnection(c2);
+		assertEquals(2, pool.getStatistics().getIdle());
+	}
+
+	@Test
+	void testStop() throws SQLException {
+		Connection c1 = pool.getConnection();
+		Connection c2 = pool.getConnection();
+		pool.closeConnection(c1);
+
+		pool.stop();
+		assertTrue(c1.isClosed());
+		assertFalse(c2.isClosed());
+		pool.closeConnection(c2);
+		assertTrue(c2.isClosed());
+		assertEquals(0, pool.getStatistics().getTotal());
+		assertThrows(SQLException.class, () -> pool.getConnection());
+	}
+}
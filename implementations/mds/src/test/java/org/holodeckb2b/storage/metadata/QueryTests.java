@@ -158,6 +158,40 @@ public class QueryTests extends BaseProviderTest {
 		assertEquals(0, (int) assertDoesNotThrow(() -> provider.getNumberOfTransmissions(TestDataSet.T_USERMESSAGE_5)));
 	}
 
+	@Test
+	void testGetUserMessagesDueForRetry() {
+		final long now = System.currentTimeMillis();
+		UserMessageEntity noRetryTime = storeWaitingUserMessage(ProcessingState.AWAITING_RECEIPT, null);
+		UserMessageEntity due = storeWaitingUserMessage(ProcessingState.TRANSPORT_FAILURE, new Date(now - 60000));
+		UserMessageEntity notDue = storeWaitingUserMessage(ProcessingState.WARNING, new Date(now + 60000));
+		UserMessageEntity notWaiting = storeWaitingUserMessage(ProcessingState.DELIVERED, new Date(now - 60000));
+		Set<String> testIds = Set.of(noRetryTime.getCoreId(), due.getCoreId(), notDue.getCoreId(),
+									 notWaiting.getCoreId());
+
+		List<IUserMessageEntity> r = assertDoesNotThrow(() -> provider.getUserMessagesDueForRetry(new Date(now)));
+		r.removeIf(um -> !testIds.contains(um.getCoreId()));
+		assertEquals(2, r.size());
+		assertTrue(r.stream().anyMatch(um -> um.getCoreId().equals(noRetryTime.getCoreId())));
+		assertTrue(r.stream().anyMatch(um -> um.getCoreId().equals(due.getCoreId())));
+		assertEquals(due.getNextRetryTime(), r.stream().filter(um -> um.getCoreId().equals(due.getCoreId()))
+																.findFirst().get().getNextRetryTime());
+
+		r = assertDoesNotThrow(() -> provider.getUserMessagesDueForRetry(new Date(now + 120000)));
+		r.removeIf(um -> !testIds.contains(um.getCoreId()));
+		assertEquals(3, r.size());
+	}
+
+	private UserMessageEntity storeWaitingUserMessage(ProcessingState state, Date nextRetryTime) {
+		org.holodeckb2b.common.messagemodel.UserMessage um = new org.holodeckb2b.common.messagemodel.UserMessage();
+		um.setMessageId(UUID.randomUUID().toString());
+		um.setDirection(Direction.OUT);
+		um.setProcessingState(state);
+		UserMessageEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(um));
+		stored.setNextRetryTime(nextRetryTime);
+		assertDoesNotThrow(() -> provider.updateMessageUnit(stored));
+		return stored;
+	}
+
 	@Test
 	void testIsAlreadyProcessed() {
 		EntityManager em = null;
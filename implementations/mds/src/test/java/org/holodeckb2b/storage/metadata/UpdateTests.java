@@ -24,6 +24,8 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.persistence.EntityManager;
@@ -37,8 +39,10 @@ import org.holodeckb2b.common.messagemodel.UserMessage;
 import org.holodeckb2b.common.util.CompareUtils;
 import org.holodeckb2b.commons.util.Utils;
 import org.holodeckb2b.interfaces.general.IProperty;
+import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
 import org.holodeckb2b.interfaces.pmode.ILeg.Label;
 import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
+import org.holodeckb2b.interfaces.storage.IMessageUnitEntity;
 import org.holodeckb2b.interfaces.storage.IPayloadEntity;
 import org.holodeckb2b.interfaces.storage.providers.AlreadyChangedException;
 import org.holodeckb2b.interfaces.storage.providers.StorageException;
@@ -133,6 +137,52 @@ public class UpdateTests {
 		assertEquals(descr2, dbObj.getProcessingStates().get(2).getDescription());
 	}
 
+	@Test
+	void testTransmissionAttempts() {
+		UserMessageEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(new UserMessage()));
+		assertEquals(0, stored.getTransmissionAttempts());
+
+		for (int i = 0; i < 2; i++) {
+			stored.setProcessingState(ProcessingState.SENDING, null);
+			assertDoesNotThrow(() -> provider.updateMessageUnit(stored));
+			stored.setProcessingState(ProcessingState.AWAITING_RECEIPT, null);
+			assertDoesNotThrow(() -> provider.updateMessageUnit(stored));
+		}
+
+		assertEquals(2, stored.getTransmissionAttempts());
+		assertEquals(2, EntityManagerUtil.getEntityManager()
+							.find(org.holodeckb2b.storage.metadata.jpa.UserMessage.class, stored.getOID())
+							.getTransmissionAttempts());
+		assertEquals(2, (int) assertDoesNotThrow(() -> provider.getNumberOfTransmissions(stored)));
+	}
+
+	@Test
+	void testCompleteCurrentStateData() {
+		UserMessage um = new UserMessage();
+		um.setPModeId(UUID.randomUUID().toString());
+		UserMessageEntity stored = assertDoesNotThrow(() -> provider.storeMessageUnit(um));
+		stored.setProcessingState(ProcessingState.READY_TO_PUSH, null);
+		assertDoesNotThrow(() -> provider.updateMessageUnit(stored));
+
+		// Simulate a message unit stored by a previous version without the current state columns
+		EntityManager em = EntityManagerUtil.getEntityManager();
+		em.getTransaction().begin();
+		em.createNativeQuery("UPDATE MSG_UNIT SET CURRENT_STATE = NULL, CURRENT_STATE_START = NULL WHERE OID = "
+								+ stored.getOID()).executeUpdate();
+		em.getTransaction().commit();
+		em.close();
+
+		assertTrue(assertDoesNotThrow(() -> provider.getMessageUnitsForPModesInState(IUserMessage.class,
+												Set.of(um.getPModeId()), ProcessingState.READY_TO_PUSH)).isEmpty());
+
+		assertDoesNotThrow(() -> provider.completeCurrentStateData());
+
+		List<IMessageUnitEntity> r = assertDoesNotThrow(() -> provider.getMessageUnitsForPModesInState(
+								IUserMessage.class, Set.of(um.getPModeId()), ProcessingState.READY_TO_PUSH));
+		assertEquals(1, r.size());
+		assertEquals(stored.getCoreId(), r.get(0).getCoreId());
+	}
+
 	@Test
 	void testErrorSetLeg() {
 		ErrorMessage em = new ErrorMessage(new FailedAuthentication());
@@ -187,6 +237,23 @@ public class UpdateTests {
 		assertEquals(newMimetype, dbObj.getMimeType());
 	}
 
+	@Test
+	void testPayloadSetContentLength() {
+		IPayloadEntity stored = assertDoesNotThrow(() -> provider.storePayloadMetadata(new Payload(), null));
+		assertEquals(-1, stored.getContentLength());
+
+		stored.setContentLength(1024);
+
+		assertDoesNotThrow(() -> provider.updatePayloadMetadata(stored));
+
+		assertEquals(1024, stored.getContentLength());
+
+		org.holodeckb2b.storage.metadata.jpa.PayloadInfo dbObj = EntityManagerUtil.getEntityManager()
+															.find(PayloadInfo.class, ((PayloadEntity) stored).getOID());
+
+		assertEquals(1024, dbObj.getContentLength());
+	}
+
 	@Test
 	void testPayloadSetURI() {
 		IPayloadEntity stored = assertDoesNotThrow(() -> provider.storePayloadMetadata(new Payload(), null));
@@ -272,4 +339,52 @@ public class UpdateTests {
 					.find(org.holodeckb2b.storage.metadata.jpa.Receipt.class, stored.getOID());
 		assertEquals(receipt.getCurrentProcessingState().getState(), dbObj.getCurrentProcessingState().getState());
 	}
+
+	@Test
+	void testBatchUpdate() {
+		ReceiptEntity r1 = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+		ErrorMessageEntity e1 = assertDoesNotThrow(() ->
+										provider.storeMessageUnit(new ErrorMessage(new FailedAuthentication())));
+
+		r1.setProcessingState(ProcessingState.DONE, null);
+		e1.setPModeId("pm-batch");
+		assertDoesNotThrow(() -> provider.updateMessageUnits(List.of(r1, e1)));
+
+		EntityManager em = EntityManagerUtil.getEntityManager();
+		assertEquals(ProcessingState.DONE, em.find(org.holodeckb2b.storage.metadata.jpa.Receipt.class, r1.getOID())
+												.getCurrentProcessingState().getState());
+		assertEquals("pm-batch", em.find(org.holodeckb2b.storage.metadata.jpa.ErrorMessage.class, e1.getOID())
+												.getPModeId());
+		em.close();
+
+		// The entity objects should be updated to the new version
+		r1.setPModeId("pm-batch-2");
+		assertDoesNotThrow(() -> provider.updateMessageUnits(List.of(r1)));
+	}
+
+	@Test
+	void testBatchRejectAlreadyChanged() {
+		ReceiptEntity r1 = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+		ReceiptEntity r2 = assertDoesNotThrow(() -> provider.storeMessageUnit(new Receipt()));
+
+		EntityManager em = EntityManagerUtil.getEntityManager();
+		org.holodeckb2b.storage.metadata.jpa.Receipt dbObj = em
+												.find(org.holodeckb2b.storage.metadata.jpa.Receipt.class, r2.getOID());
+		dbObj.setPModeId("pm-other");
+		em.getTransaction().begin();
+		em.persist(dbObj);
+		em.getTransaction().commit();
+		em.close();
+
+		r1.setPModeId("pm-r1");
+		r2.setPModeId("pm-r2");
+		assertThrows(AlreadyChangedException.class, () -> provider.updateMessageUnits(List.of(r1, r2)));
+
+		// None of the updates should have been saved
+		em = EntityManagerUtil.getEntityManager();
+		assertNull(em.find(org.holodeckb2b.storage.metadata.jpa.Receipt.class, r1.getOID()).getPModeId());
+		assertEquals("pm-other", em.find(org.holodeckb2b.storage.metadata.jpa.Receipt.class, r2.getOID())
+										.getPModeId());
+		em.close();
+	}
 }
@@ -16,13 +16,13 @@
  */
 package org.holodeckb2b.storage.payloads;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 import org.apache.axis2.description.Parameter;
 import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.common.VersionInfo;
 import org.holodeckb2b.commons.util.FileUtils;
 import org.holodeckb2b.interfaces.config.IConfiguration;
@@ -39,15 +39,20 @@ import org.holodeckb2b.interfaces.storage.providers.StorageException;
  * By default the payloads will be stored in the <code>pldata</code> subdirectory of the Holodeck B2B <i>temp</i>
  * directory as specified by {@link IConfiguration#getTempDirectory()}. The directory can be changed by setting the
  * <i>payload-directory</i> parameter in the Holodeck B2B configuration, i.e. in the <code>holodeckb2b.xml</code> file.
+ * <p>Since version 8.0.0 the payload files are distributed over sub directories, see {@link PayloadDirectory} for
+ * details. Payload directories created by earlier versions can be migrated to this layout using the {@link
+ * PayloadDirectoryMigrationTool}.
  *
  * @author Sander Fieten (sander at holodeck-b2b.org)
  * @since 7.0.0
  */
 public class DefaultPayloadStorageProvider implements IPayloadStorageProvider {
+	private static final Logger log = LogManager.getLogger();
+
 	/**
 	 * The directory where the paylaod data is to be stored.
 	 */
-	private Path	directory;
+	private PayloadDirectory	directory;
 
 	@Override
 	public String getName() {
@@ -57,21 +62,30 @@ public class DefaultPayloadStorageProvider implements IPayloadStorageProvider {
 	@Override
 	public void init(IConfiguration config) throws StorageException {
 		Parameter dirSetting = config.getParameter("payload-directory");
+		final Path baseDir;
 		if (dirSetting != null && dirSetting.getParameterType() == Parameter.TEXT_PARAMETER)
-			directory = Path.of((String) dirSetting.getValue());
+			baseDir = Path.of((String) dirSetting.getValue());
 		else {
-			directory = config.getTempDirectory().resolve("pldata");
-			if (!Files.exists(directory))
+			baseDir = config.getTempDirectory().resolve("pldata");
+			if (!Files.exists(baseDir))
 				try {
-					Files.createDirectory(directory);
+					Files.createDirectory(baseDir);
 				} catch (IOException ioError) {
 					throw new StorageException("Could not create payload directory", ioError);
 				}
 		}
-		if (!FileUtils.isWriteableDirectory(directory))
-			throw new StorageException(directory.toString() + " is not a valid directory");
+		if (!FileUtils.isWriteableDirectory(baseDir))
+			throw new StorageException(baseDir.toString() + " is not a valid directory");
 
-		LogManager.getLogger().info("Base directory for storing payloads = " + directory.toString());
+		directory = new PayloadDirectory(baseDir);
+		log.info("Base directory for storing payloads = " + baseDir.toString());
+		try {
+			if (directory.hasLegacyFiles())
+				log.warn("The payload directory contains files stored in the layout of a previous version. Use the"
+						+ " migratePayloadDirectory tool to move them to the current layout");
+		} catch (IOException ioError) {
+			throw new StorageException("Could not read payload directory", ioError);
+		}
 	}
 
 	@Override
@@ -81,19 +95,19 @@ public class DefaultPayloadStorageProvider implements IPayloadStorageProvider {
 	@Override
 	public IPayloadContent createNewPayloadStorage(IPayloadEntity p)
 			throws StorageException {
-		return new PayloadContent(p.getPayloadId(), directory.resolve(p.getPayloadId()).toFile());
+		return new PayloadContent(p.getPayloadId(), directory.resolve(p.getPayloadId()));
 	}
 
 	@Override
 	public IPayloadContent getPayloadContent(IPayloadEntity p) throws StorageException {
-		File contentFile = directory.resolve(p.getPayloadId()).toFile();
-		return contentFile.exists() ? new PayloadContent(p.getPayloadId(), contentFile) : null;
+		final Path contentFile = directory.find(p.getPayloadId());
+		return contentFile != null ? new PayloadContent(p.getPayloadId(), contentFile) : null;
 	}
 
 	@Override
 	public void removePayloadContent(IPayloadEntity p) throws StorageException {
 		try {
-			Files.deleteIfExists(directory.resolve(p.getPayloadId()));
+			directory.delete(p.getPayloadId());
 		} catch (IOException ioError) {
 			throw new StorageException("Could not delete content", ioError);
 		}
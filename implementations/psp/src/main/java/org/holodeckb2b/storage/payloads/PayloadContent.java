@@ -17,13 +17,23 @@
 package org.holodeckb2b.storage.payloads;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.holodeckb2b.interfaces.storage.IPayloadContent;
 import org.holodeckb2b.interfaces.storage.providers.StorageException;
 
@@ -34,6 +44,13 @@ import org.holodeckb2b.interfaces.storage.providers.StorageException;
  * @since  7.0.0
  */
 public class PayloadContent implements IPayloadContent {
+	private static final Logger log = LogManager.getLogger();
+
+	/**
+	 * The maximum number of bytes transferred in one call to the file channel
+	 */
+	private static final long MAX_TRANSFER_SIZE = 8 * 1024 * 1024;
+
 	/**
 	 * The unique identifier assigned to this payload
 	 */
@@ -41,7 +58,7 @@ public class PayloadContent implements IPayloadContent {
 	/**
 	 * The file that containing the payload's content
 	 */
-	private final File	 contentPath;
+	private final Path	 contentPath;
 	/**
 	 * The stream used to write the payload's content
 	 */
@@ -54,6 +71,17 @@ public class PayloadContent implements IPayloadContent {
 	 * @param path		The file containing the payload's content
 	 */
 	public PayloadContent(String payloadId, File path) {
+		this(payloadId, path.toPath());
+	}
+
+	/**
+	 * Creates a new instance with the given PayloadId and path to the actual data.
+	 *
+	 * @param payloadId	The unique identifier assigned to this payload
+	 * @param path		The path of the file containing the payload's content
+	 * @since 8.0.0
+	 */
+	public PayloadContent(String payloadId, Path path) {
 		this.payloadId = payloadId;
 		this.contentPath = path;
 	}
@@ -63,28 +91,124 @@ public class PayloadContent implements IPayloadContent {
 		return payloadId;
 	}
 
+	/**
+	 * @return the path of the file containing the payload's content
+	 * @since 8.0.0
+	 */
+	public Path getContentPath() {
+		return contentPath;
+	}
+
 	@Override
 	public InputStream getContent() throws StorageException {
-		if (writeStream != null && !writeStream.closed)
-			// Content is still written, so not available for reading right now
-			return null;
-		else
-			try {
-				return new FileInputStream(contentPath);
-			} catch (FileNotFoundException ioError) {
-				// No content has yet been written
-				return null;
+		final FileChannel channel = openForReading();
+		return channel != null ? Channels.newInputStream(channel) : null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The content is transferred using {@link FileChannel#transferTo(long, long, WritableByteChannel)} so the
+	 * operating system can move the data directly from the file to the target, for example a socket or another file.
+	 */
+	@Override
+	public long transferTo(WritableByteChannel target) throws StorageException {
+		try (FileChannel channel = openForReading()) {
+			if (channel == null)
+				throw new StorageException("No content available");
+			final long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				final long n = channel.transferTo(position, Math.min(size - position, MAX_TRANSFER_SIZE), target);
+				// No progress means the file was truncated or the target does not accept more data
+				if (n <= 0)
+					throw new IOException("Transfer stopped after " + position + " of " + size + " bytes");
+				position += n;
+			}
+			return position;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not transfer payload content from " + contentPath.toString(), ioError);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>The content is transferred using {@link FileChannel#transferFrom(ReadableByteChannel, long, long)} so the
+	 * operating system can move the data directly to the file when the source is another file. The source channel must
+	 * be in blocking mode.
+	 */
+	@Override
+	public long transferFrom(ReadableByteChannel source) throws StorageException {
+		final ContentOutputStream storage = (ContentOutputStream) openStorage();
+		try (storage) {
+			final FileChannel channel = storage.channel;
+			final long start = channel.position();
+			long position = start;
+			if (source instanceof FileChannel) {
+				final FileChannel src = (FileChannel) source;
+				final long size = src.size() - src.position();
+				long remaining = size;
+				while (remaining > 0) {
+					final long n = channel.transferFrom(src, position, Math.min(remaining, MAX_TRANSFER_SIZE));
+					// No progress means the source file was truncated
+					if (n <= 0)
+						throw new IOException("Transfer stopped after " + (size - remaining) + " of " + size
+												+ " bytes");
+					position += n;
+					remaining -= n;
+				}
+			} else {
+				// As the source is a blocking channel, no data transferred means it is exhausted
+				long n;
+				do {
+					n = channel.transferFrom(source, position, MAX_TRANSFER_SIZE);
+					position += n;
+				} while (n > 0);
 			}
+			channel.position(position);
+			return position - start;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not transfer payload content to " + contentPath.toString(), ioError);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>When the file is on the same file system as the payload storage it is moved into storage by an atomic rename.
+	 * When the file cannot be moved, for example because it is on another file system or is still opened by another
+	 * process, its content is transferred using {@link #transferFrom(ReadableByteChannel)} and the file is left in
+	 * place.
+	 */
+	@Override
+	public boolean adoptFile(Path file) throws StorageException {
+		if (writeStream != null || Files.exists(contentPath))
+			throw new StorageException("The payload data is already stored");
+		try {
+			Files.createDirectories(contentPath.getParent());
+			Files.move(file, contentPath, StandardCopyOption.ATOMIC_MOVE);
+			return true;
+		} catch (IOException moveFailure) {
+			// The file cannot be moved, so its content must be copied
+			log.debug("Could not move {} to {}, copying content instead : {}", file.toString(), contentPath.toString(),
+					  moveFailure.getMessage());
+		}
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+			transferFrom(source);
+			return false;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not read payload content from " + file.toString(), ioError);
+		}
 	}
 
 	@Override
 	public OutputStream openStorage() throws StorageException {
 		if (writeStream == null) {
-			if (contentPath.exists())
-				throw new StorageException("The payload data is already	stored");
 			try {
-				writeStream = new ContentOutputStream(contentPath);
-			} catch (FileNotFoundException ioError) {
+				Files.createDirectories(contentPath.getParent());
+				writeStream = new ContentOutputStream(FileChannel.open(contentPath, StandardOpenOption.WRITE,
+																	   StandardOpenOption.CREATE_NEW));
+			} catch (FileAlreadyExistsException alreadyStored) {
+				throw new StorageException("The payload data is already stored");
+			} catch (IOException ioError) {
 				throw new StorageException("Could not open payload file: " + contentPath.toString(), ioError);
 			}
 		} else if (writeStream.closed) {
@@ -94,28 +218,64 @@ public class PayloadContent implements IPayloadContent {
 	}
 
 	/**
-	 * Is an extented version of a {@link java.io.FileOutputStream} that has an indicator if the stream is closed.
+	 * Opens the file containing the content for reading.
+	 *
+	 * @return	the channel to read the content, or <code>null</code> if no content is available
+	 * @throws StorageException when the file exists but cannot be opened
 	 */
-	class ContentOutputStream extends FileOutputStream {
+	private FileChannel openForReading() throws StorageException {
+		if (writeStream != null && !writeStream.closed)
+			// Content is still written, so not available for reading right now
+			return null;
+		try {
+			return FileChannel.open(contentPath, StandardOpenOption.READ);
+		} catch (NoSuchFileException notWritten) {
+			// No content has yet been written
+			return null;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not open payload file: " + contentPath.toString(), ioError);
+		}
+	}
+
+	/**
+	 * Is the stream for writing the content to the file through a {@link FileChannel} that has an indicator if the
+	 * stream is closed.
+	 */
+	class ContentOutputStream extends OutputStream {
+		/**
+		 * The channel to the file
+		 */
+		private final FileChannel channel;
 		/**
 		 * Indicator is the stream is closed
 		 */
 		private boolean closed = false;
 
 		/**
-		 * Opens the the stream for writing to the specified file.
+		 * Creates the stream for writing to the given file channel.
 		 *
-		 * @see java.io.FileOutputStream#FileOutputStream(java.io.File)
+		 * @param channel	the channel to the file
 		 */
-		public ContentOutputStream(File file) throws FileNotFoundException {
-			super(file);
+		ContentOutputStream(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+			while (buffer.hasRemaining())
+				channel.write(buffer);
 		}
 
 		@Override
 		public void close() throws IOException {
-			super.close();
+			channel.close();
 			closed = true;
 		}
 	}
-
 }
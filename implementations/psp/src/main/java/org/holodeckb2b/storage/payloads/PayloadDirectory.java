@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.payloads;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Manages the layout of the directory in which the {@link DefaultPayloadStorageProvider} stores the payload files.
+ * To keep the number of files per directory small, which keeps look ups, creates and deletes fast on large stores,
+ * the files are distributed over two levels of sub directories based on a hash of the <i>payloadId</i>. Each level
+ * has at most 256 sub directories, named by the two digit hexadecimal value of one byte of the hash. So the content of
+ * a payload is stored in <code>«base directory»/«hh»/«hh»/«payloadId»</code>.
+ * <p>Before version 8.0.0 all files were stored directly in the base directory. These files are still found, but should
+ * be moved to the new layout using {@link #migrate()}, for example by using the {@link PayloadDirectoryMigrationTool}.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ */
+final class PayloadDirectory {
+	private static final Logger	log = LogManager.getLogger(PayloadDirectory.class);
+
+	/**
+	 * The base directory
+	 */
+	private final Path	baseDirectory;
+
+	/**
+	 * Creates a new instance for the given base directory.
+	 *
+	 * @param baseDirectory	the base directory of the payload store
+	 */
+	PayloadDirectory(final Path baseDirectory) {
+		this.baseDirectory = baseDirectory;
+	}
+
+	/**
+	 * @return the base directory of the payload store
+	 */
+	Path getBaseDirectory() {
+		return baseDirectory;
+	}
+
+	/**
+	 * Gets the path of the file for storing the content of the payload with the given <i>payloadId</i>.
+	 *
+	 * @param payloadId	the payloadId
+	 * @return	the path of the payload file in the sharded layout
+	 */
+	Path resolve(final String payloadId) {
+		// Mix the bits of the hash code so also payloadIds that only differ slightly are well distributed
+		int h = payloadId.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return baseDirectory.resolve(Integer.toHexString(0x100 | (h >>> 24)).substring(1))
+							.resolve(Integer.toHexString(0x100 | ((h >>> 16) & 0xff)).substring(1))
+							.resolve(payloadId);
+	}
+
+	/**
+	 * Gets the path of the file with the content of the payload with the given <i>payloadId</i> in the flat layout used
+	 * before version 8.0.0.
+	 *
+	 * @param payloadId	the payloadId
+	 * @return	the path of the payload file in the flat layout
+	 */
+	Path resolveLegacy(final String payloadId) {
+		return baseDirectory.resolve(payloadId);
+	}
+
+	/**
+	 * Finds the file containing the content of the payload with the given <i>payloadId</i>. When the file is not found
+	 * in the sharded layout, it is checked whether the file still is in the flat layout. As the file may be moved
+	 * concurrently by the migration, the sharded layout is checked again if the file is not found in the flat layout.
+	 *
+	 * @param payloadId	the payloadId
+	 * @return	the path of the payload file, or <code>null</code> if there is no file for the payload
+	 */
+	Path find(final String payloadId) {
+		final Path sharded = resolve(payloadId);
+		if (Files.exists(sharded))
+			return sharded;
+		final Path legacy = resolveLegacy(payloadId);
+		if (Files.isRegularFile(legacy))
+			return legacy;
+		return Files.exists(sharded) ? sharded : null;
+	}
+
+	/**
+	 * Deletes the file containing the content of the payload with the given <i>payloadId</i>, both from the sharded
+	 * and the flat layout. As the migration may concurrently move the file from the flat to the sharded layout, the
+	 * sharded layout is checked again after the file has been deleted from the flat layout.
+	 *
+	 * @param payloadId	the payloadId
+	 * @throws IOException when a file cannot be deleted
+	 */
+	void delete(final String payloadId) throws IOException {
+		final Path sharded = resolve(payloadId);
+		Files.deleteIfExists(sharded);
+		Files.deleteIfExists(resolveLegacy(payloadId));
+		// Once the file is removed from the flat layout it cannot be moved anymore
+		Files.deleteIfExists(sharded);
+	}
+
+	/**
+	 * Checks whether the base directory contains payload files in the flat layout used before version 8.0.0.
+	 *
+	 * @return	<code>true</code> if there is at least one payload file directly in the base directory,
+	 * 			<code>false</code> otherwise
+	 * @throws IOException when the base directory cannot be read
+	 */
+	boolean hasLegacyFiles() throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDirectory, Files::isRegularFile)) {
+			return files.iterator().hasNext();
+		}
+	}
+
+	/**
+	 * Moves all payload files stored in the flat layout to the sharded layout. The files are moved atomically, so the
+	 * migration can be executed while Holodeck B2B is running. A file is not moved when there already exists a file
+	 * for the payload in the sharded layout.
+	 *
+	 * @return	the number of files moved
+	 * @throws IOException when the base directory cannot be read
+	 */
+	int migrate() throws IOException {
+		int moved = 0;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDirectory, Files::isRegularFile)) {
+			for (Path f : files) {
+				final Path target = resolve(f.getFileName().toString());
+				// An atomic move may replace an existing file, so check first
+				if (Files.exists(target)) {
+					log.warn("Payload file {} not moved as {} already exists", f.toString(), target.toString());
+					continue;
+				}
+				try {
+					Files.createDirectories(target.getParent());
+					Files.move(f, target, StandardCopyOption.ATOMIC_MOVE);
+					moved++;
+				} catch (IOException moveFailure) {
+					log.error("Could not move payload file {} to {} : {}", f.toString(), target.toString(),
+								moveFailure.getMessage());
+				}
+			}
+		}
+		log.info("Moved {} payload files to sharded layout", moved);
+		return moved;
+	}
+}
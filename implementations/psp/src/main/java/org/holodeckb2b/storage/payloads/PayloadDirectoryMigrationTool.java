@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 The Holodeck B2B Team, Sander Fieten
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.holodeckb2b.storage.payloads;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.holodeckb2b.commons.util.FileUtils;
+
+/**
+ * Is the command line tool to migrate a payload directory created by a version of the {@link
+ * DefaultPayloadStorageProvider} before 8.0.0, in which all payload files are stored directly in the directory, to the
+ * sharded layout used since version 8.0.0. The tool takes the path of the payload directory as its only argument.
+ * <p>Since the files are moved atomically the migration can be executed while Holodeck B2B is running.
+ *
+ * @author Sander Fieten (sander at holodeck-b2b.org)
+ * @since 8.0.0
+ * @see PayloadDirectory
+ */
+public class PayloadDirectoryMigrationTool {
+
+	public static void main(String[] args) {
+		if (args.length != 1) {
+			System.out.println("Usage: migratePayloadDirectory «path of payload directory»");
+			System.exit(-1);
+		}
+		final Path directory = Path.of(args[0]);
+		if (!FileUtils.isWriteableDirectory(directory)) {
+			System.err.println(directory.toString() + " is not a valid directory!");
+			System.exit(-2);
+		}
+		try {
+			final int moved = new PayloadDirectory(directory).migrate();
+			System.out.printf("Moved %d payload files to the new layout%n", moved);
+		} catch (IOException migrationFailure) {
+			System.err.println("Could not migrate the payload directory. See error details below:");
+			migrationFailure.printStackTrace(System.err);
+			System.exit(-3);
+		}
+	}
+}
@@ -17,7 +17,9 @@
 package org.holodeckb2b.storage.payloads;
 
 import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -84,7 +86,7 @@ class DefaultPayloadStorageProviderTest {
 			cos.close();
 		});
 
-		assertTrue(Files.exists(custdir.resolve(content.getPayloadId())));
+		assertTrue(Files.exists(new PayloadDirectory(custdir).resolve(content.getPayloadId())));
 	}
 
 	@Test
@@ -102,7 +104,10 @@ class DefaultPayloadStorageProviderTest {
 			cos.close();
 		});
 
-		assertTrue(Files.exists(TestUtils.getTestResource("pldata").resolve(payload.getPayloadId())));
+		final Path plFile = new PayloadDirectory(TestUtils.getTestResource("pldata")).resolve(payload.getPayloadId());
+		assertTrue(Files.exists(plFile));
+		// The file must be stored in a sub directory two levels below the base directory
+		assertEquals(TestUtils.getTestResource("pldata"), plFile.getParent().getParent().getParent());
 	}
 
 	@Test
@@ -118,6 +123,44 @@ class DefaultPayloadStorageProviderTest {
 		assertNotNull(assertDoesNotThrow(() -> content.getContent()));
 	}
 
+	@Test
+	void testGetLegacyPayloadContent() {
+		final DefaultPayloadStorageProvider provider = new DefaultPayloadStorageProvider();
+		assertDoesNotThrow(() -> provider.init(HolodeckB2BCoreInterface.getConfiguration()));
+
+		final IPayloadEntity pl = new PayloadEntity();
+		assertDoesNotThrow(() -> TestDataHelper.createTestFile(TestUtils.getTestResource("pldata"), pl.getPayloadId()));
+
+		IPayloadContent content = assertDoesNotThrow(() -> provider.getPayloadContent(pl));
+
+		assertNotNull(content);
+		assertEquals(TestUtils.getTestResource("pldata").resolve(pl.getPayloadId()),
+					((PayloadContent) content).getContentPath());
+	}
+
+	@Test
+	void testMigrateDirectory() throws IOException {
+		final Path baseDir = TestUtils.getTestResource("pldata");
+		Files.createDirectory(baseDir);
+		final IPayloadEntity pl1 = new PayloadEntity();
+		final IPayloadEntity pl2 = new PayloadEntity();
+		final File legacy1 = TestDataHelper.createTestFile(baseDir, pl1.getPayloadId());
+		final byte[] data1 = Files.readAllBytes(legacy1.toPath());
+		TestDataHelper.createTestFile(baseDir, pl2.getPayloadId());
+
+		final PayloadDirectory directory = new PayloadDirectory(baseDir);
+		assertTrue(directory.hasLegacyFiles());
+		assertEquals(2, directory.migrate());
+		assertFalse(directory.hasLegacyFiles());
+		assertFalse(legacy1.exists());
+		assertArrayEquals(data1, Files.readAllBytes(directory.resolve(pl1.getPayloadId())));
+		assertTrue(Files.exists(directory.resolve(pl2.getPayloadId())));
+
+		final DefaultPayloadStorageProvider provider = new DefaultPayloadStorageProvider();
+		assertDoesNotThrow(() -> provider.init(HolodeckB2BCoreInterface.getConfiguration()));
+		assertNotNull(assertDoesNotThrow(() -> provider.getPayloadContent(pl1)));
+	}
+
 	@Test
 	void testGetNonAvailablePayloadContent() {
 		final DefaultPayloadStorageProvider provider = new DefaultPayloadStorageProvider();
@@ -139,6 +182,16 @@ class DefaultPayloadStorageProviderTest {
 		assertDoesNotThrow(() -> provider.removePayloadContent(pl));
 		assertFalse(testfile.exists());
 
+		final IPayloadEntity pl2 = new PayloadEntity();
+		assertDoesNotThrow(() -> {
+			try (OutputStream cos = provider.createNewPayloadStorage(pl2).openStorage()) {
+				cos.write(TestDataHelper.createRandomData());
+			}
+		});
+		assertNotNull(assertDoesNotThrow(() -> provider.getPayloadContent(pl2)));
+		assertDoesNotThrow(() -> provider.removePayloadContent(pl2));
+		assertNull(assertDoesNotThrow(() -> provider.getPayloadContent(pl2)));
+
 		assertDoesNotThrow(() -> provider.removePayloadContent(new PayloadEntity()));
 	}
 }
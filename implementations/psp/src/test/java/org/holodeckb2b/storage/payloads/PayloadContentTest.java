@@ -19,18 +19,27 @@ package org.holodeckb2b.storage.payloads;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.Pipe;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.UUID;
 
@@ -164,6 +173,72 @@ class PayloadContentTest {
 		}
 	}
 
+	@Test
+	void testTransferTo() throws IOException {
+		final File testfile = TestDataHelper.createTestFile(TESTDIR);
+		final PayloadContent content = new PayloadContent("transfertest1", testfile);
+
+		final Path target = TESTDIR.resolve(UUID.randomUUID().toString());
+		try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			assertEquals(testfile.length(), assertDoesNotThrow(() -> content.transferTo(out)));
+		}
+		assertArrayEquals(Files.readAllBytes(testfile.toPath()), Files.readAllBytes(target));
+
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		assertEquals(testfile.length(), assertDoesNotThrow(() -> content.transferTo(Channels.newChannel(baos))));
+		assertArrayEquals(Files.readAllBytes(testfile.toPath()), baos.toByteArray());
+	}
+
+	@Test
+	void testTransferToStalledTarget() throws IOException {
+		final Path testfile = TESTDIR.resolve(UUID.randomUUID().toString());
+		Files.write(testfile, new byte[1024 * 1024]);
+		final PayloadContent content = new PayloadContent("transfertest4", testfile.toFile());
+
+		// A non-blocking pipe that is not read accepts no more data once its buffer is full
+		final Pipe pipe = Pipe.open();
+		try (Pipe.SinkChannel sink = pipe.sink(); Pipe.SourceChannel source = pipe.source()) {
+			sink.configureBlocking(false);
+			assertTimeoutPreemptively(Duration.ofSeconds(10),
+									  () -> assertThrows(StorageException.class, () -> content.transferTo(sink)));
+		}
+	}
+
+	@Test
+	void testTransferFrom() throws IOException {
+		final File source = TestDataHelper.createTestFile(TESTDIR);
+		final PayloadContent content = new PayloadContent("transfertest2", TESTDIR.resolve("sub")
+																			.resolve(UUID.randomUUID().toString()));
+		try (FileChannel in = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+			assertEquals(source.length(), assertDoesNotThrow(() -> content.transferFrom(in)));
+		}
+		assertArrayEquals(Files.readAllBytes(source.toPath()), Files.readAllBytes(content.getContentPath()));
+		assertThrows(StorageException.class, () -> content.openStorage());
+
+		final byte[] data = TestDataHelper.createRandomData();
+		final PayloadContent content2 = new PayloadContent("transfertest3", TESTDIR.resolve(UUID.randomUUID().toString()));
+		assertEquals(data.length, assertDoesNotThrow(() ->
+								content2.transferFrom(Channels.newChannel(new ByteArrayInputStream(data)))));
+		assertArrayEquals(data, Files.readAllBytes(content2.getContentPath()));
+	}
+
+	@Test
+	void testAdoptFile() throws IOException {
+		final File source = TestDataHelper.createTestFile(TESTDIR);
+		final byte[] data = Files.readAllBytes(source.toPath());
+		final PayloadContent content = new PayloadContent("adopttest1", TESTDIR.resolve("sub")
+																			.resolve(UUID.randomUUID().toString()));
+
+		assertTrue(assertDoesNotThrow(() -> content.adoptFile(source.toPath())));
+		assertFalse(source.exists());
+		assertArrayEquals(data, Files.readAllBytes(content.getContentPath()));
+
+		assertThrows(StorageException.class, () -> content.openStorage());
+		final File another = TestDataHelper.createTestFile(TESTDIR);
+		assertThrows(StorageException.class, () -> content.adoptFile(another.toPath()));
+		assertTrue(another.exists());
+	}
+
 	@Test
 	void testRejectWritingClosed() {
 		final File testfile = TESTDIR.resolve(UUID.randomUUID().toString()).toFile();
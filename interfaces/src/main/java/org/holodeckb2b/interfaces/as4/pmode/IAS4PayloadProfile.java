@@ -43,4 +43,49 @@ public interface IAS4PayloadProfile extends IPayloadProfile {
      *          <code>null</code> if compression is not used
      */
     public String getCompressionType();
+
+    /**
+     * Gets the level of compression to use when the payload data is compressed using the AS4 Compression Feature. The
+     * level ranges from 1, fastest compression, to 9, best compression, and 0 for no compression at all. The same
+     * levels as used by {@link java.util.zip.Deflater} are used.
+     * <p>As this parameter is optional a default implementation is provided that indicates that the default level of
+     * the compression library should be used.
+     *
+     * @return	The compression level to use, or -1 if the default level should be used
+     * @since 8.0.0
+     */
+    default int getCompressionLevel() {
+    	return -1;
+    }
+
+    /**
+     * Gets the maximum size in bytes that the data of a received payload compressed using the AS4 Compression Feature
+     * may have after decompression. When the decompressed data exceeds this size the decompression is aborted and the
+     * message is rejected with a <i>DeCompressionFailure</i> error.
+     * <p>As this parameter is optional a default implementation is provided that indicates the gateway wide default
+     * limit, as set in the Holodeck B2B configuration, should be used.
+     *
+     * @return	The maximum size of the decompressed payload data, 0 or a negative value if the size should not be
+     * 			limited, or <code>null</code> if the default limit should be used
+     * @since 8.0.0
+     */
+    default Long getMaxDecompressedSize() {
+    	return null;
+    }
+
+    /**
+     * Gets the maximum ratio between the size of the decompressed and the compressed data of a received payload
+     * compressed using the AS4 Compression Feature. When the ratio is exceeded while decompressing the data, which
+     * indicates a <i>"zip bomb"</i>, the decompression is aborted and the message is rejected with a
+     * <i>DeCompressionFailure</i> error.
+     * <p>As this parameter is optional a default implementation is provided that indicates the gateway wide default
+     * limit, as set in the Holodeck B2B configuration, should be used.
+     *
+     * @return	The maximum compression ratio, 0 or a negative value if the ratio should not be limited, or
+     * 			<code>null</code> if the default limit should be used
+     * @since 8.0.0
+     */
+    default Integer getMaxCompressionRatio() {
+    	return null;
+    }
 }
@@ -122,6 +122,19 @@ public interface IQueryManager {
      */
     int getNumberOfTransmissions(final IUserMessageEntity userMessage) throws StorageException;
 
+    /**
+     * Retrieves the outgoing <i>User Message</i> message units that are waiting for a <i>Receipt</i>, i.e. which are
+     * in the {@link ProcessingState#AWAITING_RECEIPT}, {@link ProcessingState#TRANSPORT_FAILURE} or {@link
+     * ProcessingState#WARNING} state, and which next retry time is not set or at latest the given time.
+     *
+     * @param maxRetryTime	The latest next retry time to be included in the result
+     * @return				List of entity objects representing the User Messages due for a retransmission check
+     * @throws StorageException If an error occurs while retrieving the message units from the database
+     * @since 8.0.0
+     * @see IUserMessageEntity#getNextRetryTime()
+     */
+    List<IUserMessageEntity> getUserMessagesDueForRetry(final Date maxRetryTime) throws StorageException;
+
     /**
      * Checks whether there exists a <b>received</b> <i>User Message</i> message unit with the given <code>MessageId
      * </code> that has already been processed completely, i.e. its <i>current</i> processing state is either {@link
@@ -55,6 +55,21 @@ public interface IMessageValidationSpecification {
      */
     Boolean mustExecuteInOrder();
 
+    /**
+     * Indicates whether the validators should be executed concurrently. As the validators are then executed
+     * independently of each other this indicator only applies when execution in order is not required, see {@link
+     * #mustExecuteInOrder()}. When a validator finds an error with the severity level at which the validation should
+     * stop the validators that have not completed yet are cancelled.
+     * <p>The default implementation returns <code>Boolean.FALSE</code>.
+     *
+     * @return  <code>Boolean.TRUE</code> if the validators should be executed in parallel,<br>
+     *          <code>Boolean.FALSE</code> or <code>null</code> otherwise.
+     * @since 8.0.0
+     */
+    default Boolean executeInParallel() {
+    	return Boolean.FALSE;
+    }
+
     /**
      * Returns the validation error severity level at which the execution of the validations should stop, i.e. if a
      * validator finds a {@link MessageValidationError} with the returned severity no further validations are performed.
@@ -78,5 +78,19 @@ public interface IMessageValidator<M extends IMessageUnit> {
          * @throws MessageValidationException   When the factory can not provide a validator instance ready for use.
          */
        IMessageValidator createMessageValidator() throws MessageValidationException;
+
+       /**
+        * Indicates whether the validators created by this factory are thread safe, i.e. whether the same validator
+        * instance can be used to validate multiple message units concurrently. When the validators are thread safe
+        * the <i>validation executor</i> may re-use a validator instead of requesting a new one for each validation.
+        * <p>The default implementation returns <code>false</code>.
+        *
+        * @return <code>true</code> when the created validators are thread safe,<br>
+        * 		  <code>false</code> otherwise
+        * @since 8.0.0
+        */
+       default boolean createsThreadSafeValidators() {
+    	   return false;
+       }
     }
 }
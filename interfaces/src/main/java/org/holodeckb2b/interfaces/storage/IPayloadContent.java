@@ -16,8 +16,16 @@
  */
 package org.holodeckb2b.interfaces.storage;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import org.holodeckb2b.interfaces.storage.providers.IMetadataStorageProvider;
 import org.holodeckb2b.interfaces.storage.providers.IPayloadStorageProvider;
@@ -56,4 +64,86 @@ public interface IPayloadContent {
 	 * 							to this method has been closed.
 	 */
 	OutputStream openStorage() throws StorageException;
+
+	/**
+	 * Transfers the payload content to the given channel. The default implementation copies the content from the
+	 * stream returned by {@link #getContent()}, providers that can transfer the content directly to the channel, for
+	 * example by using {@link java.nio.channels.FileChannel#transferTo(long, long, WritableByteChannel)}, should
+	 * override this method.
+	 *
+	 * @param target	the channel to write the content to, it is not closed by this method
+	 * @return	the number of bytes transferred
+	 * @throws StorageException when no content is available or an error occurs reading or writing the content
+	 * @since 8.0.0
+	 */
+	default long transferTo(WritableByteChannel target) throws StorageException {
+		try (InputStream content = getContent()) {
+			if (content == null)
+				throw new StorageException("No content available");
+			final ReadableByteChannel source = Channels.newChannel(content);
+			final ByteBuffer buffer = ByteBuffer.allocate(10240);
+			long transferred = 0;
+			while (source.read(buffer) >= 0 || buffer.position() > 0) {
+				buffer.flip();
+				transferred += target.write(buffer);
+				buffer.compact();
+			}
+			return transferred;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not transfer the payload content", ioError);
+		}
+	}
+
+	/**
+	 * Writes all data read from the given channel to storage as the payload content and closes the storage. Like
+	 * {@link #openStorage()} this method can only be used when the content has not been written to storage yet. The
+	 * default implementation copies the data to the stream returned by {@link #openStorage()}, providers that can
+	 * transfer the data directly from the channel, for example by using {@link
+	 * java.nio.channels.FileChannel#transferFrom(ReadableByteChannel, long, long)}, should override this method.
+	 *
+	 * @param source	the channel to read the content from, it is not closed by this method
+	 * @return	the number of bytes transferred
+	 * @throws StorageException when the content has already been written to storage or an error occurs reading or
+	 * 							writing the content
+	 * @since 8.0.0
+	 */
+	default long transferFrom(ReadableByteChannel source) throws StorageException {
+		try (OutputStream storage = openStorage()) {
+			final WritableByteChannel target = Channels.newChannel(storage);
+			final ByteBuffer buffer = ByteBuffer.allocate(10240);
+			long transferred = 0;
+			while (source.read(buffer) >= 0 || buffer.position() > 0) {
+				buffer.flip();
+				transferred += target.write(buffer);
+				buffer.compact();
+			}
+			return transferred;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not transfer the payload content", ioError);
+		}
+	}
+
+	/**
+	 * Stores the given file, which contains the complete payload content, as the payload content. Providers that store
+	 * the content in files can take over the given file by moving it into storage, so the data does not need to be
+	 * written again. Therefore the caller must not use the file anymore after calling this method. Like {@link
+	 * #openStorage()} this method can only be used when the content has not been written to storage yet.
+	 * <p>The default implementation copies the content of the file using {@link #transferFrom(ReadableByteChannel)}
+	 * and leaves the file in place.
+	 *
+	 * @param file	path of the file containing the payload content
+	 * @return	<code>true</code> when the file has been moved into storage, <code>false</code> when its content has been
+	 * 			copied and the file is left in place
+	 * @throws StorageException when the content has already been written to storage or an error occurs reading or
+	 * 							writing the content
+	 * @since 8.0.0
+	 */
+	default boolean adoptFile(Path file) throws StorageException {
+		try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+			transferFrom(source);
+			return false;
+		} catch (IOException ioError) {
+			throw new StorageException("Could not read the payload content from " + file.toString(), ioError);
+		}
+	}
 }
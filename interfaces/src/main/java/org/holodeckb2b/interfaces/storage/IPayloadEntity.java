@@ -76,6 +76,30 @@ public interface IPayloadEntity extends IPayload {
 	 */
 	void setMimeType(String mt);
 
+	/**
+	 * Gets the size of the payload content in bytes. The size is determined when the content is stored so it is known
+	 * without reading the content again.
+	 * <p>As storing the size is optional for the <i>Metadata Storage Provider</i> a default implementation is provided
+	 * that indicates the size is unknown.
+	 *
+	 * @return	the size of the payload content in bytes, or -1 if not known
+	 * @since 8.0.0
+	 */
+	default long getContentLength() {
+		return -1;
+	}
+
+	/**
+	 * Sets the size of the payload content.
+	 * <p>As storing the size is optional for the <i>Metadata Storage Provider</i> a default implementation is provided
+	 * that does not store the size.
+	 *
+	 * @param length	the size of the payload content in bytes
+	 * @since 8.0.0
+	 */
+	default void setContentLength(long length) {
+	}
+
 	/**
 	 * Sets the reference to the payload content in the message.
 	 * <p>Corresponds to the <code>href</code> attribute of the <code>//eb:UserMessage/eb:IPayloadInfo/eb:PartInfo</code>
@@ -17,8 +17,13 @@
 package org.holodeckb2b.interfaces.storage;
 
 import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
 import org.holodeckb2b.interfaces.storage.providers.IMetadataStorageProvider;
 import org.holodeckb2b.interfaces.messagemodel.IUserMessage;
+import org.holodeckb2b.interfaces.processingmodel.IMessageUnitProcessingState;
+import org.holodeckb2b.interfaces.processingmodel.ProcessingState;
 
 /**
  * Defines the interface of the stored object that is used by the Holodeck B2B to store the User Message specific
@@ -43,4 +48,44 @@ public interface IUserMessageEntity extends IMessageUnitEntity, IUserMessage {
 	 */
 	@Override
 	Collection<? extends IPayloadEntity> getPayloads();
+
+	/**
+	 * Gets the time at which the User Message is due for the next check on its retransmission, i.e. when it should
+	 * either be retransmitted or a <i>MissingReceipt</i> error should be generated because no Receipt has been received
+	 * in time. The time is set by the Core when the User Message enters one of the states in which it is waiting for a
+	 * Receipt.
+	 * <p>NOTE: The default implementation returns <code>null</code> for providers that do not store the retry time.
+	 * In that case the Core will determine the retry time again each time it checks the message.
+	 *
+	 * @return	the time of the next retransmission check, or <code>null</code> if not set
+	 * @since 8.0.0
+	 */
+	default Date getNextRetryTime() {
+		return null;
+	}
+
+	/**
+	 * Sets the time at which the User Message is due for the next check on its retransmission.
+	 * <p>NOTE: The default implementation ignores the given value for providers that do not store the retry time.
+	 *
+	 * @param nextRetryTime	the time of the next retransmission check, <code>null</code> to clear
+	 * @since 8.0.0
+	 */
+	default void setNextRetryTime(Date nextRetryTime) {
+	}
+
+	/**
+	 * Gets the number of times the User Message has been transmitted, i.e. the number of times the <i>SENDING</i>
+	 * processing state has been recorded for the message.
+	 * <p>NOTE: The default implementation counts the <i>SENDING</i> states in the processing state history of the
+	 * entity object. Providers that maintain a counter should override this method so no history needs to be loaded.
+	 *
+	 * @return	the number of transmission attempts
+	 * @since 8.0.0
+	 */
+	default int getTransmissionAttempts() {
+		final List<IMessageUnitProcessingState> states = getProcessingStates();
+		return states == null ? 0 : (int) states.stream().filter(s -> s.getState() == ProcessingState.SENDING)
+														 .count();
+	}
 }
@@ -16,10 +16,13 @@
  */
 package org.holodeckb2b.interfaces.storage.providers;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import org.holodeckb2b.interfaces.config.IConfiguration;
 import org.holodeckb2b.interfaces.messagemodel.Direction;
@@ -119,6 +122,28 @@ public interface IMetadataStorageProvider {
 	 */
 	void updateMessageUnit(final IMessageUnitEntity messageUnit) throws AlreadyChangedException, StorageException;
 
+	/**
+	 * Saves the updated meta-data of multiple message units to the database. This method is used by the Holodeck B2B
+	 * Core to save the changes made to the message units during the processing of a message at once. As in {@link
+	 * #updateMessageUnit(IMessageUnitEntity)} the update must be rejected if the database already contains newer data
+	 * of a message unit. Implementations SHOULD save the updates in a single transaction, so either all or none of the
+	 * updates are saved.
+	 * <p>
+	 * NOTE: The default implementation saves the message units one by one using {@link
+	 * #updateMessageUnit(IMessageUnitEntity)}. When an update is rejected the updates of the message units before it
+	 * have therefore already been saved.
+	 *
+	 * @param messageUnits	Entity objects containing the updated data that should be saved to storage
+	 * @throws AlreadyChangedException When the database contains more up to date data of one of the message units
+	 * @throws StorageException   If some other error occured when saving the updated message units to the database
+	 * @since 8.0.0
+	 */
+	default void updateMessageUnits(final Collection<? extends IMessageUnitEntity> messageUnits)
+																	throws AlreadyChangedException, StorageException {
+		for (IMessageUnitEntity m : messageUnits)
+			updateMessageUnit(m);
+	}
+
 	/**
 	 * Deletes the meta-data of the given message unit from the database. For User Message message units the provider
 	 * must also remove all related {@link IPayloadEntity} objects.
@@ -163,6 +188,119 @@ public interface IMetadataStorageProvider {
 	 */
 	void deletePayloadMetadata(final IPayloadEntity payload) throws StorageException;
 
+	/*----------------------------------------------------------------------------------------------------------------
+	 * Methods to claim message units for processing
+	 *--------------------------------------------------------------------------------------------------------------*/
+
+	/**
+	 * Claims at most the given number of message units of the specified type that are flowing in the specified
+	 * direction and are in the given processing state by changing their processing state to the given new state. The
+	 * message units are claimed in ascending order of their time stamp, i.e. the oldest message units are claimed
+	 * first.
+	 * <p>
+	 * Changing the processing state of a message unit MUST follow the same rules as {@link
+	 * #updateMessageUnit(IMessageUnitEntity)}, i.e. a message unit that has been changed by another thread since it
+	 * was selected MUST NOT be claimed. The number of claimed message units can therefore be less than the requested
+	 * maximum, even when there are more message units in the given state.
+	 * <p>
+	 * NOTE: The default implementation uses {@link #getMessageUnitsInState(Class, Direction, Set)} to select the
+	 * message units and therefore retrieves all message units in the given state. Implementations SHOULD override this
+	 * method and limit the number of message units retrieved from storage to the requested maximum.
+	 *
+	 * @param <T>       Limits the <code>type</code> parameter to only message unit classes
+	 * @param <V>       The returned objects will be entity objects. V and T will share the same parent type.
+	 * @param type      The type of message units to claim specified by the interface they implement
+	 * @param direction The direction of the message units to claim
+	 * @param state     The processing state the message units to claim should be in
+	 * @param newState  The processing state to set on the claimed message units
+	 * @param max       The maximum number of message units to claim
+	 * @return          List with entity objects representing the claimed message units, in ascending order on time
+	 * 					stamp. Will be empty if no message unit could be claimed.
+	 * @throws StorageException When a problem occurs during the retrieval or update of the message units
+	 * @since 8.0.0
+	 */
+	default <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> claimMessageUnitsInState(
+																				final Class<T> type,
+																				final Direction direction,
+																				final ProcessingState state,
+																				final ProcessingState newState,
+																				final int max)
+																						throws StorageException {
+		return claim(getMessageUnitsInState(type, direction, Collections.singleton(state)), state, newState, null, max);
+	}
+
+	/**
+	 * Claims at most the given number of message units of the specified type that are in the given processing state and
+	 * which processing is defined by a P-Mode with one of the given P-Mode ids by changing their processing state to
+	 * the given new state. The message units are claimed in ascending order of the timestamp of the current processing
+	 * state, i.e. the messages that are the longest in the given state are claimed first. Optionally a filter can be
+	 * specified that is applied to the message units before they are claimed. This can be used to check additional
+	 * criteria, for example the MPC on which a message unit is to be pulled.
+	 * <p>
+	 * As in {@link #claimMessageUnitsInState(Class, Direction, ProcessingState, ProcessingState, int)} a message unit
+	 * that has been changed by another thread since it was selected MUST NOT be claimed.
+	 * <p>
+	 * NOTE: The default implementation uses {@link #getMessageUnitsForPModesInState(Class, Set, ProcessingState)} to
+	 * select the message units and therefore retrieves all message units in the given state. Implementations SHOULD
+	 * override this method and limit the number of message units retrieved from storage.
+	 *
+	 * @param <T>       Limits the <code>type</code> parameter to only message unit classes
+	 * @param <V>       The returned objects will be entity objects. V and T will share the same parent type.
+	 * @param type      The type of message units to claim specified by the interface they implement
+	 * @param pmodeIds  Set of P-Mode ids
+	 * @param state     The processing state the message units to claim should be in
+	 * @param newState  The processing state to set on the claimed message units
+	 * @param filter	Additional criteria the message units must meet to be claimed, may be <code>null</code>
+	 * @param max       The maximum number of message units to claim
+	 * @return          The ordered list of entity objects representing the claimed message units. Will be empty if
+	 * 					no message unit could be claimed.
+	 * @throws StorageException When a problem occurs during the retrieval or update of the message units
+	 * @since 8.0.0
+	 */
+	default <T extends IMessageUnit, V extends IMessageUnitEntity> List<V> claimMessageUnitsForPModesInState(
+																				final Class<T> type,
+																				final Set<String> pmodeIds,
+																				final ProcessingState state,
+																				final ProcessingState newState,
+																				final Predicate<V> filter,
+																				final int max)
+																						throws StorageException {
+		return claim(getMessageUnitsForPModesInState(type, pmodeIds, state), state, newState, filter, max);
+	}
+
+	/**
+	 * Helper method for the default implementations of the claim methods that claims the given candidate message units
+	 * one by one until the requested maximum is reached.
+	 *
+	 * @param <V>			The type of entity objects
+	 * @param candidates	The message units that are candidate for claiming
+	 * @param state			The processing state the message units to claim should be in
+	 * @param newState		The processing state to set on the claimed message units
+	 * @param filter		Additional criteria the message units must meet, may be <code>null</code>
+	 * @param max			The maximum number of message units to claim
+	 * @return				The claimed message units
+	 * @throws StorageException When an error occurs updating the processing state of a message unit
+	 */
+	private <V extends IMessageUnitEntity> List<V> claim(final List<V> candidates, final ProcessingState state,
+														 final ProcessingState newState, final Predicate<V> filter,
+														 final int max) throws StorageException {
+		final List<V> claimed = new ArrayList<>();
+		for (V m : candidates) {
+			if (claimed.size() >= max)
+				break;
+			if (m.getCurrentProcessingState().getState() != state || (filter != null && !filter.test(m)))
+				continue;
+			m.setProcessingState(newState, null);
+			try {
+				updateMessageUnit(m);
+				claimed.add(m);
+			} catch (AlreadyChangedException claimedByOther) {
+				// Message unit was changed by other thread, so cannot be claimed
+			}
+		}
+		return claimed;
+	}
+
 	/*----------------------------------------------------------------------------------------------------------------
 	 * Query methods to retrieve message unit meta-data
 	 *--------------------------------------------------------------------------------------------------------------*/
@@ -256,6 +394,33 @@ public interface IMetadataStorageProvider {
 	 */
 	int getNumberOfTransmissions(final IUserMessageEntity userMessage) throws StorageException;
 
+	/**
+	 * Retrieves the outgoing <i>User Message</i> message units that are waiting for a <i>Receipt</i>, i.e. which are
+	 * in the {@link ProcessingState#AWAITING_RECEIPT}, {@link ProcessingState#TRANSPORT_FAILURE} or {@link
+	 * ProcessingState#WARNING} state, and which are due for a retransmission check, i.e. which next retry time is not
+	 * set or at latest the given time. The message units are ordered ascending on their next retry time.
+	 * <p>NOTE: The default implementation uses {@link #getMessageUnitsInState(Class, Direction, Set)} to retrieve all
+	 * waiting User Messages and filters them. Providers should override it with a more efficient query.
+	 *
+	 * @param maxRetryTime	The latest next retry time to be included in the result
+	 * @return				List of entity objects representing the User Messages due for a retransmission check
+	 * @throws StorageException If an error occurs while retrieving the message units from the database
+	 * @since 8.0.0
+	 */
+	default List<IUserMessageEntity> getUserMessagesDueForRetry(final Date maxRetryTime) throws StorageException {
+		final List<IUserMessageEntity> due = new ArrayList<>();
+		for (IUserMessageEntity um : this.<IUserMessage, IUserMessageEntity>getMessageUnitsInState(IUserMessage.class,
+												Direction.OUT, Set.of(ProcessingState.AWAITING_RECEIPT,
+																	  ProcessingState.TRANSPORT_FAILURE,
+																	  ProcessingState.WARNING)))
+			if (um.getNextRetryTime() == null || !um.getNextRetryTime().after(maxRetryTime))
+				due.add(um);
+		due.sort((a, b) -> a.getNextRetryTime() == null ? (b.getNextRetryTime() == null ? 0 : -1)
+												 : (b.getNextRetryTime() == null ? 1
+														 : a.getNextRetryTime().compareTo(b.getNextRetryTime())));
+		return due;
+	}
+
 	/**
 	 * Checks whether there exists a <b>received</b> <i>User Message</i> message unit with the given <code>MessageId
 	 * </code> that has already been processed completely or is in the process of delivery to the back end, i.e. its
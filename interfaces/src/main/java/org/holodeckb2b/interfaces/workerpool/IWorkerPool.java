@@ -16,7 +16,9 @@
  */
 package org.holodeckb2b.interfaces.workerpool;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.holodeckb2b.interfaces.core.HolodeckB2BCoreInterface;
 
@@ -47,6 +49,19 @@ public interface IWorkerPool {
      */
     List<IWorkerConfiguration>   getCurrentWorkers() throws WorkerPoolException;
 
+    /**
+     * Gets the current statistics of the workers in the pool, as reported by their tasks using {@link
+     * IWorkerTask#getStatistics()}. Only workers that report statistics are included.
+     * <p>NOTE: The default implementation returns an empty map.
+     *
+     * @return  map with the statistics of the workers, keyed by the name of the worker
+     * @throws WorkerPoolException when the worker pool is (being) stopped
+     * @since 8.0.0
+     */
+    default Map<String, Map<String, ?>> getWorkerStatistics() throws WorkerPoolException {
+    	return Collections.emptyMap();
+    }
+
     /**
      * Gets the interval at which the configuration of this pool is refreshed.
      *
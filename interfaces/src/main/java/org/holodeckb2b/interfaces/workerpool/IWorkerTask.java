@@ -16,6 +16,7 @@
  */
 package org.holodeckb2b.interfaces.workerpool;
 
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -56,4 +57,16 @@ public interface IWorkerTask extends Runnable {
      * @throws TaskConfigurationException  When the task can not be configured based on the supplied parameters
      */
     public void setParameters(Map<String, ?> parameters) throws TaskConfigurationException;
+
+    /**
+     * Gets the current statistics of the task that can be used to monitor its execution. The statistics are returned
+     * as a map of named values and should cover all instances of the worker when they share their state.
+     * <p>NOTE: The default implementation returns an empty map as most tasks do not collect statistics.
+     *
+     * @return  the current statistics of the task, empty when the task does not collect statistics
+     * @since 8.0.0
+     */
+    default Map<String, ?> getStatistics() {
+    	return Collections.emptyMap();
+    }
 }